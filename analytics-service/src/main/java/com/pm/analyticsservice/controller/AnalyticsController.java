@@ -0,0 +1,55 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.service.PatientProjectionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+// all reads are served from the local projection, patient-service's database is never touched
+@RestController
+@RequestMapping("/analytics") // http://localhost:4002/analytics
+public class AnalyticsController {
+    private final PatientProjectionService projectionService;
+
+    public AnalyticsController(PatientProjectionService projectionService) {
+        this.projectionService = projectionService;
+    }
+
+    @GetMapping("/patients/count")
+    public ResponseEntity<Map<String, Long>> getPatientCount() {
+        return ResponseEntity.ok().body(Map.of("patients", projectionService.patientCount()));
+    }
+
+    // registration month (yyyy-MM) -> patients
+    @GetMapping("/patients/registration-cohorts")
+    public ResponseEntity<Map<String, Long>> getRegistrationCohorts() {
+        return ResponseEntity.ok().body(projectionService.registrationCohorts());
+    }
+
+    @GetMapping("/patients/email-domains")
+    public ResponseEntity<Map<String, Long>> getEmailDomains() {
+        return ResponseEntity.ok().body(projectionService.emailDomains());
+    }
+
+    @GetMapping("/patients/age-buckets")
+    public ResponseEntity<Map<String, Long>> getAgeBuckets() {
+        return ResponseEntity.ok().body(projectionService.ageBuckets());
+    }
+
+    @PostMapping("/projection/snapshot")
+    public ResponseEntity<Map<String, String>> snapshot() throws IOException {
+        return ResponseEntity.ok().body(Map.of("snapshot", projectionService.snapshot().toString()));
+    }
+
+    // the projection is rebuilt in the background by the Kafka consumer
+    @PostMapping("/projection/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        projectionService.rebuild();
+        return ResponseEntity.accepted().build();
+    }
+}
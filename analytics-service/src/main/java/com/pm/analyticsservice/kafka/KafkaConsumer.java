@@ -1,34 +1,119 @@
 package com.pm.analyticsservice.kafka;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.projection.PatientProjectionStore;
+import com.pm.patientevents.PatientEventView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 // whenever the Spring Boot application starts, it registers this Kafka consumer as a Spring Bean
 // and will automatically start the Kafka listener
 @Service
-public class KafkaConsumer {
+public class KafkaConsumer extends AbstractConsumerSeekAware {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
 
-    // any events sent to the Patient topic are going to be consumed by this method
-    @KafkaListener(topics = "patient", groupId = "analytics=service")
-    public void consumeEvent(byte[] event) {
-        try {
-            // byte[] event may not be type compatible with the patientEvent Java class
-            PatientEvent patientEvent = PatientEvent.parseFrom(event);
-
-            // perform any business logic related to analytics here
-
-            log.info("Received Patient Event: [PatientId={}, PatientName={}, PatientEmail={}]",
-                    patientEvent.getPatientId(),
-                    patientEvent.getName(),
-                    patientEvent.getEmail());
-        } catch (InvalidProtocolBufferException e) {
-            log.error("Error deserializing event {}", e.getMessage());
+    private final PatientProjectionStore projectionStore;
+    private final MeterRegistry meterRegistry;
+    private final Timer applyTimer;
+
+    // records between this consumer's position and the end of each assigned partition, as of the last poll
+    private final Map<TopicPartition, PartitionLag> lag = new ConcurrentHashMap<>();
+
+    public KafkaConsumer(PatientProjectionStore projectionStore, MeterRegistry meterRegistry) {
+        this.projectionStore = projectionStore;
+        this.meterRegistry = meterRegistry;
+        this.applyTimer = Timer.builder("analytics.events.apply")
+                .description("Time to fold one poll of patient events into the projection")
+                .register(meterRegistry);
+    }
+
+    // any events sent to the Patient topic are consumed here, a whole poll at a time,
+    // and folded into the local projection with one write transaction per poll
+    @KafkaListener(topics = "patient", groupId = "analytics=service", batch = "true")
+    public void consumeEvents(List<ConsumerRecord<String, PatientEventView>> records, Consumer<?, ?> consumer) {
+        List<PatientEventView> events = new ArrayList<>(records.size());
+        Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+
+        for (ConsumerRecord<String, PatientEventView> record : records) {
+            try {
+                // the view decodes lazily; reading the id checks the whole event is well formed before it's applied
+                record.value().patientId();
+                events.add(record.value());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                log.error("Skipping undecodable event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getMessage());
+                meterRegistry.counter("analytics.events.deserialization.errors", "topic", record.topic()).increment();
+            }
+            nextOffsets.put(new TopicPartition(record.topic(), record.partition()), record.offset() + 1);
         }
+
+        applyTimer.record(() -> projectionStore.apply(events, nextOffsets));
+        meterRegistry.counter("analytics.events.consumed", "topic", "patient").increment(records.size());
+        log.debug("Applied {} patient event(s) to the projection", events.size());
+
+        recordLag(consumer);
+    }
+
+    // currentLag is worked out from the last fetch response, it doesn't call the broker
+    private void recordLag(Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            consumer.currentLag(partition).ifPresent(
+                    value -> lag.computeIfAbsent(partition, this::registerLag).records().set(value));
+        }
+    }
+
+    private PartitionLag registerLag(TopicPartition partition) {
+        AtomicLong records = new AtomicLong();
+        Gauge gauge = Gauge.builder("analytics.consumer.lag", records, AtomicLong::get)
+                .description("Records behind the end of the partition")
+                .tags("topic", partition.topic(), "partition", String.valueOf(partition.partition()))
+                .register(meterRegistry);
+        return new PartitionLag(records, gauge);
+    }
+
+    // another instance owns these partitions now, it reports their lag
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        super.onPartitionsRevoked(partitions);
+
+        for (TopicPartition partition : partitions) {
+            PartitionLag revoked = lag.remove(partition);
+            if (revoked != null) {
+                meterRegistry.remove(revoked.gauge());
+            }
+        }
+    }
+
+    // the projection, not the consumer group, owns the offsets: resume from what was last applied,
+    // or read the partition from the start when the projection has never seen it
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+
+        for (TopicPartition partition : assignments.keySet()) {
+            projectionStore.nextOffset(partition).ifPresentOrElse(
+                    offset -> callback.seek(partition.topic(), partition.partition(), offset),
+                    () -> callback.seekToBeginning(List.of(partition)));
+        }
+    }
+
+    private record PartitionLag(AtomicLong records, Gauge gauge) {
     }
 }
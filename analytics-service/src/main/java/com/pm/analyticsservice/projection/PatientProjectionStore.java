@@ -0,0 +1,220 @@
+package com.pm.analyticsservice.projection;
+
+import com.pm.patientevents.PatientEventView;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.TopicPartition;
+import org.lmdbjava.ByteArrayProxy;
+import org.lmdbjava.CopyFlags;
+import org.lmdbjava.CursorIterable;
+import org.lmdbjava.Dbi;
+import org.lmdbjava.DbiFlags;
+import org.lmdbjava.Env;
+import org.lmdbjava.KeyRange;
+import org.lmdbjava.Txn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEventType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+Local patient projection kept in LMDB, an embedded memory-mapped key-value store. Three sub-databases live in the
+same environment:
+  patients  patient id -> latest PatientEvent snapshot
+  counters  aggregate name -> count ("total", "cohort:2024-01", "domain:example.com", "birth-date:1985-06-15")
+  offsets   topic-partition -> next offset to read
+Every batch of events updates all three in a single write transaction, so after a crash the stored offsets always
+match the stored state and the consumer simply carries on from there.
+ */
+@Component
+public class PatientProjectionStore {
+    private static final Logger log = LoggerFactory.getLogger(PatientProjectionStore.class);
+
+    private static final String TOTAL = "total";
+    private static final String COHORT_PREFIX = "cohort:";
+    private static final String DOMAIN_PREFIX = "domain:";
+    private static final String BIRTH_DATE_PREFIX = "birth-date:";
+
+    private final Path path;
+    private final long mapSizeBytes;
+
+    private Env<byte[]> env;
+    private Dbi<byte[]> patients;
+    private Dbi<byte[]> counters;
+    private Dbi<byte[]> offsets;
+
+    public PatientProjectionStore(@Value("${analytics.projection.path:data/projection}") Path path,
+                                  @Value("${analytics.projection.map-size-mb:1024}") long mapSizeMb) {
+        this.path = path;
+        this.mapSizeBytes = mapSizeMb * 1024 * 1024;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(path);
+
+        // byte[] buffers avoid the --add-opens flags the direct ByteBuffer proxies need on Java 17+
+        env = Env.create(ByteArrayProxy.PROXY_BA)
+                .setMapSize(mapSizeBytes) // virtual address space only, the file grows as it is written
+                .setMaxDbs(3)
+                .open(path.toFile());
+        patients = env.openDbi("patients", DbiFlags.MDB_CREATE);
+        counters = env.openDbi("counters", DbiFlags.MDB_CREATE);
+        offsets = env.openDbi("offsets", DbiFlags.MDB_CREATE);
+
+        log.info("Opened patient projection at {} ({} patients)", path.toAbsolutePath(), patientCount());
+    }
+
+    @PreDestroy
+    public void close() {
+        env.close();
+    }
+
+    // events are applied in order; nextOffsets are stored in the same transaction
+    public void apply(List<PatientEventView> events, Map<TopicPartition, Long> nextOffsets) {
+        try (Txn<byte[]> txn = env.txnWrite()) {
+            for (PatientEventView event : events) {
+                apply(txn, event);
+            }
+            nextOffsets.forEach((partition, offset) -> offsets.put(txn, offsetKey(partition), encode(offset)));
+            txn.commit();
+        }
+    }
+
+    public Optional<Long> nextOffset(TopicPartition partition) {
+        try (Txn<byte[]> txn = env.txnRead()) {
+            return Optional.ofNullable(offsets.get(txn, offsetKey(partition))).map(PatientProjectionStore::decode);
+        }
+    }
+
+    // empties the projection and forgets all offsets
+    public void clear() {
+        try (Txn<byte[]> txn = env.txnWrite()) {
+            patients.drop(txn);
+            counters.drop(txn);
+            offsets.drop(txn);
+            txn.commit();
+        }
+    }
+
+    // consistent copy of the whole store, taken without blocking writers
+    public void copyTo(Path target) throws IOException {
+        Files.createDirectories(target); // lmdb wants an existing, empty directory
+        env.copy(target.toFile(), CopyFlags.MDB_CP_COMPACT);
+    }
+
+    public long patientCount() {
+        try (Txn<byte[]> txn = env.txnRead()) {
+            byte[] total = counters.get(txn, utf8(TOTAL));
+            return total == null ? 0 : decode(total);
+        }
+    }
+
+    public Map<String, Long> registrationCohorts() {
+        return countersWithPrefix(COHORT_PREFIX);
+    }
+
+    public Map<String, Long> emailDomains() {
+        return countersWithPrefix(DOMAIN_PREFIX);
+    }
+
+    public Map<String, Long> birthDates() {
+        return countersWithPrefix(BIRTH_DATE_PREFIX);
+    }
+
+    private void apply(Txn<byte[]> txn, PatientEventView event) {
+        byte[] key = utf8(event.patientId());
+
+        // replace the patient's previous contribution to the aggregates with the new one
+        byte[] previous = patients.get(txn, key);
+        if (previous != null) {
+            count(txn, new PatientEventView(previous), -1);
+        }
+
+        if (event.type() == PatientEventType.PATIENT_DELETED) {
+            patients.delete(txn, key);
+            return;
+        }
+        patients.put(txn, key, event.bytes()); // stored exactly as it arrived, no re-encoding
+        count(txn, event, 1);
+    }
+
+    // only the three fields the aggregates need are decoded
+    private void count(Txn<byte[]> txn, PatientEventView patient, long delta) {
+        increment(txn, TOTAL, delta);
+
+        String registeredDate = patient.registeredDate();
+        if (registeredDate.length() >= 7) {
+            increment(txn, COHORT_PREFIX + registeredDate.substring(0, 7), delta); // yyyy-MM
+        }
+        String email = patient.email();
+        int at = email.lastIndexOf('@');
+        if (at >= 0) {
+            increment(txn, DOMAIN_PREFIX + email.substring(at + 1).toLowerCase(Locale.ROOT), delta);
+        }
+        String dateOfBirth = patient.dateOfBirth();
+        if (!dateOfBirth.isEmpty()) {
+            increment(txn, BIRTH_DATE_PREFIX + dateOfBirth, delta); // ages are worked out at query time
+        }
+    }
+
+    private void increment(Txn<byte[]> txn, String counter, long delta) {
+        byte[] key = utf8(counter);
+        byte[] current = counters.get(txn, key);
+        long value = (current == null ? 0 : decode(current)) + delta;
+
+        if (value <= 0) {
+            counters.delete(txn, key); // keeps prefix scans down to the buckets that actually have patients
+        } else {
+            counters.put(txn, key, encode(value));
+        }
+    }
+
+    private Map<String, Long> countersWithPrefix(String prefix) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        byte[] start = utf8(prefix);
+
+        // keys are sorted, so the scan starts at the prefix and stops at the first key past it
+        try (Txn<byte[]> txn = env.txnRead();
+             CursorIterable<byte[]> cursor = counters.iterate(txn, KeyRange.atLeast(start))) {
+            for (CursorIterable.KeyVal<byte[]> entry : cursor) {
+                byte[] key = entry.key();
+                if (key.length < start.length || !Arrays.equals(key, 0, start.length, start, 0, start.length)) {
+                    break;
+                }
+                result.put(new String(key, start.length, key.length - start.length, StandardCharsets.UTF_8),
+                        decode(entry.val()));
+            }
+        }
+        return result;
+    }
+
+    private static byte[] offsetKey(TopicPartition partition) {
+        return utf8(partition.topic() + "-" + partition.partition());
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encode(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private static long decode(byte[] value) {
+        return ByteBuffer.wrap(value).getLong();
+    }
+}
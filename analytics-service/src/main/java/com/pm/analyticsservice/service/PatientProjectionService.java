@@ -0,0 +1,122 @@
+package com.pm.analyticsservice.service;
+
+import com.pm.analyticsservice.kafka.KafkaConsumer;
+import com.pm.analyticsservice.projection.PatientProjectionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// analytics queries answered from the local projection, plus its snapshots and rebuilds
+@Service
+public class PatientProjectionService {
+    private static final Logger log = LoggerFactory.getLogger(PatientProjectionService.class);
+    private static final DateTimeFormatter SNAPSHOT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // lower bound (inclusive) of each age bucket
+    private static final Map<String, Integer> AGE_BUCKETS = new LinkedHashMap<>();
+    static {
+        AGE_BUCKETS.put("0-17", 0);
+        AGE_BUCKETS.put("18-29", 18);
+        AGE_BUCKETS.put("30-44", 30);
+        AGE_BUCKETS.put("45-64", 45);
+        AGE_BUCKETS.put("65+", 65);
+    }
+
+    private final PatientProjectionStore projectionStore;
+    private final KafkaConsumer kafkaConsumer;
+    private final Path snapshotDir;
+    private final int snapshotsToKeep;
+
+    public PatientProjectionService(PatientProjectionStore projectionStore,
+                                    KafkaConsumer kafkaConsumer,
+                                    @Value("${analytics.projection.snapshot-dir:data/projection-snapshots}") Path snapshotDir,
+                                    @Value("${analytics.projection.snapshots-to-keep:3}") int snapshotsToKeep) {
+        this.projectionStore = projectionStore;
+        this.kafkaConsumer = kafkaConsumer;
+        this.snapshotDir = snapshotDir;
+        this.snapshotsToKeep = snapshotsToKeep;
+    }
+
+    public long patientCount() {
+        return projectionStore.patientCount();
+    }
+
+    public Map<String, Long> registrationCohorts() {
+        return projectionStore.registrationCohorts();
+    }
+
+    public Map<String, Long> emailDomains() {
+        return projectionStore.emailDomains();
+    }
+
+    // ages change every day, so they are worked out from the birth date counts on each request
+    public Map<String, Long> ageBuckets() {
+        LocalDate today = LocalDate.now();
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        AGE_BUCKETS.keySet().forEach(bucket -> buckets.put(bucket, 0L));
+
+        projectionStore.birthDates().forEach((dateOfBirth, count) -> {
+            int age = Period.between(LocalDate.parse(dateOfBirth), today).getYears();
+            buckets.merge(bucketFor(age), count, Long::sum);
+        });
+        return buckets;
+    }
+
+    // the copy includes the stored offsets, so restoring a snapshot resumes the consumer from that point
+    @Scheduled(cron = "${analytics.projection.snapshot-cron:0 0 3 * * *}")
+    public Path snapshot() throws IOException {
+        Path target = snapshotDir.resolve(LocalDateTime.now().format(SNAPSHOT_NAME));
+        projectionStore.copyTo(target);
+        log.info("Wrote patient projection snapshot to {}", target.toAbsolutePath());
+
+        pruneSnapshots();
+        return target;
+    }
+
+    // wipes the projection and replays the patient topic from the beginning
+    public void rebuild() {
+        projectionStore.clear();
+        kafkaConsumer.seekToBeginning();
+        log.info("Patient projection cleared, replaying the patient topic from the beginning");
+    }
+
+    private void pruneSnapshots() throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> entries = Files.list(snapshotDir)) {
+            snapshots = entries.filter(Files::isDirectory).sorted(Comparator.reverseOrder()).toList();
+        }
+
+        for (Path old : snapshots.stream().skip(snapshotsToKeep).toList()) {
+            try (Stream<Path> files = Files.walk(old)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static String bucketFor(int age) {
+        String bucket = null;
+        for (Map.Entry<String, Integer> entry : AGE_BUCKETS.entrySet()) {
+            if (age >= entry.getValue()) {
+                bucket = entry.getKey();
+            }
+        }
+        return bucket == null ? "0-17" : bucket;
+    }
+}
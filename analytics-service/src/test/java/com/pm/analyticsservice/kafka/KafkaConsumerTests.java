@@ -0,0 +1,60 @@
+package com.pm.analyticsservice.kafka;
+
+import com.pm.analyticsservice.projection.PatientProjectionStore;
+import com.pm.patientevents.PatientEventView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class KafkaConsumerTests {
+	private static final TopicPartition PARTITION = new TopicPartition("patient", 0);
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final KafkaConsumer kafkaConsumer = new KafkaConsumer(mock(PatientProjectionStore.class), meterRegistry);
+
+	@Test
+	void reportsLagThroughputAndUndecodableEvents() {
+		MockConsumer<String, PatientEventView> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+		consumer.assign(List.of(PARTITION));
+		consumer.updateEndOffsets(Map.of(PARTITION, 10L));
+		consumer.seek(PARTITION, 2);
+
+		kafkaConsumer.consumeEvents(List.of(
+				record(0, new PatientEventView(PatientEvent.newBuilder()
+						.setPatientId("p1")
+						.setType(PatientEventType.PATIENT_CREATED)
+						.setSchemaVersion(2)
+						.build()
+						.toByteArray())),
+				record(1, new PatientEventView(new byte[] {(byte) 0xff}))), consumer);
+
+		assertEquals(8, lag());
+		assertEquals(2, meterRegistry.get("analytics.events.consumed").counter().count());
+		assertEquals(1, meterRegistry.get("analytics.events.deserialization.errors").counter().count());
+		assertEquals(1, meterRegistry.get("analytics.events.apply").timer().count());
+
+		kafkaConsumer.onPartitionsRevoked(List.of(PARTITION));
+		assertNull(meterRegistry.find("analytics.consumer.lag").gauge());
+	}
+
+	private double lag() {
+		return meterRegistry.get("analytics.consumer.lag").tag("partition", "0").gauge().value();
+	}
+
+	private static ConsumerRecord<String, PatientEventView> record(long offset, PatientEventView event) {
+		return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, null, event);
+	}
+}
@@ -0,0 +1,73 @@
+package com.pm.analyticsservice.projection;
+
+import com.pm.patientevents.PatientEventView;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PatientProjectionStoreTests {
+	private static final TopicPartition PARTITION = new TopicPartition("patient", 0);
+
+	@TempDir
+	Path dir;
+
+	private PatientProjectionStore store;
+
+	@BeforeEach
+	void openStore() throws Exception {
+		store = new PatientProjectionStore(dir.resolve("projection"), 16);
+		store.open();
+	}
+
+	@AfterEach
+	void closeStore() {
+		store.close();
+	}
+
+	@Test
+	void updatesAggregatesIncrementallyAndSurvivesReopening() throws Exception {
+		store.apply(List.of(
+				event("p1", PatientEventType.PATIENT_CREATED, "a@example.com", "2024-01-10"),
+				event("p2", PatientEventType.PATIENT_CREATED, "b@example.com", "2024-02-03"),
+				event("p1", PatientEventType.PATIENT_UPDATED, "a@other.org", "2024-01-10")),
+				Map.of(PARTITION, 3L));
+		store.apply(List.of(event("p2", PatientEventType.PATIENT_DELETED, "b@example.com", "2024-02-03")),
+				Map.of(PARTITION, 4L));
+
+		store.close();
+		store.open();
+
+		assertEquals(1, store.patientCount());
+		assertEquals(Map.of("other.org", 1L), store.emailDomains());
+		assertEquals(Map.of("2024-01", 1L), store.registrationCohorts());
+		assertEquals(Optional.of(4L), store.nextOffset(PARTITION));
+
+		store.clear();
+		assertEquals(0, store.patientCount());
+		assertEquals(Optional.empty(), store.nextOffset(PARTITION));
+	}
+
+	private static PatientEventView event(String id, PatientEventType type, String email, String registeredDate) {
+		return new PatientEventView(PatientEvent.newBuilder()
+				.setPatientId(id)
+				.setName("Patient " + id)
+				.setEmail(email)
+				.setType(type)
+				.setDateOfBirth("1985-06-15")
+				.setRegisteredDate(registeredDate)
+				.setSchemaVersion(2)
+				.build()
+				.toByteArray());
+	}
+}
@@ -2,8 +2,10 @@ package com.pm.apigateway;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // polls auth-service for the revocation filter (filter/RevocationList)
 public class ApiGatewayApplication {
 
 	public static void main(String[] args) {
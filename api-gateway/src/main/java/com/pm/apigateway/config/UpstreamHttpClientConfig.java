@@ -0,0 +1,122 @@
+package com.pm.apigateway.config;
+
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+One connection provider for everything the gateway sends upstream: routed requests and the JWT validation calls.
+Each upstream host:port gets its own pool (sized per route in gateway.upstream.pools) so a slow patient-service
+can't use up the connections auth-service needs. Pool metrics are published as reactor.netty.connection.provider.*
+tagged with the upstream's remote.address.
+ */
+@Configuration
+@EnableConfigurationProperties(UpstreamPoolProperties.class)
+public class UpstreamHttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider(HttpClientProperties httpClientProperties,
+                                                         GatewayProperties gatewayProperties,
+                                                         UpstreamPoolProperties upstreamPoolProperties) {
+        HttpClientProperties.Pool defaults = httpClientProperties.getPool();
+
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(defaults.getName());
+        configurePool(builder, defaults, new UpstreamPoolProperties.Pool());
+
+        Map<InetSocketAddress, String> configuredBy = new HashMap<>();
+        upstreamPoolProperties.getPools().forEach((routeId, pool) -> {
+            InetSocketAddress upstream = upstreamAddress(gatewayProperties.getRoutes(), routeId);
+
+            String otherRoute = configuredBy.putIfAbsent(upstream, routeId);
+            if (otherRoute != null) {
+                throw new IllegalStateException("Routes " + otherRoute + " and " + routeId + " share the pool for "
+                        + upstream + "; configure it on only one of them");
+            }
+
+            // per-host specs start from reactor-netty's defaults, not the builder's, so apply both
+            builder.forRemoteHost(upstream, spec -> configurePool(spec, defaults, pool));
+        });
+
+        return builder.build();
+    }
+
+    // replaces the gateway's own factory so routed requests use the pools above instead of one shared default pool
+    @Bean
+    public HttpClientFactory gatewayHttpClientFactory(HttpClientProperties httpClientProperties,
+                                                      ServerProperties serverProperties,
+                                                      List<HttpClientCustomizer> customizers,
+                                                      HttpClientSslConfigurer sslConfigurer,
+                                                      ConnectionProvider upstreamConnectionProvider) {
+        return new HttpClientFactory(httpClientProperties, serverProperties, sslConfigurer, customizers) {
+            @Override
+            protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+                return upstreamConnectionProvider;
+            }
+        };
+    }
+
+    // patient-service and auth-service accept cleartext HTTP/2, which multiplexes requests over a few connections
+    @Bean
+    public HttpClientCustomizer upstreamProtocolCustomizer(UpstreamPoolProperties upstreamPoolProperties) {
+        HttpProtocol[] protocols = upstreamPoolProperties.getProtocols().stream()
+                .map(HttpProtocol::valueOf)
+                .toArray(HttpProtocol[]::new);
+        return httpClient -> httpClient.protocol(protocols);
+    }
+
+    private static <T extends ConnectionProvider.ConnectionPoolSpec<T>> void configurePool(
+            T spec, HttpClientProperties.Pool defaults, UpstreamPoolProperties.Pool pool) {
+        spec.maxConnections(pool.getMaxConnections() != null ? pool.getMaxConnections() : defaults.getMaxConnections())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout() != null
+                        ? pool.getPendingAcquireTimeout() : Duration.ofMillis(defaults.getAcquireTimeout()))
+                .metrics(true);
+
+        if (pool.getPendingAcquireMaxCount() != null) {
+            spec.pendingAcquireMaxCount(pool.getPendingAcquireMaxCount());
+        }
+
+        Duration maxIdleTime = pool.getMaxIdleTime() != null ? pool.getMaxIdleTime() : defaults.getMaxIdleTime();
+        if (maxIdleTime != null) {
+            spec.maxIdleTime(maxIdleTime);
+        }
+
+        Duration maxLifeTime = pool.getMaxLifeTime() != null ? pool.getMaxLifeTime() : defaults.getMaxLifeTime();
+        if (maxLifeTime != null) {
+            spec.maxLifeTime(maxLifeTime);
+        }
+
+        Duration evictionInterval = pool.getEvictionInterval() != null
+                ? pool.getEvictionInterval() : defaults.getEvictionInterval();
+        if (!evictionInterval.isZero()) {
+            spec.evictInBackground(evictionInterval);
+        }
+    }
+
+    private static InetSocketAddress upstreamAddress(List<RouteDefinition> routes, String routeId) {
+        URI uri = routes.stream()
+                .filter(route -> routeId.equals(route.getId()))
+                .map(RouteDefinition::getUri)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("gateway.upstream.pools." + routeId
+                        + " does not match any route id"));
+
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return InetSocketAddress.createUnresolved(uri.getHost(), port);
+    }
+}
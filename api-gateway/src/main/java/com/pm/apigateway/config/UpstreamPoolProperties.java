@@ -0,0 +1,95 @@
+package com.pm.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Connection pool settings for the gateway's upstream services, keyed by route id. Anything left unset falls back to
+the gateway-wide spring.cloud.gateway.httpclient.pool settings. Routes that point at the same host:port share one
+pool, so they must not configure it differently.
+ */
+@ConfigurationProperties(prefix = "gateway.upstream")
+public class UpstreamPoolProperties {
+
+    // HTTP versions spoken to the upstream services, e.g. H2C for prior-knowledge cleartext HTTP/2
+    private List<String> protocols = List.of("HTTP11");
+
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    public void setProtocols(List<String> protocols) {
+        this.protocols = protocols;
+    }
+
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, Pool> pools) {
+        this.pools = pools;
+    }
+
+    public static class Pool {
+        private Integer maxConnections; // with H2C this caps connections, each one multiplexes many requests
+        private Integer pendingAcquireMaxCount; // requests allowed to wait for a connection before failing fast
+        private Duration pendingAcquireTimeout;
+        private Duration maxIdleTime;
+        private Duration maxLifeTime;
+        private Duration evictionInterval; // how often idle/expired connections are closed in the background
+
+        public Integer getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Integer getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(Integer pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+    }
+}
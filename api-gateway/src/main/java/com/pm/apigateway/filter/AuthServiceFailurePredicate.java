@@ -0,0 +1,20 @@
+package com.pm.apigateway.filter;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+// which /validate errors count against the "auth-service" circuit breaker: a rejected token (4xx) is auth-service
+// doing its job, anything else (5xx, timeouts, refused connections) means it is unhealthy
+public class AuthServiceFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable error) {
+        return !isTokenRejected(error);
+    }
+
+    static boolean isTokenRejected(Throwable error) {
+        return error instanceof WebClientResponseException responseError
+                && responseError.getStatusCode().is4xxClientError();
+    }
+}
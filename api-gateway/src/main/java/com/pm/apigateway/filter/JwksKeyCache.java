@@ -0,0 +1,102 @@
+package com.pm.apigateway.filter;
+
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+auth-service's token signing public keys by kid, from its /.well-known/jwks.json. Refreshed in the background; a
+token signed with a kid we haven't seen yet triggers an early refresh (at most once per auth.jwks.min-refresh-interval)
+while that request is validated by auth-service instead. Keys that disappear from the JWKS are dropped on the next
+refresh, so a retired key stops being accepted once auth-service stops publishing it.
+ */
+@Component
+public class JwksKeyCache {
+    private static final Logger log = LoggerFactory.getLogger(JwksKeyCache.class);
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final Duration minRefreshInterval;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private final AtomicReference<Instant> lastAttempt = new AtomicReference<>(Instant.EPOCH);
+
+    public JwksKeyCache(WebClient.Builder webClientBuilder,
+                        HttpClient gatewayHttpClient,
+                        @Value("${auth.service.url}") String authServiceUrl,
+                        @Value("${auth.service.timeout-millis:1000}") long timeoutMillis,
+                        @Value("${auth.jwks.min-refresh-interval:PT10S}") Duration minRefreshInterval) {
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(gatewayHttpClient))
+                .baseUrl(authServiceUrl)
+                .build();
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    // null when the kid isn't known (yet); an early refresh is started in that case
+    public PublicKey find(String kid) {
+        PublicKey key = kid != null ? keys.get(kid) : null;
+        if (key == null) {
+            fetch().subscribe();
+        }
+        return key;
+    }
+
+    // runs on the scheduling thread, so waiting for the response doesn't block an event loop
+    @Scheduled(fixedDelayString = "${auth.jwks.refresh-interval-millis:300000}")
+    public void refresh() {
+        lastAttempt.set(Instant.EPOCH);
+        fetch().block(timeout.multipliedBy(2));
+    }
+
+    private Mono<Void> fetch() {
+        Instant now = Instant.now();
+        Instant previous = lastAttempt.get();
+        if (previous.plus(minRefreshInterval).isAfter(now) || !lastAttempt.compareAndSet(previous, now)) {
+            return Mono.empty(); // fetched recently or another caller is fetching right now
+        }
+
+        return webClient.get()
+                .uri("/.well-known/jwks.json")
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(timeout)
+                .doOnNext(this::update)
+                .onErrorResume(error -> {
+                    log.warn("Could not refresh the JWKS: {}", error.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void update(String json) {
+        JwkSet jwkSet = Jwks.setParser().ignoreUnsupported(true).build().parse(json);
+
+        Map<String, PublicKey> parsed = new HashMap<>();
+        for (Jwk<?> jwk : jwkSet) {
+            if (jwk instanceof PublicJwk<?> publicJwk && jwk.getId() != null) {
+                parsed.put(jwk.getId(), publicJwk.toKey());
+            }
+        }
+        keys = Map.copyOf(parsed);
+        log.debug("Loaded {} signing key(s) from the JWKS", parsed.size());
+    }
+}
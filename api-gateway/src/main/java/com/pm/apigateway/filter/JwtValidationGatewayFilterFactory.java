@@ -1,26 +1,104 @@
 package com.pm.apigateway.filter;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Optional;
 
 /*
 Filter class, allows us to intercept HTTP requests, apply custom logic, and decide whether to
 continue processing the request or cancel it.
+
+The /validate call has a timeout and goes through the "auth-service" bulkhead and circuit breaker (see
+resilience4j.* in application.yml). When auth-service is down or saturated the gateway fails closed: requests are
+answered with 503 straight away instead of piling up behind a slow auth-service.
+
+The gateway checks the ES256 signature (public keys from auth-service's JWKS, JwksKeyCache) and expiry itself and
+only asks /validate about tokens the revocation bloom filter (RevocationList) says may have been revoked, or that are
+signed with a key it hasn't loaded yet, so almost every request is authorized without a call to auth-service.
+
+The token's tenant (clinic) claim is forwarded to the services as X-Tenant-Id, replacing any value the client sent,
+so patient-service can trust the header to pick the tenant's rows and shard.
  */
 @Component
 public class JwtValidationGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtValidationGatewayFilterFactory.class);
+
+    static final String TENANT_HEADER = "X-Tenant-Id";
+    private static final String TENANT_CLAIM = "tenant";
+    private static final String DEFAULT_TENANT = "default"; // tokens issued before tenants existed
+
     private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration timeout;
+    private final JwtParser localParser;
+    private final RevocationList revocationList;
+
+    // the token's kid isn't in the JWKS we have loaded; not a verdict on the token, so auth-service decides
+    private static class UnknownSigningKeyException extends JwtException {
+        UnknownSigningKeyException() {
+            super("Unknown signing key");
+        }
+    }
 
-    // initialize a web client using the base url passed in as an environment variable
+    // initialize a web client using the base url passed in as an environment variable; it goes through the
+    // gateway's own HttpClient so validation calls reuse the auth-service pool, protocol and timeouts of the routes
     public JwtValidationGatewayFilterFactory(WebClient.Builder webClientBuilder,
-                                             @Value("${auth.service.url}") String authServiceUrl) {
-        this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+                                             HttpClient gatewayHttpClient,
+                                             @Value("${auth.service.url}") String authServiceUrl,
+                                             @Value("${auth.service.timeout-millis:1000}") long timeoutMillis,
+                                             CircuitBreakerRegistry circuitBreakerRegistry,
+                                             BulkheadRegistry bulkheadRegistry,
+                                             JwksKeyCache jwksKeyCache,
+                                             RevocationList revocationList) {
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(gatewayHttpClient))
+                .baseUrl(authServiceUrl)
+                .build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("auth-service");
+        this.bulkhead = bulkheadRegistry.bulkhead("auth-service");
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.localParser = Jwts.parser()
+                .keyLocator(header -> {
+                    // only ES256, never an algorithm chosen by whoever made the token
+                    if (!(header instanceof ProtectedHeader protectedHeader)
+                            || !Jwts.SIG.ES256.getId().equals(protectedHeader.getAlgorithm())) {
+                        throw new JwtException("Unsupported JWT header");
+                    }
+                    PublicKey key = jwksKeyCache.find(protectedHeader.getKeyId());
+                    if (key == null) {
+                        throw new UnknownSigningKeyException();
+                    }
+                    return key;
+                })
+                .build();
+        this.revocationList = revocationList;
     }
 
     // Spring Cloud Gateway will automatically apply the filter to all requests
@@ -37,12 +115,55 @@ public class JwtValidationGatewayFilterFactory extends AbstractGatewayFilterFact
                 return exchange.getResponse().setComplete();
             }
 
+            try {
+                Claims claims = localParser.parseSignedClaims(token.substring(7)).getPayload();
+                if (claims.getId() == null) {
+                    // auth-service always sets a jti; without one the token couldn't be revoked
+                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                    return exchange.getResponse().setComplete();
+                }
+                if (!revocationList.mightBeRevoked(claims.getId())) {
+                    // definitely not revoked, no need to ask auth-service
+                    return chain.filter(withTenant(exchange, claims.get(TENANT_CLAIM, String.class)));
+                }
+            } catch (UnknownSigningKeyException e) {
+                // fall through to /validate while JwksKeyCache fetches the new key
+            } catch (JwtException | IllegalArgumentException e) {
+                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED); // bad signature, malformed or expired
+                return exchange.getResponse().setComplete();
+            }
+
             return webClient.get() // start building an HTTP GET request using the WebClient
                     .uri("/validate") // set URI path for the request to "/validate"
                     .header(HttpHeaders.AUTHORIZATION, token) // add "Authorization" header with provided token
                     .retrieve() // send request and prepare to retrieve the response
                     .toBodilessEntity() // extract response without a body (only headers/status are kept)
-                    .then(chain.filter(exchange)); // once response received, continue filter chain for original request
+                    .timeout(timeout)
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)) // fails fast while open
+                    .transformDeferred(BulkheadOperator.of(bulkhead)) // caps concurrent /validate calls
+                    .map(response -> Optional.ofNullable(response.getHeaders().getFirst(TENANT_HEADER)))
+                    .onErrorResume(error -> reject(exchange, error).then(Mono.empty()))
+                    // once validated, continue filter chain for original request
+                    .flatMap(tenant -> chain.filter(withTenant(exchange, tenant.orElse(null))));
         };
     }
+
+    private static ServerWebExchange withTenant(ServerWebExchange exchange, String tenant) {
+        String value = tenant != null ? tenant : DEFAULT_TENANT;
+        return exchange.mutate()
+                .request(request -> request.headers(headers -> headers.set(TENANT_HEADER, value)))
+                .build();
+    }
+
+    // a rejected token is a 401; anything else means auth-service couldn't answer, so fail closed with a 503
+    private static Mono<Void> reject(ServerWebExchange exchange, Throwable error) {
+        if (AuthServiceFailurePredicate.isTokenRejected(error)) {
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        } else {
+            log.warn("Token validation unavailable: {}", error.toString());
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "5");
+        }
+        return exchange.getResponse().setComplete();
+    }
 }
@@ -0,0 +1,62 @@
+package com.pm.apigateway.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Read-only copy of auth-service's util/RevocationBloomFilter, rebuilt from what GET /revocations returns. The hashing
+must stay identical to auth-service's: FNV-1a 64 over the UTF-8 bytes of the jti, a 64-bit finalizer for the second
+hash, and h1 + i * h2 for the k bit positions. Bits arrive as big-endian longs.
+ */
+public class RevocationBloomFilter {
+    private final long[] words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    private RevocationBloomFilter(long[] words, int hashFunctions) {
+        this.words = words;
+        this.bitCount = (long) words.length * Long.SIZE;
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static RevocationBloomFilter fromBytes(byte[] bits, int hashFunctions) {
+        if (bits.length == 0 || bits.length % Long.BYTES != 0 || hashFunctions < 1) {
+            throw new IllegalArgumentException("Malformed revocation filter");
+        }
+        long[] words = new long[bits.length / Long.BYTES];
+        ByteBuffer.wrap(bits).asLongBuffer().get(words);
+        return new RevocationBloomFilter(words, hashFunctions);
+    }
+
+    // false means the token is definitely not revoked; true means it may be (or is a false positive)
+    public boolean mightContain(String jti) {
+        long h1 = fnv1a64(jti);
+        long h2 = mix64(h1) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // finalizer from MurmurHash3
+    private static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,95 @@
+package com.pm.apigateway.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/*
+The gateway's copy of auth-service's revocation bloom filter, polled from GET /revocations with If-None-Match so an
+unchanged filter costs a 304. Until a filter has been loaded, or when the last successful poll is older than
+auth.revocations.max-staleness, every token counts as possibly revoked and the JWT filter asks /validate instead.
+ */
+@Component
+public class RevocationList {
+    private static final Logger log = LoggerFactory.getLogger(RevocationList.class);
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final Duration maxStaleness;
+
+    private volatile RevocationBloomFilter filter;
+    private volatile String etag;
+    private volatile Instant lastRefreshed = Instant.EPOCH;
+
+    private record RevocationFilterResponse(String version, int hashFunctions, String bits) {
+    }
+
+    public RevocationList(WebClient.Builder webClientBuilder,
+                          HttpClient gatewayHttpClient,
+                          @Value("${auth.service.url}") String authServiceUrl,
+                          @Value("${auth.service.timeout-millis:1000}") long timeoutMillis,
+                          @Value("${auth.revocations.max-staleness:PT1M}") Duration maxStaleness) {
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(gatewayHttpClient))
+                .baseUrl(authServiceUrl)
+                .build();
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.maxStaleness = maxStaleness;
+    }
+
+    public boolean mightBeRevoked(String jti) {
+        RevocationBloomFilter current = filter;
+        if (current == null || lastRefreshed.isBefore(Instant.now().minus(maxStaleness))) {
+            return true;
+        }
+        return current.mightContain(jti);
+    }
+
+    // runs on the scheduling thread, so waiting for the response doesn't block an event loop
+    @Scheduled(fixedDelayString = "${auth.revocations.refresh-interval-millis:5000}")
+    public void refresh() {
+        try {
+            webClient.get()
+                    .uri("/revocations")
+                    .headers(headers -> {
+                        if (etag != null) {
+                            headers.setIfNoneMatch(etag);
+                        }
+                    })
+                    .exchangeToMono(response -> {
+                        if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                            lastRefreshed = Instant.now();
+                            return response.releaseBody();
+                        }
+                        if (!response.statusCode().is2xxSuccessful()) {
+                            return response.createError();
+                        }
+                        String newEtag = response.headers().asHttpHeaders().getFirst(HttpHeaders.ETAG);
+                        return response.bodyToMono(RevocationFilterResponse.class)
+                                .doOnNext(body -> update(body, newEtag))
+                                .then();
+                    })
+                    .block(timeout);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the revocation filter: {}", e.toString());
+        }
+    }
+
+    private void update(RevocationFilterResponse body, String newEtag) {
+        filter = RevocationBloomFilter.fromBytes(Base64.getDecoder().decode(body.bits()), body.hashFunctions());
+        etag = newEtag;
+        lastRefreshed = Instant.now();
+        log.debug("Loaded revocation filter version {}", body.version());
+    }
+}
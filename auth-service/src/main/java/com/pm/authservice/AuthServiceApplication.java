@@ -2,8 +2,10 @@ package com.pm.authservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // revocation filter rebuilds and expired refresh token cleanup
 public class AuthServiceApplication {
 
     public static void main(String[] args) {
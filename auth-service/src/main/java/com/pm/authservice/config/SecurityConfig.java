@@ -16,8 +16,9 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         // authorize all requests sent to the auth service (only requests received at auth level are from API gateway)
         http.authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll())
-                .csrf(AbstractHttpConfigurer::disable); // disable cross site request forgery
+                .csrf(AbstractHttpConfigurer::disable) // disable cross site request forgery
                                                         // (auth service already secured by API gateway)
+                .logout(AbstractHttpConfigurer::disable); // POST /logout is our own endpoint (AuthController)
 
         return http.build();
     }
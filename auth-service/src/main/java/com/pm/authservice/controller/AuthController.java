@@ -2,34 +2,83 @@ package com.pm.authservice.controller;
 
 import com.pm.authservice.dto.LoginRequestDTO;
 import com.pm.authservice.dto.LoginResponseDTO;
+import com.pm.authservice.dto.RefreshRequestDTO;
+import com.pm.authservice.dto.RevocationFilterDTO;
 import com.pm.authservice.service.AuthService;
+import com.pm.authservice.service.RevocationService;
+import com.pm.authservice.service.SigningKeyService;
+import com.pm.authservice.util.JwtUtil;
+import org.springframework.http.CacheControl;
 import io.swagger.v3.oas.annotations.Operation;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 public class AuthController {
+    static final String TENANT_HEADER = "X-Tenant-Id";
+
     private final AuthService authService;
+    private final RevocationService revocationService;
+    private final SigningKeyService signingKeyService;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, RevocationService revocationService,
+                          SigningKeyService signingKeyService) {
         this.authService = authService;
+        this.revocationService = revocationService;
+        this.signingKeyService = signingKeyService;
     }
 
     @Operation(summary = "Generate token on user login")
     @PostMapping("/login")
     public ResponseEntity<LoginResponseDTO> login(@RequestBody LoginRequestDTO loginRequestDTO) {
-        Optional<String> tokenOptional = authService.authenticate(loginRequestDTO);
+        Optional<LoginResponseDTO> tokens = authService.authenticate(loginRequestDTO);
+
+        return tokens.map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
 
-        if (tokenOptional.isEmpty()) {
+    @Operation(summary = "Exchange a refresh token for a new access token and refresh token")
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@RequestBody RefreshRequestDTO refreshRequestDTO) {
+        if (refreshRequestDTO.getRefreshToken() == null || refreshRequestDTO.getRefreshToken().isBlank()) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        // convert from Optional type to String
-        String token = tokenOptional.get();
-        return ResponseEntity.ok(new LoginResponseDTO(token));
+        return authService.refresh(refreshRequestDTO.getRefreshToken())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    @Operation(summary = "Revoke the access token and, if given, the refresh token")
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                       @RequestBody(required = false) RefreshRequestDTO refreshRequestDTO) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        authService.logout(authHeader.substring(7),
+                refreshRequestDTO != null ? refreshRequestDTO.getRefreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
+    // polled by the api-gateway; unchanged filters are answered with 304 so polling costs next to nothing
+    @Operation(summary = "Bloom filter of revoked access tokens")
+    @GetMapping("/revocations")
+    public ResponseEntity<RevocationFilterDTO> revocations(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        RevocationFilterDTO filter = revocationService.currentFilter();
+        String etag = "\"" + filter.getVersion() + "\"";
+
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(filter);
     }
 
     @Operation(summary = "Validate Token")
@@ -41,8 +90,20 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        // the tenant goes back as a header so the api-gateway can forward it without parsing the token itself
         return authService.validateToken(authHeader.substring(7))
-                ? ResponseEntity.ok().build()
-                : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+                .map(claims -> ResponseEntity.ok()
+                        .header(TENANT_HEADER, JwtUtil.tenantOf(claims))
+                        .<Void>build())
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
+
+    // public keys for verifying access tokens without calling auth-service; verifiers cache them by kid
+    @Operation(summary = "JSON Web Key Set with the token signing public keys")
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(signingKeyService.jwks());
     }
 }
@@ -2,13 +2,25 @@ package com.pm.authservice.dto;
 
 public class LoginResponseDTO {
     private final String token; // once token has been initialized, cannot reinitialize
+    private final String refreshToken; // exchanged at /refresh for a new pair once the access token expires
+    private final long expiresIn; // access token lifetime in seconds
 
-    // since only 1 field, initialize object and field using constructor instead of using setter
-    public LoginResponseDTO(String token) {
+    // fields are final, so initialize the object using the constructor instead of using setters
+    public LoginResponseDTO(String token, String refreshToken, long expiresIn) {
         this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
     }
 
     public String getToken() {
         return token;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getExpiresIn() {
+        return expiresIn;
+    }
 }
@@ -0,0 +1,26 @@
+package com.pm.authservice.dto;
+
+// the revocation bloom filter as served to the api-gateway; bits are the filter's big-endian longs, base64 encoded
+public class RevocationFilterDTO {
+    private final String version;
+    private final int hashFunctions;
+    private final String bits;
+
+    public RevocationFilterDTO(String version, int hashFunctions, String bits) {
+        this.version = version;
+        this.hashFunctions = hashFunctions;
+        this.bits = bits;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public String getBits() {
+        return bits;
+    }
+}
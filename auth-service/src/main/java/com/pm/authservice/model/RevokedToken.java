@@ -0,0 +1,33 @@
+package com.pm.authservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// an access token revoked before it expired (logout); kept only until the token would have expired anyway
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
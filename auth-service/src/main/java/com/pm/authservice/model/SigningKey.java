@@ -0,0 +1,82 @@
+package com.pm.authservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/*
+An ES256 key pair used to sign access tokens. A key signs from active_from until active_until and stays published in
+/.well-known/jwks.json until expires_at (active_until plus the access token lifetime), so tokens it signed remain
+verifiable until they expire. Keys are shared by every auth-service instance through this table.
+ */
+@Entity
+@Table(name = "signing_keys")
+public class SigningKey {
+    @Id
+    @Column(length = 36)
+    private String kid;
+
+    // PKCS#8 and X.509 encodings, base64
+    @Column(name = "private_key", nullable = false, length = 512)
+    private String privateKey;
+
+    @Column(name = "public_key", nullable = false, length = 512)
+    private String publicKey;
+
+    @Column(name = "active_from", nullable = false)
+    private Instant activeFrom;
+
+    @Column(name = "active_until", nullable = false)
+    private Instant activeUntil;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public String getKid() {
+        return kid;
+    }
+
+    public void setKid(String kid) {
+        this.kid = kid;
+    }
+
+    public String getPrivateKey() {
+        return privateKey;
+    }
+
+    public void setPrivateKey(String privateKey) {
+        this.privateKey = privateKey;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public void setPublicKey(String publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    public Instant getActiveFrom() {
+        return activeFrom;
+    }
+
+    public void setActiveFrom(Instant activeFrom) {
+        this.activeFrom = activeFrom;
+    }
+
+    public Instant getActiveUntil() {
+        return activeUntil;
+    }
+
+    public void setActiveUntil(Instant activeUntil) {
+        this.activeUntil = activeUntil;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
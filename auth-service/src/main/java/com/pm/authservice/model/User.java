@@ -1,6 +1,7 @@
 package com.pm.authservice.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.UUID;
 
@@ -21,6 +22,11 @@ public class User {
     @Column(nullable = false)
     private String role;
 
+    // clinic the user works for; issued as the "tenant" claim and decides which patients (and shard) they see
+    @Column(name = "tenant_id", nullable = false, length = 64)
+    @ColumnDefault("'default'")
+    private String tenantId = "default";
+
     public UUID getId() {
         return id;
     }
@@ -52,4 +58,12 @@ public class User {
     public void setRole(String role) {
         this.role = role;
     }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
 }
@@ -0,0 +1,19 @@
+package com.pm.authservice.repository;
+
+import com.pm.authservice.model.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+    List<SigningKey> findByExpiresAtAfterOrderByActiveFromDesc(Instant now);
+
+    @Modifying
+    @Transactional // also called outside a transaction by the scheduled rotation
+    @Query("DELETE FROM SigningKey k WHERE k.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
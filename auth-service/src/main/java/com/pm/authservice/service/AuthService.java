@@ -1,12 +1,14 @@
 package com.pm.authservice.service;
 
 import com.pm.authservice.dto.LoginRequestDTO;
+import com.pm.authservice.dto.LoginResponseDTO;
 import com.pm.authservice.model.User;
 import com.pm.authservice.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
-import org.springframework.security.core.parameters.P;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -15,31 +17,63 @@ public class AuthService {
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final RevocationService revocationService;
 
-    public AuthService(UserService userService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserService userService, PasswordEncoder passwordEncoder, JwtUtil jwtUtil,
+                       RefreshTokenService refreshTokenService, RevocationService revocationService) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationService = revocationService;
     }
 
-    public Optional<String> authenticate(LoginRequestDTO loginRequestDTO) {
-        Optional<String> token = userService
+    public Optional<LoginResponseDTO> authenticate(LoginRequestDTO loginRequestDTO) {
+        return userService
                 // find user by email
                 .findByEmail(loginRequestDTO.getEmail())
                 // if user has a value, check passwords against database to ensure they match
                 .filter(user -> passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword()))
-                // if passwords match, convert User object to a String token
-                .map(user -> jwtUtil.generateToken(user.getEmail(), user.getRole()));
+                // if passwords match, issue an access token and a refresh token for the user
+                .map(this::issueTokens);
+    }
+
+    // exchanges a refresh token for a new access token and a new refresh token (the old one can't be used again)
+    @Transactional
+    public Optional<LoginResponseDTO> refresh(String refreshToken) {
+        return refreshTokenService.consume(refreshToken)
+                .flatMap(userService::findByEmail)
+                .map(this::issueTokens);
+    }
+
+    // revokes the access token straight away (not when it expires) and the refresh token if one is given
+    public void logout(String accessToken, String refreshToken) {
+        try {
+            Claims claims = jwtUtil.validateToken(accessToken);
+            revocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        } catch (JwtException e) {
+            // already expired or not ours, nothing to revoke
+        }
 
-        return token;
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
     }
 
-    public boolean validateToken(String token) {
+    // the claims of a valid token that hasn't been revoked, empty otherwise
+    public Optional<Claims> validateToken(String token) {
         try {
-            jwtUtil.validateToken(token);
-            return true;
+            Claims claims = jwtUtil.validateToken(token);
+            return revocationService.isRevoked(claims.getId()) ? Optional.empty() : Optional.of(claims);
         } catch (JwtException e) {
-            return false;
+            return Optional.empty();
         }
     }
+
+    private LoginResponseDTO issueTokens(User user) {
+        return new LoginResponseDTO(jwtUtil.generateToken(user.getEmail(), user.getRole(), user.getTenantId()),
+                refreshTokenService.issue(user.getEmail()),
+                jwtUtil.accessTokenTtl().toSeconds());
+    }
 }
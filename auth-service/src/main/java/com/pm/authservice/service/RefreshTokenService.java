@@ -0,0 +1,103 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.RefreshToken;
+import com.pm.authservice.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/*
+Opaque, single-use refresh tokens. Every /refresh rotates the token: the presented one is revoked and a new one is
+issued. If a revoked token is presented again it has most likely been stolen (either the thief or the real client
+already used it), so every refresh token of that user is revoked and they have to log in again.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration refreshTokenTtl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${jwt.refresh-token-ttl:P7D}") Duration refreshTokenTtl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenTtl = refreshTokenTtl;
+    }
+
+    // returns the raw token, which is only ever sent to the client
+    @Transactional
+    public String issue(String userEmail) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUserEmail(userEmail);
+        refreshToken.setExpiresAt(Instant.now().plus(refreshTokenTtl));
+        refreshTokenRepository.save(refreshToken);
+
+        return rawToken;
+    }
+
+    // revokes the presented token and returns the email of its user, or empty if it can't be used
+    @Transactional
+    public Optional<String> consume(String rawToken) {
+        Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken refreshToken = stored.get();
+        Instant now = Instant.now();
+
+        if (refreshToken.getRevokedAt() != null) {
+            log.warn("Revoked refresh token reused; revoking all refresh tokens of the user");
+            refreshTokenRepository.revokeAllForUser(refreshToken.getUserEmail(), now);
+            return Optional.empty();
+        }
+
+        if (refreshToken.getExpiresAt().isBefore(now)) {
+            return Optional.empty();
+        }
+
+        refreshToken.setRevokedAt(now);
+        return Optional.of(refreshToken.getUserEmail());
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .filter(refreshToken -> refreshToken.getRevokedAt() == null)
+                .ifPresent(refreshToken -> refreshToken.setRevokedAt(Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-token-cleanup-interval-millis:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.dto.RevocationFilterDTO;
+import com.pm.authservice.model.RevokedToken;
+import com.pm.authservice.repository.RevokedTokenRepository;
+import com.pm.authservice.util.RevocationBloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/*
+Revoked access tokens (by jti) until they expire. /validate checks the exact set; the api-gateway gets a bloom filter
+of the same set from GET /revocations so it can let almost every request through without calling auth-service and
+only asks /validate when the filter says "maybe revoked". The snapshot is rebuilt from the database on a schedule,
+which drops expired entries and picks up revocations made by other auth-service instances. Revocations this instance
+made that the rebuild's read didn't see yet (still committing, or made while it ran) are carried into the new
+snapshot until the database has them.
+ */
+@Service
+public class RevocationService {
+    private static final Logger log = LoggerFactory.getLogger(RevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final double falsePositiveProbability;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    // revoked here but not yet seen in the database by a rebuild, with their expiry
+    private final Map<String, Instant> unconfirmed = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(RevocationBloomFilter filter, RevocationFilterDTO published) {
+    }
+
+    public RevocationService(RevokedTokenRepository revokedTokenRepository,
+                             @Value("${jwt.revocation.false-positive-probability:0.001}")
+                             double falsePositiveProbability) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @PostConstruct
+    public void load() {
+        rebuild();
+    }
+
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(expiresAt);
+        revokedTokenRepository.save(revokedToken);
+
+        synchronized (this) {
+            unconfirmed.put(jti, expiresAt);
+            revoked.add(jti);
+            RevocationBloomFilter filter = snapshot.filter();
+            filter.put(jti);
+            snapshot = new Snapshot(filter, publish(filter));
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        return revoked.contains(jti);
+    }
+
+    public RevocationFilterDTO currentFilter() {
+        return snapshot.published();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-millis:30000}")
+    public void rebuild() {
+        Instant now = Instant.now();
+        revokedTokenRepository.deleteExpired(now);
+        List<RevokedToken> active = revokedTokenRepository.findByExpiresAtAfter(now);
+
+        // sized with headroom so revocations until the next rebuild don't push the false-positive rate up
+        RevocationBloomFilter filter = RevocationBloomFilter.create(Math.max(1024, active.size() * 2),
+                falsePositiveProbability);
+        active.forEach(token -> filter.put(token.getJti()));
+
+        Set<String> activeJtis = new HashSet<>();
+        active.forEach(token -> activeJtis.add(token.getJti()));
+
+        // revoke() updates under the same lock, so it lands either in unconfirmed here or in the new snapshot after
+        synchronized (this) {
+            unconfirmed.keySet().removeAll(activeJtis);
+            unconfirmed.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            unconfirmed.keySet().forEach(filter::put);
+            activeJtis.addAll(unconfirmed.keySet());
+
+            revoked.retainAll(activeJtis);
+            revoked.addAll(activeJtis);
+            snapshot = new Snapshot(filter, publish(filter));
+        }
+        log.debug("Rebuilt revocation filter with {} revoked token(s)", active.size());
+    }
+
+    // the version is a checksum of the bits, so every auth-service instance serving the same set reports the same one
+    private static RevocationFilterDTO publish(RevocationBloomFilter filter) {
+        byte[] bits = filter.toBytes();
+        CRC32C checksum = new CRC32C();
+        checksum.update(bits);
+        return new RevocationFilterDTO(Long.toHexString(checksum.getValue()) + "-" + bits.length,
+                filter.hashFunctions(), Base64.getEncoder().encodeToString(bits));
+    }
+}
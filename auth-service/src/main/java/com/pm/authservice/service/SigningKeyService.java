@@ -0,0 +1,142 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.SigningKey;
+import com.pm.authservice.repository.SigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+Rotates the ES256 keys that sign access tokens. Each key signs for jwt.signing-key.rotation-interval. Its successor is
+created jwt.signing-key.prepublish ahead of time and published in the JWKS straight away, so verifiers that poll the
+JWKS (api-gateway, patient-service) already have it when it starts signing. A retired key stays published until the
+last token it signed has expired.
+ */
+@Service
+public class SigningKeyService {
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyService.class);
+
+    private final SigningKeyRepository signingKeyRepository;
+    private final Duration rotationInterval;
+    private final Duration prepublish;
+    private final Duration accessTokenTtl;
+
+    // every unexpired key, newest first
+    private volatile List<LoadedKey> keys = List.of();
+
+    public record LoadedKey(String kid, PrivateKey privateKey, PublicKey publicKey,
+                            Instant activeFrom, Instant activeUntil) {
+    }
+
+    public SigningKeyService(SigningKeyRepository signingKeyRepository,
+                             @Value("${jwt.signing-key.rotation-interval:P7D}") Duration rotationInterval,
+                             @Value("${jwt.signing-key.prepublish:PT1H}") Duration prepublish,
+                             @Value("${jwt.access-token-ttl:PT15M}") Duration accessTokenTtl) {
+        this.signingKeyRepository = signingKeyRepository;
+        this.rotationInterval = rotationInterval;
+        this.prepublish = prepublish;
+        this.accessTokenTtl = accessTokenTtl;
+    }
+
+    @PostConstruct
+    public void load() {
+        rotate();
+    }
+
+    // also picks up keys created by other auth-service instances
+    @Scheduled(fixedDelayString = "${jwt.signing-key.check-interval-millis:60000}")
+    public synchronized void rotate() {
+        Instant now = Instant.now();
+        signingKeyRepository.deleteExpired(now);
+        List<SigningKey> stored = new ArrayList<>(signingKeyRepository.findByExpiresAtAfterOrderByActiveFromDesc(now));
+
+        Optional<SigningKey> current = stored.stream()
+                .filter(key -> !key.getActiveFrom().isAfter(now) && key.getActiveUntil().isAfter(now))
+                .findFirst();
+        boolean successorExists = stored.stream().anyMatch(key -> key.getActiveFrom().isAfter(now));
+
+        if (current.isEmpty()) {
+            stored.addFirst(create(now)); // first start, or no instance was running when the last key retired
+            log.info("Created signing key {}", stored.getFirst().getKid());
+        } else if (!successorExists && current.get().getActiveUntil().minus(prepublish).isBefore(now)) {
+            SigningKey next = create(current.get().getActiveUntil());
+            stored.addFirst(next);
+            log.info("Published signing key {}, signing from {}", next.getKid(), next.getActiveFrom());
+        }
+
+        keys = stored.stream().map(SigningKeyService::decode).toList();
+    }
+
+    public LoadedKey signingKey() {
+        Instant now = Instant.now();
+        return keys.stream()
+                .filter(key -> !key.activeFrom().isAfter(now))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No active signing key"));
+    }
+
+    public Optional<PublicKey> publicKey(String kid) {
+        return keys.stream().filter(key -> key.kid().equals(kid)).map(LoadedKey::publicKey).findFirst();
+    }
+
+    // the public half of every published key, in JWKS form: {"keys": [...]}
+    public Map<String, Object> jwks() {
+        List<Jwk<?>> jwks = keys.stream()
+                .<Jwk<?>>map(key -> Jwks.builder()
+                        .key((ECPublicKey) key.publicKey())
+                        .id(key.kid())
+                        .algorithm("ES256")
+                        .publicKeyUse("sig")
+                        .build())
+                .toList();
+        return Map.of("keys", jwks);
+    }
+
+    private SigningKey create(Instant activeFrom) {
+        KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+
+        SigningKey key = new SigningKey();
+        key.setKid(UUID.randomUUID().toString());
+        key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        key.setActiveFrom(activeFrom);
+        key.setActiveUntil(activeFrom.plus(rotationInterval));
+        key.setExpiresAt(key.getActiveUntil().plus(accessTokenTtl));
+        return signingKeyRepository.save(key);
+    }
+
+    private static LoadedKey decode(SigningKey key) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("EC");
+            return new LoadedKey(key.getKid(),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key.getPrivateKey()))),
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey()))),
+                    key.getActiveFrom(), key.getActiveUntil());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unreadable signing key " + key.getKid(), e);
+        }
+    }
+}
@@ -1,48 +1,87 @@
 package com.pm.authservice.util;
 
+import com.pm.authservice.service.SigningKeyService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.ProtectedHeader;
 import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
-import java.util.Base64;
+import java.time.Duration;
 import java.util.Date;
+import java.util.UUID;
 
+// tokens are signed with ES256; the kid header says which key (SigningKeyService), so keys can rotate
 @Component
 public class JwtUtil {
-    private final Key secretKey;
+    private final SigningKeyService signingKeyService;
+    private final Duration accessTokenTtl;
+    private final JwtParser parser;
 
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
-        // convert secret from String to type keyBytes
-        byte[] keyBytes = Base64.getDecoder().decode(secret.getBytes(StandardCharsets.UTF_8));
-
-        this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+    public JwtUtil(SigningKeyService signingKeyService,
+                   @Value("${jwt.access-token-ttl:PT15M}") Duration accessTokenTtl) {
+        this.signingKeyService = signingKeyService;
+        this.accessTokenTtl = accessTokenTtl;
+        this.parser = Jwts.parser()
+                .keyLocator(header -> {
+                    // only ES256, never an algorithm chosen by whoever made the token
+                    if (!(header instanceof ProtectedHeader protectedHeader)
+                            || !Jwts.SIG.ES256.getId().equals(protectedHeader.getAlgorithm())
+                            || protectedHeader.getKeyId() == null) {
+                        throw new JwtException("Unsupported JWT header");
+                    }
+                    return signingKeyService.publicKey(protectedHeader.getKeyId())
+                            .orElseThrow(() -> new JwtException("Unknown signing key"));
+                })
+                .build();
     }
 
-    public String generateToken(String email, String role) {
+    public static final String TENANT_CLAIM = "tenant";
+    public static final String DEFAULT_TENANT = "default";
+
+    // short-lived so a stolen token is only useful for minutes; clients renew it with their refresh token
+    public String generateToken(String email, String role, String tenantId) {
+        SigningKeyService.LoadedKey key = signingKeyService.signingKey();
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .header().keyId(key.kid()).and() // tells verifiers which public key from the JWKS to use
+                .id(UUID.randomUUID().toString()) // jti, what a revocation (logout) refers to
                 .subject(email) // store an ID that relates to the user who is trying to log in
                 .claim("role", role) // add custom field to JWT
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
-                .signWith(secretKey) // encode this token with the secret key
+                .claim(TENANT_CLAIM, tenantId) // the api-gateway forwards it to the services as X-Tenant-Id
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + accessTokenTtl.toMillis()))
+                .signWith(key.privateKey(), Jwts.SIG.ES256) // sign with the current private key
                 .compact(); // compact everything into a single string
     }
 
-    public void validateToken(String token) {
+    // tokens issued before tenants existed belong to the default tenant
+    public static String tenantOf(Claims claims) {
+        String tenant = claims.get(TENANT_CLAIM, String.class);
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    public Duration accessTokenTtl() {
+        return accessTokenTtl;
+    }
+
+    // checks signature and expiry, then returns the token's claims; tokens without a jti can't be revoked, so they
+    // aren't valid either
+    public Claims validateToken(String token) {
+        Claims claims;
         try {
-            Jwts.parser().verifyWith((SecretKey) secretKey)
-                    .build()
-                    .parseSignedClaims(token);
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (SignatureException e) {
             throw new JwtException("Invalid JWT signature");
-        } catch (JwtException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             throw new JwtException("Invalid JWT");
         }
+        if (claims.getId() == null) {
+            throw new JwtException("JWT has no jti");
+        }
+        return claims;
     }
 }
@@ -0,0 +1,91 @@
+package com.pm.authservice.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Bloom filter over the ids (jti) of revoked access tokens, published to the api-gateway through GET /revocations.
+The gateway has its own copy of this class (filter/RevocationBloomFilter) and the two must hash identically:
+FNV-1a 64 over the UTF-8 bytes of the jti, a 64-bit finalizer for the second hash, and Kirsch-Mitzenmacher
+double hashing (h1 + i * h2) for the k bit positions. Bits are serialized as big-endian longs.
+ */
+public class RevocationBloomFilter {
+    private final long[] words;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    private RevocationBloomFilter(long[] words, int hashFunctions) {
+        this.words = words;
+        this.bitCount = (long) words.length * Long.SIZE;
+        this.hashFunctions = hashFunctions;
+    }
+
+    // sized for the expected number of entries at the given false-positive probability
+    public static RevocationBloomFilter create(int expectedEntries, double falsePositiveProbability) {
+        int n = Math.max(expectedEntries, 1);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new RevocationBloomFilter(new long[(int) Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE)],
+                hashFunctions);
+    }
+
+    // the inverse of toBytes, as the api-gateway reads it
+    public static RevocationBloomFilter fromBytes(byte[] bits, int hashFunctions) {
+        if (bits.length == 0 || bits.length % Long.BYTES != 0 || hashFunctions < 1) {
+            throw new IllegalArgumentException("Malformed revocation filter");
+        }
+        long[] words = new long[bits.length / Long.BYTES];
+        ByteBuffer.wrap(bits).asLongBuffer().get(words);
+        return new RevocationBloomFilter(words, hashFunctions);
+    }
+
+    public void put(String jti) {
+        long h1 = fnv1a64(jti);
+        long h2 = mix64(h1) | 1; // odd, so the k positions don't collapse onto each other
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String jti) {
+        long h1 = fnv1a64(jti);
+        long h2 = mix64(h1) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        buffer.asLongBuffer().put(words);
+        return buffer.array();
+    }
+
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // finalizer from MurmurHash3
+    private static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
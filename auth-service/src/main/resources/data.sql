@@ -6,6 +6,9 @@ CREATE TABLE IF NOT EXISTS "users" (
     role VARCHAR(50) NOT NULL
 );
 
+-- users created before tenants belong to the default tenant
+ALTER TABLE "users" ADD COLUMN IF NOT EXISTS tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
+
 -- Insert the user if no existing user with the same id or email exists
 INSERT INTO "users" (id, email, password, role)
 SELECT '223e4567-e89b-12d3-a456-426614174006', 'testuser@test.com',
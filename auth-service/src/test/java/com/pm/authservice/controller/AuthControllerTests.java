@@ -0,0 +1,117 @@
+package com.pm.authservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        // as deployed: data.sql seeds the test user, Hibernate adds the other tables (in Postgres' lower case)
+        "spring.datasource.url=jdbc:h2:mem:auth;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.sql.init.mode=always"
+})
+@AutoConfigureMockMvc
+class AuthControllerTests {
+    private static final String LOGIN = """
+            {"email": "testuser@test.com", "password": "password123"}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void accessTokensAreEs256SignedWithAKeyFromTheJwks() throws Exception {
+        JsonNode tokens = json(mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andExpect(status().isOk())
+                .andReturn());
+        JsonNode jwks = json(mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andReturn());
+
+        JsonNode jwk = jwks.get("keys").get(0);
+        assertEquals("ES256", jwk.get("alg").asText());
+        assertTrue(jwks.get("keys").findValues("d").isEmpty()); // no private halves published
+        PublicKey key = ((PublicJwk<?>) Jwks.parser().build().parse(jwk.toString())).toKey();
+
+        Claims claims = Jwts.parser().verifyWith(key).build()
+                .parseSignedClaims(tokens.get("token").asText()).getPayload();
+        assertEquals("testuser@test.com", claims.getSubject());
+        assertEquals("default", claims.get("tenant", String.class));
+    }
+
+    @Test
+    void refreshTokensAreSingleUseAndReuseRevokesTheWholeFamily() throws Exception {
+        JsonNode login = json(mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andReturn());
+        String first = login.get("refreshToken").asText();
+
+        JsonNode rotated = json(refresh(first).andExpect(status().isOk()).andReturn());
+        String second = rotated.get("refreshToken").asText();
+        assertNotEquals(first, second);
+
+        // the first token showing up again means it leaked: neither it nor its successor works any more
+        refresh(first).andExpect(status().isUnauthorized());
+        refresh(second).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logoutRevokesTheAccessTokenAndPublishesItInTheFilter() throws Exception {
+        JsonNode login = json(mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andReturn());
+        String bearer = "Bearer " + login.get("token").asText();
+        mockMvc.perform(get("/validate").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Tenant-Id", "default"));
+        String etag = mockMvc.perform(get("/revocations")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/logout").header(HttpHeaders.AUTHORIZATION, bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\": \"" + login.get("refreshToken").asText() + "\"}"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/validate").header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isUnauthorized());
+        refresh(login.get("refreshToken").asText()).andExpect(status().isUnauthorized());
+        // the gateway's poll sees a new filter
+        String newEtag = mockMvc.perform(get("/revocations").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/revocations").header(HttpHeaders.IF_NONE_MATCH, newEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\": \"" + refreshToken + "\"}"));
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
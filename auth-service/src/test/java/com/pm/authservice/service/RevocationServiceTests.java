@@ -0,0 +1,104 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.dto.RevocationFilterDTO;
+import com.pm.authservice.model.RevokedToken;
+import com.pm.authservice.repository.RevokedTokenRepository;
+import com.pm.authservice.util.RevocationBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RevocationServiceTests {
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private final List<RevokedToken> stored = new ArrayList<>();
+
+    @Test
+    void revokedTokensAreInTheSetAndThePublishedFilterUntilTheyExpire() {
+        when(repository.findByExpiresAtAfter(any())).thenAnswer(invocation -> {
+            Instant now = invocation.getArgument(0);
+            return stored.stream().filter(token -> token.getExpiresAt().isAfter(now)).toList();
+        });
+        RevocationService service = new RevocationService(repository, 0.001);
+        service.load();
+        RevocationFilterDTO empty = service.currentFilter();
+
+        service.revoke("jti-1", Instant.now().plusSeconds(900));
+
+        assertTrue(service.isRevoked("jti-1"));
+        assertFalse(service.isRevoked("jti-2"));
+        assertTrue(published(service).mightContain("jti-1"));
+        assertNotEquals(empty.getVersion(), service.currentFilter().getVersion());
+
+        // another instance revoked jti-2; jti-1's row is committed and then expires
+        stored.add(token("jti-1", Instant.now().plusSeconds(900)));
+        stored.add(token("jti-2", Instant.now().plusSeconds(900)));
+        service.rebuild();
+        assertTrue(service.isRevoked("jti-2"));
+        assertTrue(published(service).mightContain("jti-2"));
+
+        stored.set(0, token("jti-1", Instant.now().minusSeconds(1)));
+        service.rebuild();
+        assertFalse(service.isRevoked("jti-1"));
+        assertTrue(service.isRevoked("jti-2"));
+    }
+
+    @Test
+    void revocationsDuringARebuildAreNotLost() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch revoked = new CountDownLatch(1);
+        RevocationService service = new RevocationService(repository, 0.001);
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        service.load();
+
+        // the rebuild reads the table before the revocation commits, and swaps after it is in memory
+        when(repository.findByExpiresAtAfter(any())).thenAnswer(invocation -> {
+            reading.countDown();
+            revoked.await();
+            return List.of();
+        });
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(service::rebuild);
+        reading.await();
+        service.revoke("jti-during", Instant.now().plusSeconds(900));
+        revoked.countDown();
+        rebuild.get();
+
+        assertTrue(service.isRevoked("jti-during"));
+        assertTrue(published(service).mightContain("jti-during"));
+
+        // kept until a rebuild finds it in the table, then tracked from there
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        service.rebuild();
+        assertTrue(service.isRevoked("jti-during"));
+        when(repository.findByExpiresAtAfter(any()))
+                .thenReturn(List.of(token("jti-during", Instant.now().plusSeconds(900))));
+        service.rebuild();
+        when(repository.findByExpiresAtAfter(any())).thenReturn(List.of());
+        service.rebuild();
+        assertFalse(service.isRevoked("jti-during"));
+    }
+
+    private static RevocationBloomFilter published(RevocationService service) {
+        RevocationFilterDTO filter = service.currentFilter();
+        return RevocationBloomFilter.fromBytes(Base64.getDecoder().decode(filter.getBits()),
+                filter.getHashFunctions());
+    }
+
+    private static RevokedToken token(String jti, Instant expiresAt) {
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setExpiresAt(expiresAt);
+        return token;
+    }
+}
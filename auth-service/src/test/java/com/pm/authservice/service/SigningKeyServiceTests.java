@@ -0,0 +1,100 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.model.SigningKey;
+import com.pm.authservice.repository.SigningKeyRepository;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SigningKeyServiceTests {
+    private static final Duration ROTATION = Duration.ofDays(7);
+    private static final Duration PREPUBLISH = Duration.ofHours(1);
+    private static final Duration TOKEN_TTL = Duration.ofMinutes(15);
+
+    private final SigningKeyRepository repository = mock(SigningKeyRepository.class);
+    private final List<SigningKey> stored = new ArrayList<>();
+    private final SigningKeyService service = new SigningKeyService(repository, ROTATION, PREPUBLISH, TOKEN_TTL);
+
+    @BeforeEach
+    void inMemoryTable() {
+        when(repository.save(any())).thenAnswer(invocation -> {
+            stored.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(repository.findByExpiresAtAfterOrderByActiveFromDesc(any())).thenAnswer(invocation -> {
+            Instant now = invocation.getArgument(0);
+            return stored.stream()
+                    .filter(key -> key.getExpiresAt().isAfter(now))
+                    .sorted(Comparator.comparing(SigningKey::getActiveFrom).reversed())
+                    .toList();
+        });
+    }
+
+    @Test
+    void createsAKeyOnFirstStartAndPublishesItsSuccessorAheadOfTime() {
+        service.load();
+        assertEquals(1, stored.size());
+        String first = service.signingKey().kid();
+
+        // nothing to do while the key has more than prepublish left
+        service.rotate();
+        assertEquals(1, stored.size());
+
+        // within prepublish of retiring: the successor is published but doesn't sign yet
+        stored.getFirst().setActiveUntil(Instant.now().plus(Duration.ofMinutes(30)));
+        service.rotate();
+        assertEquals(2, stored.size());
+        SigningKey successor = stored.getLast();
+        assertEquals(stored.getFirst().getActiveUntil(), successor.getActiveFrom());
+        assertEquals(first, service.signingKey().kid());
+        assertEquals(2, ((List<?>) service.jwks().get("keys")).size());
+        assertTrue(service.publicKey(successor.getKid()).isPresent());
+    }
+
+    @Test
+    void aRetiredKeyVerifiesUntilItsLastTokenExpires() {
+        Instant now = Instant.now();
+        SigningKey retired = key("retired", now.minus(ROTATION), now.minusSeconds(60));
+        SigningKey current = key("current", now.minusSeconds(60), now.minusSeconds(60).plus(ROTATION));
+        stored.addAll(List.of(retired, current));
+
+        service.load();
+
+        assertEquals("current", service.signingKey().kid());
+        assertTrue(service.publicKey("retired").isPresent());
+        List<?> published = (List<?>) service.jwks().get("keys");
+        assertEquals(List.of("current", "retired"), published.stream().map(jwk -> ((Map<?, ?>) jwk).get("kid")).toList());
+
+        // tokens signed with the retired key have expired by now
+        retired.setExpiresAt(now.minusSeconds(1));
+        service.rotate();
+        assertTrue(service.publicKey("retired").isEmpty());
+    }
+
+    private static SigningKey key(String kid, Instant activeFrom, Instant activeUntil) {
+        KeyPair keyPair = Jwts.SIG.ES256.keyPair().build();
+        SigningKey key = new SigningKey();
+        key.setKid(kid);
+        key.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        key.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        key.setActiveFrom(activeFrom);
+        key.setActiveUntil(activeUntil);
+        key.setExpiresAt(activeUntil.plus(TOKEN_TTL));
+        return key;
+    }
+}
@@ -0,0 +1,42 @@
+package com.pm.authservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationBloomFilterTests {
+
+    @Test
+    void neverMissesAnEntryAndStaysNearItsFalsePositiveRate() {
+        RevocationBloomFilter filter = RevocationBloomFilter.create(1000, 0.01);
+        var revoked = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        revoked.forEach(filter::put);
+
+        assertTrue(revoked.stream().allMatch(filter::mightContain));
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain(UUID.randomUUID().toString()))
+                .count();
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void roundTripsThroughItsPublishedBytes() {
+        RevocationBloomFilter filter = RevocationBloomFilter.create(100, 0.001);
+        filter.put("jti-1");
+        filter.put("jti-2");
+
+        RevocationBloomFilter copy = RevocationBloomFilter.fromBytes(filter.toBytes(), filter.hashFunctions());
+
+        assertArrayEquals(filter.toBytes(), copy.toBytes());
+        assertEquals(filter.hashFunctions(), copy.hashFunctions());
+        assertTrue(copy.mightContain("jti-1") && copy.mightContain("jti-2"));
+        assertThrows(IllegalArgumentException.class, () -> RevocationBloomFilter.fromBytes(new byte[7], 3));
+        assertThrows(IllegalArgumentException.class, () -> RevocationBloomFilter.fromBytes(new byte[8], 0));
+    }
+}
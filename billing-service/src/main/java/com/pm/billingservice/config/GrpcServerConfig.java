@@ -0,0 +1,69 @@
+package com.pm.billingservice.config;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import jakarta.annotation.PreDestroy;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+Tunes the gRPC server that grpc-spring-boot-starter builds. By default grpc-java runs calls on an unbounded cached
+thread pool, which under a burst keeps creating threads until the task runs out of memory. Here the executor is
+either a bounded pool (excess work is rejected and the call fails fast) or virtual threads, and every connection
+is limited in how many calls it can have open at once.
+ */
+@Configuration
+public class GrpcServerConfig {
+    private static final Logger log = LoggerFactory.getLogger(GrpcServerConfig.class);
+
+    private ExecutorService executor;
+
+    @Bean
+    public GrpcServerConfigurer grpcServerConfigurer(
+            @Value("${billing.grpc.executor:virtual}") String executorType, // virtual | bounded | default
+            @Value("${billing.grpc.executor.threads:32}") int threads,
+            @Value("${billing.grpc.executor.queue-capacity:1000}") int queueCapacity,
+            @Value("${billing.grpc.max-concurrent-calls-per-connection:200}") int maxConcurrentCallsPerConnection,
+            @Value("${billing.grpc.flow-control-window:1048576}") int flowControlWindow) {
+
+        executor = switch (executorType) {
+            case "virtual" -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-billing-", 0).factory());
+            case "bounded" -> new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    Thread.ofPlatform().name("grpc-billing-", 0).factory(),
+                    new ThreadPoolExecutor.AbortPolicy());
+            case "default" -> null; // grpc-java's cached thread pool
+            default -> throw new IllegalArgumentException("Unknown billing.grpc.executor: " + executorType);
+        };
+
+        log.info("gRPC server executor: {}, max concurrent calls per connection: {}",
+                executorType, maxConcurrentCallsPerConnection);
+
+        return serverBuilder -> {
+            if (executor != null) {
+                serverBuilder.executor(executor);
+            }
+            if (serverBuilder instanceof NettyServerBuilder nettyServerBuilder) {
+                nettyServerBuilder
+                        .maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection)
+                        .flowControlWindow(flowControlWindow);
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.pm.billingservice.exception;
+
+public class BillingQueueFullException extends RuntimeException {
+    public BillingQueueFullException(String message) {
+        super(message);
+    }
+}
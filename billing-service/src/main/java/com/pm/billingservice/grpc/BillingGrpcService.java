@@ -2,33 +2,156 @@ package com.pm.billingservice.grpc;
 
 import billing.BillingResponse;
 import billing.BillingServiceGrpc.BillingServiceImplBase;
+import billing.GetBillingAccountRequest;
+import billing.GetInvoiceRunRequest;
+import billing.InvoiceRunResponse;
+import billing.RunInvoicesRequest;
+import com.pm.billingservice.exception.BillingQueueFullException;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.model.InvoiceRun;
+import com.pm.billingservice.service.BillingAccountService;
+import com.pm.billingservice.service.InvoiceRunService;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
 @GrpcService
 public class BillingGrpcService extends BillingServiceImplBase {
     private static final Logger log = LoggerFactory.getLogger(BillingGrpcService.class);
 
+    private final BillingAccountService billingAccountService;
+    private final InvoiceRunService invoiceRunService;
+
+    public BillingGrpcService(BillingAccountService billingAccountService, InvoiceRunService invoiceRunService) {
+        this.billingAccountService = billingAccountService;
+        this.invoiceRunService = invoiceRunService;
+    }
+
     @Override
     public void createBillingAccount(billing.BillingRequest billingRequest,
                                      StreamObserver<BillingResponse> responseObserver) {
 
-        log.info("createBillingAccount request received: {}", billingRequest.toString());
+        // hot path: only the patient id (no name/email) and only when debug logging is on
+        if (log.isDebugEnabled()) {
+            log.debug("createBillingAccount request received for patient {}", billingRequest.getPatientId());
+        }
+
+        if (billingRequest.getPatientId().isBlank()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("patientId is required").asRuntimeException());
+            return;
+        }
+
+        // the account is written by the batch writer; respond once its batch has committed
+        // (the gRPC thread is released straight away instead of waiting on the database)
+        billingAccountService.createBillingAccount(billingRequest.getPatientId(),
+                        billingRequest.getName(), billingRequest.getEmail())
+                .whenComplete((account, error) -> {
+                    if (error != null) {
+                        responseObserver.onError(toStatus(error).asRuntimeException());
+                        return;
+                    }
+
+                    responseObserver.onNext(toResponse(account)); // send response from grpc service back to client
+
+                    // response completed; end cycle in this response
+                    responseObserver.onCompleted(); // (we could have sent multiple responses using onNext())
+                });
+    }
+
+    @Override
+    public void getBillingAccount(GetBillingAccountRequest request,
+                                  StreamObserver<BillingResponse> responseObserver) {
+        Optional<BillingAccount> account = billingAccountService.getBillingAccount(request.getPatientId());
+
+        if (account.isEmpty()) {
+            responseObserver.onError(Status.NOT_FOUND
+                    .withDescription("No billing account for patient " + request.getPatientId())
+                    .asRuntimeException());
+            return;
+        }
+
+        responseObserver.onNext(toResponse(account.get()));
+        responseObserver.onCompleted();
+    }
+
+    // starts the run in the background and returns its current progress; calling it again for a period that
+    // failed or was interrupted resumes from the run's checkpoint
+    @Override
+    public void runInvoices(RunInvoicesRequest request, StreamObserver<InvoiceRunResponse> responseObserver) {
+        YearMonth billingPeriod;
+        try {
+            billingPeriod = request.getBillingPeriod().isBlank()
+                    ? YearMonth.now().minusMonths(1)
+                    : YearMonth.parse(request.getBillingPeriod());
+        } catch (DateTimeParseException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("billingPeriod must be formatted as yyyy-MM").asRuntimeException());
+            return;
+        }
+
+        try {
+            InvoiceRun run = invoiceRunService.startRun(billingPeriod);
+            responseObserver.onNext(toResponse(run));
+            responseObserver.onCompleted();
+        } catch (IllegalStateException e) {
+            responseObserver.onError(Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    @Override
+    public void getInvoiceRun(GetInvoiceRunRequest request, StreamObserver<InvoiceRunResponse> responseObserver) {
+        Optional<InvoiceRun> run;
+        try {
+            run = invoiceRunService.getRun(YearMonth.parse(request.getBillingPeriod()));
+        } catch (DateTimeParseException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("billingPeriod must be formatted as yyyy-MM").asRuntimeException());
+            return;
+        }
 
-        // Business logic - e.g save to database, perform calculations, etc.
+        if (run.isEmpty()) {
+            responseObserver.onError(Status.NOT_FOUND
+                    .withDescription("No invoice run for " + request.getBillingPeriod()).asRuntimeException());
+            return;
+        }
 
-        // dummy data to simulate billing an account
-        BillingResponse response = BillingResponse.newBuilder()
-                .setAccountId("12345")
-                .setStatus("ACTIVE")
+        responseObserver.onNext(toResponse(run.get()));
+        responseObserver.onCompleted();
+    }
+
+    private InvoiceRunResponse toResponse(InvoiceRun run) {
+        return InvoiceRunResponse.newBuilder()
+                .setRunId(run.getId().toString())
+                .setBillingPeriod(run.getBillingPeriod())
+                .setStatus(run.getStatus())
+                .setAccountsProcessed(run.getAccountsProcessed())
+                .setInvoicesCreated(run.getInvoicesCreated())
+                .setAccountsPerSecond(invoiceRunService.accountsPerSecond(run))
+                .build();
+    }
+
+    private static BillingResponse toResponse(BillingAccount account) {
+        return BillingResponse.newBuilder()
+                .setAccountId(account.getId().toString())
+                .setStatus(account.getStatus())
                 .build();
+    }
 
-        responseObserver.onNext(response); // send response from grpc service back to client
+    private static Status toStatus(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
 
-        // response completed; end cycle in this response
-        responseObserver.onCompleted(); // (we could have sent multiple responses using onNext())
+        if (cause instanceof BillingQueueFullException) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(cause.getMessage()); // client should retry with backoff
+        }
 
+        log.error("Failed to create billing account: {}", cause.getMessage());
+        return Status.INTERNAL.withDescription("Failed to create billing account");
     }
 }
@@ -0,0 +1,95 @@
+package com.pm.billingservice.grpc;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// records a latency histogram (per method and status code) and the number of in-flight calls per method
+@GrpcGlobalServerInterceptor
+public class GrpcMetricsInterceptor implements ServerInterceptor {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> inFlightByMethod = new ConcurrentHashMap<>();
+    // registered once per method and status, not looked up through the registry's builder on every call
+    private final Map<LatencyKey, Timer> latencyByMethodAndStatus = new ConcurrentHashMap<>();
+
+    private record LatencyKey(String method, Status.Code status) {
+    }
+
+    public GrpcMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String method = call.getMethodDescriptor().getBareMethodName();
+        AtomicInteger inFlight = inFlightByMethod.computeIfAbsent(method, name -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("billing.grpc.server.in.flight", counter, AtomicInteger::get)
+                    .tag("method", name)
+                    .register(meterRegistry);
+            return counter;
+        });
+
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        AtomicBoolean finished = new AtomicBoolean();
+
+        // a call either closes with a status or is cancelled by the client; count whichever happens first
+        CallRecorder recorder = status -> {
+            if (finished.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                latency(method, status.getCode()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+
+        ServerCall<ReqT, RespT> recordingCall = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                recorder.record(status);
+                super.close(status, trailers);
+            }
+        };
+
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(recordingCall, headers)) {
+                @Override
+                public void onCancel() {
+                    recorder.record(Status.CANCELLED);
+                    super.onCancel();
+                }
+            };
+        } catch (RuntimeException e) {
+            recorder.record(Status.fromThrowable(e));
+            throw e;
+        }
+    }
+
+    private Timer latency(String method, Status.Code status) {
+        return latencyByMethodAndStatus.computeIfAbsent(new LatencyKey(method, status), key ->
+                Timer.builder("billing.grpc.server.latency")
+                        .tag("method", key.method())
+                        .tag("status", key.status().name())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    @FunctionalInterface
+    private interface CallRecorder {
+        void record(Status status);
+    }
+}
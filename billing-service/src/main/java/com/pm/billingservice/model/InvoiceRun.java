@@ -0,0 +1,112 @@
+package com.pm.billingservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "invoice_run")
+public class InvoiceRun {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private UUID id;
+
+    @Column(unique = true, nullable = false)
+    private String billingPeriod; // yyyy-MM
+
+    @Column(nullable = false)
+    private String status;
+
+    // accounts are processed in id order; everything up to and including this id is done
+    private UUID checkpointAccountId;
+
+    @Column(nullable = false)
+    private long accountsProcessed;
+
+    @Column(nullable = false)
+    private long invoicesCreated;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getBillingPeriod() {
+        return billingPeriod;
+    }
+
+    public void setBillingPeriod(String billingPeriod) {
+        this.billingPeriod = billingPeriod;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public UUID getCheckpointAccountId() {
+        return checkpointAccountId;
+    }
+
+    public void setCheckpointAccountId(UUID checkpointAccountId) {
+        this.checkpointAccountId = checkpointAccountId;
+    }
+
+    public long getAccountsProcessed() {
+        return accountsProcessed;
+    }
+
+    public void setAccountsProcessed(long accountsProcessed) {
+        this.accountsProcessed = accountsProcessed;
+    }
+
+    public long getInvoicesCreated() {
+        return invoicesCreated;
+    }
+
+    public void setInvoicesCreated(long invoicesCreated) {
+        this.invoicesCreated = invoicesCreated;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.pm.billingservice.repository;
+
+import com.pm.billingservice.model.InvoiceRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface InvoiceRunRepository extends JpaRepository<InvoiceRun, UUID> {
+    Optional<InvoiceRun> findByBillingPeriod(String billingPeriod);
+
+    List<InvoiceRun> findByStatus(String status);
+}
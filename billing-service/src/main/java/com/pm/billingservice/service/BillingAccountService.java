@@ -0,0 +1,68 @@
+package com.pm.billingservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class BillingAccountService {
+    private static final String ACTIVE = "ACTIVE";
+
+    private final BillingAccountRepository billingAccountRepository;
+    private final BillingAccountWriter billingAccountWriter;
+    private final Cache<String, BillingAccount> accountsByPatientId; // accounts never change once created
+
+    public BillingAccountService(BillingAccountRepository billingAccountRepository,
+                                 BillingAccountWriter billingAccountWriter,
+                                 @Value("${billing.cache.max-size:100000}") long cacheMaxSize,
+                                 @Value("${billing.cache.expire-after-write-minutes:60}") long expireAfterWriteMinutes) {
+        this.billingAccountRepository = billingAccountRepository;
+        this.billingAccountWriter = billingAccountWriter;
+        this.accountsByPatientId = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(expireAfterWriteMinutes))
+                .build();
+    }
+
+    // idempotent: calling this again for the same patient returns the account created the first time
+    public CompletableFuture<BillingAccount> createBillingAccount(String patientId, String name, String email) {
+        BillingAccount cached = accountsByPatientId.getIfPresent(patientId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        BillingAccount account = new BillingAccount();
+        account.setId(UUID.randomUUID());
+        account.setPatientId(patientId);
+        account.setName(name);
+        account.setEmail(email);
+        account.setStatus(ACTIVE);
+        account.setCreatedAt(Instant.now());
+
+        return billingAccountWriter.submit(account).thenApply(stored -> {
+            accountsByPatientId.put(patientId, stored);
+            return stored;
+        });
+    }
+
+    public Optional<BillingAccount> getBillingAccount(String patientId) {
+        BillingAccount cached = accountsByPatientId.getIfPresent(patientId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // misses aren't cached, the account may be sitting in the writer's queue right now
+        Optional<BillingAccount> account = billingAccountRepository.findByPatientId(patientId);
+        account.ifPresent(found -> accountsByPatientId.put(patientId, found));
+        return account;
+    }
+}
@@ -0,0 +1,206 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.exception.BillingQueueFullException;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import com.pm.billingservice.util.DatabaseType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Group commit for new billing accounts. RPC threads only put accounts on a bounded queue; a single writer thread
+drains up to batchSize of them (waiting at most maxWaitMillis for a batch to fill up) and inserts them with one
+JDBC batch in one transaction. Each caller gets the stored account back through its future once the batch commits.
+If the writer thread ends for any other reason than stop(), accounts it hasn't written fail instead of waiting forever.
+ */
+@Component
+public class BillingAccountWriter {
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountWriter.class);
+
+    // inserts are no-ops for patients that already have an account, which makes retries safe
+    private static final String POSTGRES_UPSERT = """
+            INSERT INTO billing_account (id, patient_id, name, email, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (patient_id) DO NOTHING""";
+    private static final String STANDARD_UPSERT = """
+            MERGE INTO billing_account a
+            USING (VALUES (CAST(? AS UUID), CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(255)),
+                           CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(32)), CAST(? AS TIMESTAMP)))
+                AS n (id, patient_id, name, email, status, created_at)
+            ON a.patient_id = n.patient_id
+            WHEN NOT MATCHED THEN INSERT (id, patient_id, name, email, status, created_at)
+                VALUES (n.id, n.patient_id, n.name, n.email, n.status, n.created_at)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BillingAccountRepository billingAccountRepository;
+    private final DatabaseType databaseType;
+    private final BlockingQueue<PendingAccount> queue;
+    private final int batchSize;
+    private final long maxWaitMillis;
+
+    private String upsertSql;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private record PendingAccount(BillingAccount account, CompletableFuture<BillingAccount> result) {
+    }
+
+    public BillingAccountWriter(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                BillingAccountRepository billingAccountRepository,
+                                DatabaseType databaseType,
+                                @Value("${billing.writer.queue-capacity:10000}") int queueCapacity,
+                                @Value("${billing.writer.batch-size:500}") int batchSize,
+                                @Value("${billing.writer.max-wait-millis:5}") long maxWaitMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.billingAccountRepository = billingAccountRepository;
+        this.databaseType = databaseType;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        upsertSql = databaseType.isPostgres() ? POSTGRES_UPSERT : STANDARD_UPSERT;
+        running = true;
+        writerThread = Thread.ofPlatform().name("billing-account-writer").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // never blocks the caller; a full queue means the database can't keep up and the caller should back off
+    public CompletableFuture<BillingAccount> submit(BillingAccount account) {
+        PendingAccount pending = new PendingAccount(account, new CompletableFuture<>());
+
+        if (!running || !queue.offer(pending)) {
+            return CompletableFuture.failedFuture(
+                    new BillingQueueFullException("Billing account queue is full, try again later"));
+        }
+        if (!running && queue.remove(pending)) {
+            // the writer stopped between the check and the offer, and may already have drained the queue
+            return CompletableFuture.failedFuture(stopped());
+        }
+        return pending.result();
+    }
+
+    public int queuedAccounts() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<PendingAccount> batch = new ArrayList<>(batchSize);
+        try {
+            writeUntilStopped(batch);
+        } finally {
+            failUnwritten(batch);
+        }
+    }
+
+    private void writeUntilStopped(List<PendingAccount> batch) {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAccount first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // give concurrent callers a few milliseconds to join this commit
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingAccount next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (running) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                // stopping: fall through and flush what we have, the loop then drains the rest of the queue
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // interrupted while running, or an Error out of the loop: no one is left to write the batch and the queue
+    private void failUnwritten(List<PendingAccount> batch) {
+        running = false; // submit turns new accounts away from here on
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            log.error("Billing account writer stopped with {} account(s) unwritten", batch.size());
+            BillingQueueFullException stopped = stopped();
+            batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+        }
+    }
+
+    private static BillingQueueFullException stopped() {
+        return new BillingQueueFullException("Billing account writer stopped, try again later");
+    }
+
+    private void flush(List<PendingAccount> batch) {
+        try {
+            Map<String, BillingAccount> stored = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(upsertSql, batch, batch.size(), (ps, pending) -> {
+                    BillingAccount account = pending.account();
+                    ps.setObject(1, account.getId());
+                    ps.setString(2, account.getPatientId());
+                    ps.setString(3, account.getName());
+                    ps.setString(4, account.getEmail());
+                    ps.setString(5, account.getStatus());
+                    ps.setTimestamp(6, Timestamp.from(account.getCreatedAt()));
+                });
+
+                // re-read so retried patients get the account that was created the first time round
+                List<String> patientIds = batch.stream().map(pending -> pending.account().getPatientId()).toList();
+                return billingAccountRepository.findByPatientIdIn(patientIds).stream()
+                        .collect(Collectors.toMap(BillingAccount::getPatientId, Function.identity()));
+            });
+
+            for (PendingAccount pending : batch) {
+                pending.result().complete(stored.get(pending.account().getPatientId()));
+            }
+            log.debug("Committed batch of {} billing account(s)", batch.size());
+        } catch (Exception e) {
+            log.error("Failed to write batch of {} billing account(s): {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+}
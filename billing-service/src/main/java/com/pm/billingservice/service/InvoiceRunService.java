@@ -0,0 +1,318 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.model.InvoiceRun;
+import com.pm.billingservice.repository.InvoiceRunRepository;
+import com.pm.billingservice.util.DatabaseType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+Monthly invoice runs. The coordinator walks the active accounts in id order (keyset pagination, chunkSize ids at
+a time) and hands every chunk to a virtual thread; at most parallelism chunks are in flight so the connection
+pool isn't exhausted. Each chunk inserts its invoices with one JDBC batch in its own transaction.
+
+Chunks can finish out of order, so the checkpoint only moves past a chunk once every chunk before it is done. After
+a crash the run resumes from the checkpoint; chunks that had already committed past it are written again, which
+the (account_id, billing_period) unique constraint turns into no-ops.
+ */
+@Service
+public class InvoiceRunService {
+    private static final Logger log = LoggerFactory.getLogger(InvoiceRunService.class);
+
+    private static final String FIRST_CHUNK =
+            "SELECT id FROM billing_account WHERE status = 'ACTIVE' ORDER BY id LIMIT ?";
+    private static final String NEXT_CHUNK =
+            "SELECT id FROM billing_account WHERE status = 'ACTIVE' AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String POSTGRES_INSERT = """
+            INSERT INTO invoice (id, account_id, billing_period, amount_cents, status, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (account_id, billing_period) DO NOTHING""";
+    private static final String STANDARD_INSERT = """
+            MERGE INTO invoice i
+            USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS VARCHAR(7)), CAST(? AS BIGINT),
+                           CAST(? AS VARCHAR(32)), CAST(? AS TIMESTAMP)))
+                AS n (id, account_id, billing_period, amount_cents, status, created_at)
+            ON i.account_id = n.account_id AND i.billing_period = n.billing_period
+            WHEN NOT MATCHED THEN INSERT (id, account_id, billing_period, amount_cents, status, created_at)
+                VALUES (n.id, n.account_id, n.billing_period, n.amount_cents, n.status, n.created_at)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceRunRepository invoiceRunRepository;
+    private final DatabaseType databaseType;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long monthlyFeeCents;
+
+    // one run at a time; runs are sized to use the whole connection pool
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("invoice-run-coordinator").factory());
+    private final AtomicReference<RunProgress> activeRun = new AtomicReference<>();
+
+    private final Counter accountsProcessedCounter;
+    private final Counter invoicesCreatedCounter;
+    private final Timer chunkTimer;
+
+    public InvoiceRunService(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             InvoiceRunRepository invoiceRunRepository,
+                             DatabaseType databaseType,
+                             MeterRegistry meterRegistry,
+                             @Value("${billing.invoices.chunk-size:1000}") int chunkSize,
+                             @Value("${billing.invoices.parallelism:4}") int parallelism,
+                             @Value("${billing.invoices.monthly-fee-cents:2500}") long monthlyFeeCents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.invoiceRunRepository = invoiceRunRepository;
+        this.databaseType = databaseType;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.monthlyFeeCents = monthlyFeeCents;
+
+        this.accountsProcessedCounter = meterRegistry.counter("billing.invoices.accounts.processed");
+        this.invoicesCreatedCounter = meterRegistry.counter("billing.invoices.created");
+        this.chunkTimer = Timer.builder("billing.invoices.chunk.duration")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("billing.invoices.run.active", activeRun, run -> run.get() != null ? 1 : 0)
+                .register(meterRegistry);
+        Gauge.builder("billing.invoices.run.accounts.per.second", activeRun,
+                        run -> run.get() != null ? run.get().accountsPerSecond() : 0)
+                .register(meterRegistry);
+    }
+
+    // starts (or resumes) the run for the given period; returns straight away, progress is polled with getRun
+    public synchronized InvoiceRun startRun(YearMonth billingPeriod) {
+        InvoiceRun run = invoiceRunRepository.findByBillingPeriod(billingPeriod.toString())
+                .orElseGet(() -> newRun(billingPeriod));
+
+        if (InvoiceRun.COMPLETED.equals(run.getStatus())) {
+            return run;
+        }
+
+        RunProgress active = activeRun.get();
+        if (active != null) {
+            if (active.run.getId().equals(run.getId())) {
+                return active.snapshot();
+            }
+            throw new IllegalStateException("Invoice run for " + active.run.getBillingPeriod() + " is still in progress");
+        }
+
+        run.setStatus(InvoiceRun.RUNNING);
+        run.setUpdatedAt(Instant.now());
+        InvoiceRun saved = invoiceRunRepository.save(run);
+
+        RunProgress progress = new RunProgress(saved);
+        InvoiceRun started = progress.snapshot(); // before the coordinator starts moving the checkpoint
+        activeRun.set(progress);
+        coordinator.submit(() -> execute(progress));
+        return started;
+    }
+
+    // the active run is a copy taken under its lock: the live one keeps changing as chunks complete
+    public Optional<InvoiceRun> getRun(YearMonth billingPeriod) {
+        RunProgress active = activeRun.get();
+        if (active != null && active.run.getBillingPeriod().equals(billingPeriod.toString())) {
+            return Optional.of(active.snapshot());
+        }
+        return invoiceRunRepository.findByBillingPeriod(billingPeriod.toString());
+    }
+
+    public double accountsPerSecond(InvoiceRun run) {
+        RunProgress active = activeRun.get();
+        if (active != null && active.run.getId().equals(run.getId())) {
+            return active.accountsPerSecond();
+        }
+
+        Instant end = run.getFinishedAt() != null ? run.getFinishedAt() : run.getUpdatedAt();
+        double seconds = Duration.between(run.getStartedAt(), end).toMillis() / 1000.0;
+        return seconds > 0 ? run.getAccountsProcessed() / seconds : 0;
+    }
+
+    // a run that was RUNNING when the service stopped is picked up again from its checkpoint
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRuns() {
+        for (InvoiceRun run : invoiceRunRepository.findByStatus(InvoiceRun.RUNNING)) {
+            log.info("Resuming invoice run for {} from checkpoint {}", run.getBillingPeriod(),
+                    run.getCheckpointAccountId());
+            try {
+                startRun(YearMonth.parse(run.getBillingPeriod()));
+            } catch (IllegalStateException e) {
+                log.warn("Could not resume invoice run for {}: {}", run.getBillingPeriod(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow(); // the run stays RUNNING and resumes on the next start
+    }
+
+    private InvoiceRun newRun(YearMonth billingPeriod) {
+        InvoiceRun run = new InvoiceRun();
+        run.setId(UUID.randomUUID());
+        run.setBillingPeriod(billingPeriod.toString());
+        run.setStartedAt(Instant.now());
+        return run;
+    }
+
+    private void execute(RunProgress progress) {
+        InvoiceRun run = progress.run;
+        String insertSql = databaseType.isPostgres() ? POSTGRES_INSERT : STANDARD_INSERT;
+        Semaphore inFlight = new Semaphore(parallelism);
+        log.info("Invoice run for {} started", run.getBillingPeriod());
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            UUID cursor = run.getCheckpointAccountId();
+            long sequence = 0;
+
+            while (progress.failure == null) {
+                List<UUID> accountIds = cursor == null
+                        ? jdbcTemplate.queryForList(FIRST_CHUNK, UUID.class, chunkSize)
+                        : jdbcTemplate.queryForList(NEXT_CHUNK, UUID.class, cursor, chunkSize);
+                if (accountIds.isEmpty()) {
+                    break;
+                }
+                cursor = accountIds.getLast();
+
+                long chunk = sequence++;
+                inFlight.acquire(); // back pressure: don't read further ahead than the writers can keep up with
+                workers.submit(() -> {
+                    try {
+                        int created = chunkTimer.recordCallable(() -> writeInvoices(insertSql, run, accountIds));
+                        progress.chunkCompleted(chunk, accountIds.getLast(), accountIds.size(), created);
+                    } catch (Exception e) {
+                        progress.failure = e;
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            progress.failure = e;
+        } // closing the executor waits for the chunks still in flight
+
+        synchronized (progress) {
+            if (progress.failure == null) {
+                run.setStatus(InvoiceRun.COMPLETED);
+                run.setFinishedAt(Instant.now());
+                log.info("Invoice run for {} completed: {} accounts, {} invoices",
+                        run.getBillingPeriod(), run.getAccountsProcessed(), run.getInvoicesCreated());
+            } else if (!(progress.failure instanceof InterruptedException)) {
+                run.setStatus(InvoiceRun.FAILED); // RunInvoices for the same period resumes from the checkpoint
+                log.error("Invoice run for {} failed at checkpoint {}: {}", run.getBillingPeriod(),
+                        run.getCheckpointAccountId(), progress.failure.getMessage());
+            }
+            run.setUpdatedAt(Instant.now());
+            invoiceRunRepository.save(run);
+        }
+        activeRun.set(null);
+    }
+
+    private int writeInvoices(String insertSql, InvoiceRun run, List<UUID> accountIds) {
+        Timestamp now = Timestamp.from(Instant.now());
+
+        int[][] rows = transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate(insertSql, accountIds, accountIds.size(), (ps, accountId) -> {
+                    ps.setObject(1, UUID.randomUUID());
+                    ps.setObject(2, accountId);
+                    ps.setString(3, run.getBillingPeriod());
+                    ps.setLong(4, monthlyFeeCents);
+                    ps.setString(5, "ISSUED");
+                    ps.setTimestamp(6, now);
+                }));
+
+        int created = 0;
+        for (int[] batch : rows) {
+            for (int count : batch) {
+                created += Math.max(count, 0); // 0 when the invoice already existed
+            }
+        }
+        return created;
+    }
+
+    private record ChunkResult(UUID lastAccountId, int accounts, int invoices) {
+    }
+
+    // tracks chunk completion for one run and moves the checkpoint forward over completed chunks
+    private class RunProgress {
+        private final InvoiceRun run;
+        private final long startNanos = System.nanoTime();
+        private final Map<Long, ChunkResult> completedOutOfOrder = new HashMap<>();
+        private long nextChunk;
+        private long accountsSinceStart;
+        private volatile Exception failure;
+
+        private RunProgress(InvoiceRun run) {
+            this.run = run;
+        }
+
+        private synchronized void chunkCompleted(long chunk, UUID lastAccountId, int accounts, int invoices) {
+            accountsProcessedCounter.increment(accounts);
+            invoicesCreatedCounter.increment(invoices);
+            accountsSinceStart += accounts;
+            completedOutOfOrder.put(chunk, new ChunkResult(lastAccountId, accounts, invoices));
+
+            boolean advanced = false;
+            ChunkResult next;
+            while ((next = completedOutOfOrder.remove(nextChunk)) != null) {
+                run.setCheckpointAccountId(next.lastAccountId());
+                run.setAccountsProcessed(run.getAccountsProcessed() + next.accounts());
+                run.setInvoicesCreated(run.getInvoicesCreated() + next.invoices());
+                nextChunk++;
+                advanced = true;
+            }
+
+            if (advanced) {
+                run.setUpdatedAt(Instant.now());
+                invoiceRunRepository.save(run); // the checkpoint
+            }
+        }
+
+        // a consistent view of the run for callers; only this progress changes the live one, under its lock
+        private synchronized InvoiceRun snapshot() {
+            InvoiceRun copy = new InvoiceRun();
+            copy.setId(run.getId());
+            copy.setBillingPeriod(run.getBillingPeriod());
+            copy.setStatus(run.getStatus());
+            copy.setCheckpointAccountId(run.getCheckpointAccountId());
+            copy.setAccountsProcessed(run.getAccountsProcessed());
+            copy.setInvoicesCreated(run.getInvoicesCreated());
+            copy.setStartedAt(run.getStartedAt());
+            copy.setUpdatedAt(run.getUpdatedAt());
+            copy.setFinishedAt(run.getFinishedAt());
+            return copy;
+        }
+
+        private synchronized double accountsPerSecond() {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            return seconds > 0 ? accountsSinceStart / seconds : 0;
+        }
+    }
+}
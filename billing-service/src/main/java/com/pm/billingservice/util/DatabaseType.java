@@ -0,0 +1,36 @@
+package com.pm.billingservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+// upserts use ON CONFLICT on PostgreSQL and standard MERGE on the in-memory database used locally and in tests
+@Component
+public class DatabaseType {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseType.class);
+
+    private final DataSource dataSource;
+    private Boolean postgres;
+
+    public DatabaseType(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public boolean isPostgres() {
+        if (postgres == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                postgres = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (MetaDataAccessException e) {
+                log.warn("Could not determine database type, using standard SQL: {}", e.getMessage());
+                return false;
+            }
+        }
+        return postgres;
+    }
+}
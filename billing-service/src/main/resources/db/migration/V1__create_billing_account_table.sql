@@ -0,0 +1,11 @@
+-- one billing account per patient; the unique constraint is what makes account creation idempotent
+CREATE TABLE IF NOT EXISTS billing_account
+(
+    id         UUID PRIMARY KEY,
+    patient_id VARCHAR(64)  NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    status     VARCHAR(32)  NOT NULL,
+    created_at TIMESTAMP    NOT NULL,
+    CONSTRAINT uk_billing_account_patient_id UNIQUE (patient_id)
+);
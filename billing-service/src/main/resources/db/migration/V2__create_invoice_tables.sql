@@ -0,0 +1,26 @@
+-- one invoice per account and billing period (yyyy-MM); re-running a chunk after a crash can't double bill
+CREATE TABLE IF NOT EXISTS invoice
+(
+    id             UUID PRIMARY KEY,
+    account_id     UUID        NOT NULL,
+    billing_period VARCHAR(7)  NOT NULL,
+    amount_cents   BIGINT      NOT NULL,
+    status         VARCHAR(32) NOT NULL,
+    created_at     TIMESTAMP   NOT NULL,
+    CONSTRAINT uk_invoice_account_period UNIQUE (account_id, billing_period)
+);
+
+-- progress of a monthly invoice run; every account with id <= checkpoint_account_id has been invoiced
+CREATE TABLE IF NOT EXISTS invoice_run
+(
+    id                    UUID PRIMARY KEY,
+    billing_period        VARCHAR(7)  NOT NULL,
+    status                VARCHAR(32) NOT NULL,
+    checkpoint_account_id UUID,
+    accounts_processed    BIGINT      NOT NULL,
+    invoices_created      BIGINT      NOT NULL,
+    started_at            TIMESTAMP   NOT NULL,
+    updated_at            TIMESTAMP   NOT NULL,
+    finished_at           TIMESTAMP,
+    CONSTRAINT uk_invoice_run_billing_period UNIQUE (billing_period)
+);
@@ -0,0 +1,49 @@
+package com.pm.billingservice.grpc;
+
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingServiceGrpc;
+import billing.GetBillingAccountRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {"grpc.server.port=-1", "grpc.server.in-process-name=billing-test"})
+class BillingGrpcServiceTests {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ManagedChannel channel = InProcessChannelBuilder.forName("billing-test").build();
+
+    @AfterEach
+    void closeChannel() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    void createsAccountAndRecordsCallMetrics() {
+        BillingServiceGrpc.BillingServiceBlockingStub stub = BillingServiceGrpc.newBlockingStub(channel)
+                .withDeadlineAfter(10, TimeUnit.SECONDS);
+
+        BillingResponse created = stub.createBillingAccount(BillingRequest.newBuilder()
+                .setPatientId("grpc-patient").setName("Jane Doe").setEmail("jane@example.com").build());
+        BillingResponse found = stub.getBillingAccount(GetBillingAccountRequest.newBuilder()
+                .setPatientId("grpc-patient").build());
+
+        assertEquals(created.getAccountId(), found.getAccountId());
+        assertNotNull(meterRegistry.find("billing.grpc.server.latency")
+                .tags("method", "CreateBillingAccount", "status", "OK").timer());
+        assertEquals(0, meterRegistry.get("billing.grpc.server.in.flight")
+                .tag("method", "CreateBillingAccount").gauge().value());
+    }
+}
@@ -0,0 +1,38 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "grpc.server.port=-1") // no gRPC port needed, the service is called directly
+class BillingAccountServiceTests {
+
+    @Autowired
+    private BillingAccountService billingAccountService;
+
+    @Autowired
+    private BillingAccountRepository billingAccountRepository;
+
+    @Test
+    void retriesForTheSamePatientReturnTheSameAccount() {
+        List<CompletableFuture<BillingAccount>> results = IntStream.range(0, 20)
+                .mapToObj(i -> billingAccountService.createBillingAccount("patient-1", "John Doe", "john@example.com"))
+                .toList();
+
+        List<BillingAccount> accounts = results.stream().map(CompletableFuture::join).toList();
+
+        assertEquals(1, accounts.stream().map(BillingAccount::getId).distinct().count());
+        assertTrue(billingAccountRepository.findByPatientId("patient-1").isPresent());
+        assertEquals(accounts.getFirst().getId(),
+                billingAccountService.getBillingAccount("patient-1").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,80 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.exception.BillingQueueFullException;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.repository.BillingAccountRepository;
+import com.pm.billingservice.util.DatabaseType;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BillingAccountWriterTests {
+
+    @Test
+    void accountsLeftQueuedWhenTheWriterIsInterruptedFailInsteadOfHanging() throws Exception {
+        AtomicReference<Thread> writerThread = new AtomicReference<>();
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            writerThread.set(Thread.currentThread());
+            flushing.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // keep it for the writer's next poll
+                }
+            }
+            return Map.of();
+        });
+        BillingAccountWriter writer = new BillingAccountWriter(mock(JdbcTemplate.class), transactionTemplate,
+                mock(BillingAccountRepository.class), mock(DatabaseType.class), 100, 1, 0);
+        writer.start();
+
+        // the first account's commit is in progress while two more queue up behind it
+        CompletableFuture<BillingAccount> writing = writer.submit(account("patient-1"));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<BillingAccount>> queued =
+                List.of(writer.submit(account("patient-2")), writer.submit(account("patient-3")));
+
+        writerThread.get().interrupt();
+        release.countDown();
+        writing.get(5, TimeUnit.SECONDS);
+        writerThread.get().join(TimeUnit.SECONDS.toMillis(5));
+
+        for (CompletableFuture<BillingAccount> account : queued) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> account.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(BillingQueueFullException.class, error.getCause());
+        }
+        assertTrue(writer.submit(account("patient-4")).isCompletedExceptionally());
+    }
+
+    private static BillingAccount account(String patientId) {
+        BillingAccount account = new BillingAccount();
+        account.setId(UUID.randomUUID());
+        account.setPatientId(patientId);
+        account.setName("Name");
+        account.setEmail(patientId + "@example.com");
+        account.setStatus("ACTIVE");
+        account.setCreatedAt(Instant.now());
+        return account;
+    }
+}
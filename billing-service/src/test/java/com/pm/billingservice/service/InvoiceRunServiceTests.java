@@ -0,0 +1,58 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.model.InvoiceRun;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {"grpc.server.port=-1", "billing.invoices.chunk-size=7"})
+class InvoiceRunServiceTests {
+
+    @Autowired
+    private BillingAccountService billingAccountService;
+
+    @Autowired
+    private InvoiceRunService invoiceRunService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void invoicesEveryAccountOnceAcrossChunks() throws InterruptedException {
+        CompletableFuture.allOf(IntStream.range(0, 50)
+                .mapToObj(i -> billingAccountService.createBillingAccount("invoice-patient-" + i, "Name " + i,
+                        "patient" + i + "@example.com"))
+                .toArray(CompletableFuture[]::new)).join();
+        long accounts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM billing_account", Long.class);
+
+        YearMonth period = YearMonth.of(2025, 1);
+        invoiceRunService.startRun(period);
+        InvoiceRun run = awaitCompletion(period);
+
+        assertEquals(accounts, run.getAccountsProcessed());
+        assertEquals(accounts, run.getInvoicesCreated());
+        assertEquals(accounts, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM invoice WHERE billing_period = '2025-01'", Long.class));
+
+        // a completed run is not executed again
+        assertEquals(InvoiceRun.COMPLETED, invoiceRunService.startRun(period).getStatus());
+    }
+
+    private InvoiceRun awaitCompletion(YearMonth period) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            InvoiceRun run = invoiceRunService.getRun(period).orElseThrow();
+            if (!InvoiceRun.RUNNING.equals(run.getStatus())) {
+                return run;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Invoice run did not finish");
+    }
+}
@@ -1,12 +1,14 @@
 package com.pm.stack;
 
-import io.github.cdimascio.dotenv.Dotenv;
 import software.amazon.awscdk.*;
+import software.amazon.awscdk.services.applicationautoscaling.EnableScalingProps;
 import software.amazon.awscdk.services.ec2.*;
 import software.amazon.awscdk.services.ec2.InstanceType;
 import software.amazon.awscdk.services.ecs.*;
 import software.amazon.awscdk.services.ecs.Protocol;
+import software.amazon.awscdk.services.ecs.Volume;
 import software.amazon.awscdk.services.ecs.patterns.ApplicationLoadBalancedFargateService;
+import software.amazon.awscdk.services.efs.FileSystem;
 import software.amazon.awscdk.services.logs.LogGroup;
 import software.amazon.awscdk.services.logs.RetentionDays;
 import software.amazon.awscdk.services.msk.CfnCluster;
@@ -19,6 +21,24 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 public class LocalStack extends Stack {
+    // per-service task size and scaling range, keyed by image name (see ServiceSizing for the JVM flags they imply)
+    public static final Map<String, ServiceSizing> SERVICE_SIZING = Map.of(
+            "auth-service", new ServiceSizing(256, 512, 1, 2),
+            "billing-service", new ServiceSizing(256, 512, 1, 2),
+            // a single task: its projection lives in a task-local LMDB, so a second task would answer /analytics/*
+            // from only its own partitions and keep stale counts for any partition a rebalance took away
+            "analytics-service", new ServiceSizing(512, 1024, 1, 1),
+            // several tasks: export jobs are in its database and the files on an EFS volume they all mount
+            // (mountPatientExports), so any task can answer an export's polls and download
+            "patient-service", new ServiceSizing(512, 1024, 2, 6),
+            "api-gateway", new ServiceSizing(512, 1024, 2, 6));
+
+    // CPU utilization the target tracking policies keep the tasks at; leaves headroom for bursts while new tasks start
+    private static final int TARGET_CPU_PERCENT = 60;
+
+    // patient.export.dir of every patient-service task
+    static final String PATIENT_EXPORT_DIR = "/mnt/patient-exports";
+
     private final Vpc vpc;
     private final Cluster ecsCluster;
 
@@ -28,33 +48,40 @@ public class LocalStack extends Stack {
 
         this.vpc = createVpc();
 
-        DatabaseInstance authServiceDb = createDatabase("AuthServiceDB", "auth-service-db");
-        DatabaseInstance patientServiceDb = createDatabase("PatientServiceDB", "patient-service-db");
+        DatabaseInstance authServiceDb = createDatabase("AuthServiceDB", "auth-service-db",
+                InstanceType.of(InstanceClass.BURSTABLE3, InstanceSize.MICRO));
+        // the busiest database: every patient read and write, partition maintenance and exports
+        DatabaseInstance patientServiceDb = createDatabase("PatientServiceDB", "patient-service-db",
+                InstanceType.of(InstanceClass.BURSTABLE3, InstanceSize.SMALL));
+        DatabaseInstance billingServiceDb = createDatabase("BillingServiceDB", "billing-service-db",
+                InstanceType.of(InstanceClass.BURSTABLE3, InstanceSize.MICRO));
 
         // can pass health checks to any dependent services
         CfnHealthCheck authServiceDbHealthCheck = createDbHealthCheck(authServiceDb, "AuthServiceDBHealthCheck");
         CfnHealthCheck patientServiceDbHealthCheck = createDbHealthCheck(patientServiceDb, "PatientServiceDBHealthCheck");
+        CfnHealthCheck billingServiceDbHealthCheck = createDbHealthCheck(billingServiceDb, "BillingServiceDBHealthCheck");
 
-        CfnCluster mskCluster = createMskCluster();
+        CfnCluster mskCluster = createMskCluster("kafka.m5.large", 2);
 
         this.ecsCluster = createEcsCluster();
 
-        Dotenv dotenv = Dotenv.load();
-        String jwtSecret = dotenv.get("JWT_SECRET");
-
         FargateService authService = createFargateService("AuthService",
                 "auth-service",
                 List.of(4005),
                 authServiceDb,
-                Map.of("JWT_SECRET", jwtSecret));
+                null); // token signing keys are generated by auth-service and kept in its database
         authService.getNode().addDependency(authServiceDbHealthCheck);
         authService.getNode().addDependency(authServiceDb);
+        autoScale(authService, "auth-service").scaleOnCpuUtilization("CpuScaling", cpuScaling());
 
         FargateService billingService = createFargateService("BillingService",
                 "billing-service",
                 List.of(4001, 9001), // gRPC runs on port 9001
-                null,
-                null);
+                billingServiceDb, // stores billing accounts
+                Map.of("SPRING_JPA_HIBERNATE_DDL_AUTO", "none")); // schema is owned by Flyway
+        billingService.getNode().addDependency(billingServiceDb);
+        billingService.getNode().addDependency(billingServiceDbHealthCheck);
+        autoScale(billingService, "billing-service").scaleOnCpuUtilization("CpuScaling", cpuScaling());
 
         FargateService analyticsService = createFargateService("AnalyticsService",
                 "analytics-service",
@@ -65,16 +92,21 @@ public class LocalStack extends Stack {
 
         FargateService patientService = createFargateService("PatientService",
                 "patient-service",
-                List.of(4000),
+                List.of(4000, 9000), // gRPC (LookupPatients) runs on port 9000
                 patientServiceDb,
                 Map.of(
                         "BILLING_SERVICE_ADDRESS", "host.docker.internal",
-                        "BILLING_SERVICE_GRPC_PORT", "9001"
+                        "BILLING_SERVICE_GRPC_PORT", "9001",
+                        "SPRING_JPA_HIBERNATE_DDL_AUTO", "none", // schema (partitioned table) is owned by Flyway
+                        "AUTH_JWKS_URL", "http://host.docker.internal:4005/.well-known/jwks.json", // verify access tokens
+                        "PATIENT_EXPORT_DIR", PATIENT_EXPORT_DIR
                 ));
         patientService.getNode().addDependency(patientServiceDb);
         patientService.getNode().addDependency(patientServiceDbHealthCheck);
         patientService.getNode().addDependency(billingService); // whenever patient created, gRPC request sent to billingService
         patientService.getNode().addDependency(mskCluster); // sends patient created events
+        mountPatientExports(patientService);
+        autoScale(patientService, "patient-service").scaleOnCpuUtilization("CpuScaling", cpuScaling());
 
         createApiGatewayService();
     }
@@ -87,7 +119,7 @@ public class LocalStack extends Stack {
                 .build();
     }
 
-    private DatabaseInstance createDatabase(String id, String dbName) {
+    private DatabaseInstance createDatabase(String id, String dbName, InstanceType instanceType) {
         // builder pattern
         return DatabaseInstance.Builder
                 .create(this, id)
@@ -98,8 +130,9 @@ public class LocalStack extends Stack {
                         )
                 )
                 .vpc(vpc)
-                .instanceType(InstanceType.of(InstanceClass.BURSTABLE2, InstanceSize.MICRO)) // specify compute levels
+                .instanceType(instanceType) // specify compute levels (PostgreSQL 17 needs at least the t3 family)
                 .allocatedStorage(20) // amount of storage allocated to this database
+                .maxAllocatedStorage(100) // RDS grows the volume up to this size when it runs low
                 .credentials(Credentials.fromGeneratedSecret("admin_user"))
                 .databaseName(dbName)
                 .removalPolicy(RemovalPolicy.DESTROY) // remove database storage when stack is removed. in prod, need to specify backup policy
@@ -120,13 +153,13 @@ public class LocalStack extends Stack {
     }
 
     // creates an Amazon Managed Streaming for Kafka (MSK) cluster
-    private CfnCluster createMskCluster() {
+    private CfnCluster createMskCluster(String brokerInstanceType, int brokers) {
         return CfnCluster.Builder.create(this, "MskCluster")
                 .clusterName("kafka-cluster")
                 .kafkaVersion("2.8.0")
-                .numberOfBrokerNodes(2) // in prod, usually have higher # of broker nodes for resiliency reasons
+                .numberOfBrokerNodes(brokers) // in prod, usually have higher # of broker nodes for resiliency reasons
                 .brokerNodeGroupInfo(CfnCluster.BrokerNodeGroupInfoProperty.builder()
-                        .instanceType("kafka.m5.xlarge") // specify compute power this Kafka cluster is going to use
+                        .instanceType(brokerInstanceType) // specify compute power this Kafka cluster is going to use
                         .clientSubnets(vpc.getPrivateSubnets().stream()
                                 .map(ISubnet::getSubnetId)
                                 .collect(Collectors.toList())) // connect Kafka broker to VPC using VPC private subnet
@@ -155,11 +188,13 @@ public class LocalStack extends Stack {
                                                 DatabaseInstance db,
                                                 Map<String, String> additionalEnvVars) {
 
+        ServiceSizing sizing = SERVICE_SIZING.get(imageName);
+
         // ECS task runs container
         // create task definition (blueprint)
         FargateTaskDefinition taskDefinition = FargateTaskDefinition.Builder.create(this, id + "Task")
-                .cpu(256) // 256 CPU units
-                .memoryLimitMiB(512) // 512 MB
+                .cpu(sizing.cpu()) // CPU units, 1024 = 1 vCPU
+                .memoryLimitMiB(sizing.memoryLimitMiB())
                 .build();
 
         ContainerDefinitionOptions.Builder containerOptions = ContainerDefinitionOptions.builder()
@@ -182,14 +217,11 @@ public class LocalStack extends Stack {
 //                .build(); // keep container options as a Builder instance
 
         Map<String, String> envVars = new HashMap<>();
+        envVars.put("JAVA_TOOL_OPTIONS", sizing.jvmOptions()); // heap and GC follow the task's limits
         // specify where the Kafka boostrap brokers are located
         envVars.put("SPRING_KAFKA_BOOTSTRAP_SERVERS",
                 "localhost.localstack.cloud:4510, localhost.localstack.cloud:4511, localhost.localstack.cloud:4512");
 
-        if (additionalEnvVars != null) {
-            envVars.putAll(additionalEnvVars); // merge all environment variables together
-        }
-
         /*
         Configuring environment variables here very similar to adding env vars to our run configuration whenever
         we created an image and container for a given service during development in the IDE.
@@ -208,29 +240,79 @@ public class LocalStack extends Stack {
             envVars.put("SPRING_DATASOURCE_HIKARI_INITIALIZATION_FAIL_TIMEOUT", "60000"); // retries to spin up database a few times instead of failing right away
         }
 
+        // merged last so a service can override any of the defaults above
+        if (additionalEnvVars != null) {
+            envVars.putAll(additionalEnvVars); // merge all environment variables together
+        }
+
         containerOptions.environment(envVars);
         taskDefinition.addContainer(imageName + "Container", containerOptions.build()); // this is how we link image to container and link container to a task definition
 
         return FargateService.Builder.create(this, id)
                 .cluster(ecsCluster)
                 .taskDefinition(taskDefinition)
+                .desiredCount(sizing.minTasks()) // autoscaling takes over from here
                 .assignPublicIp(false) // since service is internal
                 .serviceName(imageName)
                 .build();
     }
 
+    // an export is polled and downloaded through whichever task the request lands on, so every patient-service task
+    // writes and reads the files on the same EFS file system
+    private void mountPatientExports(FargateService patientService) {
+        FileSystem fileSystem = FileSystem.Builder.create(this, "PatientExportFileSystem")
+                .vpc(vpc)
+                .removalPolicy(RemovalPolicy.DESTROY) // exports are deleted after a day anyway
+                .build();
+        fileSystem.getConnections().allowDefaultPortFrom(patientService); // NFS from the tasks
+
+        patientService.getTaskDefinition().addVolume(Volume.builder()
+                .name("patient-exports")
+                .efsVolumeConfiguration(EfsVolumeConfiguration.builder()
+                        .fileSystemId(fileSystem.getFileSystemId())
+                        .transitEncryption("ENABLED")
+                        .build())
+                .build());
+        patientService.getTaskDefinition().getDefaultContainer().addMountPoints(MountPoint.builder()
+                .sourceVolume("patient-exports")
+                .containerPath(PATIENT_EXPORT_DIR)
+                .readOnly(false)
+                .build());
+    }
+
+    // the range the service may scale in; scaling policies are added to the returned task count
+    private ScalableTaskCount autoScale(BaseService service, String imageName) {
+        ServiceSizing sizing = SERVICE_SIZING.get(imageName);
+        return service.autoScaleTaskCount(EnableScalingProps.builder()
+                .minCapacity(sizing.minTasks())
+                .maxCapacity(sizing.maxTasks())
+                .build());
+    }
+
+    // scale out quickly when CPU climbs, scale in slowly so a short lull doesn't drop tasks that are needed again
+    private static CpuUtilizationScalingProps cpuScaling() {
+        return CpuUtilizationScalingProps.builder()
+                .targetUtilizationPercent(TARGET_CPU_PERCENT)
+                .scaleOutCooldown(Duration.minutes(1))
+                .scaleInCooldown(Duration.minutes(5))
+                .build();
+    }
+
     private void createApiGatewayService() {
+        ServiceSizing sizing = SERVICE_SIZING.get("api-gateway");
+
         FargateTaskDefinition taskDefinition =
                 FargateTaskDefinition.Builder.create(this, "APIGatewayTaskDefinition")
-                .cpu(256) // 256 CPU units
-                .memoryLimitMiB(512) // 512 MB
+                .cpu(sizing.cpu()) // CPU units, 1024 = 1 vCPU
+                .memoryLimitMiB(sizing.memoryLimitMiB())
                 .build();
 
         ContainerDefinitionOptions containerOptions = ContainerDefinitionOptions.builder()
                 .image(ContainerImage.fromRegistry("api-gateway")) // image the container will be created from
                 .environment(Map.of(
                         "SPRING_PROFILES_ACTIVE", "prod", // Spring will look for application-prod.yml file
-                        "AUTH_SERVICE_URL", "http://host.docker.internal:4005" // LocalStack doesn't implement service discovery very well, just use Docker internal service discovery with port
+                        "AUTH_SERVICE_URL", "http://host.docker.internal:4005", // LocalStack doesn't implement service discovery very well, just use Docker internal service discovery with port
+                        "JAVA_TOOL_OPTIONS", sizing.jvmOptions() // heap and GC follow the task's limits
                 )) // add env vars inline
                 .portMappings(List.of(4004).stream()
                         .map(port -> PortMapping.builder()
@@ -256,9 +338,20 @@ public class LocalStack extends Stack {
                         .cluster(ecsCluster)
                         .serviceName("api-gateway")
                         .taskDefinition(taskDefinition)
-                        .desiredCount(1) // run 1 instance, can increase if more traffic
+                        .desiredCount(sizing.minTasks()) // autoscaling adds tasks when traffic grows
                         .healthCheckGracePeriod(Duration.seconds(60)) // how long the application load balancer will wait for API gateway container to start before it fails
                         .build();
+
+        // every request passes through the gateway, so it also scales on the load balancer's requests per task;
+        // whichever policy asks for more tasks wins
+        ScalableTaskCount taskCount = autoScale(apiGateway.getService(), "api-gateway");
+        taskCount.scaleOnCpuUtilization("CpuScaling", cpuScaling());
+        taskCount.scaleOnRequestCount("RequestCountScaling", RequestCountScalingProps.builder()
+                .requestsPerTarget(1000) // per minute
+                .targetGroup(apiGateway.getTargetGroup())
+                .scaleOutCooldown(Duration.minutes(1))
+                .scaleInCooldown(Duration.minutes(5))
+                .build());
     }
 
     public static void main(final String[] args) {
@@ -0,0 +1,47 @@
+package com.pm.stack;
+
+import java.util.Map;
+
+/*
+How big one service's tasks are and how far it may scale out. cpu is in Fargate CPU units (1024 = 1 vCPU) and must be
+paired with a memory size Fargate accepts for it. The JVM inside the container is sized from the same numbers, so
+changing a limit here never leaves the heap sized for the old one.
+ */
+public record ServiceSizing(int cpu, int memoryLimitMiB, int minTasks, int maxTasks) {
+    // Fargate CPU units -> {smallest, largest} memory (MiB) it can be given
+    private static final Map<Integer, int[]> FARGATE_MEMORY = Map.of(
+            256, new int[] {512, 2048},
+            512, new int[] {1024, 4096},
+            1024, new int[] {2048, 8192},
+            2048, new int[] {4096, 16384},
+            4096, new int[] {8192, 30720});
+
+    public ServiceSizing {
+        int[] memory = FARGATE_MEMORY.get(cpu);
+        if (memory == null || memoryLimitMiB < memory[0] || memoryLimitMiB > memory[1]) {
+            throw new IllegalArgumentException("Fargate has no task size with " + cpu + " CPU units and "
+                    + memoryLimitMiB + " MiB");
+        }
+        if (minTasks < 1 || maxTasks < minTasks) {
+            throw new IllegalArgumentException("Task count range " + minTasks + ".." + maxTasks + " is invalid");
+        }
+    }
+
+    /*
+    JAVA_TOOL_OPTIONS for the container: every JVM reads it, including the ones whose Dockerfile sets JAVA_OPTS.
+    The heap is a share of the container limit rather than a fixed -Xmx. Small containers keep a bigger share for
+    metaspace, thread stacks and direct buffers, which live outside the heap but count against the same limit.
+    Below 2 vCPUs the serial collector does as well as G1 with less memory overhead and no concurrent GC threads
+    competing for the task's CPU. A JVM that runs out of memory exits so ECS replaces the task.
+     */
+    public String jvmOptions() {
+        int heapPercent = memoryLimitMiB < 1024 ? 60 : 75;
+        String collector = cpu >= 2048 ? "-XX:+UseG1GC" : "-XX:+UseSerialGC";
+
+        return String.join(" ",
+                "-XX:InitialRAMPercentage=" + heapPercent,
+                "-XX:MaxRAMPercentage=" + heapPercent,
+                collector,
+                "-XX:+ExitOnOutOfMemoryError");
+    }
+}
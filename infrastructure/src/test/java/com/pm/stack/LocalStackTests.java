@@ -0,0 +1,112 @@
+package com.pm.stack;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.BootstraplessSynthesizer;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Match;
+import software.amazon.awscdk.assertions.Template;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// synthesizes the stack in memory (nothing is written to cdk.out) and checks the sizing and scaling it produces
+class LocalStackTests {
+    private static Template template;
+
+    @BeforeAll
+    static void synthesize() {
+        App app = new App();
+        template = Template.fromStack(new LocalStack(app, "localstack", StackProps.builder()
+                .synthesizer(new BootstraplessSynthesizer())
+                .build()));
+    }
+
+    @Test
+    void sizesTasksAndJvmsPerService() {
+        LocalStack.SERVICE_SIZING.forEach((imageName, sizing) ->
+                template.hasResourceProperties("AWS::ECS::TaskDefinition", Map.of(
+                        "Cpu", String.valueOf(sizing.cpu()),
+                        "Memory", String.valueOf(sizing.memoryLimitMiB()),
+                        "ContainerDefinitions", List.of(Match.objectLike(Map.of(
+                                "Image", imageName,
+                                "Environment", Match.arrayWith(List.of(Map.of(
+                                        "Name", "JAVA_TOOL_OPTIONS",
+                                        "Value", sizing.jvmOptions())))))))));
+
+        template.hasResourceProperties("AWS::RDS::DBInstance", Map.of(
+                "DBName", "patient-service-db",
+                "DBInstanceClass", "db.t3.small"));
+    }
+
+    @Test
+    void scalesEveryServiceWithinItsRange() {
+        // analytics-service stays at one task (its projection is task-local)
+        template.resourceCountIs("AWS::ApplicationAutoScaling::ScalableTarget", LocalStack.SERVICE_SIZING.size() - 1);
+        assertEquals(1, LocalStack.SERVICE_SIZING.get("analytics-service").maxTasks());
+        template.hasResourceProperties("AWS::ECS::Service", Map.of(
+                "ServiceName", "analytics-service",
+                "DesiredCount", 1));
+        assertEquals(List.of(2, 6), capacity("PatientServiceTaskCountTarget"));
+        assertEquals(List.of(2, 6), capacity("APIGatewayServiceTaskCountTarget"));
+
+        // CPU for auth, billing, patient and the gateway; request count for the gateway
+        template.resourcePropertiesCountIs("AWS::ApplicationAutoScaling::ScalingPolicy", Map.of(
+                "TargetTrackingScalingPolicyConfiguration", Match.objectLike(Map.of(
+                        "PredefinedMetricSpecification", Map.of(
+                                "PredefinedMetricType", "ECSServiceAverageCPUUtilization"),
+                        "TargetValue", 60))), 4);
+        template.hasResourceProperties("AWS::ApplicationAutoScaling::ScalingPolicy", Map.of(
+                "TargetTrackingScalingPolicyConfiguration", Match.objectLike(Map.of(
+                        "PredefinedMetricSpecification", Match.objectLike(Map.of(
+                                "PredefinedMetricType", "ALBRequestCountPerTarget")),
+                        "TargetValue", 1000))));
+    }
+
+    @Test
+    void patientServiceTasksShareTheExportDirectory() {
+        // several tasks only work because any of them can serve an export another one wrote
+        assertTrue(LocalStack.SERVICE_SIZING.get("patient-service").maxTasks() > 1);
+        template.resourceCountIs("AWS::EFS::FileSystem", 1);
+        template.hasResourceProperties("AWS::ECS::TaskDefinition", Map.of(
+                "ContainerDefinitions", List.of(Match.objectLike(Map.of(
+                        "Image", "patient-service",
+                        "Environment", Match.arrayWith(List.of(Map.of(
+                                "Name", "PATIENT_EXPORT_DIR",
+                                "Value", LocalStack.PATIENT_EXPORT_DIR))),
+                        "MountPoints", List.of(Map.of(
+                                "ContainerPath", LocalStack.PATIENT_EXPORT_DIR,
+                                "ReadOnly", false,
+                                "SourceVolume", "patient-exports"))))),
+                "Volumes", List.of(Match.objectLike(Map.of(
+                        "Name", "patient-exports",
+                        "EFSVolumeConfiguration", Match.objectLike(Map.of("TransitEncryption", "ENABLED")))))));
+    }
+
+    // {min, max} tasks of the scalable target whose logical id starts with the given prefix
+    @SuppressWarnings("unchecked")
+    private static List<Object> capacity(String logicalIdPrefix) {
+        return template.findResources("AWS::ApplicationAutoScaling::ScalableTarget").entrySet().stream()
+                .filter(resource -> resource.getKey().startsWith(logicalIdPrefix))
+                .map(resource -> (Map<String, Object>) resource.getValue().get("Properties"))
+                .map(properties -> List.of(properties.get("MinCapacity"), properties.get("MaxCapacity")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void derivesJvmFlagsFromTheContainerLimits() {
+        assertEquals("-XX:InitialRAMPercentage=60 -XX:MaxRAMPercentage=60 -XX:+UseSerialGC"
+                + " -XX:+ExitOnOutOfMemoryError", new ServiceSizing(256, 512, 1, 1).jvmOptions());
+        assertEquals("-XX:InitialRAMPercentage=75 -XX:MaxRAMPercentage=75 -XX:+UseG1GC"
+                + " -XX:+ExitOnOutOfMemoryError", new ServiceSizing(2048, 4096, 1, 1).jvmOptions());
+
+        assertThrows(IllegalArgumentException.class, () -> new ServiceSizing(256, 4096, 1, 1)); // not a Fargate size
+        assertThrows(IllegalArgumentException.class, () -> new ServiceSizing(512, 1024, 3, 2));
+    }
+}
@@ -0,0 +1,66 @@
+package com.pm.loadtests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Stored per-endpoint numbers from a known-good run (baselines/<name>.json). A run regresses when an endpoint's p99 is
+more than tolerancePercent above its baseline or its error rate is more than 1 percentage point above it.
+Endpoints that aren't in the baseline are not compared.
+ */
+public record Baseline(Map<String, Entry> endpoints) {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public record Entry(double p50Millis, double p99Millis, double errorRate, double throughputPerSecond) {
+    }
+
+    public static Baseline of(List<EndpointResult> results) {
+        Map<String, Entry> endpoints = new TreeMap<>();
+        for (EndpointResult result : results) {
+            endpoints.put(result.scenario(), new Entry(result.p50Millis(), result.p99Millis(), result.errorRate(),
+                    result.throughputPerSecond()));
+        }
+        return new Baseline(endpoints);
+    }
+
+    public static Baseline read(Path file) throws IOException {
+        return MAPPER.readValue(file.toFile(), Baseline.class);
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MAPPER.writeValue(file.toFile(), this);
+    }
+
+    // one message per regression, empty when the run is within tolerance
+    public List<String> regressions(List<EndpointResult> results, double tolerancePercent) {
+        List<String> regressions = new ArrayList<>();
+        for (EndpointResult result : results) {
+            Entry baseline = endpoints.get(result.scenario());
+            if (baseline == null) {
+                continue;
+            }
+
+            double maxP99 = baseline.p99Millis() * (1 + tolerancePercent / 100);
+            if (result.p99Millis() > maxP99) {
+                regressions.add("%s p99 %.1f ms is above baseline %.1f ms + %.0f%%".formatted(
+                        result.endpoint(), result.p99Millis(), baseline.p99Millis(), tolerancePercent));
+            }
+            if (result.errorRate() > baseline.errorRate() + 0.01) {
+                regressions.add("%s error rate %.2f%% is above baseline %.2f%% + 1 point".formatted(
+                        result.endpoint(), result.errorRate() * 100, baseline.errorRate() * 100));
+            }
+        }
+        return regressions;
+    }
+}
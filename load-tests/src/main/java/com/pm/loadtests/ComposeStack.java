@@ -0,0 +1,35 @@
+package com.pm.loadtests;
+
+import org.testcontainers.containers.ComposeContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// the whole stack (Postgres, Kafka and every service) from docker-compose.yml, started through Testcontainers
+// so a run needs nothing but Docker; only the gateway is reachable from the load generator
+public class ComposeStack implements AutoCloseable {
+    private static final String GATEWAY = "api-gateway";
+    private static final int GATEWAY_PORT = 4004;
+
+    private final ComposeContainer compose;
+
+    public ComposeStack(Path composeFile) {
+        this.compose = new ComposeContainer(composeFile.toFile())
+                .withLocalCompose(true) // builds the service images from the repository's Dockerfiles
+                .withBuild(true)
+                .withExposedService(GATEWAY, GATEWAY_PORT,
+                        Wait.forHttp("/actuator/health").withStartupTimeout(Duration.ofMinutes(10)));
+    }
+
+    public String start() {
+        compose.start();
+        return "http://" + compose.getServiceHost(GATEWAY, GATEWAY_PORT) + ":"
+                + compose.getServicePort(GATEWAY, GATEWAY_PORT);
+    }
+
+    @Override
+    public void close() {
+        compose.stop();
+    }
+}
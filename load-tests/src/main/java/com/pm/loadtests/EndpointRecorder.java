@@ -0,0 +1,98 @@
+package com.pm.loadtests;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Latencies of one scenario, in microseconds. Every request is recorded twice:
+- response time: from when the request was SUPPOSED to start (its slot in the arrival schedule) to the response.
+  This is what a user arriving at that moment sees, including any time the request spent waiting because the
+  generator or the connection pool fell behind, so it is free of coordinated omission.
+- service time: from when it was actually sent to the response, which is all a closed-loop tool would measure.
+The gap between the two is how much latency coordinated omission would have hidden.
+ */
+public class EndpointRecorder {
+    private final Scenario scenario;
+    private final Recorder responseTime = new Recorder(3);
+    private final Recorder serviceTime = new Recorder(3);
+    private final Recorder sendLag = new Recorder(3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>(); // status code or failure reason
+    private final LongAdder errors = new LongAdder();
+
+    public EndpointRecorder(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public Scenario scenario() {
+        return scenario;
+    }
+
+    public void record(long intendedNanos, long sentNanos, long completedNanos,
+                       HttpResponse<?> response, Throwable error) {
+        responseTime.recordValue(micros(completedNanos - intendedNanos));
+        serviceTime.recordValue(micros(completedNanos - sentNanos));
+        sendLag.recordValue(micros(sentNanos - intendedNanos));
+
+        if (error != null) {
+            count(error.getClass().getSimpleName());
+            errors.increment();
+        } else {
+            count(String.valueOf(response.statusCode()));
+            if (response.statusCode() / 100 != 2) {
+                errors.increment();
+            }
+        }
+    }
+
+    // the request was never sent (generator saturated, nothing to update/delete); counts as an error
+    public void recordNotSent(String reason) {
+        count(reason);
+        errors.increment();
+    }
+
+    // drops everything recorded so far, called when the warmup ends
+    public void reset() {
+        responseTime.reset();
+        serviceTime.reset();
+        sendLag.reset();
+        outcomes.clear();
+        errors.reset();
+    }
+
+    public Histogram responseTimes() {
+        return responseTime.getIntervalHistogram();
+    }
+
+    public Histogram serviceTimes() {
+        return serviceTime.getIntervalHistogram();
+    }
+
+    public Histogram sendLags() {
+        return sendLag.getIntervalHistogram();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public Map<String, Long> outcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return counts;
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+}
@@ -0,0 +1,58 @@
+package com.pm.loadtests;
+
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.Map;
+
+// summary of one scenario's measured (post-warmup) window; latencies in milliseconds
+public record EndpointResult(String scenario,
+                             String endpoint,
+                             long requests,
+                             long errors,
+                             double errorRate,
+                             double throughputPerSecond,
+                             double p50Millis,
+                             double p90Millis,
+                             double p99Millis,
+                             double p999Millis,
+                             double maxMillis,
+                             double serviceP99Millis,
+                             double sendLagP99Millis,
+                             boolean coordinatedOmission,
+                             Map<String, Long> outcomes) {
+
+    public static EndpointResult of(Scenario scenario, Histogram responseTimes, Histogram serviceTimes,
+                                    Histogram sendLags, long errors, Map<String, Long> outcomes,
+                                    Duration measured, double coordinatedOmissionPercent) {
+        long requests = outcomes.values().stream().mapToLong(Long::longValue).sum();
+        double p99 = millis(responseTimes.getValueAtPercentile(99));
+        double serviceP99 = millis(serviceTimes.getValueAtPercentile(99));
+
+        return new EndpointResult(scenario.key(),
+                scenario.endpoint(),
+                requests,
+                errors,
+                requests == 0 ? 0 : (double) errors / requests,
+                requests / (measured.toMillis() / 1000.0),
+                millis(responseTimes.getValueAtPercentile(50)),
+                millis(responseTimes.getValueAtPercentile(90)),
+                p99,
+                millis(responseTimes.getValueAtPercentile(99.9)),
+                millis(responseTimes.getMaxValue()),
+                serviceP99,
+                millis(sendLags.getValueAtPercentile(99)),
+                isCoordinatedOmission(p99, serviceP99, coordinatedOmissionPercent),
+                outcomes);
+    }
+
+    // a closed-loop tool reports service time; if that is well below the real response time it would have hidden it.
+    // gaps of a couple of milliseconds are scheduling jitter of the arrival threads, not omission
+    static boolean isCoordinatedOmission(double p99Millis, double serviceP99Millis, double thresholdPercent) {
+        return p99Millis - serviceP99Millis > 2.0 && p99Millis > serviceP99Millis * (1 + thresholdPercent / 100);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
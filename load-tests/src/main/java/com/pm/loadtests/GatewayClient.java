@@ -0,0 +1,119 @@
+package com.pm.loadtests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+// the requests behind each scenario, all sent through the api-gateway like a real client would
+public class GatewayClient {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final String loginPayload;
+    private volatile String token;
+
+    public GatewayClient(String baseUrl, String email, String password, Duration requestTimeout) {
+        // responses are handled on virtual threads so a slow stack never starves the load generator of threads
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.loginPayload = MAPPER.createObjectNode().put("email", email).put("password", password).toString();
+    }
+
+    // blocking login used before the run; the token is shared by every authenticated scenario
+    public void authenticate() {
+        HttpResponse<String> response = login().join();
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with status " + response.statusCode()
+                    + ", is the stack up at " + baseUrl + "?");
+        }
+        token = readTree(response.body()).path("token").asText();
+    }
+
+    public CompletableFuture<HttpResponse<String>> login() {
+        return send(request("/auth/login")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(loginPayload))
+                .build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> listPatients() {
+        return send(authorized("/api/patients").GET().build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> createPatient() {
+        return send(authorized("/api/patients")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(patientPayload(true)))
+                .build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> updatePatient(String id) {
+        return send(authorized("/api/patients/" + id)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(patientPayload(false)))
+                .build());
+    }
+
+    public CompletableFuture<HttpResponse<String>> deletePatient(String id) {
+        return send(authorized("/api/patients/" + id).DELETE().build());
+    }
+
+    // id of the patient in a create response, null if the response isn't one
+    public static String patientId(HttpResponse<String> response) {
+        if (response.statusCode() / 100 != 2) {
+            return null;
+        }
+        JsonNode id = readTree(response.body()).path("id");
+        return id.isMissingNode() ? null : id.asText();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return request(path).header("Authorization", "Bearer " + token);
+    }
+
+    // unique email every time, patient-service rejects duplicates
+    private static String patientPayload(boolean create) {
+        var payload = MAPPER.createObjectNode()
+                .put("name", "Load Test Patient")
+                .put("email", "load-" + UUID.randomUUID() + "@test.com")
+                .put("address", "123 Load Test St")
+                .put("dateOfBirth", "1990-01-01");
+        if (create) {
+            payload.put("registeredDate", LocalDate.now().toString());
+        }
+        return payload.toString();
+    }
+
+    private static JsonNode readTree(String body) {
+        try {
+            return MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
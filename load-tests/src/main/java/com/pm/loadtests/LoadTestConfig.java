@@ -0,0 +1,125 @@
+package com.pm.loadtests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+// load-test.properties from the classpath, overridden by -D system properties with the same keys
+public class LoadTestConfig {
+    private final Properties properties = new Properties();
+
+    public LoadTestConfig(Properties overrides) {
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/load-test.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        overrides.stringPropertyNames().stream()
+                .filter(key -> key.startsWith("load."))
+                .forEach(key -> properties.setProperty(key, overrides.getProperty(key)));
+    }
+
+    public String stack() {
+        return get("load.stack");
+    }
+
+    public String baseUrl() {
+        return get("load.base-url");
+    }
+
+    public Path composeFile() {
+        return Path.of(get("load.compose-file"));
+    }
+
+    public String email() {
+        return get("load.email");
+    }
+
+    public String password() {
+        return get("load.password");
+    }
+
+    public boolean poissonArrivals() {
+        return "poisson".equalsIgnoreCase(get("load.arrival"));
+    }
+
+    // requests per second for each scenario, scenarios at 0 don't run
+    public Map<Scenario, Double> rates() {
+        Map<Scenario, Double> rates = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : Scenario.values()) {
+            rates.put(scenario, Double.parseDouble(properties.getProperty("load.rate." + scenario.key(), "0")));
+        }
+        return rates;
+    }
+
+    public Duration warmup() {
+        return parseDuration(get("load.warmup"));
+    }
+
+    public Duration duration() {
+        return parseDuration(get("load.duration"));
+    }
+
+    public int seedPatients() {
+        return Integer.parseInt(get("load.seed-patients"));
+    }
+
+    public Duration requestTimeout() {
+        return parseDuration(get("load.request-timeout"));
+    }
+
+    public int maxInFlight() {
+        return Integer.parseInt(get("load.max-in-flight"));
+    }
+
+    public Path outputDir() {
+        return Path.of(get("load.output-dir"));
+    }
+
+    public Path baselineFile() {
+        return Path.of(get("load.baseline-file"));
+    }
+
+    public double tolerancePercent() {
+        return Double.parseDouble(get("load.tolerance-percent"));
+    }
+
+    public boolean updateBaseline() {
+        return Boolean.parseBoolean(get("load.update-baseline"));
+    }
+
+    public double coordinatedOmissionPercent() {
+        return Double.parseDouble(get("load.coordinated-omission-percent"));
+    }
+
+    private String get(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing load test setting " + key);
+        }
+        return value.trim();
+    }
+
+    // 500ms, 30s, 2m, 1h
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unsupported duration " + value + ", use ms, s, m or h");
+        };
+    }
+}
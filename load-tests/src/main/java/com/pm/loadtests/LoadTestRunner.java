@@ -0,0 +1,129 @@
+package com.pm.loadtests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+Drives login/list/create/update/delete through the api-gateway at open-model arrival rates, reports latency
+percentiles per endpoint and fails (exit code 1) when a run is worse than the stored baseline.
+Settings: load-test.properties, overridable with -Dload.<key>=value.
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(System.getProperties());
+
+        ComposeStack stack = "compose".equals(config.stack()) ? new ComposeStack(config.composeFile()) : null;
+        try {
+            String baseUrl = stack != null ? stack.start() : config.baseUrl();
+            System.exit(run(config, baseUrl) ? 0 : 1);
+        } finally {
+            if (stack != null) {
+                stack.close();
+            }
+        }
+    }
+
+    static boolean run(LoadTestConfig config, String baseUrl) throws Exception {
+        GatewayClient client = new GatewayClient(baseUrl, config.email(), config.password(), config.requestTimeout());
+        authenticate(client, config.stack().equals("compose") ? Duration.ofMinutes(5) : Duration.ZERO);
+
+        OpenModelDriver driver = new OpenModelDriver(client, config.maxInFlight(), config.poissonArrivals());
+        driver.seedPatients(config.seedPatients());
+
+        System.out.printf("Running %s arrivals against %s: warmup %s, measured %s, rates/s %s%n",
+                config.poissonArrivals() ? "poisson" : "constant", baseUrl, config.warmup(), config.duration(),
+                config.rates());
+        Map<Scenario, EndpointRecorder> recorders = driver.run(config.rates(), config.warmup(), config.duration(),
+                config.requestTimeout().plusSeconds(5));
+
+        Files.createDirectories(config.outputDir());
+        List<EndpointResult> results = new ArrayList<>();
+        for (EndpointRecorder recorder : recorders.values()) {
+            Histogram responseTimes = recorder.responseTimes();
+            writePercentiles(config.outputDir().resolve(recorder.scenario().key() + ".hgrm"), responseTimes);
+
+            results.add(EndpointResult.of(recorder.scenario(), responseTimes, recorder.serviceTimes(),
+                    recorder.sendLags(), recorder.errors(), recorder.outcomes(), config.duration(),
+                    config.coordinatedOmissionPercent()));
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(config.outputDir().resolve("results.json").toFile(), results);
+        printSummary(results);
+
+        return compareWithBaseline(config, results);
+    }
+
+    // the stack may still be starting (compose), keep trying until it answers a login
+    private static void authenticate(GatewayClient client, Duration patience) throws InterruptedException {
+        long deadline = System.nanoTime() + patience.toNanos();
+        while (true) {
+            try {
+                client.authenticate();
+                return;
+            } catch (RuntimeException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(2000);
+            }
+        }
+    }
+
+    private static boolean compareWithBaseline(LoadTestConfig config, List<EndpointResult> results)
+            throws IOException {
+        Path baselineFile = config.baselineFile();
+
+        if (config.updateBaseline()) {
+            Baseline.of(results).write(baselineFile);
+            System.out.println("Baseline written to " + baselineFile);
+            return true;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + ", run with -Dload.update-baseline=true to record one");
+            return true;
+        }
+
+        List<String> regressions = Baseline.read(baselineFile).regressions(results, config.tolerancePercent());
+        regressions.forEach(regression -> System.out.println("REGRESSION: " + regression));
+        return regressions.isEmpty();
+    }
+
+    private static void printSummary(List<EndpointResult> results) {
+        System.out.printf("%-24s %8s %7s %8s %9s %9s %9s %9s %9s %12s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        for (EndpointResult result : results) {
+            System.out.printf("%-24s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f %12.1f%n", result.endpoint(),
+                    result.requests(), result.errors(), result.throughputPerSecond(), result.p50Millis(),
+                    result.p90Millis(), result.p99Millis(), result.p999Millis(), result.maxMillis(),
+                    result.serviceP99Millis());
+        }
+
+        for (EndpointResult result : results) {
+            if (result.coordinatedOmission()) {
+                System.out.printf("COORDINATED OMISSION: %s p99 is %.1f ms from the scheduled start but only %.1f ms "
+                                + "from the actual send (p99 send lag %.1f ms); a closed-loop tool would report the "
+                                + "lower number%n", result.endpoint(), result.p99Millis(), result.serviceP99Millis(),
+                        result.sendLagP99Millis());
+            }
+        }
+    }
+
+    // HdrHistogram's percentile distribution format, in milliseconds; plot with HdrHistogram's plotter
+    private static void writePercentiles(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
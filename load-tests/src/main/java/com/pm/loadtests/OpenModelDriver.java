@@ -0,0 +1,150 @@
+package com.pm.loadtests;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Open-model load: each scenario has its own arrival thread that starts requests on a fixed schedule (constant or
+Poisson gaps at the configured rate) and never waits for responses. A slow stack therefore gets more concurrent
+requests, like it would from real users, instead of fewer requests as in a closed loop. If the arrival thread itself
+falls behind, requests keep their scheduled start time, so the delay still shows up in the response times.
+ */
+public class OpenModelDriver {
+    private final GatewayClient client;
+    private final Map<Scenario, EndpointRecorder> recorders = new EnumMap<>(Scenario.class);
+    private final Queue<String> patientIds = new ConcurrentLinkedQueue<>(); // created by this run, used by update/delete
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int maxInFlight;
+    private final boolean poisson;
+
+    public OpenModelDriver(GatewayClient client, int maxInFlight, boolean poisson) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.poisson = poisson;
+        for (Scenario scenario : Scenario.values()) {
+            recorders.put(scenario, new EndpointRecorder(scenario));
+        }
+    }
+
+    // creates patients up front so update/delete have ids from the very first second
+    public void seedPatients(int count) {
+        List<CompletableFuture<Void>> creates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            creates.add(client.createPatient().thenAccept(this::keepPatientId));
+        }
+        CompletableFuture.allOf(creates.toArray(CompletableFuture[]::new)).join();
+    }
+
+    // runs every scenario with a non-zero rate for warmup + duration, then waits for in-flight requests to finish
+    public Map<Scenario, EndpointRecorder> run(Map<Scenario, Double> rates, Duration warmup, Duration duration,
+                                               Duration drainTimeout) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + warmup.toNanos() + duration.toNanos();
+
+        List<Thread> arrivalThreads = new ArrayList<>();
+        rates.forEach((scenario, rate) -> {
+            if (rate > 0) {
+                arrivalThreads.add(Thread.ofPlatform().name("arrivals-" + scenario.key())
+                        .start(() -> arrivals(scenario, rate, start, end)));
+            }
+        });
+
+        Thread.sleep(warmup.toMillis());
+        recorders.values().forEach(EndpointRecorder::reset);
+
+        for (Thread thread : arrivalThreads) {
+            thread.join();
+        }
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+
+        Map<Scenario, EndpointRecorder> active = new EnumMap<>(Scenario.class);
+        rates.forEach((scenario, rate) -> {
+            if (rate > 0) {
+                active.put(scenario, recorders.get(scenario));
+            }
+        });
+        return active;
+    }
+
+    private void arrivals(Scenario scenario, double ratePerSecond, long start, long end) {
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long intended = start;
+
+        while (intended < end) {
+            long wait = intended - System.nanoTime();
+            while (wait > 0) {
+                LockSupport.parkNanos(wait);
+                wait = intended - System.nanoTime();
+            }
+
+            fire(scenario, intended);
+
+            // exponential gaps give Poisson arrivals (bursty, like independent users) with the same mean rate
+            double gap = poisson ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos : meanGapNanos;
+            intended += (long) gap;
+        }
+    }
+
+    private void fire(Scenario scenario, long intended) {
+        EndpointRecorder recorder = recorders.get(scenario);
+
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            recorder.recordNotSent("client-saturated");
+            return;
+        }
+
+        String patientId = null;
+        if (scenario == Scenario.UPDATE || scenario == Scenario.DELETE) {
+            patientId = patientIds.poll();
+            if (patientId == null) {
+                inFlight.decrementAndGet();
+                recorder.recordNotSent("no-patient");
+                return;
+            }
+        }
+
+        long sent = System.nanoTime();
+        String id = patientId;
+        CompletableFuture<HttpResponse<String>> call = switch (scenario) {
+            case LOGIN -> client.login();
+            case LIST -> client.listPatients();
+            case CREATE -> client.createPatient();
+            case UPDATE -> client.updatePatient(id);
+            case DELETE -> client.deletePatient(id);
+        };
+
+        call.whenComplete((response, error) -> {
+            recorder.record(intended, sent, System.nanoTime(), response, error);
+            inFlight.decrementAndGet();
+
+            if (scenario == Scenario.CREATE && error == null) {
+                keepPatientId(response);
+            } else if (scenario == Scenario.UPDATE) {
+                patientIds.offer(id); // updated patients can be updated or deleted again
+            }
+        });
+    }
+
+    private void keepPatientId(HttpResponse<String> response) {
+        String id = GatewayClient.patientId(response);
+        if (id != null) {
+            patientIds.offer(id);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.pm.loadtests;
+
+// one scenario per gateway endpoint; the key is used in load.rate.<key> and in reports/baselines
+public enum Scenario {
+    LOGIN("login", "POST /auth/login"),
+    LIST("list", "GET /api/patients"),
+    CREATE("create", "POST /api/patients"),
+    UPDATE("update", "PUT /api/patients/{id}"),
+    DELETE("delete", "DELETE /api/patients/{id}");
+
+    private final String key;
+    private final String endpoint;
+
+    Scenario(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pm.loadtests;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineTests {
+
+    @Test
+    void flagsP99AndErrorRateRegressionsOnly() {
+        Baseline baseline = new Baseline(Map.of(
+                "list", new Baseline.Entry(5, 20, 0.0, 100),
+                "create", new Baseline.Entry(10, 40, 0.0, 50)));
+
+        List<EndpointResult> results = List.of(
+                result(Scenario.LIST, 23.0, 0, 1000), // +15%, within 20%
+                result(Scenario.CREATE, 49.0, 20, 1000), // +22.5% and 2% errors
+                result(Scenario.DELETE, 500.0, 0, 1000)); // not in the baseline
+
+        List<String> regressions = baseline.regressions(results, 20);
+
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.stream().allMatch(regression -> regression.startsWith("POST /api/patients")));
+    }
+
+    @Test
+    void responseTimeFromScheduledStartExposesCoordinatedOmission() {
+        EndpointRecorder recorder = new EndpointRecorder(Scenario.LIST);
+        long ms = 1_000_000;
+
+        // 98 requests sent on time, 2 sent 200 ms late because the sender stalled; each took 5 ms once sent
+        for (int i = 0; i < 100; i++) {
+            long intended = i * 10 * ms;
+            long sent = i >= 98 ? intended + 200 * ms : intended;
+            recorder.record(intended, sent, sent + 5 * ms, null, new RuntimeException());
+        }
+
+        Histogram responseTimes = recorder.responseTimes();
+        Histogram serviceTimes = recorder.serviceTimes();
+        EndpointResult result = EndpointResult.of(Scenario.LIST, responseTimes, serviceTimes, recorder.sendLags(),
+                recorder.errors(), recorder.outcomes(), Duration.ofSeconds(1), 10);
+
+        assertEquals(5, result.serviceP99Millis(), 0.1);
+        assertEquals(205, result.p99Millis(), 1);
+        assertTrue(result.coordinatedOmission());
+        assertFalse(EndpointResult.isCoordinatedOmission(5.4, 5.0, 10)); // jitter, not omission
+    }
+
+    private static EndpointResult result(Scenario scenario, double p99, long errors, long requests) {
+        return new EndpointResult(scenario.key(), scenario.endpoint(), requests, errors, (double) errors / requests,
+                requests, p99 / 4, p99 / 2, p99, p99, p99, p99, 0, false, Map.of("200", requests - errors));
+    }
+}
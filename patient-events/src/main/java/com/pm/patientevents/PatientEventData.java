@@ -0,0 +1,23 @@
+package com.pm.patientevents;
+
+import patient.events.PatientEventType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The values of one patient event, written straight to the wire by {@link PatientEventSerializer} without building
+ * a {@link patient.events.PatientEvent} first. Null fields are left out of the encoded event (deletes captured from
+ * the database, for example, only know the patient's key).
+ */
+public record PatientEventData(UUID patientId,
+                               String name,
+                               String email,
+                               String address,
+                               LocalDate dateOfBirth,
+                               LocalDate registeredDate,
+                               PatientEventType type,
+                               Instant occurredAt,
+                               String tenantId) {
+}
@@ -0,0 +1,15 @@
+package com.pm.patientevents;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer that wraps the record value in a {@link PatientEventView} without decoding anything; fields are
+ * only read when the listener asks for them. Tombstones stay null.
+ */
+public class PatientEventDeserializer implements Deserializer<PatientEventView> {
+
+    @Override
+    public PatientEventView deserialize(String topic, byte[] data) {
+        return data == null ? null : new PatientEventView(data);
+    }
+}
@@ -0,0 +1,181 @@
+package com.pm.patientevents;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import patient.events.PatientEventType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Kafka serializer that encodes a {@link PatientEventData} in the {@code PatientEvent} wire format directly with a
+ * {@link CodedOutputStream}. The size is worked out first, so the only allocation per event is the exact-size array
+ * Kafka needs; there is no builder, message or intermediate string (the id and dates are written digit by digit).
+ * The output is byte-for-byte what {@code PatientEvent.toByteArray()} produces for the same values.
+ */
+public class PatientEventSerializer implements Serializer<PatientEventData> {
+    public static final int SCHEMA_VERSION = 2;
+
+    private static final int PATIENT_ID = 1;
+    private static final int NAME = 2;
+    private static final int EMAIL = 3;
+    private static final int EVENT_TYPE = 4;
+    private static final int TYPE = 5;
+    private static final int ADDRESS = 6;
+    private static final int DATE_OF_BIRTH = 7;
+    private static final int REGISTERED_DATE = 8;
+    private static final int OCCURRED_AT = 9;
+    private static final int SCHEMA_VERSION_FIELD = 10;
+    private static final int TENANT_ID = 11;
+
+    private static final int UUID_LENGTH = 36;
+    private static final int DATE_LENGTH = 10; // yyyy-MM-dd
+
+    @Override
+    public byte[] serialize(String topic, PatientEventData event) {
+        if (event == null) {
+            return null; // tombstone
+        }
+
+        byte[] bytes = new byte[serializedSize(event)];
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        try {
+            write(event, out);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode patient event for " + event.patientId(), e);
+        }
+        return bytes;
+    }
+
+    // fields are written in field number order, skipping proto3 defaults, exactly like the generated code
+    private static void write(PatientEventData event, CodedOutputStream out) throws IOException {
+        if (event.patientId() != null) {
+            out.writeTag(PATIENT_ID, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(UUID_LENGTH);
+            writeUuid(event.patientId().getMostSignificantBits(), event.patientId().getLeastSignificantBits(), out);
+        }
+        writeString(NAME, event.name(), out);
+        writeString(EMAIL, event.email(), out);
+        if (hasType(event)) {
+            out.writeString(EVENT_TYPE, event.type().name()); // v1 consumers still read event_type
+            out.writeEnum(TYPE, event.type().getNumber());
+        }
+        writeString(ADDRESS, event.address(), out);
+        writeDate(DATE_OF_BIRTH, event.dateOfBirth(), out);
+        writeDate(REGISTERED_DATE, event.registeredDate(), out);
+        if (event.occurredAt() != null) {
+            out.writeTag(OCCURRED_AT, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(timestampSize(event.occurredAt()));
+            if (event.occurredAt().getEpochSecond() != 0) {
+                out.writeInt64(1, event.occurredAt().getEpochSecond());
+            }
+            if (event.occurredAt().getNano() != 0) {
+                out.writeInt32(2, event.occurredAt().getNano());
+            }
+        }
+        out.writeInt32(SCHEMA_VERSION_FIELD, SCHEMA_VERSION);
+        writeString(TENANT_ID, event.tenantId(), out);
+    }
+
+    private static int serializedSize(PatientEventData event) {
+        int size = 0;
+        if (event.patientId() != null) {
+            size += CodedOutputStream.computeTagSize(PATIENT_ID) + 1 + UUID_LENGTH;
+        }
+        size += stringSize(NAME, event.name());
+        size += stringSize(EMAIL, event.email());
+        if (hasType(event)) {
+            size += CodedOutputStream.computeStringSize(EVENT_TYPE, event.type().name());
+            size += CodedOutputStream.computeEnumSize(TYPE, event.type().getNumber());
+        }
+        size += stringSize(ADDRESS, event.address());
+        size += dateSize(DATE_OF_BIRTH, event.dateOfBirth());
+        size += dateSize(REGISTERED_DATE, event.registeredDate());
+        if (event.occurredAt() != null) {
+            int timestampSize = timestampSize(event.occurredAt());
+            size += CodedOutputStream.computeTagSize(OCCURRED_AT)
+                    + CodedOutputStream.computeUInt32SizeNoTag(timestampSize) + timestampSize;
+        }
+        size += CodedOutputStream.computeInt32Size(SCHEMA_VERSION_FIELD, SCHEMA_VERSION);
+        size += stringSize(TENANT_ID, event.tenantId());
+        return size;
+    }
+
+    private static boolean hasType(PatientEventData event) {
+        return event.type() != null && event.type() != PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+    }
+
+    private static int stringSize(int field, String value) {
+        return value == null || value.isEmpty() ? 0 : CodedOutputStream.computeStringSize(field, value);
+    }
+
+    private static void writeString(int field, String value, CodedOutputStream out) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.writeString(field, value); // encodes the chars straight into the array
+        }
+    }
+
+    private static int timestampSize(Instant instant) {
+        return (instant.getEpochSecond() != 0 ? CodedOutputStream.computeInt64Size(1, instant.getEpochSecond()) : 0)
+                + (instant.getNano() != 0 ? CodedOutputStream.computeInt32Size(2, instant.getNano()) : 0);
+    }
+
+    private static boolean isFourDigitYear(LocalDate date) {
+        return date.getYear() >= 0 && date.getYear() <= 9999;
+    }
+
+    private static int dateSize(int field, LocalDate date) {
+        if (date == null) {
+            return 0;
+        }
+        return isFourDigitYear(date)
+                ? CodedOutputStream.computeTagSize(field) + 1 + DATE_LENGTH
+                : CodedOutputStream.computeStringSize(field, date.toString());
+    }
+
+    private static void writeDate(int field, LocalDate date, CodedOutputStream out) throws IOException {
+        if (date == null) {
+            return;
+        }
+        if (!isFourDigitYear(date)) {
+            out.writeString(field, date.toString()); // ISO-8601 adds a sign outside 0000-9999
+            return;
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(DATE_LENGTH);
+        writeDigits(date.getYear(), 4, out);
+        out.write((byte) '-');
+        writeDigits(date.getMonthValue(), 2, out);
+        out.write((byte) '-');
+        writeDigits(date.getDayOfMonth(), 2, out);
+    }
+
+    private static void writeDigits(int value, int digits, CodedOutputStream out) throws IOException {
+        for (int divisor = (int) Math.pow(10, digits - 1); divisor > 0; divisor /= 10) {
+            out.write((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    // same text as UUID.toString(): 8-4-4-4-12 lowercase hex digits
+    static void writeUuid(long msb, long lsb, CodedOutputStream out) throws IOException {
+        writeHex(msb >>> 32, 8, out);
+        out.write((byte) '-');
+        writeHex(msb >>> 16, 4, out);
+        out.write((byte) '-');
+        writeHex(msb, 4, out);
+        out.write((byte) '-');
+        writeHex(lsb >>> 48, 4, out);
+        out.write((byte) '-');
+        writeHex(lsb, 12, out);
+    }
+
+    private static void writeHex(long value, int digits, CodedOutputStream out) throws IOException {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            out.write((byte) Character.forDigit((int) (value >>> shift) & 0xF, 16));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.pm.patientevents;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Read-only view over an encoded {@code PatientEvent}. Nothing is decoded up front: the first accessor call walks the
+ * tags once and records where each field sits, and every accessor then decodes only its own field. Consumers that
+ * look at two or three fields never pay for the rest, and {@link #bytes()} hands the original encoding on unchanged.
+ * Missing fields read as the proto3 defaults, like the generated getters.
+ */
+public final class PatientEventView {
+    private static final int MAX_FIELD = 11;
+    private static final int ABSENT = -1;
+
+    private final byte[] bytes;
+    // per field number: [offset, length] of length-delimited fields, or [value, 0] of varint fields
+    private int[] index;
+
+    public PatientEventView(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public String patientId() {
+        return string(1);
+    }
+
+    public String name() {
+        return string(2);
+    }
+
+    public String email() {
+        return string(3);
+    }
+
+    // v1 events only have the event_type string
+    public PatientEventType type() {
+        int[] fields = index();
+        if (fields[5 * 2] != ABSENT) {
+            PatientEventType type = PatientEventType.forNumber(fields[5 * 2]);
+            return type != null ? type : PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+        }
+        if (fields[4 * 2] == ABSENT) {
+            return PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+        }
+        return switch (string(4)) {
+            case "PATIENT_CREATED" -> PatientEventType.PATIENT_CREATED;
+            case "PATIENT_UPDATED" -> PatientEventType.PATIENT_UPDATED;
+            case "PATIENT_DELETED" -> PatientEventType.PATIENT_DELETED;
+            default -> PatientEventType.PATIENT_EVENT_TYPE_UNSPECIFIED;
+        };
+    }
+
+    public String address() {
+        return string(6);
+    }
+
+    public String dateOfBirth() {
+        return string(7);
+    }
+
+    public String registeredDate() {
+        return string(8);
+    }
+
+    // null when the event has no timestamp
+    public Instant occurredAt() {
+        int[] fields = index();
+        if (fields[9 * 2] == ABSENT) {
+            return null;
+        }
+
+        long seconds = 0;
+        int nanos = 0;
+        try {
+            CodedInputStream in = CodedInputStream.newInstance(bytes, fields[9 * 2], fields[9 * 2 + 1]);
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> seconds = in.readInt64();
+                    case 2 -> nanos = in.readInt32();
+                    default -> in.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed occurred_at in patient event", e);
+        }
+        return Instant.ofEpochSecond(seconds, nanos);
+    }
+
+    public int schemaVersion() {
+        int value = index()[10 * 2];
+        return value == ABSENT ? 0 : value;
+    }
+
+    // empty for events written before tenants, which all belong to the default tenant
+    public String tenantId() {
+        return string(11);
+    }
+
+    // full decode, for callers that really need every field
+    public PatientEvent toMessage() {
+        try {
+            return PatientEvent.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Malformed patient event", e);
+        }
+    }
+
+    private String string(int field) {
+        int[] fields = index();
+        int offset = fields[field * 2];
+        return offset == ABSENT ? "" : new String(bytes, offset, fields[field * 2 + 1], StandardCharsets.UTF_8);
+    }
+
+    private int[] index() {
+        if (index == null) {
+            index = scan(bytes);
+        }
+        return index;
+    }
+
+    // one pass over the tags; later occurrences of a field win, as in a normal parse
+    private static int[] scan(byte[] bytes) {
+        int[] fields = new int[(MAX_FIELD + 1) * 2];
+        Arrays.fill(fields, ABSENT);
+
+        try {
+            CodedInputStream in = CodedInputStream.newInstance(bytes);
+            for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+                int field = WireFormat.getTagFieldNumber(tag);
+                int wireType = WireFormat.getTagWireType(tag);
+
+                if (field > MAX_FIELD) {
+                    in.skipField(tag); // written by a newer schema
+                } else if (wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    int length = in.readRawVarint32();
+                    fields[field * 2] = in.getTotalBytesRead();
+                    fields[field * 2 + 1] = length;
+                    in.skipRawBytes(length);
+                } else if (wireType == WireFormat.WIRETYPE_VARINT) {
+                    fields[field * 2] = in.readInt32();
+                } else {
+                    in.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed patient event", e);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pm.patientevents;
+
+import com.google.protobuf.CodedOutputStream;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Kafka key serializer for patient ids. Produces the same bytes as {@code StringSerializer} on
+ * {@code id.toString()}, so partitioning and compaction keys are unchanged, without creating the string.
+ */
+public class PatientIdSerializer implements Serializer<UUID> {
+
+    @Override
+    public byte[] serialize(String topic, UUID id) {
+        if (id == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[36];
+        try {
+            PatientEventSerializer.writeUuid(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                    CodedOutputStream.newInstance(bytes));
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode patient id " + id, e);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,84 @@
+package com.pm.patientevents;
+
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PatientEventCodecTests {
+    private static final PatientEventData EVENT = new PatientEventData(
+            UUID.fromString("0190a5e0-0000-7000-8000-00000000beef"), "Zoë Müller", "zoe@example.com",
+            "12 Rue de la Paix, Paris", LocalDate.of(1985, 6, 5), LocalDate.of(2024, 11, 30),
+            PatientEventType.PATIENT_UPDATED, Instant.ofEpochSecond(1_717_000_000L, 123_456_789), "clinic-7");
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void serializerMatchesGeneratedEncoding() {
+        PatientEvent expected = PatientEvent.newBuilder()
+                .setPatientId("0190a5e0-0000-7000-8000-00000000beef")
+                .setName("Zoë Müller")
+                .setEmail("zoe@example.com")
+                .setEventType("PATIENT_UPDATED")
+                .setType(PatientEventType.PATIENT_UPDATED)
+                .setAddress("12 Rue de la Paix, Paris")
+                .setDateOfBirth("1985-06-05")
+                .setRegisteredDate("2024-11-30")
+                .setOccurredAt(Timestamp.newBuilder().setSeconds(1_717_000_000L).setNanos(123_456_789))
+                .setSchemaVersion(PatientEventSerializer.SCHEMA_VERSION)
+                .setTenantId("clinic-7")
+                .build();
+
+        assertArrayEquals(expected.toByteArray(), new PatientEventSerializer().serialize("patient", EVENT));
+    }
+
+    @Test
+    void viewReadsFieldsOnDemand() {
+        PatientEventView view = new PatientEventDeserializer()
+                .deserialize("patient", new PatientEventSerializer().serialize("patient", EVENT));
+
+        assertEquals("0190a5e0-0000-7000-8000-00000000beef", view.patientId());
+        assertEquals("Zoë Müller", view.name());
+        assertEquals(PatientEventType.PATIENT_UPDATED, view.type());
+        assertEquals("1985-06-05", view.dateOfBirth());
+        assertEquals("2024-11-30", view.registeredDate());
+        assertEquals(EVENT.occurredAt(), view.occurredAt());
+        assertEquals(PatientEventSerializer.SCHEMA_VERSION, view.schemaVersion());
+        assertEquals("clinic-7", view.tenantId());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void deletesAndV1EventsReadWithDefaults() {
+        PatientEventData delete = new PatientEventData(EVENT.patientId(), null, null, null, null, null,
+                PatientEventType.PATIENT_DELETED, null, null);
+        PatientEventView deleted = new PatientEventView(new PatientEventSerializer().serialize("patient", delete));
+        assertEquals("", deleted.name());
+        assertNull(deleted.occurredAt());
+
+        PatientEventView v1 = new PatientEventView(PatientEvent.newBuilder()
+                .setPatientId("p-1").setEventType("PATIENT_CREATED").build().toByteArray());
+        assertEquals(PatientEventType.PATIENT_CREATED, v1.type());
+        assertEquals(0, v1.schemaVersion());
+        assertEquals("", v1.tenantId());
+
+        assertNull(new PatientEventSerializer().serialize("patient-state", null));
+        assertThrows(IllegalArgumentException.class, () -> new PatientEventView(new byte[]{0x0A, 0x7F}).name());
+    }
+
+    @Test
+    void patientIdKeysMatchStringKeys() {
+        UUID id = UUID.randomUUID();
+        assertArrayEquals(id.toString().getBytes(StandardCharsets.UTF_8),
+                new PatientIdSerializer().serialize("patient", id));
+    }
+}
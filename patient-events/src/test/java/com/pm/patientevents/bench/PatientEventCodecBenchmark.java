@@ -0,0 +1,84 @@
+package com.pm.patientevents.bench;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import com.pm.patientevents.PatientEventData;
+import com.pm.patientevents.PatientEventSerializer;
+import com.pm.patientevents.PatientEventView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+Compares the generated protobuf path (builder + toByteArray, parseFrom + getters) with the codecs the services use.
+The consumer side reads the three fields the analytics projection looks at. Run with the GC profiler to see the
+bytes allocated per operation (gc.alloc.rate.norm): mvn -Pbenchmark test-compile exec:exec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatientEventCodecBenchmark {
+    private final PatientEventSerializer serializer = new PatientEventSerializer();
+    private final PatientEventData data = new PatientEventData(UUID.randomUUID(), "John Doe", "john.doe@example.com",
+            "123 Main St, Springfield", LocalDate.of(1985, 6, 15), LocalDate.of(2024, 1, 10),
+            PatientEventType.PATIENT_UPDATED, Instant.now(), "default");
+    private final byte[] encoded = serializer.serialize("patient", data);
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public byte[] encodeWithBuilder() {
+        return PatientEvent.newBuilder()
+                .setPatientId(data.patientId().toString())
+                .setName(data.name())
+                .setEmail(data.email())
+                .setEventType(data.type().name())
+                .setType(data.type())
+                .setAddress(data.address())
+                .setDateOfBirth(data.dateOfBirth().toString())
+                .setRegisteredDate(data.registeredDate().toString())
+                .setOccurredAt(Timestamp.newBuilder()
+                        .setSeconds(data.occurredAt().getEpochSecond()).setNanos(data.occurredAt().getNano()))
+                .setSchemaVersion(PatientEventSerializer.SCHEMA_VERSION)
+                .setTenantId(data.tenantId())
+                .build()
+                .toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeWithSerializer() {
+        return serializer.serialize("patient", data);
+    }
+
+    @Benchmark
+    public void decodeWithParseFrom(Blackhole blackhole) throws InvalidProtocolBufferException {
+        PatientEvent event = PatientEvent.parseFrom(encoded);
+        blackhole.consume(event.getType());
+        blackhole.consume(event.getEmail());
+        blackhole.consume(event.getRegisteredDate());
+    }
+
+    @Benchmark
+    public void decodeWithView(Blackhole blackhole) {
+        PatientEventView event = new PatientEventView(encoded);
+        blackhole.consume(event.type());
+        blackhole.consume(event.email());
+        blackhole.consume(event.registeredDate());
+    }
+}
@@ -0,0 +1,75 @@
+package com.pm.patientservice.auth;
+
+import com.pm.patientservice.tenant.TenantContext;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import org.springframework.stereotype.Component;
+
+import java.security.PublicKey;
+
+/*
+Checks the ES256 signature and expiry of auth-service access tokens with the keys from JwksKeyCache, so this service
+doesn't have to trust the network path from the api-gateway. Revocation (logout) is enforced by the api-gateway;
+a revoked token stays valid here until it expires (jwt.access-token-ttl in auth-service, 15 minutes).
+ */
+@Component
+public class AccessTokenVerifier {
+    private final JwksKeyCache jwksKeyCache;
+    private final JwtParser cachedKeysParser;
+    private final JwtParser refreshingParser;
+
+    // the token's kid isn't in the JWKS we have loaded; refreshAndVerify may still accept it
+    public static class UnknownSigningKeyException extends JwtException {
+        UnknownSigningKeyException() {
+            super("Unknown signing key");
+        }
+    }
+
+    public AccessTokenVerifier(JwksKeyCache jwksKeyCache) {
+        this.jwksKeyCache = jwksKeyCache;
+        this.cachedKeysParser = parser(jwksKeyCache, false);
+        this.refreshingParser = parser(jwksKeyCache, true);
+    }
+
+    // whether requests need a token at all (auth.jwks.url is set)
+    public boolean enabled() {
+        return jwksKeyCache.enabled();
+    }
+
+    // never blocks; throws UnknownSigningKeyException when the key has to be fetched first
+    public Claims verify(String token) {
+        return cachedKeysParser.parseSignedClaims(token).getPayload();
+    }
+
+    // may fetch the JWKS, so not for event loop threads
+    public Claims refreshAndVerify(String token) {
+        return refreshingParser.parseSignedClaims(token).getPayload();
+    }
+
+    // tokens issued before tenants existed belong to the default tenant
+    public static String tenantOf(Claims claims) {
+        String tenant = claims.get(TenantContext.CLAIM, String.class);
+        return tenant != null ? tenant : TenantContext.DEFAULT_TENANT;
+    }
+
+    private static JwtParser parser(JwksKeyCache jwksKeyCache, boolean refresh) {
+        return Jwts.parser()
+                .keyLocator(header -> {
+                    // only ES256, never an algorithm chosen by whoever made the token
+                    if (!(header instanceof ProtectedHeader protectedHeader)
+                            || !Jwts.SIG.ES256.getId().equals(protectedHeader.getAlgorithm())) {
+                        throw new JwtException("Unsupported JWT header");
+                    }
+                    String kid = protectedHeader.getKeyId();
+                    PublicKey key = refresh ? jwksKeyCache.refreshAndFind(kid) : jwksKeyCache.find(kid);
+                    if (key == null) {
+                        throw new UnknownSigningKeyException();
+                    }
+                    return key;
+                })
+                .build();
+    }
+}
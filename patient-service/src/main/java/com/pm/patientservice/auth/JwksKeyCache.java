@@ -0,0 +1,118 @@
+package com.pm.patientservice.auth;
+
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+auth-service's token signing public keys by kid, from its /.well-known/jwks.json. Refreshed in the background and,
+for a kid we haven't seen yet, on demand (at most once per auth.jwks.min-refresh-interval, so tokens with made-up
+kids can't make us hammer auth-service). Keys that disappear from the JWKS are dropped on the next refresh.
+Always a bean, and disabled while auth.jwks.url is unset: Spring AOT settles @ConditionalOnProperty when the
+fast-start jar is built, without the url, so whether tokens are verified has to be decided at startup.
+ */
+@Component
+public class JwksKeyCache {
+    private static final Logger log = LoggerFactory.getLogger(JwksKeyCache.class);
+
+    private final Supplier<String> jwksSource; // null when disabled
+    private final Duration minRefreshInterval;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private Instant lastRefresh = Instant.EPOCH;
+
+    @Autowired
+    public JwksKeyCache(@Value("${auth.jwks.url:}") String jwksUrl,
+                        @Value("${auth.jwks.timeout-millis:1000}") long timeoutMillis,
+                        @Value("${auth.jwks.min-refresh-interval:PT10S}") Duration minRefreshInterval) {
+        this(jwksUrl.isBlank() ? null : httpSource(URI.create(jwksUrl), Duration.ofMillis(timeoutMillis)),
+                minRefreshInterval);
+    }
+
+    JwksKeyCache(Supplier<String> jwksSource, Duration minRefreshInterval) {
+        this.jwksSource = jwksSource;
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    // false when auth.jwks.url is unset: the api-gateway is trusted and tokens aren't checked here
+    public boolean enabled() {
+        return jwksSource != null;
+    }
+
+    // null when the kid isn't known
+    public PublicKey find(String kid) {
+        return kid != null ? keys.get(kid) : null;
+    }
+
+    // blocking; fetches the JWKS again unless that happened less than min-refresh-interval ago
+    public PublicKey refreshAndFind(String kid) {
+        synchronized (this) {
+            if (enabled() && find(kid) == null && lastRefresh.plus(minRefreshInterval).isBefore(Instant.now())) {
+                load();
+            }
+        }
+        return find(kid);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.jwks.refresh-interval-millis:300000}")
+    public synchronized void refresh() {
+        if (enabled()) {
+            load();
+        }
+    }
+
+    private void load() {
+        lastRefresh = Instant.now();
+        try {
+            JwkSet jwkSet = Jwks.setParser().ignoreUnsupported(true).build().parse(jwksSource.get());
+
+            Map<String, PublicKey> parsed = new HashMap<>();
+            for (Jwk<?> jwk : jwkSet) {
+                if (jwk instanceof PublicJwk<?> publicJwk && jwk.getId() != null) {
+                    parsed.put(jwk.getId(), publicJwk.toKey());
+                }
+            }
+            keys = Map.copyOf(parsed);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the JWKS: {}", e.toString()); // keep the keys we have
+        }
+    }
+
+    private static Supplier<String> httpSource(URI jwksUri, Duration timeout) {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        HttpRequest request = HttpRequest.newBuilder(jwksUri).timeout(timeout).GET().build();
+        return () -> {
+            try {
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("JWKS request returned " + response.statusCode());
+                }
+                return response.body();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.pm.patientservice.auth;
+
+import com.pm.patientservice.tenant.TenantContext;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// /patients on Spring MVC: requests need a valid access token when auth.jwks.url is set (otherwise the api-gateway
+// is trusted, as before); actuator and API docs stay open
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private final AccessTokenVerifier accessTokenVerifier;
+
+    public JwtAuthenticationFilter(AccessTokenVerifier accessTokenVerifier) {
+        this.accessTokenVerifier = accessTokenVerifier;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !accessTokenVerifier.enabled() || !request.getRequestURI().startsWith("/patients");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        String tenant;
+        try {
+            // servlet thread, may fetch the JWKS
+            Claims claims = accessTokenVerifier.refreshAndVerify(authHeader.substring(7));
+            tenant = AccessTokenVerifier.tenantOf(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        // the verified claim wins over the X-Tenant-Id header TenantFilter started the request with
+        request.setAttribute(TenantContext.ATTRIBUTE, tenant);
+        try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+            chain.doFilter(request, response);
+        }
+    }
+}
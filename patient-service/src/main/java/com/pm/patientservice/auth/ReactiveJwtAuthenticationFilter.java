@@ -0,0 +1,62 @@
+package com.pm.patientservice.auth;
+
+import com.pm.patientservice.tenant.TenantContext;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// same as JwtAuthenticationFilter for the 'reactive' profile; only a token with an unknown kid leaves the event
+// loop, to fetch the JWKS on a worker thread
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveJwtAuthenticationFilter implements WebFilter {
+    private final AccessTokenVerifier accessTokenVerifier;
+
+    public ReactiveJwtAuthenticationFilter(AccessTokenVerifier accessTokenVerifier) {
+        this.accessTokenVerifier = accessTokenVerifier;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!accessTokenVerifier.enabled() || !exchange.getRequest().getPath().value().startsWith("/patients")) {
+            return chain.filter(exchange);
+        }
+
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return unauthorized(exchange);
+        }
+        String token = authHeader.substring(7);
+
+        try {
+            return authenticated(exchange, chain, accessTokenVerifier.verify(token));
+        } catch (AccessTokenVerifier.UnknownSigningKeyException e) {
+            return Mono.fromCallable(() -> accessTokenVerifier.refreshAndVerify(token))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(claims -> authenticated(exchange, chain, claims))
+                    .onErrorResume(error -> error instanceof JwtException || error instanceof IllegalArgumentException,
+                            error -> unauthorized(exchange));
+        } catch (JwtException | IllegalArgumentException e) {
+            return unauthorized(exchange);
+        }
+    }
+
+    // the verified claim wins over the X-Tenant-Id header ReactiveTenantFilter started the request with
+    private static Mono<Void> authenticated(ServerWebExchange exchange, WebFilterChain chain, Claims claims) {
+        exchange.getAttributes().put(TenantContext.ATTRIBUTE, AccessTokenVerifier.tenantOf(claims));
+        return chain.filter(exchange);
+    }
+
+    private static Mono<Void> unauthorized(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
+}
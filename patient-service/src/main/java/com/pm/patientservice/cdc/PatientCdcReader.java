@@ -0,0 +1,318 @@
+package com.pm.patientservice.cdc;
+
+import com.pm.patientevents.PatientEventData;
+import com.pm.patientservice.kafka.KafkaProducer;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationSlotInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import patient.events.PatientEventType;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+Change data capture for the patient table (patient.events.mode=cdc). Tails the database's logical replication
+stream through a 'pgoutput' slot and publishes one PatientEvent per committed row change, in commit order.
+Whatever writes the row (the service, seed scripts, bulk SQL) the event matches what was committed, and the request
+path no longer talks to Kafka at all.
+
+The slot is the checkpoint: its confirmed LSN only moves forward once Kafka has acknowledged every event up to that
+commit, so after a crash or restart the stream resumes from the last acknowledged transaction (events after it may
+be sent twice, never lost). When the slot is first created, the rows that already exist are published from the
+snapshot the slot was created at, so consumers start with the full patient set. If that fails the slot is dropped
+again, so the retry creates a new slot and publishes a new snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "patient.events.mode", havingValue = "cdc")
+public class PatientCdcReader {
+    private static final Logger log = LoggerFactory.getLogger(PatientCdcReader.class);
+    private static final String PATIENT_TABLE = "patient";
+    // every column toEvent reads, so snapshot events carry the same fields as streamed inserts (tenant included)
+    private static final List<String> SNAPSHOT_COLUMNS =
+            List.of("id", "name", "email", "address", "date_of_birth", "registered_date", "tenant_id");
+
+    private final DataSourceProperties dataSourceProperties;
+    private final DataSource dataSource;
+    private final KafkaProducer kafkaProducer;
+    private final String slotName;
+    private final String publication;
+    private final int batchSize;
+    private final long idleWaitMillis;
+    private final long retryDelayMillis;
+    private final boolean initialSnapshot;
+
+    private Thread readerThread;
+    private volatile boolean running;
+
+    public PatientCdcReader(DataSourceProperties dataSourceProperties,
+                            DataSource dataSource,
+                            KafkaProducer kafkaProducer,
+                            @Value("${patient.cdc.slot:patient_events}") String slotName,
+                            @Value("${patient.cdc.publication:patient_publication}") String publication,
+                            @Value("${patient.cdc.batch-size:500}") int batchSize,
+                            @Value("${patient.cdc.idle-wait-millis:20}") long idleWaitMillis,
+                            @Value("${patient.cdc.retry-delay-millis:5000}") long retryDelayMillis,
+                            @Value("${patient.cdc.initial-snapshot:true}") boolean initialSnapshot) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.dataSource = dataSource;
+        this.kafkaProducer = kafkaProducer;
+        this.slotName = slotName;
+        this.publication = publication;
+        this.batchSize = batchSize;
+        this.idleWaitMillis = idleWaitMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        this.initialSnapshot = initialSnapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        readerThread = Thread.ofPlatform().name("patient-cdc").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (readerThread != null) {
+            readerThread.interrupt();
+            readerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                stream();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Patient CDC stream failed, reconnecting in {} ms: {}", retryDelayMillis, e.getMessage());
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void stream() throws Exception {
+        try (Connection connection = openReplicationConnection()) {
+            PGConnection replication = connection.unwrap(PGConnection.class);
+
+            if (!slotExists()) {
+                ReplicationSlotInfo slot = replication.getReplicationAPI()
+                        .createReplicationSlot()
+                        .logical()
+                        .withSlotName(slotName)
+                        .withOutputPlugin("pgoutput")
+                        .make();
+                log.info("Created replication slot {} at {}", slotName, slot.getConsistentPoint());
+
+                if (initialSnapshot) {
+                    try {
+                        publishSnapshot(slot.getSnapshotName());
+                    } catch (Exception e) {
+                        // a slot left behind would make the retry stream on as if the snapshot had been published
+                        dropSlot(replication);
+                        throw e;
+                    }
+                }
+            }
+
+            // with no start position the server resumes from the slot's confirmed LSN
+            try (PGReplicationStream stream = replication.getReplicationAPI()
+                    .replicationStream()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withSlotOption("proto_version", 1)
+                    .withSlotOption("publication_names", publication)
+                    .withStatusInterval(10, TimeUnit.SECONDS)
+                    .start()) {
+                log.info("Streaming patient changes from replication slot {}", slotName);
+                consume(stream);
+            }
+        }
+    }
+
+    private void consume(PGReplicationStream stream) throws Exception {
+        PgOutputDecoder decoder = new PgOutputDecoder(); // relations are announced again on every connection
+        List<PatientEventData> transaction = new ArrayList<>();
+        List<CompletableFuture<Void>> unacknowledged = new ArrayList<>();
+        long uncheckpointedLsn = 0; // end of the last transaction handed to Kafka but not yet confirmed
+        Instant commitTime = Instant.now();
+
+        while (running) {
+            ByteBuffer message = stream.readPending();
+
+            if (message == null) {
+                // caught up: confirm what has been sent so far, then wait a little for more changes
+                uncheckpointedLsn = checkpoint(stream, unacknowledged, uncheckpointedLsn);
+                Thread.sleep(idleWaitMillis);
+                continue;
+            }
+
+            switch (decoder.decode(message)) {
+                case PgOutputDecoder.Begin begin -> {
+                    transaction.clear();
+                    commitTime = begin.commitTime();
+                }
+                case PgOutputDecoder.Change change when PATIENT_TABLE.equals(change.table()) ->
+                        transaction.add(toEvent(change, commitTime));
+                case PgOutputDecoder.Commit commit -> {
+                    transaction.forEach(event -> unacknowledged.add(kafkaProducer.publish(event)));
+                    transaction.clear();
+                    uncheckpointedLsn = commit.endLsn();
+
+                    if (unacknowledged.size() >= batchSize) {
+                        uncheckpointedLsn = checkpoint(stream, unacknowledged, uncheckpointedLsn);
+                    }
+                }
+                case null, default -> {
+                }
+            }
+        }
+    }
+
+    // waits for Kafka to acknowledge every sent event, then moves the slot past their transactions
+    private long checkpoint(PGReplicationStream stream, List<CompletableFuture<Void>> unacknowledged, long lsn)
+            throws Exception {
+        if (lsn == 0) {
+            return 0;
+        }
+
+        CompletableFuture.allOf(unacknowledged.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        unacknowledged.clear();
+
+        stream.setAppliedLSN(LogSequenceNumber.valueOf(lsn));
+        stream.setFlushedLSN(LogSequenceNumber.valueOf(lsn));
+        stream.forceUpdateStatus();
+        return 0;
+    }
+
+    // publishes the rows visible at the slot's starting point, so nothing committed before it is missed
+    private void publishSnapshot(String snapshotName) throws Exception {
+        List<CompletableFuture<Void>> unacknowledged = new ArrayList<>();
+        long rows = 0;
+        Instant now = Instant.now();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotName + "'"); // server generated name
+            }
+
+            try (PreparedStatement query = connection.prepareStatement(
+                    "SELECT " + String.join(", ", SNAPSHOT_COLUMNS) + " FROM patient")) {
+                query.setFetchSize(batchSize);
+
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        unacknowledged.add(kafkaProducer.publish(toEvent(snapshotRow(rs), now)));
+                        rows++;
+                    }
+                }
+            }
+            connection.commit();
+        }
+
+        CompletableFuture.allOf(unacknowledged.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+        log.info("Published {} existing patient(s) from snapshot {}", rows, snapshotName);
+    }
+
+    // an existing row, shaped like the insert the stream would have decoded for it
+    static PgOutputDecoder.Change snapshotRow(ResultSet rs) throws SQLException {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String column : SNAPSHOT_COLUMNS) {
+            columns.put(column, rs.getString(column));
+        }
+        return new PgOutputDecoder.Change(PgOutputDecoder.Operation.INSERT, PATIENT_TABLE, columns);
+    }
+
+    private void dropSlot(PGConnection replication) {
+        try {
+            replication.getReplicationAPI().dropReplicationSlot(slotName);
+            log.warn("Initial snapshot failed, dropped replication slot {} so the next attempt takes a new one",
+                    slotName);
+        } catch (SQLException e) {
+            log.error("Initial snapshot failed and replication slot {} could not be dropped, existing patients "
+                    + "won't be published unless it is dropped by hand: {}", slotName, e.getMessage());
+        }
+    }
+
+    private boolean slotExists() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement query = connection.prepareStatement(
+                     "SELECT 1 FROM pg_replication_slots WHERE slot_name = ?")) {
+            query.setString(1, slotName);
+            try (ResultSet rs = query.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, dataSourceProperties.determineUsername());
+        PGProperty.PASSWORD.set(properties, dataSourceProperties.determinePassword());
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple"); // replication connections only speak simple query
+
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    // column values are the text form PostgreSQL sends; deletes only carry id, registered_date and tenant_id
+    static PatientEventData toEvent(PgOutputDecoder.Change change, Instant commitTime) {
+        PatientEventType type = switch (change.operation()) {
+            case INSERT -> PatientEventType.PATIENT_CREATED;
+            case UPDATE -> PatientEventType.PATIENT_UPDATED;
+            case DELETE -> PatientEventType.PATIENT_DELETED;
+        };
+        Map<String, String> columns = change.columns();
+
+        return new PatientEventData(UUID.fromString(columns.get("id")),
+                columns.get("name"),
+                columns.get("email"),
+                columns.get("address"),
+                toDate(columns.get("date_of_birth")),
+                toDate(columns.get("registered_date")),
+                type,
+                commitTime,
+                columns.get("tenant_id"));
+    }
+
+    private static LocalDate toDate(String value) {
+        return value == null ? null : LocalDate.parse(value);
+    }
+}
@@ -0,0 +1,140 @@
+package com.pm.patientservice.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Decoder for PostgreSQL's built-in 'pgoutput' logical decoding plugin (protocol version 1). Only the messages the
+CDC reader needs are decoded: transaction boundaries and row changes. Column values arrive in their text form.
+Relation messages (table name and column names) are sent before the first change to a table on every connection,
+so the decoder keeps them around to name the columns of later changes.
+ */
+class PgOutputDecoder {
+    private static final Instant POSTGRES_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    enum Operation { INSERT, UPDATE, DELETE }
+
+    sealed interface Message permits Begin, Change, Commit {
+    }
+
+    record Begin(long finalLsn, Instant commitTime) implements Message {
+    }
+
+    // for deletes, columns only hold the replica identity columns (id, registered_date and tenant_id)
+    record Change(Operation operation, String table, Map<String, String> columns) implements Message {
+    }
+
+    record Commit(long endLsn, Instant commitTime) implements Message {
+    }
+
+    private record Relation(String table, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    // returns null for messages that don't matter to the reader (relation, type, origin, truncate)
+    Message decode(ByteBuffer buffer) {
+        char type = (char) buffer.get();
+
+        return switch (type) {
+            case 'B' -> {
+                long finalLsn = buffer.getLong();
+                Instant commitTime = timestamp(buffer.getLong());
+                buffer.getInt(); // xid
+                yield new Begin(finalLsn, commitTime);
+            }
+            case 'C' -> {
+                buffer.get(); // flags
+                buffer.getLong(); // commit lsn
+                long endLsn = buffer.getLong();
+                yield new Commit(endLsn, timestamp(buffer.getLong()));
+            }
+            case 'R' -> {
+                readRelation(buffer);
+                yield null;
+            }
+            case 'I' -> {
+                Relation relation = relation(buffer.getInt());
+                buffer.get(); // 'N'
+                yield new Change(Operation.INSERT, relation.table(), readTuple(buffer, relation));
+            }
+            case 'U' -> {
+                Relation relation = relation(buffer.getInt());
+                char kind = (char) buffer.get();
+                if (kind == 'K' || kind == 'O') { // old key or old row, only sent when the key changed
+                    readTuple(buffer, relation);
+                    buffer.get(); // 'N'
+                }
+                yield new Change(Operation.UPDATE, relation.table(), readTuple(buffer, relation));
+            }
+            case 'D' -> {
+                Relation relation = relation(buffer.getInt());
+                buffer.get(); // 'K' or 'O'
+                yield new Change(Operation.DELETE, relation.table(), readTuple(buffer, relation));
+            }
+            default -> null;
+        };
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        int id = buffer.getInt();
+        readString(buffer); // namespace
+        String table = readString(buffer);
+        buffer.get(); // replica identity setting
+
+        int columnCount = buffer.getShort();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            buffer.get(); // flags
+            columns.add(readString(buffer));
+            buffer.getInt(); // type oid
+            buffer.getInt(); // type modifier
+        }
+        relations.put(id, new Relation(table, columns));
+    }
+
+    private Relation relation(int id) {
+        Relation relation = relations.get(id);
+        if (relation == null) {
+            throw new IllegalStateException("Change for unknown relation " + id);
+        }
+        return relation;
+    }
+
+    // null and unchanged TOAST columns are left out of the map
+    private static Map<String, String> readTuple(ByteBuffer buffer, Relation relation) {
+        int columnCount = buffer.getShort();
+        Map<String, String> values = new LinkedHashMap<>();
+
+        for (int i = 0; i < columnCount; i++) {
+            char kind = (char) buffer.get();
+            if (kind == 't') {
+                byte[] value = new byte[buffer.getInt()];
+                buffer.get(value);
+                values.put(relation.columns().get(i), new String(value, StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // null terminated
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Instant timestamp(long microsSincePostgresEpoch) {
+        return POSTGRES_EPOCH.plus(microsSincePostgresEpoch, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,23 @@
+package com.pm.patientservice.config;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/*
+Spring AOT (the fast-start build, started with -Dspring.aot.enabled=true) settles @Profile and @ConditionalOnProperty
+when the jar is built, with the default profile and patient.events.mode=application. The reactive profile and the
+cdc event mode would then be silently missing their beans, so refuse to start instead.
+ */
+@Component
+public class AotModeGuard {
+
+    public AotModeGuard(Environment environment, @Value("${patient.events.mode:application}") String eventsMode) {
+        if (AotDetector.useGeneratedArtifacts()
+                && (environment.matchesProfiles("reactive") || "cdc".equals(eventsMode))) {
+            throw new IllegalStateException("The reactive profile and patient.events.mode=cdc are not available "
+                    + "with Spring AOT; start without -Dspring.aot.enabled=true");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pm.patientservice.config;
+
+import com.pm.patientservice.kafka.KafkaProducer;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+// topics are created (or left alone if they already exist) by Spring's KafkaAdmin on startup
+@Configuration
+public class KafkaTopicConfig {
+
+    // analytics-service reads this topic in one consumer group, so the partition count caps how many of its tasks can
+    // share the work (see the AnalyticsService lag scaling in LocalStack). Partitions can only be added: the new count
+    // moves some patients' keys to another partition, so raise it while the topic is quiet
+    @Bean
+    public NewTopic patientTopic(@Value("${patient.kafka.topic.partitions:3}") int partitions,
+                                 @Value("${patient.kafka.topic.replicas:1}") int replicas) {
+        return TopicBuilder.name(KafkaProducer.PATIENT_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    // new consumers can bootstrap every patient by reading this topic from the beginning instead of scanning the db
+    @Bean
+    public NewTopic patientStateTopic(@Value("${patient.kafka.state-topic.partitions:3}") int partitions,
+                                      @Value("${patient.kafka.state-topic.replicas:1}") int replicas) {
+        return TopicBuilder.name(KafkaProducer.PATIENT_STATE_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT)
+                // keep tombstones around long enough for a slow consumer to see the delete
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(24 * 60 * 60 * 1000))
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.pm.patientservice.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/*
+Defers beans that no request on the hot path needs (springdoc's OpenAPI/Swagger beans by default) until they are
+first used, which takes them off the startup path. spring.main.lazy-initialization is not used on purpose: it would
+also defer the DataSource, JPA and the gRPC client, moving that cost onto the first real request.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    // static, so the post processor doesn't force this configuration class to be created early
+    @Bean
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        List<String> packages = List.of(environment.getProperty("startup.lazy-bean-packages", String[].class,
+                new String[]{"org.springdoc"}));
+
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                // @Bean methods have no bean class yet, their declaring configuration class decides
+                String type = definition.getBeanClassName() != null || definition.getFactoryBeanName() == null
+                        ? definition.getBeanClassName()
+                        : beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName();
+
+                if (type != null && packages.stream().anyMatch(type::startsWith)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+}
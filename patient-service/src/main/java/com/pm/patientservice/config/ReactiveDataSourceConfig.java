@@ -0,0 +1,33 @@
+package com.pm.patientservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Spring Boot skips its JDBC DataSource once an R2DBC ConnectionFactory exists, but writes, Flyway, exports and the
+// CDC reader still need one, so the reactive profile builds it from the usual spring.datasource.* properties
+@Configuration
+@Profile("reactive")
+public class ReactiveDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    // R2DBC reads always go to this one database, so tenants can't be spread over shards (ShardDataSourceConfig)
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                       @Value("${patient.sharding.enabled:false}") boolean sharding) {
+        if (sharding) {
+            throw new IllegalStateException("The reactive profile can't be combined with patient.sharding.enabled");
+        }
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
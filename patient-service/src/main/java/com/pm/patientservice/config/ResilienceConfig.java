@@ -0,0 +1,50 @@
+package com.pm.patientservice.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// resilience4j's own meters (resilience4j.circuitbreaker.*) show the current state; this logs every state transition
+// and counts them in resilience4j.circuitbreaker.state.transitions, tagged with the breaker and both states
+@Configuration
+public class ResilienceConfig {
+    private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionRecorder(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> entryAddedEvent) {
+                CircuitBreaker circuitBreaker = entryAddedEvent.getAddedEntry();
+                circuitBreaker.getEventPublisher().onStateTransition(event -> {
+                    CircuitBreaker.StateTransition transition = event.getStateTransition();
+                    log.warn("Circuit breaker {} went from {} to {}", circuitBreaker.getName(),
+                            transition.getFromState(), transition.getToState());
+
+                    Counter.builder("resilience4j.circuitbreaker.state.transitions")
+                            .tag("name", circuitBreaker.getName())
+                            .tag("from", transition.getFromState().name())
+                            .tag("to", transition.getToState().name())
+                            .register(meterRegistry)
+                            .increment();
+                });
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> entryReplacedEvent) {
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.pm.patientservice.config;
+
+import com.pm.patientservice.shard.ShardRing;
+import com.pm.patientservice.shard.ShardRoutingDataSource;
+import com.pm.patientservice.shard.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Replaces Spring Boot's DataSource with one that routes to the current tenant's shard (ShardRoutingDataSource). Each
+shard gets its own Hikari pool named patient-<shard>, so pool sizes, waits and timeouts show up per shard in the
+hikaricp.connections.* metrics and one overloaded shard can't take the others' connections. Flyway migrates every
+shard at startup.
+
+Sharding is a runtime setting (patient.sharding.enabled) on purpose: Spring AOT settles conditional beans when the jar
+is built, so this configuration is always present and only its shard list changes. The reactive profile keeps its
+single DataSource (ReactiveDataSourceConfig), and R2DBC reads can't follow the routing, so it refuses sharding.
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardDataSourceConfig {
+    private static final Logger log = LoggerFactory.getLogger(ShardDataSourceConfig.class);
+
+    @Bean
+    public ShardRing shardRing(ShardingProperties shardingProperties) {
+        return ShardRing.from(shardingProperties);
+    }
+
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                             ShardingProperties shardingProperties,
+                                             ShardRing shardRing,
+                                             Environment environment,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             @Value("${patient.events.mode:application}") String eventsMode) {
+        if (shardingProperties.isEnabled() && "cdc".equals(eventsMode)) {
+            // the CDC reader tails one database's replication stream
+            throw new IllegalStateException("patient.events.mode=cdc can't be combined with patient.sharding.enabled");
+        }
+
+        Binder binder = Binder.get(environment);
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (String name : shardRing.shards()) {
+            ShardingProperties.Shard shard = shardingProperties.getShards().get(name);
+            HikariDataSource pool;
+            if (name.equals(shardingProperties.getPrimaryShard())) {
+                pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            } else {
+                if (shard.getUrl() == null) {
+                    throw new IllegalStateException("patient.sharding.shards." + name + ".url is not set");
+                }
+                pool = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .build();
+            }
+
+            // every shard starts from spring.datasource.hikari.*, then applies its own sizing
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            if (shard != null && shard.getMaximumPoolSize() != null) {
+                pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            }
+            if (shard != null && shard.getMinimumIdle() != null) {
+                pool.setMinimumIdle(shard.getMinimumIdle());
+            }
+            if (shard != null && shard.getConnectionTimeout() != null) {
+                pool.setConnectionTimeout(shard.getConnectionTimeout().toMillis());
+            }
+            pool.setPoolName("patient-" + name);
+            meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(
+                    new MicrometerMetricsTrackerFactory(registry)));
+
+            shards.put(name, pool);
+        }
+
+        if (shardingProperties.isEnabled()) {
+            log.info("Patient data sharded over {}", shards.keySet());
+        }
+        return new ShardRoutingDataSource(shardRing, shards);
+    }
+
+    // one schema per shard, migrated with the same settings Spring Boot gave Flyway
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource dataSource) {
+        return flyway -> dataSource.shards().forEach((name, shard) -> {
+            log.info("Migrating shard {}", name);
+            Flyway.configure(flyway.getConfiguration().getClassLoader())
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(shard)
+                    .load()
+                    .migrate();
+        });
+    }
+}
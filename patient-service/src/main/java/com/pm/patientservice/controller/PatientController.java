@@ -1,45 +1,112 @@
 package com.pm.patientservice.controller;
 
+import com.pm.patientservice.dto.PatientExistsResponseDTO;
+import com.pm.patientservice.dto.PatientLookupRequestDTO;
+import com.pm.patientservice.dto.PatientLookupResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.idempotency.IdempotencyService;
+import com.pm.patientservice.service.PatientLookupService;
 import com.pm.patientservice.service.PatientService;
+import com.pm.patientservice.tenant.TenantContext;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.groups.Default;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
 import java.util.UUID;
 
 @RestController
+@Profile("!reactive") // the 'reactive' profile serves /patients from ReactivePatientController instead
 @RequestMapping("/patients") // http://localhost:4000/patients
 @Tag(name = "Patient", description = "API for managing Patients") // http://localhost:4000/v3/api-docs
 public class PatientController {
     private final PatientService patientService;
+    private final PatientLookupService patientLookupService;
+    private final IdempotencyService idempotencyService;
 
-    public PatientController(PatientService patientService) {
+    public PatientController(PatientService patientService,
+                             PatientLookupService patientLookupService,
+                             IdempotencyService idempotencyService) {
         this.patientService = patientService;
+        this.patientLookupService = patientLookupService;
+        this.idempotencyService = idempotencyService;
     }
 
+    // optional registeredFrom/registeredTo (yyyy-MM-dd) narrow the query to the matching partitions.
+    // The list is streamed to the client as rows are read (PatientJsonWriter) instead of being built in memory
     @GetMapping
     @Operation(summary = "Get Patients")
-    public ResponseEntity<List<PatientResponseDTO>> getPatients() {
-        List<PatientResponseDTO> patients = patientService.getPatients();
-        return ResponseEntity.ok().body(patients);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = PatientResponseDTO.class))))
+    public ResponseEntity<StreamingResponseBody> getPatients(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredTo) {
+
+        // the body is written on an async thread, which has to run as the request's tenant too
+        String tenant = TenantContext.current();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> {
+                    try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+                        patientService.writePatients(registeredFrom, registeredTo, out);
+                    }
+                });
+    }
+
+    // concurrent requests for patients are collapsed into one query (PatientBatchLoader)
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a Patient")
+    public ResponseEntity<PatientResponseDTO> getPatient(@PathVariable UUID id) {
+        return ResponseEntity.ok().body(patientLookupService.getPatient(id));
+    }
+
+    // resolves up to 500 ids and 500 emails with one query each; unknown keys are listed as missing
+    @PostMapping("/lookup")
+    @Operation(summary = "Get many Patients by id or email")
+    public ResponseEntity<PatientLookupResponseDTO> lookupPatients(
+            @Validated @RequestBody PatientLookupRequestDTO patientLookupRequestDTO) {
+        return ResponseEntity.ok().body(patientLookupService.lookup(patientLookupRequestDTO));
     }
 
-    // @Valid annotation ensures that the validation annotations added in the patientRequestDTO object are checked
+    @PostMapping("/exists")
+    @Operation(summary = "Check which of many Patient ids or emails exist")
+    public ResponseEntity<PatientExistsResponseDTO> patientsExist(
+            @Validated @RequestBody PatientLookupRequestDTO patientLookupRequestDTO) {
+        return ResponseEntity.ok().body(patientLookupService.exists(patientLookupRequestDTO));
+    }
+
+    // @Valid annotation ensures that the validation annotations added in the patientRequestDTO object are checked.
+    // With an Idempotency-Key, retries of a create get its original response instead of creating again
     @PostMapping
     @Operation(summary = "Create a new Patient")
     public ResponseEntity<PatientResponseDTO> createPatient(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Validated({Default.class, CreatePatientValidationGroup.class})
             @RequestBody PatientRequestDTO patientRequestDTO) {
 
-        PatientResponseDTO patientResponseDTO = patientService.createPatient(patientRequestDTO);
-        return ResponseEntity.ok().body(patientResponseDTO);
+        if (idempotencyKey == null) {
+            PatientResponseDTO patientResponseDTO = patientService.createPatient(patientRequestDTO);
+            return ResponseEntity.ok().body(patientResponseDTO);
+        }
+
+        IdempotencyService.Result result = idempotencyService.execute(idempotencyKey, patientRequestDTO,
+                () -> patientService.createPatient(patientRequestDTO));
+        return ResponseEntity.ok()
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.response());
     }
 
     // @PathVariable tells Spring that the UUID id arg corresponds to the id in the @PutMapping
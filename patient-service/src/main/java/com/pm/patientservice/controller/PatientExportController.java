@@ -0,0 +1,67 @@
+package com.pm.patientservice.controller;
+
+import com.pm.patientservice.dto.PatientExportResponseDTO;
+import com.pm.patientservice.export.PatientExportJob;
+import com.pm.patientservice.export.PatientExportService;
+import com.pm.patientservice.mapper.PatientExportMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/patients/exports") // http://localhost:4000/patients/exports
+@Tag(name = "Patient Export", description = "API for exporting Patients as Arrow IPC files")
+public class PatientExportController {
+    private static final MediaType ARROW_FILE = MediaType.parseMediaType("application/vnd.apache.arrow.file");
+
+    private final PatientExportService patientExportService;
+
+    public PatientExportController(PatientExportService patientExportService) {
+        this.patientExportService = patientExportService;
+    }
+
+    // optional since (yyyy-MM-dd, inclusive) only exports patients registered on or after that date;
+    // pass the watermark of the previous export to pick up where it left off
+    @PostMapping
+    @Operation(summary = "Start a Patient export")
+    public ResponseEntity<PatientExportResponseDTO> startExport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+
+        PatientExportJob job = patientExportService.startExport(since);
+        return ResponseEntity.accepted().body(PatientExportMapper.toDTO(job));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a Patient export's progress")
+    public ResponseEntity<PatientExportResponseDTO> getExport(@PathVariable UUID id) {
+        return ResponseEntity.ok().body(PatientExportMapper.toDTO(patientExportService.getExport(id)));
+    }
+
+    // the file is streamed from disk, it is never loaded into memory
+    @GetMapping("/{id}/file")
+    @Operation(summary = "Download a finished Patient export")
+    public ResponseEntity<Resource> downloadExport(@PathVariable UUID id) {
+        PatientExportJob job = patientExportService.getExport(id);
+
+        if (!PatientExportJob.COMPLETED.equals(job.getStatus())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(ARROW_FILE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(job.getFile().getFileName().toString()).build().toString())
+                .body(new FileSystemResource(job.getFile()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.pm.patientservice.controller;
+
+import com.pm.patientservice.dto.PatientExistsResponseDTO;
+import com.pm.patientservice.dto.PatientLookupRequestDTO;
+import com.pm.patientservice.dto.PatientLookupResponseDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.service.PatientLookupService;
+import com.pm.patientservice.service.ReactivePatientService;
+import com.pm.patientservice.tenant.TenantContext;
+import jakarta.validation.groups.Default;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// same API as PatientController, served by WebFlux on Netty when the 'reactive' profile is active; the tenant
+// (ReactiveTenantFilter) is passed along explicitly because a request doesn't stay on one thread
+@RestController
+@Profile("reactive")
+@RequestMapping("/patients") // http://localhost:4000/patients
+public class ReactivePatientController {
+    private final ReactivePatientService reactivePatientService;
+    private final PatientLookupService patientLookupService;
+
+    public ReactivePatientController(ReactivePatientService reactivePatientService,
+                                     PatientLookupService patientLookupService) {
+        this.reactivePatientService = reactivePatientService;
+        this.patientLookupService = patientLookupService;
+    }
+
+    // a JSON array by default; with Accept: application/x-ndjson each patient is written as soon as its row
+    // arrives, and a slow client slows down the database read instead of buffering the whole result
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<PatientResponseDTO> getPatients(
+            @RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredTo) {
+
+        if (registeredFrom == null && registeredTo == null) {
+            return reactivePatientService.getPatients(tenant);
+        }
+
+        return reactivePatientService.getPatientsRegisteredBetween(tenant,
+                registeredFrom != null ? registeredFrom : LocalDate.of(1, 1, 1),
+                registeredTo != null ? registeredTo : LocalDate.of(9999, 12, 31));
+    }
+
+    // waits on the collapsed batch without holding a thread
+    @GetMapping("/{id}")
+    public Mono<PatientResponseDTO> getPatient(@RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+                                               @PathVariable UUID id) {
+        return Mono.fromFuture(() -> ReactivePatientService.asTenant(tenant,
+                () -> patientLookupService.loadPatient(id)));
+    }
+
+    // multi-gets use JDBC like the writes do, so they run off the event loop
+    @PostMapping("/lookup")
+    public Mono<PatientLookupResponseDTO> lookupPatients(
+            @RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+            @Validated @RequestBody PatientLookupRequestDTO patientLookupRequestDTO) {
+        return Mono.fromCallable(() -> ReactivePatientService.asTenant(tenant,
+                        () -> patientLookupService.lookup(patientLookupRequestDTO)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/exists")
+    public Mono<PatientExistsResponseDTO> patientsExist(
+            @RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+            @Validated @RequestBody PatientLookupRequestDTO patientLookupRequestDTO) {
+        return Mono.fromCallable(() -> ReactivePatientService.asTenant(tenant,
+                        () -> patientLookupService.exists(patientLookupRequestDTO)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping
+    public Mono<PatientResponseDTO> createPatient(
+            @RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+            @Validated({Default.class, CreatePatientValidationGroup.class})
+            @RequestBody PatientRequestDTO patientRequestDTO) {
+
+        return reactivePatientService.createPatient(tenant, patientRequestDTO);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<PatientResponseDTO> updatePatient(@RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+                                                  @PathVariable UUID id,
+                                                  @Validated({Default.class})
+                                                  @RequestBody PatientRequestDTO patientRequestDTO) {
+
+        return reactivePatientService.updatePatient(tenant, id, patientRequestDTO);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deletePatient(@RequestAttribute(TenantContext.ATTRIBUTE) String tenant,
+                                                    @PathVariable UUID id) {
+        return reactivePatientService.deletePatient(tenant, id).thenReturn(ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,24 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class PatientExistsResponseDTO {
+    private List<String> existingIds;
+    private List<String> existingEmails;
+
+    public List<String> getExistingIds() {
+        return existingIds;
+    }
+
+    public void setExistingIds(List<String> existingIds) {
+        this.existingIds = existingIds;
+    }
+
+    public List<String> getExistingEmails() {
+        return existingEmails;
+    }
+
+    public void setExistingEmails(List<String> existingEmails) {
+        this.existingEmails = existingEmails;
+    }
+}
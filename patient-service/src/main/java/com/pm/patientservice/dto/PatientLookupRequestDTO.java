@@ -0,0 +1,32 @@
+package com.pm.patientservice.dto;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class PatientLookupRequestDTO {
+    // each list is resolved with a single query; the cap keeps one request from becoming a full table scan
+    @Size(max = 500, message = "At most 500 ids per lookup")
+    private List<UUID> ids = new ArrayList<>();
+
+    @Size(max = 500, message = "At most 500 emails per lookup")
+    private List<String> emails = new ArrayList<>();
+
+    public List<UUID> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public List<String> getEmails() {
+        return emails;
+    }
+
+    public void setEmails(List<String> emails) {
+        this.emails = emails;
+    }
+}
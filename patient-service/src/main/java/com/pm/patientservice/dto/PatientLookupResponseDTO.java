@@ -0,0 +1,33 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class PatientLookupResponseDTO {
+    private List<PatientResponseDTO> patients; // each patient once, even if it matched both an id and an email
+    private List<String> missingIds;
+    private List<String> missingEmails;
+
+    public List<PatientResponseDTO> getPatients() {
+        return patients;
+    }
+
+    public void setPatients(List<PatientResponseDTO> patients) {
+        this.patients = patients;
+    }
+
+    public List<String> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<String> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    public List<String> getMissingEmails() {
+        return missingEmails;
+    }
+
+    public void setMissingEmails(List<String> missingEmails) {
+        this.missingEmails = missingEmails;
+    }
+}
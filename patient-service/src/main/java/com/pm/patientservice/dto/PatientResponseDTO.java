@@ -1,50 +1,14 @@
 package com.pm.patientservice.dto;
 
-public class PatientResponseDTO {
-    private String id;
-    private String name;
-    private String email;
-    private String address;
-    private String dateOfBrith;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
-    public String getId() {
-        return id;
-    }
-
-    public void setId(String id) {
-        this.id = id;
-    }
-
-    public String getName() {
-        return name;
-    }
-
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    public String getEmail() {
-        return email;
-    }
-
-    public void setEmail(String email) {
-        this.email = email;
-    }
-
-    public String getAddress() {
-        return address;
-    }
-
-    public void setAddress(String address) {
-        this.address = address;
-    }
-
-    public String getDateOfBrith() {
-        return dateOfBrith;
-    }
-
-    public void setDateOfBrith(String dateOfBrith) {
-        this.dateOfBrith = dateOfBrith;
-    }
+import java.time.LocalDate;
+import java.util.UUID;
 
+// ids and dates stay typed until Jackson writes them; the JSON keeps the "dateOfBrith" name existing clients read
+public record PatientResponseDTO(UUID id,
+                                 String name,
+                                 String email,
+                                 String address,
+                                 @JsonProperty("dateOfBrith") LocalDate dateOfBirth) {
 }
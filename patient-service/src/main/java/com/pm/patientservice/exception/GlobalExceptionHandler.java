@@ -2,10 +2,13 @@ package com.pm.patientservice.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +29,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    // WebFlux's counterpart of MethodArgumentNotValidException (reactive profile)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleValidationException(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+
+        ex.getBindingResult().getFieldErrors().forEach(
+                error -> errors.put(error.getField(), error.getDefaultMessage()));
+
+        return ResponseEntity.badRequest().body(errors);
+    }
+
     @ExceptionHandler(EmailAlreadyExistsException.class)
     public ResponseEntity<Map<String, String>> handleEmailAlreadyExistsException(EmailAlreadyExistsException ex) {
         log.warn("Email address already exists {}", ex.getMessage());
@@ -43,4 +57,44 @@ public class GlobalExceptionHandler {
         errors.put("message", "Patient not found");
         return ResponseEntity.badRequest().body(errors);
     }
+
+    @ExceptionHandler(PatientExportNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handlePatientExportNotFoundException(
+            PatientExportNotFoundException ex) {
+        log.warn("Patient export not found {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "Patient export not found");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errors);
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", ex.getMessage());
+        return ResponseEntity.badRequest().body(errors);
+    }
+
+    // the same Idempotency-Key was sent with a different body
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        log.warn("Idempotency key reused {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "Idempotency-Key was already used for a different request");
+        return ResponseEntity.unprocessableEntity().body(errors);
+    }
+
+    // the first request with this Idempotency-Key is still running on another instance
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<Map<String, String>> handleIdempotencyKeyInProgressException(
+            IdempotencyKeyInProgressException ex) {
+        log.warn("Idempotency key in progress {}", ex.getMessage());
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", "A request with this Idempotency-Key is still running, try again later");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errors);
+    }
 }
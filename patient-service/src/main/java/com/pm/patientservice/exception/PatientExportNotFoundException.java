@@ -0,0 +1,7 @@
+package com.pm.patientservice.exception;
+
+public class PatientExportNotFoundException extends RuntimeException {
+    public PatientExportNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,127 @@
+package com.pm.patientservice.export;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+Writes patient rows into an Arrow IPC file as they come off the JDBC cursor. Rows are collected into one reused
+set of column vectors and flushed as a record batch every batchRows rows, so memory stays at roughly one batch
+no matter how many patients are exported.
+ */
+class PatientArrowWriter implements RowCallbackHandler, AutoCloseable {
+    static final Schema SCHEMA = new Schema(List.of(
+            Field.notNullable("id", ArrowType.Utf8.INSTANCE),
+            Field.notNullable("name", ArrowType.Utf8.INSTANCE),
+            Field.notNullable("email", ArrowType.Utf8.INSTANCE),
+            Field.notNullable("address", ArrowType.Utf8.INSTANCE),
+            new Field("date_of_birth", FieldType.notNullable(new ArrowType.Date(DateUnit.DAY)), null),
+            new Field("registered_date", FieldType.notNullable(new ArrowType.Date(DateUnit.DAY)), null)));
+
+    private final VectorSchemaRoot root;
+    private final ArrowFileWriter writer;
+    private final int batchRows;
+
+    private final VarCharVector id;
+    private final VarCharVector name;
+    private final VarCharVector email;
+    private final VarCharVector address;
+    private final DateDayVector dateOfBirth;
+    private final DateDayVector registeredDate;
+
+    private int batchSize;
+    private long rows;
+    private LocalDate watermark;
+
+    PatientArrowWriter(BufferAllocator allocator, WritableByteChannel channel, int batchRows) throws IOException {
+        this.root = VectorSchemaRoot.create(SCHEMA, allocator);
+        this.writer = new ArrowFileWriter(root, null, channel);
+        this.batchRows = batchRows;
+
+        this.id = (VarCharVector) root.getVector("id");
+        this.name = (VarCharVector) root.getVector("name");
+        this.email = (VarCharVector) root.getVector("email");
+        this.address = (VarCharVector) root.getVector("address");
+        this.dateOfBirth = (DateDayVector) root.getVector("date_of_birth");
+        this.registeredDate = (DateDayVector) root.getVector("registered_date");
+
+        writer.start();
+        root.getFieldVectors().forEach(vector -> vector.setInitialCapacity(batchRows)); // no regrowth per batch
+        root.allocateNew();
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        LocalDate registered = rs.getObject("registered_date", LocalDate.class);
+
+        id.setSafe(batchSize, utf8(rs.getString("id")));
+        name.setSafe(batchSize, utf8(rs.getString("name")));
+        email.setSafe(batchSize, utf8(rs.getString("email")));
+        address.setSafe(batchSize, utf8(rs.getString("address")));
+        dateOfBirth.setSafe(batchSize, (int) rs.getObject("date_of_birth", LocalDate.class).toEpochDay());
+        registeredDate.setSafe(batchSize, (int) registered.toEpochDay());
+
+        if (watermark == null || registered.isAfter(watermark)) {
+            watermark = registered;
+        }
+        rows++;
+
+        if (++batchSize == batchRows) {
+            flush();
+        }
+    }
+
+    // writes the last, partial batch and the file footer
+    void finish() throws IOException {
+        if (batchSize > 0) {
+            flush();
+        }
+        writer.end();
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    LocalDate watermark() {
+        return watermark;
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+        root.close();
+    }
+
+    private void flush() {
+        root.setRowCount(batchSize);
+        try {
+            writer.writeBatch();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        root.allocateNew(); // releases the written batch's buffers before the next one fills up
+        batchSize = 0;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
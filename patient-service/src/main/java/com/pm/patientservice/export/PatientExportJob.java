@@ -0,0 +1,99 @@
+package com.pm.patientservice.export;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// progress of one background export, stored in table patient_export_job on the tenant's shard
+public class PatientExportJob {
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final UUID id;
+    private final String tenantId; // only this tenant's patients are exported, and only it may see the job
+    private final LocalDate since; // null exports every patient
+    private final Path file;
+    private final Instant createdAt;
+
+    private volatile String status = QUEUED;
+    private volatile long rows;
+    private volatile LocalDate watermark;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public PatientExportJob(UUID id, String tenantId, LocalDate since, Path file) {
+        this(id, tenantId, since, file, Instant.now());
+    }
+
+    public PatientExportJob(UUID id, String tenantId, LocalDate since, Path file, Instant createdAt) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.since = since;
+        this.file = file;
+        this.createdAt = createdAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public LocalDate getSince() {
+        return since;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    // latest registeredDate in the export, pass it as `since` to fetch the next increment
+    public LocalDate getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDate watermark) {
+        this.watermark = watermark;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,262 @@
+package com.pm.patientservice.export;
+
+import com.pm.patientservice.exception.PatientExportNotFoundException;
+import com.pm.patientservice.shard.ShardRoutingDataSource;
+import com.pm.patientservice.tenant.TenantContext;
+import jakarta.annotation.PreDestroy;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+Background export of patients to Arrow IPC files. Rows are streamed off a server-side cursor (PostgreSQL only uses
+one inside a transaction with a fetch size set) straight into the Arrow writer, so neither the JDBC driver nor the
+writer ever holds more than a batch. Exports run one at a time on their own thread and are written to a temporary
+file that is renamed once complete, so a download never sees a half-written file. Finished exports (the job and its
+file) are kept for patient.export.retention, then deleted.
+
+patient-service runs as several tasks, and a client's progress polls and download can land on any of them, not just
+the one running its export: jobs are rows in table patient_export_job on the tenant's shard, and patient.export.dir
+must be storage every instance shares (the CDK stack mounts an EFS volume there). An instance that stops marks its
+unfinished jobs as failed; the jobs of one that crashed are deleted along with the expired ones.
+ */
+@Service
+public class PatientExportService {
+    private static final Logger log = LoggerFactory.getLogger(PatientExportService.class);
+
+    // filters on the partition key, so an incremental export only scans the newer partitions
+    private static final String SELECT_PATIENTS = """
+            SELECT id, name, email, address, date_of_birth, registered_date
+            FROM patient
+            WHERE tenant_id = ? AND registered_date >= ?""";
+    private static final String INSERT_JOB = """
+            INSERT INTO patient_export_job (id, tenant_id, since, file, status, row_count, created_at)
+            VALUES (?, ?, ?, ?, ?, 0, ?)""";
+    private static final String UPDATE_JOB = """
+            UPDATE patient_export_job
+            SET status = ?, row_count = ?, watermark = ?, error = ?, finished_at = ?
+            WHERE id = ?""";
+    private static final String SELECT_JOB = """
+            SELECT id, tenant_id, since, file, status, row_count, watermark, error, created_at, finished_at
+            FROM patient_export_job
+            WHERE tenant_id = ? AND id = ?""";
+    // finished before the cutoff, or never finished because the instance running it died
+    private static final String SELECT_EXPIRED = """
+            SELECT id, file
+            FROM patient_export_job
+            WHERE finished_at < ? OR (finished_at IS NULL AND created_at < ?)""";
+    private static final String DELETE_JOB = "DELETE FROM patient_export_job WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final Path exportDir;
+    private final int batchRows;
+    private final Duration retention;
+    private final BufferAllocator allocator;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("patient-export-", 0).factory());
+    // queued or running on this instance
+    private final Set<PatientExportJob> unfinished = ConcurrentHashMap.newKeySet();
+
+    private record ExpiredJob(UUID id, Path file) {
+    }
+
+    public PatientExportService(DataSource dataSource,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${patient.export.dir:exports}") Path exportDir,
+                                @Value("${patient.export.fetch-size:10000}") int fetchSize,
+                                @Value("${patient.export.batch-rows:65536}") int batchRows,
+                                @Value("${patient.export.max-memory-mb:256}") long maxMemoryMb,
+                                @Value("${patient.export.retention:PT24H}") Duration retention) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        ShardRoutingDataSource.shardsOf(dataSource).forEach((name, shard) -> shards.put(name, new JdbcTemplate(shard)));
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.transactionTemplate.setReadOnly(true);
+        this.exportDir = exportDir;
+        this.batchRows = batchRows;
+        this.retention = retention;
+        this.allocator = new RootAllocator(maxMemoryMb * 1024 * 1024); // hard cap on off-heap memory for exports
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // nothing will finish them now, and their clients may be polling another instance
+        for (PatientExportJob job : unfinished) {
+            try (TenantContext.Scope scope = TenantContext.use(job.getTenantId())) {
+                fail(job, "patient-service instance stopped before the export finished");
+            }
+        }
+        allocator.close();
+    }
+
+    // since (inclusive, on registeredDate) makes the export incremental; null exports every patient of the
+    // current tenant
+    public PatientExportJob startExport(LocalDate since) {
+        UUID id = UUID.randomUUID();
+        PatientExportJob job = new PatientExportJob(id, TenantContext.current(), since,
+                exportDir.resolve("patients-" + id + ".arrow"));
+
+        jdbcTemplate.update(INSERT_JOB, id, job.getTenantId(), since, job.getFile().toString(), job.getStatus(),
+                Timestamp.from(job.getCreatedAt()));
+        unfinished.add(job);
+        executor.execute(() -> runExport(job));
+        return job;
+    }
+
+    // as last recorded, by whichever instance runs the export
+    public PatientExportJob getExport(UUID id) {
+        return jdbcTemplate.query(SELECT_JOB, (rs, rowNum) -> toJob(rs), TenantContext.current(), id).stream()
+                .findFirst()
+                .orElseThrow(() -> new PatientExportNotFoundException("Patient export not found with ID: " + id));
+    }
+
+    @Scheduled(fixedDelayString = "${patient.export.cleanup-interval-millis:600000}")
+    public void deleteExpired() {
+        deleteFinishedBefore(Instant.now().minus(retention));
+    }
+
+    // every instance runs this over every shard; a queued or running export is only deleted once it is older than
+    // the cutoff, i.e. the instance running it is gone
+    void deleteFinishedBefore(Instant cutoff) {
+        Timestamp before = Timestamp.from(cutoff);
+        shards.forEach((name, shard) -> {
+            try {
+                List<ExpiredJob> expired = shard.query(SELECT_EXPIRED, (rs, rowNum) -> new ExpiredJob(
+                        rs.getObject("id", UUID.class), Path.of(rs.getString("file"))), before, before);
+                for (ExpiredJob job : expired) {
+                    deleteQuietly(job.file());
+                    deleteQuietly(partialFile(job.file()));
+                    shard.update(DELETE_JOB, job.id());
+                    log.info("Deleted patient export {} on {}", job.id(), name);
+                }
+            } catch (Exception e) {
+                log.error("Deleting expired patient exports failed on {}: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    private void runExport(PatientExportJob job) {
+        Path partial = partialFile(job.getFile());
+
+        try (TenantContext.Scope scope = TenantContext.use(job.getTenantId())) { // routes to the tenant's shard
+            runExport(job, partial);
+        } catch (Exception e) {
+            log.error("Patient export {} failed: {}", job.getId(), e.getMessage());
+            deleteQuietly(partial);
+            try (TenantContext.Scope scope = TenantContext.use(job.getTenantId())) {
+                fail(job, e.getMessage());
+            }
+        } finally {
+            unfinished.remove(job);
+        }
+    }
+
+    private void runExport(PatientExportJob job, Path partial) throws IOException {
+        save(job, PatientExportJob.RUNNING);
+        Files.createDirectories(exportDir);
+
+        try (BufferAllocator exportAllocator = allocator.newChildAllocator("export-" + job.getId(),
+                0, allocator.getLimit());
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             PatientArrowWriter writer = new PatientArrowWriter(exportAllocator, channel, batchRows)) {
+
+            LocalDate since = job.getSince() != null ? job.getSince() : LocalDate.of(1, 1, 1);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(SELECT_PATIENTS, writer,
+                    job.getTenantId(), since));
+            writer.finish();
+
+            job.setRows(writer.rows());
+            job.setWatermark(writer.watermark() != null ? writer.watermark() : job.getSince());
+        }
+
+        Files.move(partial, job.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        job.setFinishedAt(Instant.now());
+        save(job, PatientExportJob.COMPLETED);
+        log.info("Patient export {} finished, {} row(s) written to {}", job.getId(), job.getRows(), job.getFile());
+    }
+
+    // the status is set on the job after its row, so whoever sees it here also finds it in the table
+    private void save(PatientExportJob job, String status) {
+        Instant finishedAt = job.getFinishedAt();
+        jdbcTemplate.update(UPDATE_JOB, status, job.getRows(), job.getWatermark(), job.getError(),
+                finishedAt != null ? Timestamp.from(finishedAt) : null, job.getId());
+        job.setStatus(status);
+    }
+
+    private void fail(PatientExportJob job, String error) {
+        job.setError(error);
+        job.setFinishedAt(Instant.now());
+        try {
+            save(job, PatientExportJob.FAILED);
+        } catch (RuntimeException e) {
+            log.error("Could not record the failure of patient export {}: {}", job.getId(), e.getMessage());
+            job.setStatus(PatientExportJob.FAILED);
+        }
+    }
+
+    private static PatientExportJob toJob(ResultSet rs) throws SQLException {
+        PatientExportJob job = new PatientExportJob(
+                rs.getObject("id", UUID.class),
+                rs.getString("tenant_id"),
+                rs.getObject("since", LocalDate.class),
+                Path.of(rs.getString("file")),
+                rs.getTimestamp("created_at").toInstant());
+        job.setStatus(rs.getString("status"));
+        job.setRows(rs.getLong("row_count"));
+        job.setWatermark(rs.getObject("watermark", LocalDate.class));
+        job.setError(rs.getString("error"));
+        Timestamp finishedAt = rs.getTimestamp("finished_at");
+        job.setFinishedAt(finishedAt != null ? finishedAt.toInstant() : null);
+        return job;
+    }
+
+    private static Path partialFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".part");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
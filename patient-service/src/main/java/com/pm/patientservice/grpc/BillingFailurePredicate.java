@@ -0,0 +1,28 @@
+package com.pm.patientservice.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+// which billing-service errors count against the circuit breaker (resilience4j.circuitbreaker.instances.billing):
+// only the ones that say the service is unhealthy or overloaded, not answers like NOT_FOUND or INVALID_ARGUMENT
+public class BillingFailurePredicate implements Predicate<Throwable> {
+    private static final Set<Status.Code> FAILURES = Set.of(
+            Status.Code.UNAVAILABLE,
+            Status.Code.DEADLINE_EXCEEDED,
+            Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.INTERNAL,
+            Status.Code.UNKNOWN);
+
+    @Override
+    public boolean test(Throwable error) {
+        return isUnavailable(error);
+    }
+
+    static boolean isUnavailable(Throwable error) {
+        return error instanceof StatusRuntimeException statusError
+                && FAILURES.contains(statusError.getStatus().getCode());
+    }
+}
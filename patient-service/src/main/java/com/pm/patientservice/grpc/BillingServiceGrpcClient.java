@@ -3,29 +3,76 @@ package com.pm.patientservice.grpc;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import billing.GetBillingAccountRequest;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+Every call has a deadline and goes through the "billing" bulkhead (caps concurrent calls, rejects the rest straight
+away) and circuit breaker (stops calling billing-service for a while once enough calls fail, then lets a few probe
+calls through half-open). Both are configured under resilience4j.* in application.properties. Callers use
+isUnavailable() to tell "billing-service can't take this right now" apart from a real error.
+ */
 @Service
 public class BillingServiceGrpcClient {
     private static final Logger log = LoggerFactory.getLogger(BillingServiceGrpcClient.class);
+    private final ManagedChannel channel;
     private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+    private final BillingServiceGrpc.BillingServiceStub asyncStub;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final long deadlineMillis;
 
     // configure where to point environment variables after deploying the service
     public BillingServiceGrpcClient(@Value("${billing.service.address:localhost}") String serverAddress,
-                                    @Value("${billing.service.grpc.port:9001}") int serverPort) {
+                                    @Value("${billing.service.grpc.port:9001}") int serverPort,
+                                    @Value("${billing.service.grpc.deadline-millis:2000}") long deadlineMillis,
+                                    CircuitBreakerRegistry circuitBreakerRegistry,
+                                    BulkheadRegistry bulkheadRegistry) {
 
         log.info("Connecting to Billing Service gRPC service at {}:{}", serverAddress, serverPort);
 
         // creates a gRPC channel to the server (no SSL - usePlaintext())
-        ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress, serverPort).usePlaintext().build();
+        channel = ManagedChannelBuilder.forAddress(serverAddress, serverPort).usePlaintext().build();
 
         // stub used to make RPC calls
         blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+        asyncStub = BillingServiceGrpc.newStub(channel); // same channel, used by the reactive stack
+
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("billing");
+        this.bulkhead = bulkheadRegistry.bulkhead("billing");
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channel.shutdown();
+    }
+
+    // true when the call was shed (breaker open, bulkhead full) or billing-service was down, slow or overloaded
+    public static boolean isUnavailable(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof CallNotPermittedException
+                || cause instanceof BulkheadFullException
+                || BillingFailurePredicate.isUnavailable(cause);
     }
 
     public BillingResponse createBillingAccount(String patientId, String name, String email) {
@@ -33,8 +80,55 @@ public class BillingServiceGrpcClient {
                 .setPatientId(patientId).setName(name).setEmail(email).build();
 
         // makes a synchronous gRPC call using the stub
-        BillingResponse response = blockingStub.createBillingAccount(request);
+        BillingResponse response = guarded(() -> blockingStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .createBillingAccount(request));
         log.info("Received response from billing service via gRPC: {}", response);
         return response;
     }
+
+    // non-blocking variant: no thread waits for the response, the future completes on a gRPC executor thread
+    public CompletableFuture<BillingResponse> createBillingAccountAsync(String patientId, String name, String email) {
+        BillingRequest request = BillingRequest.newBuilder()
+                .setPatientId(patientId).setName(name).setEmail(email).build();
+
+        // the bulkhead permit is held until the response arrives, so it bounds in-flight calls, not threads
+        Supplier<CompletionStage<BillingResponse>> call = () -> createBillingAccountAsync(request);
+        return Bulkhead.decorateCompletionStage(bulkhead, CircuitBreaker.decorateCompletionStage(circuitBreaker, call))
+                .get()
+                .toCompletableFuture();
+    }
+
+    private CompletableFuture<BillingResponse> createBillingAccountAsync(BillingRequest request) {
+        CompletableFuture<BillingResponse> response = new CompletableFuture<>();
+        asyncStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .createBillingAccount(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(BillingResponse value) {
+                        response.complete(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        response.completeExceptionally(error);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        // single response, already completed in onNext
+                    }
+                });
+        return response;
+    }
+
+    public BillingResponse getBillingAccount(String patientId) {
+        GetBillingAccountRequest request = GetBillingAccountRequest.newBuilder().setPatientId(patientId).build();
+
+        // served from billing-service's account cache; NOT_FOUND is raised as a StatusRuntimeException
+        return guarded(() -> blockingStub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS)
+                .getBillingAccount(request));
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+    }
 }
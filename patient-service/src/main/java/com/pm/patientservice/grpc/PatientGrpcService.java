@@ -0,0 +1,156 @@
+package com.pm.patientservice.grpc;
+
+import com.pm.patientservice.dto.PatientLookupRequestDTO;
+import com.pm.patientservice.dto.PatientLookupResponseDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.service.PatientLookupService;
+import com.pm.patientservice.watch.PatientChangeWatcher;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import patient.ListPatientsRequest;
+import patient.ListPatientsResponse;
+import patient.LookupPatientsRequest;
+import patient.LookupPatientsResponse;
+import patient.Patient;
+import patient.PatientChange;
+import patient.PatientServiceGrpc.PatientServiceImplBase;
+import patient.WatchPatientsRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// gRPC counterpart of POST /patients/lookup, for services that already talk gRPC (e.g. billing reconciliation), and
+// the streams internal services keep a live replica with: ListPatients, then WatchPatients (watch/PatientChangeWatcher)
+@GrpcService
+public class PatientGrpcService extends PatientServiceImplBase {
+    private static final Logger log = LoggerFactory.getLogger(PatientGrpcService.class);
+    private static final int MAX_KEYS = 500; // same cap as PatientLookupRequestDTO
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    private final PatientLookupService patientLookupService;
+    private final PatientRepository patientRepository;
+    private final PatientChangeWatcher patientChangeWatcher;
+
+    public PatientGrpcService(PatientLookupService patientLookupService,
+                              PatientRepository patientRepository,
+                              PatientChangeWatcher patientChangeWatcher) {
+        this.patientLookupService = patientLookupService;
+        this.patientRepository = patientRepository;
+        this.patientChangeWatcher = patientChangeWatcher;
+    }
+
+    @Override
+    public void lookupPatients(LookupPatientsRequest request, StreamObserver<LookupPatientsResponse> responseObserver) {
+        if (request.getIdsCount() > MAX_KEYS || request.getEmailsCount() > MAX_KEYS) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("At most " + MAX_KEYS + " ids and " + MAX_KEYS + " emails per lookup")
+                    .asRuntimeException());
+            return;
+        }
+
+        // an id that isn't a UUID can't match a patient, so report it as missing instead of failing the call
+        List<UUID> ids = new ArrayList<>();
+        List<String> invalidIds = new ArrayList<>();
+        for (String id : request.getIdsList()) {
+            try {
+                ids.add(UUID.fromString(id));
+            } catch (IllegalArgumentException e) {
+                invalidIds.add(id);
+            }
+        }
+
+        PatientLookupRequestDTO lookup = new PatientLookupRequestDTO();
+        lookup.setIds(ids);
+        lookup.setEmails(request.getEmailsList());
+        PatientLookupResponseDTO result = patientLookupService.lookup(lookup);
+
+        LookupPatientsResponse.Builder response = LookupPatientsResponse.newBuilder()
+                .addAllMissingIds(result.getMissingIds())
+                .addAllMissingIds(invalidIds)
+                .addAllMissingEmails(result.getMissingEmails());
+        result.getPatients().forEach(patient -> response.addPatients(toMessage(patient)));
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    // one keyset page per message, read only when the client is ready for it, so neither side buffers the table
+    @Override
+    public void listPatients(ListPatientsRequest request, StreamObserver<ListPatientsResponse> responseObserver) {
+        int pageSize = request.getPageSize() == 0 ? DEFAULT_PAGE_SIZE : request.getPageSize();
+        if (pageSize < 0 || pageSize > MAX_PAGE_SIZE) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("pageSize must be between 1 and " + MAX_PAGE_SIZE)
+                    .asRuntimeException());
+            return;
+        }
+
+        // taken before the first page, so watching from it can only repeat changes, never miss one
+        String resumeToken;
+        try {
+            resumeToken = patientChangeWatcher.currentToken();
+        } catch (RuntimeException e) {
+            log.warn("ListPatients without a resume token, the patient topic is unavailable: {}", e.getMessage());
+            resumeToken = "";
+        }
+
+        ServerCallStreamObserver<ListPatientsResponse> observer =
+                (ServerCallStreamObserver<ListPatientsResponse>) responseObserver;
+        String token = resumeToken;
+        // onReady runs on gRPC's executor, one call at a time, once the call starts and whenever the client catches up
+        observer.setOnReadyHandler(new Runnable() {
+            private UUID after;
+            private boolean done;
+
+            @Override
+            public void run() {
+                while (!done && observer.isReady() && !observer.isCancelled()) {
+                    List<PatientResponseDTO> page;
+                    try {
+                        page = patientRepository.findPageAfter(after, pageSize);
+                    } catch (RuntimeException e) {
+                        done = true;
+                        observer.onError(Status.UNAVAILABLE.withDescription("Patients could not be read")
+                                .withCause(e).asRuntimeException());
+                        return;
+                    }
+
+                    ListPatientsResponse.Builder response = ListPatientsResponse.newBuilder().setResumeToken(token);
+                    page.forEach(patient -> response.addPatients(toMessage(patient)));
+                    if (!page.isEmpty() || after == null) {
+                        observer.onNext(response.build()); // an empty table still gets one message with the token
+                    }
+                    if (page.size() < pageSize) {
+                        done = true;
+                        observer.onCompleted();
+                        return;
+                    }
+                    after = page.get(page.size() - 1).id();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void watchPatients(WatchPatientsRequest request, StreamObserver<PatientChange> responseObserver) {
+        patientChangeWatcher.watch(request.getResumeToken(),
+                (ServerCallStreamObserver<PatientChange>) responseObserver);
+    }
+
+    private static Patient toMessage(PatientResponseDTO patient) {
+        return Patient.newBuilder()
+                .setId(patient.id().toString())
+                .setName(patient.name())
+                .setEmail(patient.email())
+                .setAddress(patient.address())
+                .setDateOfBirth(patient.dateOfBirth().toString())
+                .build();
+    }
+}
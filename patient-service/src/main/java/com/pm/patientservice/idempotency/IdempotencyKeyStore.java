@@ -0,0 +1,100 @@
+package com.pm.patientservice.idempotency;
+
+import com.pm.patientservice.shard.ShardRoutingDataSource;
+import com.pm.patientservice.tenant.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// the persisted half of idempotency keys (table patient_idempotency_key), shared by all instances and kept across
+// restarts; rows belong to the current tenant and live on its shard
+@Component
+public class IdempotencyKeyStore {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyStore.class);
+
+    private static final String SELECT = """
+            SELECT request_hash, response, expires_at
+            FROM patient_idempotency_key
+            WHERE tenant_id = ? AND idempotency_key = ?""";
+    private static final String INSERT = """
+            INSERT INTO patient_idempotency_key (tenant_id, idempotency_key, request_hash, expires_at)
+            VALUES (?, ?, ?, ?)""";
+    private static final String TAKE_OVER_EXPIRED = """
+            UPDATE patient_idempotency_key
+            SET request_hash = ?, response = NULL, expires_at = ?
+            WHERE tenant_id = ? AND idempotency_key = ? AND expires_at < ?""";
+    private static final String COMPLETE = """
+            UPDATE patient_idempotency_key
+            SET response = ?, expires_at = ?
+            WHERE tenant_id = ? AND idempotency_key = ?""";
+    private static final String RELEASE = """
+            DELETE FROM patient_idempotency_key
+            WHERE tenant_id = ? AND idempotency_key = ? AND response IS NULL""";
+    private static final String DELETE_EXPIRED = "DELETE FROM patient_idempotency_key WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+
+    // response is null while the request that claimed the key is still running
+    record StoredKey(String requestHash, String response, Instant expiresAt) {
+    }
+
+    public IdempotencyKeyStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        ShardRoutingDataSource.shardsOf(dataSource).forEach((name, shard) -> shards.put(name, new JdbcTemplate(shard)));
+    }
+
+    Optional<StoredKey> find(String key) {
+        return jdbcTemplate.query(SELECT, (rs, rowNum) -> new StoredKey(
+                        rs.getString("request_hash"),
+                        rs.getString("response"),
+                        rs.getTimestamp("expires_at").toInstant()),
+                TenantContext.current(), key).stream().findFirst();
+    }
+
+    // true when this request may run: the key was free, or its previous claim or response has expired
+    boolean claim(String key, String requestHash, Instant claimExpiresAt) {
+        String tenant = TenantContext.current();
+        try {
+            jdbcTemplate.update(INSERT, tenant, key, requestHash, Timestamp.from(claimExpiresAt));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update(TAKE_OVER_EXPIRED, requestHash, Timestamp.from(claimExpiresAt), tenant, key,
+                    Timestamp.from(Instant.now())) == 1;
+        }
+    }
+
+    void complete(String key, String response, Instant expiresAt) {
+        jdbcTemplate.update(COMPLETE, response, Timestamp.from(expiresAt), TenantContext.current(), key);
+    }
+
+    // the request failed, so a retry may run it again
+    void release(String key) {
+        jdbcTemplate.update(RELEASE, TenantContext.current(), key);
+    }
+
+    @Scheduled(fixedDelayString = "${patient.idempotency.cleanup-interval-millis:300000}")
+    public void deleteExpired() {
+        Timestamp now = Timestamp.from(Instant.now());
+        shards.forEach((name, shard) -> {
+            try {
+                int deleted = shard.update(DELETE_EXPIRED, now);
+                if (deleted > 0) {
+                    log.info("Deleted {} expired idempotency key(s) on {}", deleted, name);
+                }
+            } catch (Exception e) {
+                log.error("Deleting expired idempotency keys failed on {}: {}", name, e.getMessage());
+            }
+        });
+    }
+}
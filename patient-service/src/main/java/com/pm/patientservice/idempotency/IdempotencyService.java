@@ -0,0 +1,238 @@
+package com.pm.patientservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.IdempotencyKeyInProgressException;
+import com.pm.patientservice.exception.IdempotencyKeyReusedException;
+import com.pm.patientservice.exception.InvalidIdempotencyKeyException;
+import com.pm.patientservice.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/*
+Idempotency-Key support for POST /patients. The first request with a key creates the patient; retries with the same
+key and body get that response replayed (Idempotent-Replayed: true) without running the create again, so no email
+check, billing call or event is repeated. Reusing a key for a different body is rejected with 422.
+
+Keys are remembered in memory, where concurrent duplicates wait for the first request's result, and in the
+patient_idempotency_key table (IdempotencyKeyStore), which covers duplicates that reach another instance or arrive
+after a restart. A duplicate that finds the key claimed by a request still running elsewhere polls the table for up
+to patient.idempotency.wait-timeout, then gets 409. Keys expire after patient.idempotency.ttl. A failed create keeps
+nothing, so it can be retried with the same key. A claim left by an instance that died mid-request is taken over
+after patient.idempotency.claim-timeout.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final Pattern VALID_KEY = Pattern.compile("[\\x21-\\x7e]{1,255}"); // printable ASCII
+    private static final long POLL_MILLIS = 50;
+
+    private final IdempotencyKeyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+    private final Duration waitTimeout;
+    private final int localCapacity;
+    private final Counter replayed;
+
+    private final Map<LocalKey, LocalEntry> local = new ConcurrentHashMap<>();
+
+    public record Result(PatientResponseDTO response, boolean replayed) {
+    }
+
+    private record LocalKey(String tenant, String key) {
+    }
+
+    // expiresAt is only set once the first request has succeeded
+    private static final class LocalEntry {
+        private final String requestHash;
+        private final CompletableFuture<PatientResponseDTO> result = new CompletableFuture<>();
+        private volatile Instant expiresAt;
+
+        private LocalEntry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        private boolean isExpired(Instant now) {
+            return expiresAt != null && expiresAt.isBefore(now);
+        }
+    }
+
+    public IdempotencyService(IdempotencyKeyStore store,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${patient.idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${patient.idempotency.claim-timeout:PT30S}") Duration claimTimeout,
+                              @Value("${patient.idempotency.wait-timeout:PT10S}") Duration waitTimeout,
+                              @Value("${patient.idempotency.local-capacity:10000}") int localCapacity) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+        this.waitTimeout = waitTimeout;
+        this.localCapacity = localCapacity;
+        this.replayed = Counter.builder("patient.idempotency.replayed")
+                .description("POST /patients retries answered with the response of the first request")
+                .register(meterRegistry);
+    }
+
+    // runs create once per key (as the current tenant) and returns its response to every request with that key
+    public Result execute(String key, PatientRequestDTO request, Supplier<PatientResponseDTO> create) {
+        if (!VALID_KEY.matcher(key).matches()) {
+            throw new InvalidIdempotencyKeyException(HEADER + " must be 1 to 255 printable ASCII characters");
+        }
+        LocalKey localKey = new LocalKey(TenantContext.current(), key);
+        String requestHash = fingerprint(request);
+
+        LocalEntry entry = new LocalEntry(requestHash);
+        LocalEntry existing;
+        while ((existing = local.putIfAbsent(localKey, entry)) != null) {
+            if (!existing.isExpired(Instant.now())) {
+                checkSameRequest(existing.requestHash, requestHash, key);
+                return replay(await(existing.result));
+            }
+            local.remove(localKey, existing);
+        }
+
+        // this request owns the key on this instance
+        try {
+            Result result = executeOnce(key, requestHash, create);
+            entry.expiresAt = Instant.now().plus(ttl);
+            entry.result.complete(result.response());
+            if (local.size() > localCapacity) {
+                local.remove(localKey, entry); // still in the table
+            }
+            return result;
+        } catch (RuntimeException e) {
+            local.remove(localKey, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${patient.idempotency.cleanup-interval-millis:300000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        local.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private Result executeOnce(String key, String requestHash, Supplier<PatientResponseDTO> create) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            if (store.claim(key, requestHash, Instant.now().plus(claimTimeout))) {
+                return new Result(createAndStore(key, create), false);
+            }
+
+            Optional<IdempotencyKeyStore.StoredKey> stored = store.find(key);
+            if (stored.isPresent()) {
+                checkSameRequest(stored.get().requestHash(), requestHash, key);
+                if (stored.get().response() != null) {
+                    return replay(read(stored.get().response()));
+                }
+            }
+
+            // claimed by a request still running on another instance
+            if (System.nanoTime() > deadline) {
+                throw new IdempotencyKeyInProgressException("A request with this " + HEADER + " is still running: "
+                        + key);
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyKeyInProgressException("Interrupted while waiting for " + HEADER + " " + key);
+            }
+        }
+    }
+
+    private PatientResponseDTO createAndStore(String key, Supplier<PatientResponseDTO> create) {
+        PatientResponseDTO response;
+        try {
+            response = create.get();
+        } catch (RuntimeException e) {
+            store.release(key);
+            throw e;
+        }
+
+        try {
+            store.complete(key, objectMapper.writeValueAsString(response), Instant.now().plus(ttl));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // the patient exists, so answer; a retry on another instance after the claim expires gets a 400 instead
+            log.warn("Could not store the response for {} {}: {}", HEADER, key, e.getMessage());
+        }
+        return response;
+    }
+
+    private PatientResponseDTO await(CompletableFuture<PatientResponseDTO> result) {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // the first request failed, its duplicates fail the same way
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException("A request with this " + HEADER + " is still running");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("Interrupted while waiting for " + HEADER);
+        }
+    }
+
+    private Result replay(PatientResponseDTO response) {
+        replayed.increment();
+        return new Result(response, true);
+    }
+
+    private PatientResponseDTO read(String response) {
+        try {
+            return objectMapper.readValue(response, PatientResponseDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored response for an idempotency key", e);
+        }
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash, String key) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(HEADER + " " + key + " was already used for a different request");
+        }
+    }
+
+    // SHA-256 of the fields a create uses, so a retry matches whatever its JSON formatting
+    static String fingerprint(PatientRequestDTO request) {
+        String fields = String.join("\u0000", String.valueOf(request.getName()), String.valueOf(request.getEmail()),
+                String.valueOf(request.getAddress()), String.valueOf(request.getDateOfBirth()),
+                String.valueOf(request.getRegisteredDate()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fields.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,33 +1,138 @@
 package com.pm.patientservice.kafka;
 
+import com.pm.patientevents.PatientEventData;
+import com.pm.patientevents.PatientEventSerializer;
 import com.pm.patientservice.model.Patient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Service // Spring will manage this class for us and inject all the dependencies it needs
 public class KafkaProducer {
+    public static final String PATIENT_TOPIC = "patient"; // every change, in order, per patient
+    public static final String PATIENT_STATE_TOPIC = "patient-state"; // compacted: latest snapshot per patient
+
+    public static final int SCHEMA_VERSION = PatientEventSerializer.SCHEMA_VERSION;
+
     private static final Logger log = LoggerFactory.getLogger(KafkaProducer.class);
-    private final KafkaTemplate<String, byte[]> kafkaTemplate; // sending a Kafka event of key String and type byte[]
+    // values are encoded by PatientEventSerializer, keys by PatientIdSerializer (see application.properties)
+    private final KafkaTemplate<UUID, PatientEventData> kafkaTemplate;
+    private final boolean cdcMode;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
 
-    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+    public KafkaProducer(KafkaTemplate<UUID, PatientEventData> kafkaTemplate,
+                         @Value("${patient.events.mode:application}") String eventsMode,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         BulkheadRegistry bulkheadRegistry,
+                         MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
+        this.cdcMode = "cdc".equals(eventsMode);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("kafka");
+        this.bulkhead = bulkheadRegistry.bulkhead("kafka");
+        this.meterRegistry = meterRegistry;
     }
 
-    public void sendEvent(Patient patient) {
-        PatientEvent event = PatientEvent.newBuilder()
-                .setPatientId(patient.getId().toString())
-                .setName(patient.getName())
-                .setEmail(patient.getEmail())
-                .setEventType("PATIENT_CREATED")
-                .build();
+    // called by the service after each write; in cdc mode the events come from the WAL instead.
+    // Never fails the write: while Kafka is down (breaker open) or too many sends are in flight (bulkhead full) the
+    // event is dropped straight away and counted in patient.events.dropped; cdc mode is the option that can't lose them
+    public void sendEvent(Patient patient, PatientEventType type) {
+        if (cdcMode) {
+            return;
+        }
 
+        PatientEventData event = toEvent(patient, type);
         try {
-            kafkaTemplate.send("patient", event.toByteArray());
+            Bulkhead.decorateCompletionStage(bulkhead,
+                            CircuitBreaker.decorateCompletionStage(circuitBreaker, () -> publish(event)))
+                    .get()
+                    .whenComplete((sent, error) -> {
+                        if (error != null) {
+                            dropped(event, error);
+                        }
+                    });
         } catch (Exception e) {
-            log.error("Error sending PatientCreated event: {}", event);
+            dropped(event, e);
+        }
+    }
+
+    private void dropped(PatientEventData event, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        String reason = cause instanceof CallNotPermittedException ? "circuit-open"
+                : cause instanceof BulkheadFullException ? "bulkhead-full"
+                : "send-failed";
+
+        Counter.builder("patient.events.dropped").tag("reason", reason).register(meterRegistry).increment();
+        log.error("Error sending {} event for patient {} ({}): {}", event.type(), event.patientId(), reason,
+                cause.getMessage());
+    }
+
+    // completes once both topics have acknowledged the event
+    public CompletableFuture<Void> publish(PatientEventData event) {
+        UUID key = event.patientId(); // keyed by patient so all of a patient's events stay in order
+
+        // the tenant travels in the event (tenant_id), so consumers can filter without the partitioning knowing it
+        CompletableFuture<?> change = send(PATIENT_TOPIC, key, event);
+
+        // a null value is a tombstone: compaction eventually drops the deleted patient from the state topic.
+        // placed by key too, so the tombstone lands in the same partition as the snapshots it replaces
+        CompletableFuture<?> state = send(PATIENT_STATE_TOPIC, key,
+                event.type() == PatientEventType.PATIENT_DELETED ? null : event);
+
+        return CompletableFuture.allOf(change, state);
+    }
+
+    // patient.events.send: time from send to the broker's acknowledgement, per topic and outcome
+    // (outcome=error counts the failed sends, whatever the cause)
+    private CompletableFuture<?> send(String topic, UUID key, PatientEventData event) {
+        long start = System.nanoTime();
+        CompletableFuture<?> sent;
+        try {
+            sent = kafkaTemplate.send(topic, key, event);
+        } catch (RuntimeException e) { // e.g. metadata couldn't be fetched within max.block.ms
+            recordSend(topic, start, e);
+            throw e;
         }
+        return sent.whenComplete((result, error) -> recordSend(topic, start, error));
+    }
+
+    private void recordSend(String topic, long start, Throwable error) {
+        Timer.builder("patient.events.send")
+                .tag("topic", topic)
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    static PatientEventData toEvent(Patient patient, PatientEventType type) {
+        return new PatientEventData(patient.getId(),
+                patient.getName(),
+                patient.getEmail(),
+                patient.getAddress(),
+                patient.getDateOfBirth(),
+                patient.getRegisteredDate(),
+                type,
+                Instant.now(),
+                patient.getTenantId());
     }
 }
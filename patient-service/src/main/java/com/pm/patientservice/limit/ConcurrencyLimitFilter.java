@@ -0,0 +1,153 @@
+package com.pm.patientservice.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// /patients on Spring MVC: at most patient.concurrency limit requests run at once (GradientConcurrencyLimit), the
+// rest get a 503 straight away instead of waiting for a thread or a database connection. Runs before every other
+// filter so rejected requests cost next to nothing. The limit, the requests in flight and the rejections are
+// published as patient.concurrency.limit, patient.concurrency.in-flight and patient.concurrency.rejected. The
+// streamed listing, exports and coalesced updates count against the limit but don't feed its latency samples
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final boolean coalescedUpdates;
+    private final GradientConcurrencyLimit limit;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${patient.concurrency.enabled:true}") boolean enabled,
+                                  @Value("${patient.concurrency.initial-limit:50}") int initialLimit,
+                                  @Value("${patient.concurrency.min-limit:10}") int minLimit,
+                                  @Value("${patient.concurrency.max-limit:400}") int maxLimit,
+                                  @Value("${patient.concurrency.tolerance:1.5}") double tolerance,
+                                  @Value("${patient.concurrency.smoothing:0.2}") double smoothing,
+                                  @Value("${patient.concurrency.long-window:600}") int longWindow,
+                                  @Value("${patient.concurrency.short-window:10}") int shortWindow,
+                                  @Value("${patient.update.coalesce:false}") boolean coalescedUpdates) {
+        this.enabled = enabled;
+        this.coalescedUpdates = coalescedUpdates;
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, smoothing, longWindow,
+                shortWindow);
+        Gauge.builder("patient.concurrency.limit", limit, GradientConcurrencyLimit::getLimit)
+                .description("Requests to /patients allowed in flight at once")
+                .register(meterRegistry);
+        Gauge.builder("patient.concurrency.in-flight", limit, GradientConcurrencyLimit::getInFlight)
+                .description("Requests to /patients in flight")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("patient.concurrency.rejected")
+                .description("Requests to /patients rejected with 503 because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/patients");
+    }
+
+    // false for requests whose duration is set by something other than the service's latency: the streamed
+    // GET /patients, export requests and downloads, and updates held back for the coalescing window
+    boolean sampled(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/patients/exports")) {
+            return false;
+        }
+        if ("GET".equals(request.getMethod()) && (uri.equals("/patients") || uri.equals("/patients/"))) {
+            return false;
+        }
+        return !(coalescedUpdates && "PUT".equals(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        GradientConcurrencyLimit.Slot slot = limit.tryAcquire();
+        if (slot == null) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many requests in flight");
+            return;
+        }
+
+        boolean sampled = sampled(request);
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // streamed responses (GET /patients) hold their slot until the body is written
+                request.getAsyncContext().addListener(new SlotReleaser(slot, sampled));
+                async = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(slot, sampled, true);
+            throw e;
+        }
+        if (!async) {
+            release(slot, sampled, response.getStatus() >= 500);
+        }
+    }
+
+    private static void release(GradientConcurrencyLimit.Slot slot, boolean sampled, boolean failed) {
+        if (sampled) {
+            slot.release(failed);
+        } else {
+            slot.releaseWithoutSample(failed);
+        }
+    }
+
+    private static final class SlotReleaser implements AsyncListener {
+        private final GradientConcurrencyLimit.Slot slot;
+        private final boolean sampled;
+        private boolean released;
+
+        private SlotReleaser(GradientConcurrencyLimit.Slot slot, boolean sampled) {
+            this.slot = slot;
+            this.sampled = sampled;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(((HttpServletResponse) event.getSuppliedResponse()).getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        // onComplete follows onTimeout and onError as well
+        private synchronized void release(boolean failed) {
+            if (!released) {
+                released = true;
+                ConcurrencyLimitFilter.release(slot, sampled, failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.pm.patientservice.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+How many requests may be in flight at once, adjusted from their latency (the "gradient" algorithm): a long-term
+average of the round-trip time stands for the latency of a healthy service, a short one for the current latency.
+While the current latency stays within tolerance times the long-term one the limit grows by about sqrt(limit) per
+sample, so there is always a little queueing to discover spare capacity; once it rises above that the limit shrinks
+in proportion to the slowdown before a queue can build up. Changes are smoothed, and the limit stays within
+[minLimit, maxLimit]. Failed requests cut the limit by 10% at once, the multiplicative decrease of AIMD.
+
+Samples of requests that started while less than half of the limit was in use leave it alone, so a quiet period
+can't grow it without bound. Requests whose duration isn't the service's latency (a streamed listing, a download)
+are released without a sample: one multi-second stream would otherwise drag the short-term average up and pin the
+gradient at its floor.
+After a slowdown the long-term average is pulled down again, otherwise the limit would stay small for as long as it
+takes the average to forget the slow requests.
+ */
+public class GradientConcurrencyLimit {
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double longWindow;
+    private final double shortWindow;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRtt;
+    private double shortRtt;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                                    int longWindow, int shortWindow) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+        this.shortWindow = shortWindow;
+        this.limit = initialLimit;
+    }
+
+    // a slot for one request, or null when the limit is reached; every slot must be released exactly once
+    public Slot tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > getLimit()) {
+            inFlight.decrementAndGet();
+            return null;
+        }
+        return new Slot(System.nanoTime(), current);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public final class Slot {
+        private final long startNanos;
+        private final int inFlightAtStart;
+
+        private Slot(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        // failed: the request failed on the server side (5xx or an exception), which counts as overload
+        public void release(boolean failed) {
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inFlightAtStart, failed);
+        }
+
+        // counted in flight like any other request, and a failure still cuts the limit, but the round-trip time
+        // doesn't go into the averages
+        public void releaseWithoutSample(boolean failed) {
+            inFlight.decrementAndGet();
+            if (failed) {
+                onSample(0, inFlightAtStart, true);
+            }
+        }
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart, boolean failed) {
+        if (failed) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF); // not smoothed, overload has to be relieved at once
+            return;
+        }
+
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+            shortRtt = rttNanos;
+            return;
+        }
+        longRtt += (rttNanos - longRtt) / longWindow;
+        shortRtt += (rttNanos - shortRtt) / shortWindow;
+
+        // recovering from a slowdown: let the long-term average catch up with the now lower latency
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // app-limited: too few requests in flight to tell anything about the limit
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        update(limit * gradient + Math.sqrt(limit));
+    }
+
+    private void update(double newLimit) {
+        double smoothed = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+}
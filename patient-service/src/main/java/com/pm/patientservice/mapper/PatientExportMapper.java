@@ -0,0 +1,22 @@
+package com.pm.patientservice.mapper;
+
+import com.pm.patientservice.dto.PatientExportResponseDTO;
+import com.pm.patientservice.export.PatientExportJob;
+
+import java.util.Objects;
+
+public class PatientExportMapper {
+    public static PatientExportResponseDTO toDTO(PatientExportJob job) {
+        PatientExportResponseDTO exportDTO = new PatientExportResponseDTO();
+        exportDTO.setId(job.getId().toString());
+        exportDTO.setStatus(job.getStatus());
+        exportDTO.setSince(Objects.toString(job.getSince(), null));
+        exportDTO.setRows(job.getRows());
+        exportDTO.setWatermark(Objects.toString(job.getWatermark(), null));
+        exportDTO.setCreatedAt(job.getCreatedAt().toString());
+        exportDTO.setFinishedAt(Objects.toString(job.getFinishedAt(), null));
+        exportDTO.setError(job.getError());
+
+        return exportDTO;
+    }
+}
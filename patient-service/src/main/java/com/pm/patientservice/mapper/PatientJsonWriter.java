@@ -0,0 +1,89 @@
+package com.pm.patientservice.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.util.IsoText;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+Writes a JSON array of patients straight to the response stream, one row at a time, in the same shape Jackson gives
+PatientResponseDTO. Nothing is collected into a list first and no DTO or intermediate String is created per patient:
+field names are pre-encoded once, and ids and dates are formatted into a scratch buffer that Jackson copies into its
+output buffer.
+ */
+public class PatientJsonWriter implements Closeable {
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET) // the servlet container owns the response stream
+            .build();
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString ADDRESS = new SerializedString("address");
+    private static final SerializableString DATE_OF_BIRTH = new SerializedString("dateOfBrith");
+
+    private final JsonGenerator generator;
+    private final char[] scratch = new char[IsoText.UUID_LENGTH];
+
+    public PatientJsonWriter(OutputStream out) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(out);
+        generator.writeStartArray();
+    }
+
+    public void write(Patient patient) {
+        write(patient.getId(), patient.getName(), patient.getEmail(), patient.getAddress(), patient.getDateOfBirth());
+    }
+
+    public void write(PatientResponseDTO patient) {
+        write(patient.id(), patient.name(), patient.email(), patient.address(), patient.dateOfBirth());
+    }
+
+    public void write(UUID id, String name, String email, String address, LocalDate dateOfBirth) {
+        try {
+            generator.writeStartObject();
+
+            generator.writeFieldName(ID);
+            generator.writeString(scratch, 0, IsoText.writeUuid(id, scratch, 0));
+            writeField(NAME, name);
+            writeField(EMAIL, email);
+            writeField(ADDRESS, address);
+            generator.writeFieldName(DATE_OF_BIRTH);
+            if (dateOfBirth == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(scratch, 0, IsoText.writeDate(dateOfBirth, scratch, 0));
+            }
+
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // usually the client went away mid-response
+        }
+    }
+
+    // ends the array and flushes what is still buffered
+    @Override
+    public void close() throws IOException {
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    private void writeField(SerializableString fieldName, String value) throws IOException {
+        generator.writeFieldName(fieldName);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+}
@@ -3,19 +3,18 @@ package com.pm.patientservice.mapper;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.model.Patient;
-
-import java.time.LocalDate;
+import com.pm.patientservice.model.PatientReadModel;
+import com.pm.patientservice.util.IsoText;
 
 public class PatientMapper {
     public static PatientResponseDTO toDTO(Patient patient) {
-        PatientResponseDTO patientDTO = new PatientResponseDTO();
-        patientDTO.setId(patient.getId().toString());
-        patientDTO.setName(patient.getName());
-        patientDTO.setAddress(patient.getAddress());
-        patientDTO.setEmail(patient.getEmail());
-        patientDTO.setDateOfBrith(patient.getDateOfBirth().toString());
+        return new PatientResponseDTO(patient.getId(), patient.getName(), patient.getEmail(),
+                patient.getAddress(), patient.getDateOfBirth());
+    }
 
-        return patientDTO;
+    public static PatientResponseDTO toDTO(PatientReadModel patient) {
+        return new PatientResponseDTO(patient.id(), patient.name(), patient.email(),
+                patient.address(), patient.dateOfBirth());
     }
 
     public static Patient toModel(PatientRequestDTO patientRequestDTO) {
@@ -23,8 +22,8 @@ public class PatientMapper {
         patient.setName(patientRequestDTO.getName());
         patient.setAddress(patientRequestDTO.getAddress());
         patient.setEmail(patientRequestDTO.getEmail());
-        patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
-        patient.setRegisteredDate(LocalDate.parse(patientRequestDTO.getRegisteredDate()));
+        patient.setDateOfBirth(IsoText.parseDate(patientRequestDTO.getDateOfBirth()));
+        patient.setRegisteredDate(IsoText.parseDate(patientRequestDTO.getRegisteredDate()));
 
         return patient;
     }
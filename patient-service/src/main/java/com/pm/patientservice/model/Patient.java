@@ -1,24 +1,33 @@
 package com.pm.patientservice.model;
 
+import com.pm.patientservice.util.UuidV7Generator;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.TenantId;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "email"})) // emails are unique per clinic
 public class Patient {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue
+    @UuidGenerator(algorithm = UuidV7Generator.class) // time ordered ids, generated before the insert
     private UUID id;
 
     @NotNull
     private String name;
 
+    // set from TenantContext on insert, and Hibernate only ever reads and writes the current tenant's rows
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false)
+    private String tenantId;
+
     @NotNull
     @Email
-    @Column(unique = true)
     private String email;
 
     @NotNull
@@ -27,6 +36,7 @@ public class Patient {
     @NotNull
     private LocalDate dateOfBirth;
 
+    // partition key of the patient table in PostgreSQL (monthly range partitions)
     @NotNull
     private LocalDate registeredDate;
 
@@ -38,6 +48,14 @@ public class Patient {
         this.id = id;
     }
 
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public String getName() {
         return name;
     }
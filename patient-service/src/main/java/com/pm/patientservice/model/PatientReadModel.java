@@ -0,0 +1,18 @@
+package com.pm.patientservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// read-only view of the patient table for the reactive (R2DBC) read path; writes still go through the JPA entity
+@Table("patient")
+public record PatientReadModel(@Id UUID id,
+                               String tenantId,
+                               String name,
+                               String email,
+                               String address,
+                               LocalDate dateOfBirth,
+                               LocalDate registeredDate) {
+}
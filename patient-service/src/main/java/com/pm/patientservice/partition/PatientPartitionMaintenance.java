@@ -0,0 +1,73 @@
+package com.pm.patientservice.partition;
+
+import com.pm.patientservice.shard.ShardRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// creates the monthly patient partitions ahead of time so inserts never have to fall back to the default partition;
+// every shard has its own patient table, so each one is maintained
+@Component
+public class PatientPartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(PatientPartitionMaintenance.class);
+
+    private final Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+    private final int monthsAhead;
+    private Boolean partitioned; // resolved once, the patient table is only partitioned in PostgreSQL
+
+    public PatientPartitionMaintenance(DataSource dataSource,
+                                       @Value("${patient.partitions.months-ahead:3}") int monthsAhead) {
+        ShardRoutingDataSource.shardsOf(dataSource).forEach((name, shard) -> shards.put(name, new JdbcTemplate(shard)));
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPartitionsOnStartup() {
+        createUpcomingPartitions();
+    }
+
+    // runs daily (default 02:00) so a missed run still leaves months of headroom
+    @Scheduled(cron = "${patient.partitions.cron:0 0 2 * * *}")
+    public void createUpcomingPartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+
+        shards.forEach((name, jdbcTemplate) -> {
+            try {
+                Integer created = jdbcTemplate.queryForObject("SELECT create_patient_partitions(?)",
+                        Integer.class, monthsAhead);
+                log.info("Patient partition maintenance finished on {}, {} new partition(s) created", name, created);
+            } catch (Exception e) {
+                log.error("Patient partition maintenance failed on {}: {}", name, e.getMessage());
+            }
+        });
+    }
+
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            try {
+                // all shards run the same database
+                String product = JdbcUtils.extractDatabaseMetaData(shards.values().iterator().next().getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+                partitioned = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (MetaDataAccessException e) {
+                log.warn("Could not determine database type, skipping partition maintenance: {}", e.getMessage());
+                return false;
+            }
+        }
+        return partitioned;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.dto.PatientResponseDTO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// batched reads for many ids or emails at once, one query each (implemented in PatientLookupRepositoryImpl);
+// all of them only see the current tenant's patients
+public interface PatientLookupRepository {
+    List<PatientResponseDTO> findAllByIds(Collection<UUID> ids);
+
+    List<PatientResponseDTO> findAllByEmails(Collection<String> emails);
+
+    List<UUID> findExistingIds(Collection<UUID> ids);
+
+    List<String> findExistingEmails(Collection<String> emails);
+
+    // the next page of patients in id order, after the given id (from the start when null); keyset paging, so each
+    // page is one short index range scan however far into the list it is
+    List<PatientResponseDTO> findPageAfter(UUID after, int limit);
+
+    // hands every patient (only those registered in [start, end] when a range is given) to the handler as the rows
+    // come off the cursor, without loading entities or collecting them; call it inside a transaction so PostgreSQL
+    // fetches the rows in batches instead of all at once
+    void forEachPatient(LocalDate start, LocalDate end, PatientRowHandler handler);
+
+    @FunctionalInterface
+    interface PatientRowHandler {
+        void accept(UUID id, String name, String email, String address, LocalDate dateOfBirth);
+    }
+}
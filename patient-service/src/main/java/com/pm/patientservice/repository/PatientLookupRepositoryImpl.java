@@ -0,0 +1,139 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.tenant.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+Each lookup binds all keys as one array parameter (= ANY(?)), so the statement text is the same whatever the number
+of keys: one prepared statement, one round trip, and no IN (?, ?, ...) lists growing with the request. Rows are read
+straight into the response projection instead of being loaded as JPA entities. forEachPatient streams the full list
+the same way, row by row, for GET /patients, and findPageAfter pages through it by id for gRPC ListPatients. Like the
+JPA queries, every query only sees the current tenant's rows (TenantContext).
+ */
+public class PatientLookupRepositoryImpl implements PatientLookupRepository {
+    private static final String SELECT_BY_IDS = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE id = ANY(?) AND tenant_id = ?""";
+    private static final String SELECT_BY_EMAILS = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE email = ANY(?) AND tenant_id = ?""";
+    private static final String SELECT_ALL = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE tenant_id = ?""";
+    private static final String SELECT_REGISTERED_BETWEEN = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE tenant_id = ? AND registered_date BETWEEN ? AND ?""";
+    private static final String SELECT_FIRST_PAGE = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE tenant_id = ?
+            ORDER BY id
+            LIMIT ?""";
+    private static final String SELECT_PAGE_AFTER = """
+            SELECT id, name, email, address, date_of_birth
+            FROM patient
+            WHERE tenant_id = ? AND id > ?
+            ORDER BY id
+            LIMIT ?""";
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM patient WHERE id = ANY(?) AND tenant_id = ?";
+    private static final String SELECT_EXISTING_EMAILS =
+            "SELECT email FROM patient WHERE email = ANY(?) AND tenant_id = ?";
+
+    private static final RowMapper<PatientResponseDTO> PATIENT_ROW_MAPPER = (rs, rowNum) -> new PatientResponseDTO(
+            rs.getObject("id", UUID.class),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getString("address"),
+            rs.getObject("date_of_birth", LocalDate.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public PatientLookupRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                       @Value("${patient.list.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public List<PatientResponseDTO> findAllByIds(Collection<UUID> ids) {
+        return query(SELECT_BY_IDS, "uuid", ids, PATIENT_ROW_MAPPER);
+    }
+
+    @Override
+    public List<PatientResponseDTO> findAllByEmails(Collection<String> emails) {
+        return query(SELECT_BY_EMAILS, "varchar", emails, PATIENT_ROW_MAPPER);
+    }
+
+    @Override
+    public List<UUID> findExistingIds(Collection<UUID> ids) {
+        return query(SELECT_EXISTING_IDS, "uuid", ids, (rs, rowNum) -> rs.getObject("id", UUID.class));
+    }
+
+    @Override
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return query(SELECT_EXISTING_EMAILS, "varchar", emails, (rs, rowNum) -> rs.getString("email"));
+    }
+
+    @Override
+    public List<PatientResponseDTO> findPageAfter(UUID after, int limit) {
+        String tenant = TenantContext.current();
+        return after == null
+                ? jdbcTemplate.query(SELECT_FIRST_PAGE, PATIENT_ROW_MAPPER, tenant, limit)
+                : jdbcTemplate.query(SELECT_PAGE_AFTER, PATIENT_ROW_MAPPER, tenant, after, limit);
+    }
+
+    @Override
+    public void forEachPatient(LocalDate start, LocalDate end, PatientRowHandler handler) {
+        String tenant = TenantContext.current();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement;
+            if (start == null && end == null) {
+                statement = connection.prepareStatement(SELECT_ALL);
+                statement.setString(1, tenant);
+            } else {
+                statement = connection.prepareStatement(SELECT_REGISTERED_BETWEEN);
+                statement.setString(1, tenant);
+                statement.setObject(2, start != null ? start : LocalDate.of(1, 1, 1));
+                statement.setObject(3, end != null ? end : LocalDate.of(9999, 12, 31));
+            }
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> handler.accept(
+                rs.getObject("id", UUID.class),
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getString("address"),
+                rs.getObject("date_of_birth", LocalDate.class)));
+    }
+
+    private <T> List<T> query(String sql, String elementType, Collection<?> keys, RowMapper<T> rowMapper) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+
+        String tenant = TenantContext.current();
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf(elementType, keys.toArray());
+            statement.setArray(1, array);
+            statement.setString(2, tenant);
+            return statement;
+        }, rowMapper);
+    }
+}
@@ -4,12 +4,17 @@ import com.pm.patientservice.model.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, UUID> {
+public interface PatientRepository extends JpaRepository<Patient, UUID>, PatientLookupRepository {
     boolean existsByEmail(String email);
 
     // search db for user with this email but different id (used for updates)
     boolean existsByEmailAndIdNot(String email, UUID id);
+
+    // filters on the partition key, so PostgreSQL only scans the partitions covering [start, end]
+    List<Patient> findByRegisteredDateBetween(LocalDate start, LocalDate end);
 }
@@ -0,0 +1,20 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.PatientReadModel;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// only registered when the 'reactive' profile switches the R2DBC auto-configuration on. R2DBC doesn't know about
+// Hibernate's tenant filter, so every query names the tenant itself
+@Repository
+public interface ReactivePatientRepository extends R2dbcRepository<PatientReadModel, UUID> {
+
+    Flux<PatientReadModel> findByTenantId(String tenantId);
+
+    // filters on the partition key, so PostgreSQL only scans the partitions covering [start, end]
+    Flux<PatientReadModel> findByTenantIdAndRegisteredDateBetween(String tenantId, LocalDate start, LocalDate end);
+}
@@ -0,0 +1,139 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.shard.ShardRoutingDataSource;
+import com.pm.patientservice.tenant.TenantContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Degraded mode for patient creation: when billing-service is unavailable (circuit open, bulkhead full, call failed)
+the patient is still created, and its billing account is created once billing-service is back.
+The account to create is an outbox row (table billing_account_outbox) written in the same transaction as the patient
+and deleted after billing-service has it, so a restart, deploy or scale-in between the two can't lose it: any instance
+retries the rows left on any shard. billing-service's createBillingAccount is idempotent, so a retry that raced a slow
+first call (or another instance's retry) is harmless.
+ */
+@Component
+public class BillingAccountBackfill {
+    private static final Logger log = LoggerFactory.getLogger(BillingAccountBackfill.class);
+
+    private static final String INSERT = """
+            INSERT INTO billing_account_outbox (patient_id, tenant_id, name, email, created_at)
+            VALUES (?, ?, ?, ?, ?)""";
+    private static final String DELETE = "DELETE FROM billing_account_outbox WHERE patient_id = ?";
+    private static final String SELECT_PENDING = """
+            SELECT patient_id, name, email
+            FROM billing_account_outbox
+            WHERE created_at < ?
+            ORDER BY created_at
+            LIMIT ?""";
+    private static final String COUNT = "SELECT COUNT(*) FROM billing_account_outbox";
+
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+    private final Duration minAge;
+    private final int batchSize;
+    private final AtomicLong pending = new AtomicLong();
+
+    private record PendingAccount(UUID patientId, String name, String email) {
+    }
+
+    public BillingAccountBackfill(BillingServiceGrpcClient billingServiceGrpcClient,
+                                  DataSource dataSource,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${billing.backfill.min-age-millis:10000}") long minAgeMillis,
+                                  @Value("${billing.backfill.batch-size:500}") int batchSize) {
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        ShardRoutingDataSource.shardsOf(dataSource).forEach((name, shard) -> shards.put(name, new JdbcTemplate(shard)));
+        this.minAge = Duration.ofMillis(minAgeMillis);
+        this.batchSize = batchSize;
+
+        Gauge.builder("billing.backfill.pending", pending, AtomicLong::get)
+                .description("Billing accounts waiting for billing-service, as of the last retry round")
+                .register(meterRegistry);
+    }
+
+    // part of the patient's insert transaction (PatientService.savePatient), on the current tenant's shard
+    // (the patient's own tenant_id is only filled in when Hibernate flushes it)
+    public void add(Patient patient) {
+        jdbcTemplate.update(INSERT, patient.getId(), TenantContext.current(), patient.getName(), patient.getEmail(),
+                Timestamp.from(Instant.now()));
+    }
+
+    // billing-service has the account; a row left behind is only retried once more, so this never fails the create
+    public void remove(Patient patient) {
+        try (TenantContext.Scope scope = TenantContext.use(patient.getTenantId())) {
+            jdbcTemplate.update(DELETE, patient.getId());
+        } catch (RuntimeException e) {
+            log.warn("Could not delete the billing account outbox row of patient {}: {}", patient.getId(),
+                    e.getMessage());
+        }
+    }
+
+    // the create call failed as unavailable: the row stays for retryPending
+    public void defer(Patient patient) {
+        log.warn("Billing service unavailable, deferred billing account for patient {}", patient.getId());
+    }
+
+    public long pendingAccounts() {
+        return pending.get();
+    }
+
+    // every instance runs this over every shard; rows younger than min-age still belong to the create that wrote them
+    @Scheduled(fixedDelayString = "${billing.backfill.interval-millis:5000}")
+    public void retryPending() {
+        Timestamp before = Timestamp.from(Instant.now().minus(minAge));
+        long left = 0;
+        for (Map.Entry<String, JdbcTemplate> shard : shards.entrySet()) {
+            try {
+                retryPending(shard.getKey(), shard.getValue(), before);
+                left += shard.getValue().queryForObject(COUNT, Long.class);
+            } catch (Exception e) {
+                log.error("Retrying deferred billing accounts failed on {}: {}", shard.getKey(), e.getMessage());
+            }
+        }
+        pending.set(left);
+    }
+
+    private void retryPending(String shardName, JdbcTemplate shard, Timestamp before) {
+        List<PendingAccount> accounts;
+        do {
+            accounts = shard.query(SELECT_PENDING, (rs, rowNum) -> new PendingAccount(
+                    rs.getObject("patient_id", UUID.class), rs.getString("name"), rs.getString("email")),
+                    before, batchSize);
+            for (PendingAccount account : accounts) {
+                try {
+                    billingServiceGrpcClient.createBillingAccount(account.patientId().toString(), account.name(),
+                            account.email());
+                } catch (RuntimeException e) {
+                    if (BillingServiceGrpcClient.isUnavailable(e)) {
+                        return; // still down (or the breaker is still open), try again next round
+                    }
+                    log.error("Dropping deferred billing account for patient {} on {}: {}", account.patientId(),
+                            shardName, e.getMessage());
+                }
+                shard.update(DELETE, account.patientId());
+            }
+        } while (accounts.size() == batchSize);
+    }
+}
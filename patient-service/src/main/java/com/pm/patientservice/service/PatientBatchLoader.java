@@ -0,0 +1,84 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.tenant.TenantContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/*
+Request collapser for single patient reads (GET /patients/{id}): lookups arriving within patient.lookup.batch-window
+of each other are answered by one = ANY(?) query, and concurrent lookups of the same id share one result. A batch
+is sent early once it reaches patient.lookup.max-batch-size ids. Batch sizes are recorded in patient.lookup.batch.size.
+Each tenant collects its own batch (TenantBatcher), and its query runs as that tenant.
+ */
+@Service
+public class PatientBatchLoader {
+    private final Function<Collection<UUID>, List<PatientResponseDTO>> loader;
+    private final DistributionSummary batchSizes;
+
+    private final ExecutorService queries = Executors.newVirtualThreadPerTaskExecutor();
+    private final TenantBatcher<UUID, CompletableFuture<Optional<PatientResponseDTO>>> batcher;
+
+    @Autowired
+    public PatientBatchLoader(PatientRepository patientRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${patient.lookup.batch-window:PT0.002S}") Duration batchWindow,
+                              @Value("${patient.lookup.max-batch-size:200}") int maxBatchSize) {
+        this(patientRepository::findAllByIds, meterRegistry, batchWindow, maxBatchSize);
+    }
+
+    PatientBatchLoader(Function<Collection<UUID>, List<PatientResponseDTO>> loader,
+                       MeterRegistry meterRegistry,
+                       Duration batchWindow,
+                       int maxBatchSize) {
+        this.loader = loader;
+        this.batcher = new TenantBatcher<>("patient-batch-loader", batchWindow, maxBatchSize, this::dispatch);
+        this.batchSizes = DistributionSummary.builder("patient.lookup.batch.size")
+                .description("Distinct patient ids per collapsed lookup query")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+        queries.shutdown();
+    }
+
+    // looks the id up as the current tenant; the same id already waiting in the tenant's batch shares its result
+    public CompletableFuture<Optional<PatientResponseDTO>> load(UUID id) {
+        return batcher.add(TenantContext.current(),
+                batch -> batch.computeIfAbsent(id, key -> new CompletableFuture<>()));
+    }
+
+    private void dispatch(String tenant, Map<UUID, CompletableFuture<Optional<PatientResponseDTO>>> batch) {
+        batchSizes.record(batch.size());
+        queries.execute(() -> {
+            try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+                Map<UUID, PatientResponseDTO> found = new HashMap<>();
+                for (PatientResponseDTO patient : loader.apply(batch.keySet())) {
+                    found.put(patient.id(), patient);
+                }
+                batch.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+            } catch (RuntimeException e) {
+                batch.values().forEach(future -> future.completeExceptionally(e));
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientExistsResponseDTO;
+import com.pm.patientservice.dto.PatientLookupRequestDTO;
+import com.pm.patientservice.dto.PatientLookupResponseDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.PatientNotFoundException;
+import com.pm.patientservice.repository.PatientRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// multi-get and existence checks for other services (billing reconciliation, analytics enrichment)
+@Service
+public class PatientLookupService {
+    private final PatientRepository patientRepository;
+    private final PatientBatchLoader patientBatchLoader;
+
+    public PatientLookupService(PatientRepository patientRepository, PatientBatchLoader patientBatchLoader) {
+        this.patientRepository = patientRepository;
+        this.patientBatchLoader = patientBatchLoader;
+    }
+
+    public PatientResponseDTO getPatient(UUID id) {
+        try {
+            return loadPatient(id).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // completes once the batch this lookup joined has been read; fails with PatientNotFoundException
+    public CompletableFuture<PatientResponseDTO> loadPatient(UUID id) {
+        return patientBatchLoader.load(id).thenApply(patient -> patient.orElseThrow(
+                () -> new PatientNotFoundException("Patient not found with ID: " + id)));
+    }
+
+    public PatientLookupResponseDTO lookup(PatientLookupRequestDTO request) {
+        Set<UUID> ids = distinct(request.getIds());
+        Set<String> emails = distinct(request.getEmails());
+
+        Map<UUID, PatientResponseDTO> patients = new LinkedHashMap<>();
+        patientRepository.findAllByIds(ids).forEach(patient -> patients.put(patient.id(), patient));
+        patientRepository.findAllByEmails(emails).forEach(patient -> patients.putIfAbsent(patient.id(), patient));
+
+        Set<String> foundEmails = new LinkedHashSet<>();
+        patients.values().forEach(patient -> foundEmails.add(patient.email()));
+
+        PatientLookupResponseDTO response = new PatientLookupResponseDTO();
+        response.setPatients(List.copyOf(patients.values()));
+        response.setMissingIds(ids.stream().filter(id -> !patients.containsKey(id)).map(UUID::toString).toList());
+        response.setMissingEmails(emails.stream().filter(email -> !foundEmails.contains(email)).toList());
+        return response;
+    }
+
+    public PatientExistsResponseDTO exists(PatientLookupRequestDTO request) {
+        PatientExistsResponseDTO response = new PatientExistsResponseDTO();
+        response.setExistingIds(patientRepository.findExistingIds(distinct(request.getIds())).stream()
+                .map(UUID::toString)
+                .toList());
+        response.setExistingEmails(patientRepository.findExistingEmails(distinct(request.getEmails())));
+        return response;
+    }
+
+    // keeps request order, drops duplicates and nulls (either list may be left out of the request)
+    private static <T> Set<T> distinct(List<T> keys) {
+        Set<T> distinct = new LinkedHashSet<>();
+        if (keys != null) {
+            keys.stream().filter(Objects::nonNull).forEach(distinct::add);
+        }
+        return distinct;
+    }
+}
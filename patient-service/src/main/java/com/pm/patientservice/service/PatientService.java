@@ -6,14 +6,21 @@ import com.pm.patientservice.exception.EmailAlreadyExistsException;
 import com.pm.patientservice.exception.PatientNotFoundException;
 import com.pm.patientservice.grpc.BillingServiceGrpcClient;
 import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.mapper.PatientJsonWriter;
 import com.pm.patientservice.mapper.PatientMapper;
 import com.pm.patientservice.model.Patient;
 import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.util.IsoText;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEventType;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 // business logic and DTO conversion for a given request
 @Service
@@ -21,36 +28,76 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final BillingServiceGrpcClient billingServiceGrpcClient;
     private final KafkaProducer kafkaProducer;
+    private final BillingAccountBackfill billingAccountBackfill;
+    private final PatientUpdateCoalescer patientUpdateCoalescer;
+    private final TransactionTemplate transactionTemplate;
 
     public PatientService(PatientRepository patientRepository,
                           BillingServiceGrpcClient billingServiceGrpcClient,
-                          KafkaProducer kafkaProducer) {
+                          KafkaProducer kafkaProducer,
+                          BillingAccountBackfill billingAccountBackfill,
+                          PatientUpdateCoalescer patientUpdateCoalescer,
+                          TransactionTemplate transactionTemplate) {
         this.patientRepository = patientRepository; // dependency injection
         this.billingServiceGrpcClient = billingServiceGrpcClient;
         this.kafkaProducer = kafkaProducer;
+        this.billingAccountBackfill = billingAccountBackfill;
+        this.patientUpdateCoalescer = patientUpdateCoalescer;
+        this.transactionTemplate = transactionTemplate;
     }
 
-    public List<PatientResponseDTO> getPatients() {
-        List<Patient> patients = patientRepository.findAll();
-
-        return patients.stream().map(patient -> PatientMapper.toDTO(patient)).toList();
+    // writes the patients as a JSON array while they are read, so the heap never holds the whole list
+    // (start and end may be null for an open-ended range, both null means every patient)
+    @Transactional(readOnly = true)
+    public void writePatients(LocalDate start, LocalDate end, OutputStream out) throws IOException {
+        try (PatientJsonWriter writer = new PatientJsonWriter(out)) {
+            patientRepository.forEachPatient(start, end, writer::write);
+        }
     }
 
     // Client ⇄ RequestDTO ⇄ Mapper ⇄ Entity (DB) ⇄ Mapper ⇄ ResponseDTO ⇄ Client
     public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
-        checkEmailAlreadyExists(patientRequestDTO);
+        Patient newPatient = savePatient(patientRequestDTO);
+
+        try {
+            billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(),
+                    newPatient.getName(), newPatient.getEmail());
+            billingAccountBackfill.remove(newPatient);
+        } catch (RuntimeException e) {
+            if (!BillingServiceGrpcClient.isUnavailable(e)) {
+                throw e;
+            }
+            // degraded: keep the patient, its outbox row gets the billing account created once billing-service recovers
+            billingAccountBackfill.defer(newPatient);
+        }
 
-        Patient newPatient = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
+        kafkaProducer.sendEvent(newPatient, PatientEventType.PATIENT_CREATED);
 
-        billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(),
-                newPatient.getName(), newPatient.getEmail());
+        return PatientMapper.toDTO(newPatient);
+    }
 
-        kafkaProducer.sendEvent(newPatient);
+    // only the database write of a create; the reactive service makes the billing call and sends the event itself.
+    // The patient commits together with its billing account outbox row, so no patient is left without an account
+    public Patient savePatient(PatientRequestDTO patientRequestDTO) {
+        checkEmailAlreadyExists(patientRequestDTO);
 
-        return PatientMapper.toDTO(newPatient);
+        return transactionTemplate.execute(status -> {
+            Patient patient = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
+            billingAccountBackfill.add(patient);
+            return patient;
+        });
     }
 
     public PatientResponseDTO updatePatient(UUID id, PatientRequestDTO patientRequestDTO) {
+        if (patientUpdateCoalescer.isEnabled()) {
+            // batched with other updates arriving in the same window, returns once that batch is committed
+            try {
+                return patientUpdateCoalescer.submit(id, patientRequestDTO).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
         // try to find the patient by id, else if not found, throw exception
         Patient patient = patientRepository.findById(id).orElseThrow(
                 () -> new PatientNotFoundException("Patient not found with ID: " + id)
@@ -65,14 +112,21 @@ public class PatientService {
         patient.setName(patientRequestDTO.getName());
         patient.setAddress(patientRequestDTO.getAddress());
         patient.setEmail(patientRequestDTO.getEmail());
-        patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+        patient.setDateOfBirth(IsoText.parseDate(patientRequestDTO.getDateOfBirth()));
 
         Patient updatedPatient = patientRepository.save(patient);
+
+        kafkaProducer.sendEvent(updatedPatient, PatientEventType.PATIENT_UPDATED);
+
         return PatientMapper.toDTO(updatedPatient);
     }
 
     public void deletePatient(UUID id) {
-        patientRepository.deleteById(id);
+        // load the patient first so the delete event still carries its last known state
+        patientRepository.findById(id).ifPresent(patient -> {
+            patientRepository.delete(patient);
+            kafkaProducer.sendEvent(patient, PatientEventType.PATIENT_DELETED);
+        });
     }
 
     private void checkEmailAlreadyExists(PatientRequestDTO patientRequestDTO) {
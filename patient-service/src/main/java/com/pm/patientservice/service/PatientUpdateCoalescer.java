@@ -0,0 +1,219 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.EmailAlreadyExistsException;
+import com.pm.patientservice.exception.PatientNotFoundException;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.tenant.TenantContext;
+import com.pm.patientservice.util.IsoText;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+Write coalescing for PUT /patients/{id} (patient.update.coalesce=true): updates arriving within
+patient.update.coalesce-window are collected per tenant instead of each doing its own read, email check, save and
+commit. Several updates of the same patient in one window collapse into the newest one (last writer wins, in the
+order the updates arrived). When the window closes, or the batch reaches patient.update.max-batch-size patients,
+the whole batch is read with one query, checked, written and committed in one transaction, and only then are the
+callers answered, all callers of a patient with its final state. The PATIENT_UPDATED events are sent after that, so
+a send that blocks (up to the producer's max.block.ms each) delays no caller. Integrations that resend the same
+patient many times a minute then cost one commit per window instead of one per request.
+
+An update that would fail on its own (unknown patient, email taken) fails only its callers. If the batch's commit
+fails anyway, e.g. a create took an email meanwhile, each patient is retried in a transaction of its own.
+Batches are recorded in patient.update.batch.size, merged updates in patient.update.coalesced.
+ */
+@Service
+public class PatientUpdateCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(PatientUpdateCoalescer.class);
+
+    private final PatientRepository patientRepository;
+    private final KafkaProducer kafkaProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+
+    private final ExecutorService writes = Executors.newVirtualThreadPerTaskExecutor();
+    private final TenantBatcher<UUID, PendingUpdate> batcher;
+
+    // the newest update of one patient in the current window and everyone waiting for it
+    private static final class PendingUpdate {
+        private final UUID id;
+        private final List<CompletableFuture<PatientResponseDTO>> callers = new ArrayList<>();
+        private PatientRequestDTO request;
+
+        private PendingUpdate(UUID id) {
+            this.id = id;
+        }
+    }
+
+    public PatientUpdateCoalescer(PatientRepository patientRepository,
+                                  KafkaProducer kafkaProducer,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${patient.update.coalesce:false}") boolean enabled,
+                                  @Value("${patient.update.coalesce-window:PT0.05S}") Duration window,
+                                  @Value("${patient.update.max-batch-size:500}") int maxBatchSize) {
+        this.patientRepository = patientRepository;
+        this.kafkaProducer = kafkaProducer;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.enabled = enabled;
+        this.batcher = new TenantBatcher<>("patient-update-coalescer", window, maxBatchSize, this::dispatch);
+        this.batchSizes = DistributionSummary.builder("patient.update.batch.size")
+                .description("Patients written per coalesced update transaction")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("patient.update.coalesced")
+                .description("Patient updates replaced by a newer update of the same patient before being written")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // writes what is still pending, so an orderly shutdown doesn't drop acknowledged-to-be updates
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        batcher.shutdown();
+        batcher.flushAll();
+        writes.shutdown();
+        writes.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // updates the patient as the current tenant; completes once the update (or a newer one) is committed
+    public CompletableFuture<PatientResponseDTO> submit(UUID id, PatientRequestDTO request) {
+        return batcher.add(TenantContext.current(), batch -> {
+            PendingUpdate update = batch.get(id);
+            if (update == null) {
+                update = new PendingUpdate(id);
+                batch.put(id, update);
+            } else {
+                coalesced.increment();
+            }
+            update.request = request; // adds are ordered by the batcher's lock, so the last one here is the newest
+            CompletableFuture<PatientResponseDTO> result = new CompletableFuture<>();
+            update.callers.add(result);
+            return result;
+        });
+    }
+
+    private void dispatch(String tenant, Map<UUID, PendingUpdate> batch) {
+        writes.execute(() -> {
+            try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+                write(batch.values());
+            }
+        });
+    }
+
+    private void write(Collection<PendingUpdate> updates) {
+        Map<PendingUpdate, RuntimeException> rejected = new HashMap<>();
+        List<Patient> written;
+        try {
+            written = transactionTemplate.execute(status -> apply(updates, rejected));
+        } catch (RuntimeException e) {
+            if (updates.size() == 1) {
+                fail(updates.iterator().next(), e);
+                return;
+            }
+            log.warn("Coalesced update of {} patients failed, writing them one by one: {}", updates.size(),
+                    e.getMessage());
+            updates.forEach(update -> write(List.of(update)));
+            return;
+        }
+
+        batchSizes.record(written.size());
+        rejected.forEach(this::fail);
+        Map<UUID, PatientResponseDTO> responses = new HashMap<>();
+        for (Patient patient : written) {
+            responses.put(patient.getId(), PatientMapper.toDTO(patient));
+        }
+        updates.stream()
+                .filter(update -> !rejected.containsKey(update))
+                .forEach(update -> update.callers.forEach(caller -> caller.complete(responses.get(update.id))));
+
+        // the updates are committed, the callers needn't wait for Kafka
+        for (Patient patient : written) {
+            kafkaProducer.sendEvent(patient, PatientEventType.PATIENT_UPDATED);
+        }
+    }
+
+    // runs in the batch transaction: the same checks as PatientService.updatePatient, but one query each for the batch
+    private List<Patient> apply(Collection<PendingUpdate> updates, Map<PendingUpdate, RuntimeException> rejected) {
+        rejected.clear(); // in case the transaction is retried
+
+        Map<UUID, Patient> patients = new HashMap<>();
+        patientRepository.findAllById(updates.stream().map(update -> update.id).toList())
+                .forEach(patient -> patients.put(patient.getId(), patient));
+
+        Map<String, UUID> emailOwners = new HashMap<>();
+        patientRepository.findAllByEmails(updates.stream().map(update -> update.request.getEmail()).toList())
+                .forEach(patient -> emailOwners.put(patient.email(), patient.id()));
+
+        Set<String> released = new HashSet<>();
+        List<Patient> written = new ArrayList<>();
+        for (PendingUpdate update : updates) {
+            PatientRequestDTO request = update.request;
+            Patient patient = patients.get(update.id);
+            if (patient == null) {
+                rejected.put(update, new PatientNotFoundException("Patient not found with ID: " + update.id));
+                continue;
+            }
+
+            // taken by another patient, in the database or earlier in this batch
+            UUID owner = emailOwners.putIfAbsent(request.getEmail(), update.id);
+            if (owner != null && !owner.equals(update.id)) {
+                rejected.put(update, new EmailAlreadyExistsException("A patient with this email already exists: " +
+                        request.getEmail()));
+                continue;
+            }
+
+            if (released.remove(request.getEmail())) {
+                // the patient that gave this email up earlier in the batch has to be written first
+                patientRepository.flush();
+            }
+            if (!request.getEmail().equals(patient.getEmail())) {
+                // the old email is free for later updates in this batch
+                emailOwners.remove(patient.getEmail(), update.id);
+                released.add(patient.getEmail());
+            }
+
+            patient.setName(request.getName());
+            patient.setAddress(request.getAddress());
+            patient.setEmail(request.getEmail());
+            patient.setDateOfBirth(IsoText.parseDate(request.getDateOfBirth()));
+            written.add(patient);
+        }
+        return patientRepository.saveAll(written);
+    }
+
+    private void fail(PendingUpdate update, RuntimeException e) {
+        update.callers.forEach(caller -> caller.completeExceptionally(e));
+    }
+}
@@ -0,0 +1,93 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.repository.ReactivePatientRepository;
+import com.pm.patientservice.tenant.TenantContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import patient.events.PatientEventType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/*
+Service behind the 'reactive' profile. Reads come straight from R2DBC and are streamed as the database produces
+rows, so a request never holds a thread while it waits. Writes keep using PatientService (JPA is blocking) on the
+bounded elastic scheduler, except for the billing call on create, which uses the non-blocking gRPC stub.
+A request's tenant comes in as a parameter, since the work is spread over several threads.
+ */
+@Service
+@Profile("reactive")
+public class ReactivePatientService {
+    private final ReactivePatientRepository reactivePatientRepository;
+    private final PatientService patientService;
+    private final BillingServiceGrpcClient billingServiceGrpcClient;
+    private final KafkaProducer kafkaProducer;
+    private final BillingAccountBackfill billingAccountBackfill;
+
+    public ReactivePatientService(ReactivePatientRepository reactivePatientRepository,
+                                  PatientService patientService,
+                                  BillingServiceGrpcClient billingServiceGrpcClient,
+                                  KafkaProducer kafkaProducer,
+                                  BillingAccountBackfill billingAccountBackfill) {
+        this.reactivePatientRepository = reactivePatientRepository;
+        this.patientService = patientService;
+        this.billingServiceGrpcClient = billingServiceGrpcClient;
+        this.kafkaProducer = kafkaProducer;
+        this.billingAccountBackfill = billingAccountBackfill;
+    }
+
+    public Flux<PatientResponseDTO> getPatients(String tenant) {
+        return reactivePatientRepository.findByTenantId(tenant).map(PatientMapper::toDTO);
+    }
+
+    public Flux<PatientResponseDTO> getPatientsRegisteredBetween(String tenant, LocalDate start, LocalDate end) {
+        return reactivePatientRepository.findByTenantIdAndRegisteredDateBetween(tenant, start, end)
+                .map(PatientMapper::toDTO);
+    }
+
+    public Mono<PatientResponseDTO> createPatient(String tenant, PatientRequestDTO patientRequestDTO) {
+        return Mono.fromCallable(() -> asTenant(tenant, () -> patientService.savePatient(patientRequestDTO)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(patient -> Mono.fromFuture(() -> billingServiceGrpcClient.createBillingAccountAsync(
+                                patient.getId().toString(), patient.getName(), patient.getEmail()))
+                        .then(Mono.fromRunnable(() -> billingAccountBackfill.remove(patient))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                        // same degraded mode as PatientService: the outbox row stays until billing recovers
+                        .onErrorResume(BillingServiceGrpcClient::isUnavailable,
+                                error -> Mono.fromRunnable(() -> billingAccountBackfill.defer(patient)))
+                        .thenReturn(patient))
+                .publishOn(Schedulers.boundedElastic()) // KafkaTemplate.send can block while it fetches metadata
+                .doOnNext(patient -> kafkaProducer.sendEvent(patient, PatientEventType.PATIENT_CREATED))
+                .map(PatientMapper::toDTO);
+    }
+
+    public Mono<PatientResponseDTO> updatePatient(String tenant, UUID id, PatientRequestDTO patientRequestDTO) {
+        return Mono.fromCallable(() -> asTenant(tenant, () -> patientService.updatePatient(id, patientRequestDTO)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Void> deletePatient(String tenant, UUID id) {
+        return Mono.fromRunnable(() -> asTenant(tenant, () -> {
+                    patientService.deletePatient(id);
+                    return null;
+                }))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    // runs blocking JPA work on the current worker thread as the request's tenant
+    public static <T> T asTenant(String tenant, Supplier<T> work) {
+        try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+            return work.get();
+        }
+    }
+}
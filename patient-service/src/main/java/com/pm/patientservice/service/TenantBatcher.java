@@ -0,0 +1,88 @@
+package com.pm.patientservice.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/*
+The batching of PatientBatchLoader and PatientUpdateCoalescer: entries added within window of the first entry of a
+batch are handed to the dispatcher together, or as soon as the batch reaches maxBatchSize entries. Each tenant
+collects its own batch, since its patients may live on a different shard and the dispatcher works as that tenant.
+The dispatcher is called on the adding thread or the timer thread, so it should hand the batch off to its own executor.
+ */
+final class TenantBatcher<K, V> {
+    private final Duration window;
+    private final int maxBatchSize;
+    private final BiConsumer<String, Map<K, V>> dispatcher;
+    private final ScheduledExecutorService timer;
+
+    private final Map<String, Map<K, V>> pending = new HashMap<>();
+
+    TenantBatcher(String threadName, Duration window, int maxBatchSize, BiConsumer<String, Map<K, V>> dispatcher) {
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.dispatcher = dispatcher;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name(threadName).daemon().factory());
+    }
+
+    // add changes the tenant's open batch (in arrival order) under this batcher's lock, so adds are ordered by it;
+    // once dispatched no more adds reach a batch, so the dispatcher can read it unlocked
+    <R> R add(String tenant, Function<Map<K, V>, R> add) {
+        R result;
+        Map<K, V> full = null;
+
+        synchronized (this) {
+            Map<K, V> batch = pending.get(tenant);
+            boolean opened = batch == null;
+            if (opened) {
+                batch = new LinkedHashMap<>();
+                pending.put(tenant, batch);
+            }
+            result = add.apply(batch);
+
+            if (batch.size() >= maxBatchSize) {
+                full = pending.remove(tenant);
+            } else if (opened) {
+                // the first entry of a new batch opens the window; the map identity tells flush which batch it was
+                Map<K, V> opening = batch;
+                timer.schedule(() -> flush(tenant, opening), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (full != null) {
+            dispatcher.accept(tenant, full);
+        }
+        return result;
+    }
+
+    // dispatches every open batch now, e.g. on shutdown
+    void flushAll() {
+        Map<String, Map<K, V>> remaining;
+        synchronized (this) {
+            remaining = new HashMap<>(pending);
+            pending.clear();
+        }
+        remaining.forEach(dispatcher);
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void flush(String tenant, Map<K, V> batch) {
+        synchronized (this) {
+            if (pending.get(tenant) != batch) {
+                return; // already sent because it filled up
+            }
+            pending.remove(tenant);
+        }
+        dispatcher.accept(tenant, batch);
+    }
+}
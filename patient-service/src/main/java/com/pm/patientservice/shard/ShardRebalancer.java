@@ -0,0 +1,192 @@
+package com.pm.patientservice.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+Moves tenants whose patients are on a shard the ring no longer assigns them to, e.g. after adding a shard or pinning
+a tenant. Start one instance with the new shard layout and patient.sharding.rebalance=plan to log which tenants
+would move and how many rows, or =apply to move them; the instance exits when it is done.
+
+A tenant is moved in batches of patient.sharding.rebalance-batch-size: the batch is copied to the new shard (rows
+already there are skipped), the copy is counted on the new shard, and only then are those rows deleted from the old
+one. Interrupted runs can simply be started again. While a tenant is being moved its requests already go to the new
+shard and only see the rows copied so far, so run it right after changing the layout, while the clinics that move
+are quiet (or keep them pinned to their old shard until then).
+ */
+@Component
+@Profile("!reactive")
+public class ShardRebalancer implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String COUNT_BY_TENANT = "SELECT tenant_id, COUNT(*) FROM patient GROUP BY tenant_id";
+    private static final String SELECT_BATCH = """
+            SELECT id, tenant_id, name, email, address, date_of_birth, registered_date
+            FROM patient
+            WHERE tenant_id = ?
+            ORDER BY id
+            LIMIT ?""";
+    private static final String SELECT_EXISTING_IDS = "SELECT id FROM patient WHERE id = ANY(?)";
+    private static final String INSERT = """
+            INSERT INTO patient (id, tenant_id, name, email, address, date_of_birth, registered_date)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+    private static final String DELETE_BATCH = "DELETE FROM patient WHERE tenant_id = ? AND id = ANY(?)";
+
+    private final ShardRoutingDataSource dataSource;
+    private final ShardingProperties shardingProperties;
+    private final ConfigurableApplicationContext context;
+
+    record Move(String tenant, String from, String to, long rows) {
+    }
+
+    private record Row(UUID id, String tenant, String name, String email, String address, LocalDate dateOfBirth,
+                       LocalDate registeredDate) {
+    }
+
+    public ShardRebalancer(ShardRoutingDataSource dataSource,
+                           ShardingProperties shardingProperties,
+                           ConfigurableApplicationContext context) {
+        this.dataSource = dataSource;
+        this.shardingProperties = shardingProperties;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String mode = shardingProperties.getRebalance();
+        if ("off".equals(mode)) {
+            return;
+        }
+        if (!"plan".equals(mode) && !"apply".equals(mode)) {
+            throw new IllegalStateException("patient.sharding.rebalance must be off, plan or apply, not " + mode);
+        }
+
+        int exitCode = 0;
+        try {
+            List<Move> moves = plan();
+            moves.forEach(move -> log.info("Tenant {} belongs on {}: {} patient(s) on {}",
+                    move.tenant(), move.to(), move.rows(), move.from()));
+            log.info("{} tenant(s) on the wrong shard", moves.size());
+
+            if ("apply".equals(mode)) {
+                for (Move move : moves) {
+                    long moved = apply(move);
+                    log.info("Moved {} patient(s) of tenant {} from {} to {}", moved, move.tenant(), move.from(),
+                            move.to());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Shard rebalance failed: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    // every (tenant, shard) pair whose rows are on a shard other than the one the ring picks
+    List<Move> plan() {
+        List<Move> moves = new ArrayList<>();
+        dataSource.shards().forEach((shard, shardDataSource) -> new JdbcTemplate(shardDataSource).query(
+                COUNT_BY_TENANT, rs -> {
+                    String tenant = rs.getString(1);
+                    String target = dataSource.ring().shardFor(tenant);
+                    if (!target.equals(shard)) {
+                        moves.add(new Move(tenant, shard, target, rs.getLong(2)));
+                    }
+                }));
+        return moves;
+    }
+
+    // returns the number of rows deleted from the old shard
+    long apply(Move move) {
+        JdbcTemplate from = new JdbcTemplate(shard(move.from()));
+        JdbcTemplate to = new JdbcTemplate(shard(move.to()));
+        int batchSize = shardingProperties.getRebalanceBatchSize();
+        long moved = 0;
+
+        List<Row> batch;
+        // the moved rows are deleted from the source, so the first page is always the next batch
+        while (!(batch = readBatch(from, move.tenant(), batchSize)).isEmpty()) {
+            List<UUID> ids = batch.stream().map(Row::id).toList();
+
+            Set<UUID> present = new HashSet<>(existingIds(to, ids));
+            List<Row> missing = batch.stream().filter(row -> !present.contains(row.id())).toList();
+            insert(to, missing);
+
+            int copied = existingIds(to, ids).size();
+            if (copied != ids.size()) {
+                throw new IllegalStateException("Only " + copied + " of " + ids.size() + " patients of tenant "
+                        + move.tenant() + " arrived on " + move.to() + ", nothing was deleted from " + move.from());
+            }
+
+            moved += from.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(DELETE_BATCH);
+                statement.setString(1, move.tenant());
+                statement.setArray(2, connection.createArrayOf("uuid", ids.toArray()));
+                return statement;
+            });
+        }
+        return moved;
+    }
+
+    private DataSource shard(String name) {
+        DataSource shard = dataSource.shards().get(name);
+        if (shard == null) {
+            throw new IllegalStateException("Unknown shard " + name);
+        }
+        return shard;
+    }
+
+    private static List<Row> readBatch(JdbcTemplate jdbcTemplate, String tenant, int batchSize) {
+        return jdbcTemplate.query(SELECT_BATCH, (rs, rowNum) -> new Row(
+                rs.getObject("id", UUID.class),
+                rs.getString("tenant_id"),
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getString("address"),
+                rs.getObject("date_of_birth", LocalDate.class),
+                rs.getObject("registered_date", LocalDate.class)), tenant, batchSize);
+    }
+
+    private static List<UUID> existingIds(JdbcTemplate jdbcTemplate, List<UUID> ids) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_EXISTING_IDS);
+            Array array = connection.createArrayOf("uuid", ids.toArray());
+            statement.setArray(1, array);
+            return statement;
+        }, (rs, rowNum) -> rs.getObject("id", UUID.class));
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (statement, row) -> {
+            statement.setObject(1, row.id());
+            statement.setString(2, row.tenant());
+            statement.setString(3, row.name());
+            statement.setString(4, row.email());
+            statement.setString(5, row.address());
+            statement.setObject(6, row.dateOfBirth());
+            statement.setObject(7, row.registeredDate());
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.pm.patientservice.shard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Consistent hash ring of shards. Each shard owns weight * virtualNodes points on the ring and a tenant belongs to the
+first point at or after the hash of its id, so adding a shard only moves the tenants that now hash to its points
+(about 1/n of them) and leaves every other tenant where it is. Pinned tenants skip the ring.
+ */
+public class ShardRing {
+    private static final int MAX_CACHED_TENANTS = 100_000;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> shards;
+    private final Map<String, String> pinned;
+    // hashing is the expensive part and the routing DataSource asks on every connection
+    private final Map<String, String> placements = new ConcurrentHashMap<>();
+
+    // shard name -> weight
+    public ShardRing(Map<String, Integer> weights, int virtualNodes, Map<String, String> pinned) {
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        weights.forEach((shard, weight) -> {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Shard " + shard + " needs a weight of at least 1");
+            }
+            for (int i = 0; i < weight * virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        });
+        pinned.forEach((tenant, shard) -> {
+            if (!weights.containsKey(shard)) {
+                throw new IllegalArgumentException("Tenant " + tenant + " is pinned to unknown shard " + shard);
+            }
+        });
+
+        this.shards = Collections.unmodifiableSet(new LinkedHashSet<>(weights.keySet()));
+        this.pinned = Map.copyOf(pinned);
+    }
+
+    // the primary shard alone unless sharding is enabled
+    public static ShardRing from(ShardingProperties properties) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        ShardingProperties.Shard primary = properties.getShards().get(properties.getPrimaryShard());
+        weights.put(properties.getPrimaryShard(), primary != null ? primary.getWeight() : 1);
+
+        if (!properties.isEnabled()) {
+            return new ShardRing(weights, 1, Map.of());
+        }
+        properties.getShards().forEach((name, shard) -> weights.put(name, shard.getWeight()));
+        return new ShardRing(weights, properties.getVirtualNodes(), properties.getPinned());
+    }
+
+    public Set<String> shards() {
+        return shards;
+    }
+
+    public String shardFor(String tenant) {
+        String shard = placements.get(tenant);
+        if (shard != null) {
+            return shard;
+        }
+
+        shard = pinned.get(tenant);
+        if (shard == null) {
+            Map.Entry<Long, String> point = ring.ceilingEntry(hash(tenant));
+            shard = (point != null ? point : ring.firstEntry()).getValue(); // wraps around
+        }
+        if (placements.size() < MAX_CACHED_TENANTS) {
+            placements.put(tenant, shard);
+        }
+        return shard;
+    }
+
+    // first 8 bytes of the MD5 digest: evenly spread, and the same on every instance and JVM
+    static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
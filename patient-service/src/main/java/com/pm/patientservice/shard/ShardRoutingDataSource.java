@@ -0,0 +1,58 @@
+package com.pm.patientservice.shard;
+
+import com.pm.patientservice.tenant.TenantContext;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+The DataSource JPA, JdbcTemplate and Flyway see: every connection is taken from the pool of the current tenant's
+shard (ShardRing), so a transaction runs entirely on that shard. With sharding disabled the ring has one shard and
+this only adds a map lookup per connection.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final ShardRing ring;
+    private final Map<String, DataSource> shards;
+
+    public ShardRoutingDataSource(ShardRing ring, Map<String, DataSource> shards) {
+        this.ring = ring;
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        setTargetDataSources(new HashMap<>(shards));
+        setLenientFallback(false); // never fall back to another shard
+        afterPropertiesSet();
+    }
+
+    // every shard of a DataSource: the shards of a routing one, otherwise just itself
+    public static Map<String, DataSource> shardsOf(DataSource dataSource) {
+        return dataSource instanceof ShardRoutingDataSource routing ? routing.shards() : Map.of("default", dataSource);
+    }
+
+    public ShardRing ring() {
+        return ring;
+    }
+
+    // shard name -> its pool, in configuration order
+    public Map<String, DataSource> shards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ring.shardFor(TenantContext.current());
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(shard -> {
+            if (shard instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package com.pm.patientservice.shard;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Where tenants' patients are stored. The database in spring.datasource.* is always the shard named primary-shard;
+with sharding enabled every entry in shards adds another database, and tenants are spread over all of them by a
+consistent hash of the tenant id (ShardRing). pinned places a tenant on a shard explicitly, e.g. a large clinic on a
+database of its own. Each shard has its own connection pool, set up like spring.datasource.hikari.* unless the
+shard overrides the size.
+ */
+@ConfigurationProperties(prefix = "patient.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private String primaryShard = "shard-0";
+
+    // points per unit of weight on the hash ring; more points spread tenants more evenly
+    private int virtualNodes = 160;
+
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    // tenant id -> shard name, overrides the hash ring
+    private Map<String, String> pinned = new LinkedHashMap<>();
+
+    // off, plan (log which tenants are on the wrong shard) or apply (move them), see ShardRebalancer
+    private String rebalance = "off";
+
+    private int rebalanceBatchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPrimaryShard() {
+        return primaryShard;
+    }
+
+    public void setPrimaryShard(String primaryShard) {
+        this.primaryShard = primaryShard;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public Map<String, Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(Map<String, Shard> shards) {
+        this.shards = shards;
+    }
+
+    public Map<String, String> getPinned() {
+        return pinned;
+    }
+
+    public void setPinned(Map<String, String> pinned) {
+        this.pinned = pinned;
+    }
+
+    public String getRebalance() {
+        return rebalance;
+    }
+
+    public void setRebalance(String rebalance) {
+        this.rebalance = rebalance;
+    }
+
+    public int getRebalanceBatchSize() {
+        return rebalanceBatchSize;
+    }
+
+    public void setRebalanceBatchSize(int rebalanceBatchSize) {
+        this.rebalanceBatchSize = rebalanceBatchSize;
+    }
+
+    public static class Shard {
+        private String url; // left out for the primary shard, which uses spring.datasource.*
+        private String username;
+        private String password;
+        private int weight = 1; // share of the hash ring, relative to the other shards
+        private Integer maximumPoolSize;
+        private Integer minimumIdle;
+        private Duration connectionTimeout;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public Integer getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(Integer maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Integer getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(Integer minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+    }
+}
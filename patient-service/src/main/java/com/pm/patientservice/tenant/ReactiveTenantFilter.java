@@ -0,0 +1,37 @@
+package com.pm.patientservice.tenant;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// same as TenantFilter for the 'reactive' profile. A request hops between threads, so the tenant is kept as an
+// exchange attribute and ReactivePatientController hands it to the code it runs
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveTenantFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith("/patients")) {
+            return chain.filter(exchange);
+        }
+
+        String tenant = exchange.getRequest().getHeaders().getFirst(TenantContext.HEADER);
+        if (tenant == null) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        } else if (!TenantContext.isValid(tenant)) {
+            exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
+            return exchange.getResponse().setComplete();
+        }
+
+        exchange.getAttributes().put(TenantContext.ATTRIBUTE, tenant);
+        return chain.filter(exchange);
+    }
+}
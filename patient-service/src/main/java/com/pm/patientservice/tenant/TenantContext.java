@@ -0,0 +1,52 @@
+package com.pm.patientservice.tenant;
+
+import java.util.regex.Pattern;
+
+/*
+The tenant (clinic) the current thread works for. It is set per request by TenantFilter, ReactiveTenantFilter and
+TenantGrpcInterceptor, and read by Hibernate (@TenantId on Patient), the JDBC queries and the shard routing
+DataSource, so it has to be in place before a transaction starts. Work handed to another thread (streamed
+responses, batched lookups, exports) takes the tenant along and opens its own scope with use(tenant).
+ */
+public final class TenantContext {
+    public static final String DEFAULT_TENANT = "default"; // rows and tokens from before tenants existed
+    public static final String HEADER = "X-Tenant-Id"; // set by the api-gateway from the token's tenant claim
+    public static final String ATTRIBUTE = "com.pm.patientservice.tenant"; // request/exchange attribute
+    public static final String CLAIM = "tenant";
+
+    private static final Pattern VALID_TENANT = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0,63}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    // a Scope that doesn't throw, so it fits try-with-resources without a catch
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    // makes tenant current until the scope is closed, then restores whatever was current before
+    public static Scope use(String tenant) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    // tenant ids end up in shard routing, metrics and file names, so only a small alphabet is accepted
+    public static boolean isValid(String tenant) {
+        return tenant != null && VALID_TENANT.matcher(tenant).matches();
+    }
+}
@@ -0,0 +1,43 @@
+package com.pm.patientservice.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// /patients on Spring MVC: the request runs as the tenant in X-Tenant-Id (the default tenant without one); runs
+// before JwtAuthenticationFilter, which replaces it with the token's claim when this service verifies tokens itself
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TenantFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/patients");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = request.getHeader(TenantContext.HEADER);
+        if (tenant == null) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        } else if (!TenantContext.isValid(tenant)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + TenantContext.HEADER);
+            return;
+        }
+
+        request.setAttribute(TenantContext.ATTRIBUTE, tenant);
+        try (TenantContext.Scope scope = TenantContext.use(tenant)) {
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.pm.patientservice.tenant;
+
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+// gRPC calls run as the tenant in the x-tenant-id metadata (the default tenant without one). gRPC may call a
+// listener from different threads, so every callback opens its own scope
+@GrpcGlobalServerInterceptor
+public class TenantGrpcInterceptor implements ServerInterceptor {
+    static final Metadata.Key<String> TENANT = Metadata.Key.of("x-tenant-id", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String tenant = headers.get(TENANT);
+        if (tenant == null) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        } else if (!TenantContext.isValid(tenant)) {
+            call.close(Status.INVALID_ARGUMENT.withDescription("Invalid x-tenant-id"), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+
+        String callTenant = tenant;
+        ServerCall.Listener<ReqT> listener;
+        try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+            listener = next.startCall(call, headers);
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onMessage(ReqT message) {
+                try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+                    super.onMessage(message);
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+                    super.onHalfClose(); // unary and server streaming methods run here
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+                    super.onCancel();
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+                    super.onComplete();
+                }
+            }
+
+            @Override
+            public void onReady() {
+                try (TenantContext.Scope scope = TenantContext.use(callTenant)) {
+                    super.onReady();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package com.pm.patientservice.tenant;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// tells Hibernate the current tenant: it fills Patient.tenantId on insert and adds tenant_id = ? to every query
+@Component
+public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver<String>,
+        HibernatePropertiesCustomizer {
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return TenantContext.current();
+    }
+
+    // a session stays with the tenant it was opened for (open-in-view opens it after TenantFilter has run)
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, this);
+    }
+}
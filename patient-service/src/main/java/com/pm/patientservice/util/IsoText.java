@@ -0,0 +1,99 @@
+package com.pm.patientservice.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+ISO-8601 dates (yyyy-MM-dd) and UUIDs written into and read from caller-owned buffers. LocalDate.parse and
+LocalDate.toString go through DateTimeFormatter / StringBuilder and allocate a few hundred bytes per call, which
+adds up when every row of a large patient list is formatted. Anything outside the plain yyyy-MM-dd shape (years
+before 0 or after 9999, bad input) falls back to the JDK so callers still get its exceptions and output.
+ */
+public final class IsoText {
+    public static final int UUID_LENGTH = 36;
+    public static final int DATE_LENGTH = 10;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private IsoText() {
+    }
+
+    // same result as LocalDate.parse(text)
+    public static LocalDate parseDate(String text) {
+        if (text != null && text.length() == DATE_LENGTH && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 7);
+            int day = digits(text, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    // e.g. 2024-02-30: let LocalDate.parse report it with its usual DateTimeParseException
+                }
+            }
+        }
+        return LocalDate.parse(text);
+    }
+
+    // writes the same characters as date.toString(); returns the number written
+    public static int writeDate(LocalDate date, char[] buffer, int offset) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            String text = date.toString();
+            text.getChars(0, text.length(), buffer, offset);
+            return text.length();
+        }
+
+        writeDigits(year, 4, buffer, offset);
+        buffer[offset + 4] = '-';
+        writeDigits(date.getMonthValue(), 2, buffer, offset + 5);
+        buffer[offset + 7] = '-';
+        writeDigits(date.getDayOfMonth(), 2, buffer, offset + 8);
+        return DATE_LENGTH;
+    }
+
+    // writes the same 36 characters as uuid.toString()
+    public static int writeUuid(UUID uuid, char[] buffer, int offset) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        writeHex(msb >>> 32, 8, buffer, offset);
+        buffer[offset + 8] = '-';
+        writeHex(msb >>> 16, 4, buffer, offset + 9);
+        buffer[offset + 13] = '-';
+        writeHex(msb, 4, buffer, offset + 14);
+        buffer[offset + 18] = '-';
+        writeHex(lsb >>> 48, 4, buffer, offset + 19);
+        buffer[offset + 23] = '-';
+        writeHex(lsb, 12, buffer, offset + 24);
+        return UUID_LENGTH;
+    }
+
+    // -1 unless every character in [from, to) is an ASCII digit
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void writeDigits(int value, int width, char[] buffer, int offset) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void writeHex(long value, int width, char[] buffer, int offset) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
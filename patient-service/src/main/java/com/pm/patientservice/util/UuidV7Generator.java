@@ -0,0 +1,50 @@
+package com.pm.patientservice.util;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.uuid.UuidValueGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+Generates time ordered version 7 UUIDs (RFC 9562): a 48-bit unix millisecond timestamp, a 12-bit counter and
+62 random bits. Ids created one after another sort one after another, so inserts append to the end of the
+primary key index instead of splitting random pages all over it like random (v4) UUIDs do.
+ */
+public class UuidV7Generator implements UuidValueGenerator {
+    private static final Object lock = new Object();
+    private static long lastMillis;
+    private static int sequence; // 12-bit counter keeps ids monotonic within the same millisecond
+
+    // used by Hibernate via @UuidGenerator(algorithm = UuidV7Generator.class)
+    @Override
+    public UUID generateUuid(SharedSessionContractImplementor session) {
+        return next();
+    }
+
+    public static UUID next() {
+        long millis;
+        int seq;
+
+        synchronized (lock) {
+            millis = Math.max(System.currentTimeMillis(), lastMillis);
+
+            if (millis == lastMillis) {
+                sequence = (sequence + 1) & 0xFFF;
+                if (sequence == 0) {
+                    millis++; // counter overflowed, borrow the next millisecond
+                }
+            } else {
+                sequence = ThreadLocalRandom.current().nextInt(0x400); // random start leaves room to count up
+            }
+
+            lastMillis = millis;
+            seq = sequence;
+        }
+
+        long mostSigBits = (millis << 16) | 0x7000L | seq; // timestamp | version 7 | counter
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // variant
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
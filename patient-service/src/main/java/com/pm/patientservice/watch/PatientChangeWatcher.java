@@ -0,0 +1,317 @@
+package com.pm.patientservice.watch;
+
+import com.pm.patientevents.PatientEventDeserializer;
+import com.pm.patientevents.PatientEventView;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.tenant.TenantContext;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetOutOfRangeException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+import patient.Patient;
+import patient.PatientChange;
+import patient.PatientChangeType;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+Feeds gRPC WatchPatients from the patient topic, the stream every change already goes through (KafkaProducer sends
+each write there in application mode, PatientCdcReader each committed row in cdc mode). Reading the topic rather than
+this instance's own writes means a watcher sees the changes made on every instance, and its resume token (the
+topic's offsets) works on any instance and across restarts.
+
+Each stream has its own consumer, assigned every partition without a consumer group and positioned at the token (or
+at the end), running on a virtual thread. It only polls while the client keeps up (gRPC flow control), so a slow
+client holds back its own consumer instead of buffering changes in memory. Changes of other tenants are skipped,
+and a checkpoint carrying the newer token is sent every patient.watch.checkpoint-interval while they go by. Events
+without a tenant were written before tenants existed and belong to the default tenant (in cdc mode deletes carry the
+tenant too, it is part of the patient table's replica identity).
+At most patient.watch.max-streams streams run at once, further ones fail with RESOURCE_EXHAUSTED.
+ */
+@Component
+public class PatientChangeWatcher {
+    private static final Logger log = LoggerFactory.getLogger(PatientChangeWatcher.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration METADATA_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Supplier<Consumer<byte[], PatientEventView>> consumerFactory;
+    private final Duration checkpointInterval;
+    private final Semaphore streams;
+    private final Set<Stream> running = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger streamIds = new AtomicInteger();
+
+    @Autowired
+    public PatientChangeWatcher(KafkaProperties kafkaProperties,
+                                MeterRegistry meterRegistry,
+                                @Value("${patient.watch.max-streams:64}") int maxStreams,
+                                @Value("${patient.watch.checkpoint-interval:PT5S}") Duration checkpointInterval) {
+        this(() -> newConsumer(kafkaProperties), meterRegistry, maxStreams, checkpointInterval);
+    }
+
+    PatientChangeWatcher(Supplier<Consumer<byte[], PatientEventView>> consumerFactory,
+                         MeterRegistry meterRegistry,
+                         int maxStreams,
+                         Duration checkpointInterval) {
+        this.consumerFactory = consumerFactory;
+        this.checkpointInterval = checkpointInterval;
+        this.streams = new Semaphore(maxStreams);
+        Gauge.builder("patient.watch.streams", running, Set::size)
+                .description("Open WatchPatients streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running.forEach(Stream::stop);
+    }
+
+    // the end of the patient topic right now: changes published from here on come after this token
+    public String currentToken() {
+        try (Consumer<byte[], PatientEventView> consumer = consumerFactory.get()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<Integer, Long> offsets = new HashMap<>();
+            consumer.endOffsets(partitions, METADATA_TIMEOUT)
+                    .forEach((partition, offset) -> offsets.put(partition.partition(), offset));
+            return new ResumeToken(offsets).encode();
+        }
+    }
+
+    // streams the current tenant's changes after resumeToken (from now when empty) until the client cancels
+    public void watch(String resumeToken, ServerCallStreamObserver<PatientChange> observer) {
+        ResumeToken from;
+        try {
+            from = resumeToken.isEmpty() ? null : ResumeToken.decode(resumeToken);
+        } catch (IllegalArgumentException e) {
+            observer.onError(Status.INVALID_ARGUMENT.withDescription("Invalid resumeToken").asRuntimeException());
+            return;
+        }
+        if (!streams.tryAcquire()) {
+            observer.onError(Status.RESOURCE_EXHAUSTED.withDescription("Too many WatchPatients streams")
+                    .asRuntimeException());
+            return;
+        }
+
+        Stream stream = new Stream(TenantContext.current(), from, observer);
+        // handlers have to be set before the service method returns
+        observer.setOnReadyHandler(stream::signal);
+        observer.setOnCancelHandler(stream::stop);
+        running.add(stream);
+        Thread.ofVirtual().name("patient-watch-" + streamIds.incrementAndGet()).start(() -> {
+            try {
+                stream.run();
+            } finally {
+                running.remove(stream);
+                streams.release();
+            }
+        });
+    }
+
+    private static List<TopicPartition> partitions(Consumer<byte[], PatientEventView> consumer) {
+        List<PartitionInfo> partitions = consumer.partitionsFor(KafkaProducer.PATIENT_TOPIC, METADATA_TIMEOUT);
+        if (partitions == null || partitions.isEmpty()) {
+            throw new IllegalStateException("Topic " + KafkaProducer.PATIENT_TOPIC + " not found");
+        }
+        return partitions.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList();
+    }
+
+    // no group: every stream reads all partitions itself and never commits offsets, the client keeps its position
+    private static Consumer<byte[], PatientEventView> newConsumer(KafkaProperties kafkaProperties) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties(null);
+        properties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PatientEventDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "none"); // an expired token fails, see Stream.run
+        return new KafkaConsumer<>(properties);
+    }
+
+    private final class Stream {
+        private final String tenant;
+        private final ResumeToken from;
+        private final ServerCallStreamObserver<PatientChange> observer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition ready = lock.newCondition();
+        private final Map<Integer, Long> position = new HashMap<>();
+        private volatile boolean stopped;
+        private volatile Consumer<byte[], PatientEventView> consumer;
+
+        private Stream(String tenant, ResumeToken from, ServerCallStreamObserver<PatientChange> observer) {
+            this.tenant = tenant;
+            this.from = from;
+            this.observer = observer;
+        }
+
+        private void run() {
+            try (Consumer<byte[], PatientEventView> consumer = consumerFactory.get()) {
+                this.consumer = consumer;
+                if (stopped) {
+                    return;
+                }
+                seek(consumer);
+                // the first message tells the client where the stream starts, even if nothing changes for a while
+                long lastSent = send(checkpoint());
+
+                while (!stopped) {
+                    boolean advanced = false;
+                    for (ConsumerRecord<byte[], PatientEventView> record : consumer.poll(POLL_TIMEOUT)) {
+                        position.put(record.partition(), record.offset() + 1);
+                        advanced = true;
+                        PatientChange change;
+                        try {
+                            change = toChange(record.value());
+                        } catch (RuntimeException e) {
+                            log.warn("Skipping undecodable event at {}-{}@{}: {}", record.topic(), record.partition(),
+                                    record.offset(), e.getMessage());
+                            continue;
+                        }
+                        if (change != null) {
+                            lastSent = send(change);
+                        }
+                    }
+                    if (advanced && System.nanoTime() - lastSent >= checkpointInterval.toNanos()) {
+                        lastSent = send(checkpoint());
+                    }
+                }
+            } catch (WakeupException | InterruptedException e) {
+                // stopped: cancelled by the client, or the server is shutting down
+            } catch (OffsetOutOfRangeException e) {
+                fail(Status.OUT_OF_RANGE.withDescription("resumeToken is older than the patient topic's retention, "
+                        + "call ListPatients and watch from its token"));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("WatchPatients stream failed: {}", e.getMessage());
+                fail(Status.UNAVAILABLE.withDescription("Patient changes are unavailable: " + e.getMessage()));
+                return;
+            }
+
+            if (!observer.isCancelled()) {
+                fail(Status.UNAVAILABLE.withDescription("Server is shutting down, resume on another instance"));
+            }
+        }
+
+        private void seek(Consumer<byte[], PatientEventView> consumer) {
+            List<TopicPartition> partitions = partitions(consumer);
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> end = from == null ? consumer.endOffsets(partitions, METADATA_TIMEOUT) : Map.of();
+            for (TopicPartition partition : partitions) {
+                // a partition the token doesn't know was added after it was taken, so all of it is new
+                Long offset = from == null ? end.get(partition) : from.offsets().get(partition.partition());
+                if (offset == null) {
+                    consumer.seekToBeginning(List.of(partition));
+                    offset = consumer.position(partition, METADATA_TIMEOUT);
+                } else {
+                    consumer.seek(partition, offset);
+                }
+                position.put(partition.partition(), offset);
+            }
+        }
+
+        // null for other tenants' changes
+        private PatientChange toChange(PatientEventView event) {
+            if (event == null) {
+                return null;
+            }
+            PatientChangeType type = switch (event.type()) {
+                case PATIENT_CREATED -> PatientChangeType.PATIENT_CHANGE_CREATED;
+                case PATIENT_UPDATED -> PatientChangeType.PATIENT_CHANGE_UPDATED;
+                case PATIENT_DELETED -> PatientChangeType.PATIENT_CHANGE_DELETED;
+                default -> null;
+            };
+            String eventTenant = event.tenantId();
+            boolean visible = eventTenant.isEmpty()
+                    ? tenant.equals(TenantContext.DEFAULT_TENANT)
+                    : eventTenant.equals(tenant);
+            if (type == null || !visible) {
+                return null;
+            }
+
+            return PatientChange.newBuilder()
+                    .setType(type)
+                    .setPatient(Patient.newBuilder()
+                            .setId(event.patientId())
+                            .setName(event.name())
+                            .setEmail(event.email())
+                            .setAddress(event.address())
+                            .setDateOfBirth(event.dateOfBirth())
+                            .build())
+                    .setOccurredAt(event.occurredAt() != null ? event.occurredAt().toString() : "")
+                    .setResumeToken(new ResumeToken(position).encode())
+                    .build();
+        }
+
+        private PatientChange checkpoint() {
+            return PatientChange.newBuilder()
+                    .setType(PatientChangeType.PATIENT_CHANGE_CHECKPOINT)
+                    .setResumeToken(new ResumeToken(position).encode())
+                    .build();
+        }
+
+        // waits until the client can take another message; returns when it was sent
+        private long send(PatientChange change) throws InterruptedException {
+            lock.lock();
+            try {
+                while (!observer.isReady()) {
+                    if (stopped) {
+                        throw new InterruptedException();
+                    }
+                    ready.await(1, TimeUnit.SECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+            observer.onNext(change);
+            return System.nanoTime();
+        }
+
+        private void fail(Status status) {
+            if (!observer.isCancelled()) {
+                observer.onError(status.asRuntimeException());
+            }
+        }
+
+        private void signal() {
+            lock.lock();
+            try {
+                ready.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            Consumer<byte[], PatientEventView> current = consumer;
+            if (current != null) {
+                current.wakeup();
+            }
+            signal();
+        }
+    }
+}
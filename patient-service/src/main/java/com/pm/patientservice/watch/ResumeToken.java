@@ -0,0 +1,45 @@
+package com.pm.patientservice.watch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+// where a WatchPatients stream is in the patient topic: the next offset to read per partition, sent to clients as an
+// opaque base64url string. Offsets are the topic's own, so a token stays valid on every instance and across restarts
+// for as long as the topic retains the records
+public record ResumeToken(Map<Integer, Long> offsets) {
+
+    public ResumeToken {
+        offsets = Map.copyOf(offsets);
+    }
+
+    public String encode() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(offsets).forEach((partition, offset) -> {
+            if (!text.isEmpty()) {
+                text.append(',');
+            }
+            text.append(partition).append(':').append(offset);
+        });
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // throws IllegalArgumentException for anything encode didn't produce
+    public static ResumeToken decode(String token) {
+        String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        Map<Integer, Long> offsets = new TreeMap<>();
+        for (String entry : text.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed resume token");
+            }
+            int partition = Integer.parseInt(parts[0]);
+            long offset = Long.parseLong(parts[1]);
+            if (partition < 0 || offset < 0 || offsets.put(partition, offset) != null) {
+                throw new IllegalArgumentException("Malformed resume token");
+            }
+        }
+        return new ResumeToken(offsets);
+    }
+}
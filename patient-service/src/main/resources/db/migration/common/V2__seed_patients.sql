@@ -1,13 +1,4 @@
--- Ensure the 'patient' table exists
-CREATE TABLE IF NOT EXISTS patient
-(
-    id              UUID PRIMARY KEY,
-    name            VARCHAR(255)        NOT NULL,
-    email           VARCHAR(255) UNIQUE NOT NULL,
-    address         VARCHAR(255)        NOT NULL,
-    date_of_birth   DATE                NOT NULL,
-    registered_date DATE                NOT NULL
-);
+-- Seed data for local development; the table itself is created by the vendor specific V1 migration
 
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
@@ -0,0 +1,13 @@
+-- Idempotency-Key of POST /patients (idempotency/IdempotencyKeyStore): the row is claimed while the first request
+-- runs and keeps its response afterwards, until expires_at
+CREATE TABLE patient_idempotency_key
+(
+    tenant_id       VARCHAR(64)  NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response        TEXT,
+    expires_at      TIMESTAMP    NOT NULL,
+    PRIMARY KEY (tenant_id, idempotency_key)
+);
+
+CREATE INDEX idx_patient_idempotency_key_expires_at ON patient_idempotency_key (expires_at);
@@ -0,0 +1,2 @@
+-- keyset paging of a tenant's patients in id order (gRPC ListPatients)
+CREATE INDEX idx_patient_tenant_id ON patient (tenant_id, id);
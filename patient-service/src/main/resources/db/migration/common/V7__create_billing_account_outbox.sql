@@ -0,0 +1,12 @@
+-- billing accounts a created patient still needs (service/BillingAccountBackfill): written in the patient's insert
+-- transaction, deleted once billing-service has the account
+CREATE TABLE billing_account_outbox
+(
+    patient_id UUID         PRIMARY KEY,
+    tenant_id  VARCHAR(64)  NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX idx_billing_account_outbox_created_at ON billing_account_outbox (created_at);
@@ -0,0 +1,17 @@
+-- background patient exports (export/PatientExportService): any instance can answer a job's progress and download,
+-- whichever one runs it; the file itself is on the shared patient.export.dir
+CREATE TABLE patient_export_job
+(
+    id          UUID         PRIMARY KEY,
+    tenant_id   VARCHAR(64)  NOT NULL,
+    since       DATE,
+    file        VARCHAR(512) NOT NULL,
+    status      VARCHAR(16)  NOT NULL,
+    row_count   BIGINT       NOT NULL,
+    watermark   DATE,
+    error       TEXT,
+    created_at  TIMESTAMP    NOT NULL,
+    finished_at TIMESTAMP
+);
+
+CREATE INDEX idx_patient_export_job_created_at ON patient_export_job (created_at);
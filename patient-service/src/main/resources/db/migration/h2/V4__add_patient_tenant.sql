@@ -0,0 +1,22 @@
+-- Patients belong to a tenant (clinic) and emails are unique per tenant. H2 can't drop the unnamed unique
+-- constraint V1 put on email, so the table is rebuilt; existing rows belong to the default tenant
+CREATE TABLE patient_by_tenant
+(
+    id              UUID PRIMARY KEY,
+    tenant_id       VARCHAR(64) DEFAULT 'default' NOT NULL,
+    name            VARCHAR(255)                  NOT NULL,
+    email           VARCHAR(255)                  NOT NULL,
+    address         VARCHAR(255)                  NOT NULL,
+    date_of_birth   DATE                          NOT NULL,
+    registered_date DATE                          NOT NULL,
+    CONSTRAINT uk_patient_tenant_email UNIQUE (tenant_id, email)
+);
+
+INSERT INTO patient_by_tenant (id, name, email, address, date_of_birth, registered_date)
+SELECT id, name, email, address, date_of_birth, registered_date
+FROM patient;
+
+DROP TABLE patient;
+ALTER TABLE patient_by_tenant RENAME TO patient;
+
+CREATE INDEX idx_patient_tenant_registered_date ON patient (tenant_id, registered_date);
@@ -0,0 +1,104 @@
+-- Patients are range partitioned by month of registered_date so that date filtered queries only scan the
+-- partitions they need and each partition's indexes stay small. Ids are UUIDv7 (time ordered, generated by
+-- the application) so inserts append to the right-hand side of the primary key index.
+
+-- Databases created before partitioning have a plain 'patient' table (relkind 'r'); move it out of the way
+-- and copy its rows into the partitioned table at the end of this script
+DO
+$$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('patient') AND relkind = 'r') THEN
+        ALTER TABLE patient RENAME TO patient_legacy;
+        ALTER INDEX IF EXISTS patient_pkey RENAME TO patient_legacy_pkey;
+    END IF;
+END
+$$;
+
+-- the partition key has to be part of every unique constraint on a partitioned table
+CREATE TABLE patient
+(
+    id              UUID         NOT NULL,
+    name            VARCHAR(255) NOT NULL,
+    email           VARCHAR(255) NOT NULL,
+    address         VARCHAR(255) NOT NULL,
+    date_of_birth   DATE         NOT NULL,
+    registered_date DATE         NOT NULL,
+    PRIMARY KEY (id, registered_date)
+) PARTITION BY RANGE (registered_date);
+
+-- catches rows outside the pre-created monthly partitions (e.g. historic registrations)
+CREATE TABLE patient_default PARTITION OF patient DEFAULT;
+
+CREATE INDEX idx_patient_email ON patient (email);
+
+-- Email uniqueness across all partitions can't be expressed as a unique index on the partitioned table,
+-- so it is enforced through a small lookup table kept in sync by a trigger
+CREATE TABLE patient_email
+(
+    email      VARCHAR(255) PRIMARY KEY,
+    patient_id UUID NOT NULL
+);
+
+CREATE FUNCTION sync_patient_email() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM patient_email WHERE email = OLD.email AND patient_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO patient_email (email, patient_id) VALUES (NEW.email, NEW.id); -- raises unique_violation on dupes
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER patient_email_sync
+    AFTER INSERT OR DELETE OR UPDATE OF email ON patient
+    FOR EACH ROW
+EXECUTE FUNCTION sync_patient_email();
+
+-- Creates the monthly partitions from the current month up to months_ahead months in the future.
+-- Called by the application on a schedule (PatientPartitionMaintenance) so partitions exist before rows arrive.
+CREATE FUNCTION create_patient_partitions(months_ahead INT) RETURNS INT AS
+$$
+DECLARE
+    month_start    DATE := date_trunc('month', CURRENT_DATE)::DATE;
+    partition_name TEXT;
+    created        INT  := 0;
+BEGIN
+    FOR i IN 0..months_ahead
+        LOOP
+            partition_name := format('patient_%s', to_char(month_start, 'YYYY_MM'));
+
+            IF to_regclass(partition_name) IS NULL THEN
+                BEGIN
+                    EXECUTE format('CREATE TABLE %I PARTITION OF patient FOR VALUES FROM (%L) TO (%L)',
+                                   partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+                    created := created + 1;
+                EXCEPTION
+                    -- e.g. rows for this month already landed in the default partition
+                    WHEN others THEN RAISE WARNING 'Could not create partition %: %', partition_name, SQLERRM;
+                END;
+            END IF;
+
+            month_start := (month_start + INTERVAL '1 month')::DATE;
+        END LOOP;
+
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_patient_partitions(3);
+
+DO
+$$
+BEGIN
+    IF to_regclass('patient_legacy') IS NOT NULL THEN
+        INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
+        SELECT id, name, email, address, date_of_birth, registered_date
+        FROM patient_legacy;
+
+        DROP TABLE patient_legacy;
+    END IF;
+END
+$$;
@@ -0,0 +1,11 @@
+-- Publication read by the optional CDC mode (patient.events.mode=cdc). Changes to any partition are published
+-- as changes to 'patient', so the stream doesn't depend on which monthly partitions exist.
+-- Deletes only carry the primary key (id, registered_date), the table keeps its default replica identity.
+DO
+$$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_publication WHERE pubname = 'patient_publication') THEN
+        CREATE PUBLICATION patient_publication FOR TABLE patient WITH (publish_via_partition_root = true);
+    END IF;
+END
+$$;
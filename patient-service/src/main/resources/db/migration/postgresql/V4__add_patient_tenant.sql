@@ -0,0 +1,33 @@
+-- Patients belong to a tenant (clinic); existing rows belong to the default tenant. A column with a constant
+-- default is added without rewriting the partitions.
+ALTER TABLE patient ADD COLUMN tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
+
+-- every query filters on the tenant, lists also on the partition key
+DROP INDEX idx_patient_email;
+CREATE INDEX idx_patient_tenant_email ON patient (tenant_id, email);
+CREATE INDEX idx_patient_tenant_registered_date ON patient (tenant_id, registered_date);
+
+-- emails are unique per tenant: two clinics may register the same person
+ALTER TABLE patient_email ADD COLUMN tenant_id VARCHAR(64) DEFAULT 'default' NOT NULL;
+ALTER TABLE patient_email DROP CONSTRAINT patient_email_pkey;
+ALTER TABLE patient_email ADD PRIMARY KEY (tenant_id, email);
+
+CREATE OR REPLACE FUNCTION sync_patient_email() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM patient_email WHERE tenant_id = OLD.tenant_id AND email = OLD.email AND patient_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        -- raises unique_violation on dupes
+        INSERT INTO patient_email (tenant_id, email, patient_id) VALUES (NEW.tenant_id, NEW.email, NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER patient_email_sync ON patient;
+CREATE TRIGGER patient_email_sync
+    AFTER INSERT OR DELETE OR UPDATE OF email, tenant_id ON patient
+    FOR EACH ROW
+EXECUTE FUNCTION sync_patient_email();
@@ -0,0 +1,57 @@
+-- Deletes decoded by the CDC reader (patient.events.mode=cdc) carry the replica identity columns. With the default
+-- identity (the primary key) that's only id and registered_date, so the watch stream couldn't tell whose patient was
+-- deleted. Every partition now uses a unique index that also holds tenant_id as its replica identity; the index is
+-- never used by queries and none of its columns change, so updates still write no old key to the WAL.
+CREATE UNIQUE INDEX patient_replica_identity ON patient (id, registered_date, tenant_id);
+
+-- replica identity is set per partition (changes are logged by the partition), on its part of the index above
+CREATE FUNCTION use_patient_replica_identity(partition REGCLASS) RETURNS VOID AS
+$$
+DECLARE
+    index_name TEXT;
+BEGIN
+    SELECT i.indexrelid::REGCLASS::TEXT
+    INTO index_name
+    FROM pg_index i
+             JOIN pg_inherits h ON h.inhrelid = i.indexrelid
+    WHERE i.indrelid = partition
+      AND h.inhparent = 'patient_replica_identity'::REGCLASS;
+
+    EXECUTE format('ALTER TABLE %s REPLICA IDENTITY USING INDEX %s', partition, index_name);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT use_patient_replica_identity(inhrelid::REGCLASS)
+FROM pg_inherits
+WHERE inhparent = 'patient'::REGCLASS;
+
+-- as in V1, plus the replica identity of each new partition
+CREATE OR REPLACE FUNCTION create_patient_partitions(months_ahead INT) RETURNS INT AS
+$$
+DECLARE
+    month_start    DATE := date_trunc('month', CURRENT_DATE)::DATE;
+    partition_name TEXT;
+    created        INT  := 0;
+BEGIN
+    FOR i IN 0..months_ahead
+        LOOP
+            partition_name := format('patient_%s', to_char(month_start, 'YYYY_MM'));
+
+            IF to_regclass(partition_name) IS NULL THEN
+                BEGIN
+                    EXECUTE format('CREATE TABLE %I PARTITION OF patient FOR VALUES FROM (%L) TO (%L)',
+                                   partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+                    PERFORM use_patient_replica_identity(to_regclass(partition_name));
+                    created := created + 1;
+                EXCEPTION
+                    -- e.g. rows for this month already landed in the default partition
+                    WHEN others THEN RAISE WARNING 'Could not create partition %: %', partition_name, SQLERRM;
+                END;
+            END IF;
+
+            month_start := (month_start + INTERVAL '1 month')::DATE;
+        END LOOP;
+
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
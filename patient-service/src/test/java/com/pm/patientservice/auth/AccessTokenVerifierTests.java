@@ -0,0 +1,86 @@
+package com.pm.patientservice.auth;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccessTokenVerifierTests {
+    private final KeyPair oldKey = Jwts.SIG.ES256.keyPair().build();
+    private final KeyPair newKey = Jwts.SIG.ES256.keyPair().build();
+
+    @Test
+    void verifiesTokensWithKeysFromTheJwksAndFetchesUnknownKidsOnDemand() {
+        AtomicReference<String> jwks = new AtomicReference<>(jwks(Map.of("old", oldKey)));
+        AtomicInteger fetches = new AtomicInteger();
+        JwksKeyCache cache = new JwksKeyCache(() -> {
+            fetches.incrementAndGet();
+            return jwks.get();
+        }, Duration.ZERO);
+        cache.refresh();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(cache);
+
+        assertEquals("testuser@test.com", verifier.verify(token("old", oldKey)).getSubject());
+
+        // auth-service rotated to a key published after our last refresh
+        jwks.set(jwks(Map.of("old", oldKey, "new", newKey)));
+        String rotated = token("new", newKey);
+        assertThrows(AccessTokenVerifier.UnknownSigningKeyException.class, () -> verifier.verify(rotated));
+        assertEquals("testuser@test.com", verifier.refreshAndVerify(rotated).getSubject());
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void rejectsForgedExpiredAndNonEs256Tokens() {
+        JwksKeyCache cache = new JwksKeyCache(() -> jwks(Map.of("old", oldKey)), Duration.ZERO);
+        cache.refresh();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(cache);
+
+        // signed with a key that isn't the one its kid names
+        assertThrows(JwtException.class, () -> verifier.refreshAndVerify(token("old", newKey)));
+
+        String expired = Jwts.builder().header().keyId("old").and()
+                .subject("testuser@test.com")
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(oldKey.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+        assertThrows(JwtException.class, () -> verifier.refreshAndVerify(expired));
+
+        String hmac = Jwts.builder().header().keyId("old").and()
+                .subject("testuser@test.com")
+                .signWith(Keys.hmacShaKeyFor(new byte[32]), Jwts.SIG.HS256)
+                .compact();
+        assertThrows(JwtException.class, () -> verifier.refreshAndVerify(hmac));
+    }
+
+    private static String token(String kid, KeyPair key) {
+        return Jwts.builder().header().keyId(kid).and()
+                .subject("testuser@test.com")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(key.getPrivate(), Jwts.SIG.ES256)
+                .compact();
+    }
+
+    private static String jwks(Map<String, KeyPair> keys) {
+        List<String> jwks = keys.entrySet().stream()
+                .map(entry -> Jwks.json(Jwks.builder()
+                        .key((ECPublicKey) entry.getValue().getPublic())
+                        .id(entry.getKey())
+                        .build()))
+                .toList();
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+}
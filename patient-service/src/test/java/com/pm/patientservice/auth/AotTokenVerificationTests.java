@@ -0,0 +1,129 @@
+package com.pm.patientservice.auth;
+
+import com.pm.patientservice.PatientServiceApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplicationAotProcessor;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// the fast-start image: bean definitions generated the way process-aot makes them for the jar (without
+// auth.jwks.url), then the app started with -Dspring.aot.enabled=true and the url set must still demand tokens
+class AotTokenVerificationTests {
+    private static final String CLASSPATH =
+            System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+
+    @TempDir
+    Path aot;
+
+    @Test
+    void aotBuildVerifiesTokensWhenJwksUrlIsSetAtStartup() throws Exception {
+        Path sources = aot.resolve("sources");
+        Path resources = aot.resolve("resources");
+        Path classes = aot.resolve("classes");
+        run(List.of(SpringApplicationAotProcessor.class.getName(), PatientServiceApplication.class.getName(),
+                sources.toString(), resources.toString(), classes.toString(), "com.pm", "patient-service"),
+                aot.resolve("process-aot.log"), 180);
+        compile(sources, classes);
+        copy(resources, classes);
+
+        int port = freePort();
+        Path log = aot.resolve("app.log");
+        Process app = java(List.of("-Dspring.aot.enabled=true", PatientServiceApplication.class.getName(),
+                        "--server.port=" + port,
+                        "--auth.jwks.url=http://localhost:1/.well-known/jwks.json",
+                        "--spring.datasource.url=jdbc:h2:mem:aot",
+                        "--spring.kafka.admin.auto-create=false",
+                        // port -1 (no gRPC server) is one of the conditions AOT settles at build time
+                        "--grpc.server.port=" + freePort()),
+                classes.toString() + File.pathSeparator + CLASSPATH, log);
+        try {
+            HttpRequest spoofedTenant = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/patients"))
+                    .header("X-Tenant-Id", "clinic-b")
+                    .GET()
+                    .build();
+            assertEquals(401, awaitResponse(spoofedTenant, app, log).statusCode());
+        } finally {
+            app.destroyForcibly().waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static HttpResponse<String> awaitResponse(HttpRequest request, Process app, Path log) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                fail("app exited with " + app.exitValue() + ":\n" + Files.readString(log));
+            }
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                Thread.sleep(500); // not listening yet
+            }
+        }
+        throw new AssertionError("app didn't answer within 120s:\n" + Files.readString(log));
+    }
+
+    private static void run(List<String> args, Path log, int timeoutSeconds) throws Exception {
+        Process process = java(args, CLASSPATH, log);
+        assertTrue(process.waitFor(timeoutSeconds, TimeUnit.SECONDS), "timed out:\n" + Files.readString(log));
+        assertEquals(0, process.exitValue(), Files.readString(log));
+    }
+
+    private static Process java(List<String> args, String classpath, Path log) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"),
+                "--add-opens=java.base/java.nio=ALL-UNNAMED",
+                // devtools is on the test classpath but not in the packaged jar
+                "-Dspring.devtools.restart.enabled=false",
+                "-cp", classpath));
+        command.addAll(args);
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+    }
+
+    private static void compile(Path sources, Path classes) throws IOException {
+        // against the CGLIB proxies AOT has already written to classes
+        List<String> args = new ArrayList<>(List.of("-cp", classes + File.pathSeparator + CLASSPATH,
+                "-d", classes.toString(), "-proc:none"));
+        try (Stream<Path> files = Files.walk(sources)) {
+            files.filter(file -> file.toString().endsWith(".java")).forEach(file -> args.add(file.toString()));
+        }
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, javac.run(null, null, null, args.toArray(String[]::new)), "generated sources don't compile");
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Path target = to.resolve(from.relativize(file));
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.pm.patientservice.cdc;
+
+import com.pm.patientevents.PatientEventData;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEventType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PgOutputDecoderTests {
+    private static final String[] COLUMNS =
+            {"id", "name", "email", "address", "date_of_birth", "registered_date", "tenant_id"};
+    private static final Set<String> REPLICA_IDENTITY = Set.of("id", "registered_date", "tenant_id");
+
+    @Test
+    void decodesRowChangesIntoPatientEvents() throws IOException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+
+        assertNull(decoder.decode(relation()));
+
+        PgOutputDecoder.Change insert = assertInstanceOf(PgOutputDecoder.Change.class, decoder.decode(change('I',
+                "0190a5e0-0000-7000-8000-000000000001", "Jane Doe", "jane@example.com", "1 Main St",
+                "1990-01-02", "2024-03-04", "clinic-a")));
+        assertEquals(PgOutputDecoder.Operation.INSERT, insert.operation());
+        assertEquals("patient", insert.table());
+
+        PatientEventData created = PatientCdcReader.toEvent(insert, Instant.parse("2024-03-04T10:15:30Z"));
+        assertEquals(PatientEventType.PATIENT_CREATED, created.type());
+        assertEquals("jane@example.com", created.email());
+        assertEquals(LocalDate.of(1990, 1, 2), created.dateOfBirth());
+        assertEquals(Instant.parse("2024-03-04T10:15:30Z"), created.occurredAt());
+        assertEquals("clinic-a", created.tenantId());
+
+        // deletes only carry the replica identity, the other columns arrive as nulls
+        PgOutputDecoder.Change delete = assertInstanceOf(PgOutputDecoder.Change.class, decoder.decode(change('D',
+                "0190a5e0-0000-7000-8000-000000000001", null, null, null, null, "2024-03-04", "clinic-a")));
+        assertEquals(Map.of("id", "0190a5e0-0000-7000-8000-000000000001", "registered_date", "2024-03-04",
+                "tenant_id", "clinic-a"), delete.columns());
+        PatientEventData deleted = PatientCdcReader.toEvent(delete, Instant.now());
+        assertEquals(PatientEventType.PATIENT_DELETED, deleted.type());
+        assertEquals("clinic-a", deleted.tenantId());
+
+        PgOutputDecoder.Commit commit = assertInstanceOf(PgOutputDecoder.Commit.class, decoder.decode(commit()));
+        assertEquals(0x154F470L, commit.endLsn());
+    }
+
+    @Test
+    void snapshotRowsCarryTheirTenant() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("id")).thenReturn("0190a5e0-0000-7000-8000-000000000002");
+        when(rs.getString("name")).thenReturn("Sam Snapshot");
+        when(rs.getString("email")).thenReturn("sam@example.com");
+        when(rs.getString("address")).thenReturn("2 Old Rd");
+        when(rs.getString("date_of_birth")).thenReturn("1980-05-06");
+        when(rs.getString("registered_date")).thenReturn("2023-01-02");
+        when(rs.getString("tenant_id")).thenReturn("clinic-b");
+
+        PatientEventData existing = PatientCdcReader.toEvent(PatientCdcReader.snapshotRow(rs), Instant.now());
+
+        assertEquals(PatientEventType.PATIENT_CREATED, existing.type());
+        assertEquals("clinic-b", existing.tenantId());
+        assertEquals("sam@example.com", existing.email());
+        assertEquals(LocalDate.of(2023, 1, 2), existing.registeredDate());
+    }
+
+    private static ByteBuffer relation() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('R');
+        out.writeInt(16390);
+        writeString(out, "public");
+        writeString(out, "patient");
+        out.writeByte('d');
+        out.writeShort(COLUMNS.length);
+        for (String column : COLUMNS) {
+            out.writeByte(REPLICA_IDENTITY.contains(column) ? 1 : 0); // part of the key
+            writeString(out, column);
+            out.writeInt(25);
+            out.writeInt(-1);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static ByteBuffer change(char type, String... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeInt(16390);
+        out.writeByte(type == 'D' ? 'K' : 'N');
+        out.writeShort(values.length);
+        for (String value : values) {
+            if (value == null) {
+                out.writeByte('n');
+            } else {
+                byte[] text = value.getBytes(StandardCharsets.UTF_8);
+                out.writeByte('t');
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static ByteBuffer commit() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte('C');
+        out.writeByte(0);
+        out.writeLong(0x154F440L);
+        out.writeLong(0x154F470L);
+        out.writeLong(782_000_000_000_000L);
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.pm.patientservice.controller;
+
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.repository.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        // JDBC (Flyway, JPA) and R2DBC share one named in-memory database
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+class ReactivePatientControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Test
+    void streamsPatientsFromR2dbc() {
+        List<PatientResponseDTO> patients = webTestClient.get().uri("/patients")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(PatientResponseDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertEquals(patientRepository.count(), patients.size());
+
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        webTestClient.get().uri("/patients?registeredFrom={from}&registeredTo={to}", from, to)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(PatientResponseDTO.class)
+                .hasSize(patientRepository.findByRegisteredDateBetween(from, to).size());
+    }
+}
@@ -0,0 +1,95 @@
+package com.pm.patientservice.export;
+
+import com.pm.patientservice.exception.PatientExportNotFoundException;
+import com.pm.patientservice.repository.PatientRepository;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        "patient.export.dir=target/test-exports",
+        "patient.export.batch-rows=4" // several record batches out of the seed data
+})
+class PatientExportServiceTests {
+
+    @Autowired
+    private PatientExportService patientExportService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Test
+    void exportsEveryPatientInRecordBatchesAndThenOnlyNewerOnes() throws Exception {
+        PatientExportJob full = awaitCompletion(patientExportService.startExport(null));
+
+        assertEquals(patientRepository.count(), full.getRows());
+        assertEquals(full.getRows(), rowsIn(full));
+
+        // what another instance would answer a poll with
+        PatientExportJob stored = patientExportService.getExport(full.getId());
+        assertEquals(PatientExportJob.COMPLETED, stored.getStatus());
+        assertEquals(full.getRows(), stored.getRows());
+        assertEquals(full.getWatermark(), stored.getWatermark());
+        assertEquals(full.getFile(), stored.getFile());
+
+        LocalDate watermark = full.getWatermark();
+        PatientExportJob incremental = awaitCompletion(patientExportService.startExport(watermark));
+
+        long expected = patientRepository.findByRegisteredDateBetween(watermark, LocalDate.of(9999, 12, 31)).size();
+        assertEquals(expected, incremental.getRows());
+        assertTrue(incremental.getRows() < full.getRows());
+        assertEquals(watermark, incremental.getWatermark());
+    }
+
+    @Test
+    void finishedExportsAreDeletedAfterTheRetention() throws Exception {
+        PatientExportJob job = patientExportService.getExport(
+                awaitCompletion(patientExportService.startExport(null)).getId());
+
+        patientExportService.deleteFinishedBefore(job.getFinishedAt());
+        assertTrue(Files.exists(job.getFile()));
+        assertEquals(PatientExportJob.COMPLETED, patientExportService.getExport(job.getId()).getStatus());
+
+        patientExportService.deleteFinishedBefore(job.getFinishedAt().plusMillis(1));
+        assertFalse(Files.exists(job.getFile()));
+        assertThrows(PatientExportNotFoundException.class, () -> patientExportService.getExport(job.getId()));
+    }
+
+    private PatientExportJob awaitCompletion(PatientExportJob job) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        while (!PatientExportJob.COMPLETED.equals(job.getStatus())) {
+            assertTrue(Instant.now().isBefore(deadline), "export did not finish: " + job.getError());
+            Thread.sleep(50);
+        }
+        return job;
+    }
+
+    private static long rowsIn(PatientExportJob job) throws Exception {
+        long rows = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+             FileChannel channel = FileChannel.open(job.getFile());
+             ArrowFileReader reader = new ArrowFileReader(channel, allocator)) {
+            assertTrue(reader.getRecordBlocks().size() > 1);
+            while (reader.loadNextBatch()) {
+                rows += reader.getVectorSchemaRoot().getRowCount();
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,71 @@
+package com.pm.patientservice.grpc;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.EnumSet;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BillingServiceGrpcClientTests {
+
+    @Test
+    void breakerOpensWhenBillingServiceIsDownAndShedsFurtherCalls() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort(); // nothing listens here once the socket is closed
+        }
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .recordException(new BillingFailurePredicate())
+                .build());
+        BillingServiceGrpcClient client = new BillingServiceGrpcClient("localhost", closedPort, 500,
+                circuitBreakerRegistry, BulkheadRegistry.ofDefaults());
+
+        try {
+            assertShedsCallsOnceOpen(client, circuitBreakerRegistry);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void assertShedsCallsOnceOpen(BillingServiceGrpcClient client,
+                                                 CircuitBreakerRegistry circuitBreakerRegistry) {
+        for (int i = 0; i < 4; i++) {
+            StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+                    () -> client.createBillingAccount("patient-1", "John Doe", "john.doe@example.com"));
+            // refused, or out of deadline when the first connect attempt is slow on a loaded machine
+            assertTrue(EnumSet.of(Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED)
+                    .contains(error.getStatus().getCode()), error.getStatus().toString());
+            assertTrue(BillingServiceGrpcClient.isUnavailable(error));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("billing").getState());
+        assertThrows(CallNotPermittedException.class,
+                () -> client.createBillingAccount("patient-2", "Jane Doe", "jane.doe@example.com"));
+
+        CompletionException asyncError = assertThrows(CompletionException.class,
+                () -> client.createBillingAccountAsync("patient-2", "Jane Doe", "jane.doe@example.com").join());
+        assertTrue(BillingServiceGrpcClient.isUnavailable(asyncError));
+    }
+
+    @Test
+    void answersFromBillingServiceAreNotFailures() {
+        assertFalse(new BillingFailurePredicate().test(Status.NOT_FOUND.asRuntimeException()));
+        assertFalse(BillingServiceGrpcClient.isUnavailable(Status.INVALID_ARGUMENT.asRuntimeException()));
+        assertTrue(new BillingFailurePredicate().test(Status.DEADLINE_EXCEEDED.asRuntimeException()));
+    }
+}
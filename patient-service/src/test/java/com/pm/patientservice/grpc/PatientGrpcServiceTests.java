@@ -0,0 +1,70 @@
+package com.pm.patientservice.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.MetadataUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import patient.ListPatientsRequest;
+import patient.ListPatientsResponse;
+import patient.Patient;
+import patient.PatientServiceGrpc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        "grpc.server.in-process-name=patient-grpc-test"
+})
+class PatientGrpcServiceTests {
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void openChannel() {
+        channel = InProcessChannelBuilder.forName("patient-grpc-test").build();
+    }
+
+    @AfterEach
+    void closeChannel() {
+        channel.shutdownNow();
+    }
+
+    @Test
+    void listPatientsPagesThroughTheTenantsPatientsInIdOrder() {
+        List<ListPatientsResponse> pages = new ArrayList<>();
+        PatientServiceGrpc.newBlockingStub(channel)
+                .listPatients(ListPatientsRequest.newBuilder().setPageSize(4).build())
+                .forEachRemaining(pages::add);
+
+        List<UUID> ids = pages.stream()
+                .flatMap(page -> page.getPatientsList().stream())
+                .map(Patient::getId)
+                .map(UUID::fromString)
+                .toList();
+        assertTrue(ids.size() >= 10, "seeded patients: " + ids.size());
+        assertEquals(ids.stream().sorted(Comparator.naturalOrder()).distinct().toList(), ids);
+        assertTrue(pages.stream().allMatch(page -> page.getPatientsCount() <= 4));
+        assertEquals((ids.size() + 3) / 4, pages.size());
+
+        // another clinic has none of them
+        Metadata tenant = new Metadata();
+        tenant.put(Metadata.Key.of("x-tenant-id", Metadata.ASCII_STRING_MARSHALLER), "clinic-empty");
+        List<ListPatientsResponse> otherTenant = new ArrayList<>();
+        PatientServiceGrpc.newBlockingStub(channel)
+                .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(tenant))
+                .listPatients(ListPatientsRequest.getDefaultInstance())
+                .forEachRemaining(otherTenant::add);
+        assertEquals(1, otherTenant.size());
+        assertEquals(0, otherTenant.get(0).getPatientsCount());
+    }
+}
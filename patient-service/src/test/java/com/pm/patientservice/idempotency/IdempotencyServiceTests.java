@@ -0,0 +1,130 @@
+package com.pm.patientservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.EmailAlreadyExistsException;
+import com.pm.patientservice.exception.IdempotencyKeyReusedException;
+import com.pm.patientservice.exception.InvalidIdempotencyKeyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1"
+})
+class IdempotencyServiceTests {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeyStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void retriesGetTheFirstResponseWithoutCreatingAgain() {
+        AtomicInteger creates = new AtomicInteger();
+        PatientRequestDTO request = request("retry@example.com");
+        String key = UUID.randomUUID().toString();
+
+        IdempotencyService.Result first = idempotencyService.execute(key, request, counting(creates));
+        IdempotencyService.Result retry = idempotencyService.execute(key, request("retry@example.com"),
+                counting(creates));
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.response(), retry.response());
+        assertEquals(1, creates.get());
+
+        // another instance (or this one after a restart) finds the response in the table
+        IdempotencyService otherInstance = new IdempotencyService(idempotencyKeyStore, objectMapper,
+                new SimpleMeterRegistry(), Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(1), 100);
+        assertEquals(first.response(), otherInstance.execute(key, request, counting(creates)).response());
+        assertEquals(1, creates.get());
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> idempotencyService.execute(key, request("someone.else@example.com"), counting(creates)));
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> idempotencyService.execute("not a key", request, counting(creates)));
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstRequest() throws Exception {
+        AtomicInteger creates = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String key = UUID.randomUUID().toString();
+
+        CompletableFuture<IdempotencyService.Result> first = CompletableFuture.supplyAsync(
+                () -> idempotencyService.execute(key, request("slow@example.com"), () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return counting(creates).get();
+                }));
+        started.await();
+        CompletableFuture<IdempotencyService.Result> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotencyService.execute(key, request("slow@example.com"), counting(creates)));
+
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        assertEquals(first.get().response(), duplicate.get().response());
+        assertTrue(duplicate.get().replayed());
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    void failedCreatesCanBeRetriedWithTheSameKey() {
+        String key = UUID.randomUUID().toString();
+        PatientRequestDTO request = request("flaky@example.com");
+
+        assertThrows(EmailAlreadyExistsException.class, () -> idempotencyService.execute(key, request, () -> {
+            throw new EmailAlreadyExistsException("A patient with this email already exists: flaky@example.com");
+        }));
+
+        AtomicInteger creates = new AtomicInteger();
+        assertFalse(idempotencyService.execute(key, request, counting(creates)).replayed());
+        assertEquals(1, creates.get());
+    }
+
+    private static Supplier<PatientResponseDTO> counting(AtomicInteger creates) {
+        return () -> {
+            creates.incrementAndGet();
+            return new PatientResponseDTO(UUID.randomUUID(), "Ida Empotent", "ida@example.com", "9 Retry Ln",
+                    LocalDate.of(1990, 1, 2));
+        };
+    }
+
+    private static PatientRequestDTO request(String email) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName("Ida Empotent");
+        request.setEmail(email);
+        request.setAddress("9 Retry Ln");
+        request.setDateOfBirth("1990-01-02");
+        request.setRegisteredDate("2024-03-01");
+        return request;
+    }
+}
@@ -0,0 +1,72 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientevents.PatientEventData;
+import com.pm.patientevents.PatientEventSerializer;
+import com.pm.patientservice.model.Patient;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import patient.events.PatientEvent;
+import patient.events.PatientEventType;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaProducerTests {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void eventCarriesFullPatientSnapshot() throws Exception {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setName("John Doe");
+        patient.setEmail("john.doe@example.com");
+        patient.setAddress("123 Main St, Springfield");
+        patient.setDateOfBirth(LocalDate.of(1985, 6, 15));
+        patient.setRegisteredDate(LocalDate.of(2024, 1, 10));
+
+        PatientEvent event = PatientEvent.parseFrom(
+                new PatientEventSerializer().serialize(KafkaProducer.PATIENT_TOPIC,
+                        KafkaProducer.toEvent(patient, PatientEventType.PATIENT_UPDATED)));
+
+        assertEquals(PatientEventType.PATIENT_UPDATED, event.getType());
+        assertEquals("PATIENT_UPDATED", event.getEventType());
+        assertEquals("123 Main St, Springfield", event.getAddress());
+        assertEquals("1985-06-15", event.getDateOfBirth());
+        assertEquals("2024-01-10", event.getRegisteredDate());
+        assertEquals(KafkaProducer.SCHEMA_VERSION, event.getSchemaVersion());
+        assertTrue(event.getOccurredAt().getSeconds() > 0);
+        assertEquals(patient.getId().toString(), event.getPatientId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsArePlacedByPatientIdWithoutLookingUpPartitions() {
+        KafkaTemplate<UUID, PatientEventData> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(anyString(), any(UUID.class), any())).thenReturn(new CompletableFuture<>());
+        KafkaProducer producer = new KafkaProducer(kafkaTemplate, "application", CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.ofDefaults(), new SimpleMeterRegistry());
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setTenantId("clinic-a");
+
+        producer.sendEvent(patient, PatientEventType.PATIENT_CREATED);
+
+        verify(kafkaTemplate).send(eq(KafkaProducer.PATIENT_TOPIC), eq(patient.getId()), any());
+        verify(kafkaTemplate).send(eq(KafkaProducer.PATIENT_STATE_TOPIC), eq(patient.getId()), any());
+        verify(kafkaTemplate, never()).partitionsFor(anyString());
+    }
+}
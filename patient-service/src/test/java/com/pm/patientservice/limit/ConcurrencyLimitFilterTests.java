@@ -0,0 +1,32 @@
+package com.pm.patientservice.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTests {
+
+    @Test
+    void samplesOnlyRequestsWhoseDurationIsTheServicesLatency() {
+        ConcurrencyLimitFilter filter = filter(false);
+
+        assertTrue(filter.sampled(new MockHttpServletRequest("GET", "/patients/6f1c0d7e-0000-0000-0000-000000000001")));
+        assertTrue(filter.sampled(new MockHttpServletRequest("POST", "/patients")));
+        assertTrue(filter.sampled(new MockHttpServletRequest("PUT", "/patients/6f1c0d7e-0000-0000-0000-000000000001")));
+        assertFalse(filter.sampled(new MockHttpServletRequest("GET", "/patients")));
+        assertFalse(filter.sampled(new MockHttpServletRequest("POST", "/patients/exports")));
+        assertFalse(filter.sampled(new MockHttpServletRequest("GET", "/patients/exports/42/file")));
+
+        // coalesced updates wait for the coalescing window
+        assertFalse(filter(true).sampled(
+                new MockHttpServletRequest("PUT", "/patients/6f1c0d7e-0000-0000-0000-000000000001")));
+    }
+
+    private static ConcurrencyLimitFilter filter(boolean coalescedUpdates) {
+        return new ConcurrencyLimitFilter(new SimpleMeterRegistry(), true, 50, 10, 400, 1.5, 0.2, 600, 10,
+                coalescedUpdates);
+    }
+}
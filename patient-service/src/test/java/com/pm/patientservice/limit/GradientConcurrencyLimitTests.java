@@ -0,0 +1,97 @@
+package com.pm.patientservice.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientConcurrencyLimitTests {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long DOWNLOAD = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    void growsWhileLatencyHoldsAndShrinksWhenItRises() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 10, 400, 1.5, 0.2, 600, 10);
+
+        sample(limit, FAST, 200);
+        int grown = limit.getLimit();
+        assertTrue(grown > 100, "limit " + grown);
+
+        // the database slows down: the limit drops to the floor instead of letting requests queue
+        sample(limit, SLOW, 200);
+        assertEquals(10, limit.getLimit());
+
+        // and recovers once latency is back to normal
+        sample(limit, FAST, 200);
+        assertTrue(limit.getLimit() > 50, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void longStreamsReleasedWithoutASampleLeaveTheLimitToTheShortRequests() {
+        GradientConcurrencyLimit sampledStreams = new GradientConcurrencyLimit(20, 10, 400, 1.5, 0.2, 600, 10);
+        GradientConcurrencyLimit unsampledStreams = new GradientConcurrencyLimit(20, 10, 400, 1.5, 0.2, 600, 10);
+        sample(sampledStreams, FAST, 100);
+        sample(unsampledStreams, FAST, 100);
+
+        // GET /patients/{id} calls with a multi-second export download finishing after every tenth of them
+        for (int i = 0; i < 20; i++) {
+            sample(sampledStreams, FAST, 10);
+            sampledStreams.onSample(DOWNLOAD, sampledStreams.getLimit(), false);
+
+            sample(unsampledStreams, FAST, 10);
+            GradientConcurrencyLimit.Slot download = unsampledStreams.tryAcquire();
+            assertNotNull(download);
+            download.releaseWithoutSample(false);
+        }
+
+        assertEquals(10, sampledStreams.getLimit());
+        assertTrue(unsampledStreams.getLimit() > 100, "limit " + unsampledStreams.getLimit());
+        assertEquals(0, unsampledStreams.getInFlight());
+    }
+
+    @Test
+    void ignoresSamplesWhileMostOfTheLimitIsUnused() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 10, 400, 1.5, 0.2, 600, 10);
+
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(FAST, 1, false);
+        }
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void failuresCutTheLimitAtOnce() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(100, 10, 400, 1.5, 0.2, 600, 10);
+
+        limit.onSample(FAST, 100, true);
+
+        assertEquals(90, limit.getLimit());
+    }
+
+    @Test
+    void rejectsRequestsBeyondTheLimit() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(2, 2, 2, 1.5, 0.2, 600, 10);
+
+        GradientConcurrencyLimit.Slot first = limit.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limit.tryAcquire());
+        assertNull(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        first.release(false);
+        assertNotNull(limit.tryAcquire());
+    }
+
+    // requests that kept the whole limit busy
+    private static void sample(GradientConcurrencyLimit limit, long rttNanos, int samples) {
+        for (int i = 0; i < samples; i++) {
+            limit.onSample(rttNanos, limit.getLimit(), false);
+        }
+    }
+}
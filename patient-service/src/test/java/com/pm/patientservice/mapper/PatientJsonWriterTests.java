@@ -0,0 +1,104 @@
+package com.pm.patientservice.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pm.patientservice.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientJsonWriterTests {
+    // configured like Spring Boot's ObjectMapper, which served GET /patients before
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Test
+    void writesTheSameJsonAsJackson() throws IOException {
+        List<Patient> patients = patients(3);
+        patients.get(1).setAddress("12 \"Quoted\" Rd\nÅlesund");
+        patients.get(2).setDateOfBirth(LocalDate.of(9, 2, 28));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (PatientJsonWriter writer = new PatientJsonWriter(streamed)) {
+            patients.forEach(writer::write);
+        }
+
+        String expected = objectMapper.writeValueAsString(patients.stream().map(PatientMapper::toDTO).toList());
+        assertEquals(expected, streamed.toString(StandardCharsets.UTF_8));
+        assertTrue(expected.contains("\"dateOfBrith\":\"0009-02-28\""));
+    }
+
+    // GET /patients used to map every entity to a DTO with String ids and dates, collect them into a list and
+    // hand that to Jackson; the writer should allocate a fraction of that per patient
+    @Test
+    void allocatesLessPerPatientThanMappingToDtos() throws IOException {
+        List<Patient> patients = patients(20_000);
+
+        for (int i = 0; i < 5; i++) { // warm up both paths so JIT compilation doesn't skew the numbers
+            writeMapped(patients);
+            writeStreamed(patients);
+        }
+
+        long mapped = bytesAllocatedPerPatient(patients, () -> writeMapped(patients));
+        long streamed = bytesAllocatedPerPatient(patients, () -> writeStreamed(patients));
+
+        assertTrue(streamed * 4 < mapped, "streamed " + streamed + " B/patient, mapped " + mapped + " B/patient");
+    }
+
+    private void writeMapped(List<Patient> patients) throws IOException {
+        List<LegacyPatientResponse> response = patients.stream().map(LegacyPatientResponse::of).toList();
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    private static void writeStreamed(List<Patient> patients) throws IOException {
+        try (PatientJsonWriter writer = new PatientJsonWriter(OutputStream.nullOutputStream())) {
+            patients.forEach(writer::write);
+        }
+    }
+
+    private static long bytesAllocatedPerPatient(List<Patient> patients, IoAction action) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        action.run();
+        return (threads.getCurrentThreadAllocatedBytes() - before) / patients.size();
+    }
+
+    private static List<Patient> patients(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Patient patient = new Patient();
+            patient.setId(UUID.randomUUID());
+            patient.setName("Patient " + i);
+            patient.setEmail("patient" + i + "@example.com");
+            patient.setAddress(i + " Main Street, Springfield");
+            patient.setDateOfBirth(LocalDate.of(1950, 1, 1).plusDays(i));
+            patient.setRegisteredDate(LocalDate.of(2024, 1, 1));
+            return patient;
+        }).toList();
+    }
+
+    // the response shape before this change: every field converted to a String up front
+    private record LegacyPatientResponse(String id, String name, String email, String address, String dateOfBrith) {
+        static LegacyPatientResponse of(Patient patient) {
+            return new LegacyPatientResponse(patient.getId().toString(), patient.getName(), patient.getEmail(),
+                    patient.getAddress(), patient.getDateOfBirth().toString());
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.model.Patient;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingAccountBackfillTests {
+    private final BillingServiceGrpcClient billing = mock(BillingServiceGrpcClient.class);
+
+    @Test
+    void deferredAccountsOutliveTheInstanceThatDeferredThem() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/common/V7__create_billing_account_outbox.sql")).execute(dataSource);
+        Patient created = patient("clinic-a");
+        Patient deferred = patient("clinic-b");
+
+        BillingAccountBackfill before = backfill(dataSource);
+        before.add(created);
+        before.remove(created); // billing-service had it right away
+        before.add(deferred);
+        before.defer(deferred);
+
+        // a new instance (after a restart) picks the row up, and keeps it while billing is still down
+        BillingAccountBackfill after = backfill(dataSource);
+        when(billing.createBillingAccount(anyString(), anyString(), anyString()))
+                .thenThrow(Status.UNAVAILABLE.asRuntimeException())
+                .thenReturn(null);
+        after.retryPending();
+        assertEquals(1, after.pendingAccounts());
+
+        after.retryPending();
+        assertEquals(0, after.pendingAccounts());
+        verify(billing, times(2)).createBillingAccount(deferred.getId().toString(), deferred.getName(),
+                deferred.getEmail());
+        verify(billing, times(0)).createBillingAccount(created.getId().toString(), created.getName(),
+                created.getEmail());
+    }
+
+    private BillingAccountBackfill backfill(DataSource dataSource) {
+        return new BillingAccountBackfill(billing, dataSource, new SimpleMeterRegistry(), 0, 500);
+    }
+
+    private static Patient patient(String tenant) {
+        Patient patient = new Patient();
+        patient.setId(UUID.randomUUID());
+        patient.setTenantId(tenant);
+        patient.setName("Jane " + tenant);
+        patient.setEmail("jane@" + tenant + ".example.com");
+        return patient;
+    }
+}
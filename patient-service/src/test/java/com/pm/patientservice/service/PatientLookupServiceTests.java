@@ -0,0 +1,72 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientLookupRequestDTO;
+import com.pm.patientservice.dto.PatientLookupResponseDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.PatientNotFoundException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        "patient.lookup.batch-window=200ms" // wide enough that every concurrent lookup below joins one batch
+})
+class PatientLookupServiceTests {
+    // seeded by V2__seed_patients.sql
+    private static final UUID JOHN = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+    private static final UUID JANE = UUID.fromString("123e4567-e89b-12d3-a456-426614174001");
+
+    @Autowired
+    private PatientLookupService patientLookupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void resolvesIdsAndEmailsAndReportsTheMissingOnes() {
+        UUID unknownId = UUID.randomUUID();
+        PatientLookupRequestDTO request = new PatientLookupRequestDTO();
+        request.setIds(List.of(JOHN, unknownId, JOHN));
+        request.setEmails(List.of("john.doe@example.com", "alice.johnson@example.com", "nobody@example.com"));
+
+        PatientLookupResponseDTO response = patientLookupService.lookup(request);
+
+        assertEquals(List.of(JOHN, UUID.fromString("123e4567-e89b-12d3-a456-426614174002")),
+                response.getPatients().stream().map(PatientResponseDTO::id).toList());
+        assertEquals(List.of(unknownId.toString()), response.getMissingIds());
+        assertEquals(List.of("nobody@example.com"), response.getMissingEmails());
+
+        assertEquals(List.of(JOHN.toString()), patientLookupService.exists(request).getExistingIds());
+    }
+
+    @Test
+    void concurrentSingleLookupsShareOneQuery() {
+        DistributionSummary batchSizes = meterRegistry.get("patient.lookup.batch.size").summary();
+        long batchesBefore = batchSizes.count();
+
+        List<CompletableFuture<PatientResponseDTO>> lookups = IntStream.range(0, 20)
+                .mapToObj(i -> patientLookupService.loadPatient(i % 2 == 0 ? JOHN : JANE))
+                .toList();
+
+        lookups.forEach(CompletableFuture::join);
+        assertEquals("john.doe@example.com", lookups.get(0).join().email());
+        assertEquals("jane.smith@example.com", lookups.get(1).join().email());
+        assertEquals(1, batchSizes.count() - batchesBefore);
+        assertTrue(batchSizes.max() >= 2);
+
+        assertThrows(PatientNotFoundException.class, () -> patientLookupService.getPatient(UUID.randomUUID()));
+    }
+}
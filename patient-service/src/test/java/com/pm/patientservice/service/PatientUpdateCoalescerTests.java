@@ -0,0 +1,123 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.EmailAlreadyExistsException;
+import com.pm.patientservice.exception.PatientNotFoundException;
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        "patient.update.coalesce=true",
+        "patient.update.coalesce-window=200ms" // wide enough that every update below joins one batch
+})
+class PatientUpdateCoalescerTests {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientUpdateCoalescer patientUpdateCoalescer;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void mergesRepeatedUpdatesIntoOneCommitAndAnswersEveryCaller() {
+        UUID first = patientService.savePatient(request("first@example.com", "0 Start St")).getId();
+        UUID second = patientService.savePatient(request("second@example.com", "0 Start St")).getId();
+        DistributionSummary batchSizes = meterRegistry.get("patient.update.batch.size").summary();
+        Counter coalesced = meterRegistry.get("patient.update.coalesced").counter();
+        long batchesBefore = batchSizes.count();
+        double coalescedBefore = coalesced.count();
+
+        List<CompletableFuture<PatientResponseDTO>> updates = IntStream.range(0, 20)
+                .mapToObj(i -> patientUpdateCoalescer.submit(i % 2 == 0 ? first : second,
+                        request(i % 2 == 0 ? "first@example.com" : "second@example.com", i + " Resent Rd")))
+                .toList();
+
+        // every caller gets its patient's newest state
+        updates.forEach(update -> assertEquals(update.join().id().equals(first) ? "18 Resent Rd" : "19 Resent Rd",
+                update.join().address()));
+        assertEquals("18 Resent Rd", patientRepository.findById(first).orElseThrow().getAddress());
+        assertEquals("19 Resent Rd", patientRepository.findById(second).orElseThrow().getAddress());
+        assertEquals(1, batchSizes.count() - batchesBefore);
+        assertEquals(18, coalesced.count() - coalescedBefore);
+    }
+
+    @Test
+    void failsOnlyTheUpdatesThatWouldFailOnTheirOwn() {
+        UUID patient = patientService.savePatient(request("kept@example.com", "1 Old Rd")).getId();
+        UUID other = patientService.savePatient(request("taken@example.com", "2 Old Rd")).getId();
+
+        CompletableFuture<PatientResponseDTO> unknown =
+                patientUpdateCoalescer.submit(UUID.randomUUID(), request("ghost@example.com", "3 Nowhere"));
+        CompletableFuture<PatientResponseDTO> duplicateEmail =
+                patientUpdateCoalescer.submit(other, request("kept@example.com", "2 Old Rd"));
+        CompletableFuture<PatientResponseDTO> valid =
+                patientUpdateCoalescer.submit(patient, request("kept@example.com", "1 New Rd"));
+
+        assertEquals("1 New Rd", valid.join().address());
+        assertInstanceOf(PatientNotFoundException.class,
+                assertThrows(CompletionException.class, unknown::join).getCause());
+        assertInstanceOf(EmailAlreadyExistsException.class,
+                assertThrows(CompletionException.class, duplicateEmail::join).getCause());
+        assertEquals("taken@example.com", patientRepository.findById(other).orElseThrow().getEmail());
+
+        // PatientService unwraps the failure for its callers, as without coalescing
+        assertThrows(PatientNotFoundException.class,
+                () -> patientService.updatePatient(UUID.randomUUID(), request("ghost@example.com", "3 Nowhere")));
+    }
+
+    @Test
+    void anEmailGivenUpEarlierInTheBatchCanBeTakenLaterInIt() {
+        UUID moving = patientService.savePatient(request("handed-over@example.com", "4 Old Rd")).getId();
+        UUID taking = patientService.savePatient(request("wants-it@example.com", "5 Old Rd")).getId();
+        DistributionSummary batchSizes = meterRegistry.get("patient.update.batch.size").summary();
+        long batchesBefore = batchSizes.count();
+        double writtenBefore = batchSizes.totalAmount();
+
+        CompletableFuture<PatientResponseDTO> gaveUp =
+                patientUpdateCoalescer.submit(moving, request("moved-on@example.com", "4 Old Rd"));
+        CompletableFuture<PatientResponseDTO> took =
+                patientUpdateCoalescer.submit(taking, request("handed-over@example.com", "5 Old Rd"));
+
+        assertEquals("moved-on@example.com", gaveUp.join().email());
+        assertEquals("handed-over@example.com", took.join().email());
+        assertEquals("handed-over@example.com", patientRepository.findById(taking).orElseThrow().getEmail());
+        // both in the one batch transaction, not the one-by-one fallback
+        assertEquals(1, batchSizes.count() - batchesBefore);
+        assertEquals(2, batchSizes.totalAmount() - writtenBefore);
+    }
+
+    private static PatientRequestDTO request(String email, String address) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName("Rhea Sender");
+        request.setEmail(email);
+        request.setAddress(address);
+        request.setDateOfBirth("1975-06-15");
+        request.setRegisteredDate(LocalDate.now().toString());
+        return request;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pm.patientservice.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTests {
+    private static final List<String> TENANTS = IntStream.range(0, 10_000).mapToObj(i -> "clinic-" + i).toList();
+
+    @Test
+    void spreadsTenantsByWeight() {
+        ShardRing ring = new ShardRing(Map.of("shard-0", 1, "shard-1", 1, "shard-2", 2), 160, Map.of());
+
+        Map<String, Integer> tenantsPerShard = new HashMap<>();
+        TENANTS.forEach(tenant -> tenantsPerShard.merge(ring.shardFor(tenant), 1, Integer::sum));
+
+        // 1/4, 1/4 and 1/2 of the tenants, give or take the randomness of the hash
+        assertEquals(2500, tenantsPerShard.get("shard-0"), 400);
+        assertEquals(2500, tenantsPerShard.get("shard-1"), 400);
+        assertEquals(5000, tenantsPerShard.get("shard-2"), 600);
+    }
+
+    @Test
+    void addingAShardOnlyMovesTenantsOntoIt() {
+        ShardRing before = new ShardRing(Map.of("shard-0", 1, "shard-1", 1, "shard-2", 1), 160, Map.of());
+        ShardRing after = new ShardRing(Map.of("shard-0", 1, "shard-1", 1, "shard-2", 1, "shard-3", 1), 160,
+                Map.of());
+
+        long moved = TENANTS.stream().filter(tenant -> !before.shardFor(tenant).equals(after.shardFor(tenant)))
+                .peek(tenant -> assertEquals("shard-3", after.shardFor(tenant)))
+                .count();
+
+        assertEquals(TENANTS.size() / 4.0, moved, TENANTS.size() * 0.05);
+    }
+
+    @Test
+    void pinnedTenantsSkipTheRing() {
+        ShardRing ring = new ShardRing(Map.of("shard-0", 1, "shard-1", 1), 160, Map.of("big-clinic", "shard-1"));
+
+        assertEquals("shard-1", ring.shardFor("big-clinic"));
+        assertTrue(TENANTS.stream().anyMatch(tenant -> ring.shardFor(tenant).equals("shard-0")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardRing(Map.of("shard-0", 1), 160, Map.of("big-clinic", "shard-9")));
+    }
+}
@@ -0,0 +1,98 @@
+package com.pm.patientservice.shard;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.service.PatientService;
+import com.pm.patientservice.tenant.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// two in-memory databases as shards; tenants are pinned so the test doesn't depend on where the ring puts them
+@SpringBootTest(properties = {
+        "spring.kafka.admin.auto-create=false",
+        "grpc.server.port=-1",
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "patient.sharding.enabled=true",
+        "patient.sharding.shards.shard-1.url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "patient.sharding.shards.shard-1.username=sa",
+        "patient.sharding.pinned.default=shard-0",
+        "patient.sharding.pinned.clinic-a=shard-0",
+        "patient.sharding.pinned.clinic-b=shard-1"
+})
+class ShardRoutingTests {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ShardRoutingDataSource dataSource;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Test
+    void keepsEachTenantsPatientsOnItsShardAndOutOfOtherTenantsSight() {
+        Patient patient;
+        try (TenantContext.Scope scope = TenantContext.use("clinic-b")) {
+            patient = patientService.savePatient(request("shared@example.com"));
+        }
+        assertEquals("clinic-b", patient.getTenantId());
+        assertEquals(List.of("clinic-b"), tenantsOn("shard-1", patient.getId()));
+        assertEquals(List.of(), tenantsOn("shard-0", patient.getId()));
+
+        try (TenantContext.Scope scope = TenantContext.use("clinic-a")) {
+            assertTrue(patientRepository.findById(patient.getId()).isEmpty());
+            // emails are unique per clinic, not across clinics
+            patientService.savePatient(request("shared@example.com"));
+        }
+    }
+
+    @Test
+    void rebalancerMovesMisplacedTenants() {
+        UUID id = UUID.randomUUID();
+        shard("shard-0").update("""
+                INSERT INTO patient (id, tenant_id, name, email, address, date_of_birth, registered_date)
+                VALUES (?, 'clinic-b', 'Moved Patient', 'moved@example.com', '1 Road', DATE '1990-01-01',
+                        DATE '2024-05-01')""", id);
+
+        assertTrue(shardRebalancer.plan().contains(new ShardRebalancer.Move("clinic-b", "shard-0", "shard-1", 1)));
+        assertEquals(1, shardRebalancer.apply(new ShardRebalancer.Move("clinic-b", "shard-0", "shard-1", 1)));
+
+        assertEquals(List.of(), tenantsOn("shard-0", id));
+        assertEquals(List.of("clinic-b"), tenantsOn("shard-1", id));
+        try (TenantContext.Scope scope = TenantContext.use("clinic-b")) {
+            assertEquals("moved@example.com", patientRepository.findById(id).orElseThrow().getEmail());
+        }
+    }
+
+    private List<String> tenantsOn(String shard, UUID id) {
+        return shard(shard).queryForList("SELECT tenant_id FROM patient WHERE id = ?", String.class, id);
+    }
+
+    private JdbcTemplate shard(String name) {
+        return new JdbcTemplate(dataSource.shards().get(name));
+    }
+
+    private static PatientRequestDTO request(String email) {
+        PatientRequestDTO request = new PatientRequestDTO();
+        request.setName("Sam Shard");
+        request.setEmail(email);
+        request.setAddress("7 Partition Way");
+        request.setDateOfBirth("1980-02-29");
+        request.setRegisteredDate(LocalDate.now().toString());
+        return request;
+    }
+}
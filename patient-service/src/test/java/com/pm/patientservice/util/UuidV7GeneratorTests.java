@@ -0,0 +1,31 @@
+package com.pm.patientservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7GeneratorTests {
+
+    @Test
+    void generatesVersion7Uuids() {
+        UUID id = UuidV7Generator.next();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+    }
+
+    @Test
+    void idsAreMonotonic() {
+        UUID previous = UuidV7Generator.next();
+
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = UuidV7Generator.next();
+            // compare as unsigned so the ordering matches PostgreSQL's uuid ordering
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = next;
+        }
+    }
+}
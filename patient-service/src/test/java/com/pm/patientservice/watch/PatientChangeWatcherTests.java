@@ -0,0 +1,205 @@
+package com.pm.patientservice.watch;
+
+import com.pm.patientevents.PatientEventData;
+import com.pm.patientevents.PatientEventSerializer;
+import com.pm.patientevents.PatientEventView;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.tenant.TenantContext;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import patient.PatientChange;
+import patient.PatientChangeType;
+import patient.events.PatientEventType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PatientChangeWatcherTests {
+    private static final TopicPartition PARTITION = new TopicPartition(KafkaProducer.PATIENT_TOPIC, 0);
+    private static final UUID PATIENT = UUID.randomUUID();
+
+    @Test
+    void streamsTheTenantsChangesAndResumesFromAToken() throws Exception {
+        MockConsumer<byte[], PatientEventView> live = consumer();
+        TestObserver observer = new TestObserver();
+        try (TenantContext.Scope scope = TenantContext.use("clinic-a")) {
+            watcher(live).watch("", observer);
+        }
+
+        // the stream starts with a checkpoint at the end of the topic
+        PatientChange start = observer.next();
+        assertEquals(PatientChangeType.PATIENT_CHANGE_CHECKPOINT, start.getType());
+        assertEquals(Map.of(0, 0L), ResumeToken.decode(start.getResumeToken()).offsets());
+
+        live.schedulePollTask(() -> records().forEach(live::addRecord));
+        PatientChange created = observer.next();
+        PatientChange updated = observer.next();
+        assertEquals(PatientChangeType.PATIENT_CHANGE_CREATED, created.getType());
+        assertEquals(PATIENT.toString(), created.getPatient().getId());
+        assertEquals(Map.of(0, 1L), ResumeToken.decode(created.getResumeToken()).offsets());
+        // clinic-b's change at offset 1 was skipped
+        assertEquals(PatientChangeType.PATIENT_CHANGE_UPDATED, updated.getType());
+        assertEquals("2 New Rd", updated.getPatient().getAddress());
+        assertEquals(Map.of(0, 3L), ResumeToken.decode(updated.getResumeToken()).offsets());
+        observer.cancel();
+
+        // a client that only saw the create picks up from there
+        MockConsumer<byte[], PatientEventView> resumed = consumer();
+        TestObserver resumedObserver = new TestObserver();
+        try (TenantContext.Scope scope = TenantContext.use("clinic-a")) {
+            watcher(resumed).watch(created.getResumeToken(), resumedObserver);
+        }
+        assertEquals(created.getResumeToken(), resumedObserver.next().getResumeToken());
+        resumed.schedulePollTask(() -> records().forEach(resumed::addRecord));
+        assertEquals(updated, resumedObserver.next());
+        resumedObserver.cancel();
+    }
+
+    @Test
+    void deletesOnlyReachTheirTenantsWatchers() throws Exception {
+        MockConsumer<byte[], PatientEventView> live = consumer();
+        TestObserver observer = new TestObserver();
+        try (TenantContext.Scope scope = TenantContext.use("clinic-a")) {
+            watcher(live).watch("", observer);
+        }
+        observer.next(); // the starting checkpoint
+
+        live.schedulePollTask(() -> List.of(
+                record(0, event("clinic-b", PatientEventType.PATIENT_DELETED, "9 Other St")),
+                // from before tenants existed, so the default tenant's
+                record(1, event(null, PatientEventType.PATIENT_DELETED, "8 Older St")),
+                record(2, event("clinic-a", PatientEventType.PATIENT_DELETED, "1 Old Rd"))).forEach(live::addRecord));
+
+        PatientChange deleted = observer.next();
+        assertEquals(PatientChangeType.PATIENT_CHANGE_DELETED, deleted.getType());
+        assertEquals("1 Old Rd", deleted.getPatient().getAddress());
+        assertEquals(Map.of(0, 3L), ResumeToken.decode(deleted.getResumeToken()).offsets());
+        observer.cancel();
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        TestObserver observer = new TestObserver();
+
+        watcher(consumer()).watch("not a token", observer);
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(observer.error).getCode());
+    }
+
+    private static PatientChangeWatcher watcher(MockConsumer<byte[], PatientEventView> consumer) {
+        return new PatientChangeWatcher(() -> consumer, new SimpleMeterRegistry(), 4, Duration.ofMinutes(1));
+    }
+
+    private static MockConsumer<byte[], PatientEventView> consumer() {
+        MockConsumer<byte[], PatientEventView> consumer = new MockConsumer<>(OffsetResetStrategy.NONE);
+        consumer.updatePartitions(KafkaProducer.PATIENT_TOPIC,
+                List.of(new PartitionInfo(KafkaProducer.PATIENT_TOPIC, 0, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 0L));
+        return consumer;
+    }
+
+    private static List<ConsumerRecord<byte[], PatientEventView>> records() {
+        return List.of(
+                record(0, event("clinic-a", PatientEventType.PATIENT_CREATED, "1 Old Rd")),
+                record(1, event("clinic-b", PatientEventType.PATIENT_CREATED, "9 Other St")),
+                record(2, event("clinic-a", PatientEventType.PATIENT_UPDATED, "2 New Rd")));
+    }
+
+    private static ConsumerRecord<byte[], PatientEventView> record(long offset, PatientEventData event) {
+        byte[] value = new PatientEventSerializer().serialize(KafkaProducer.PATIENT_TOPIC, event);
+        return new ConsumerRecord<>(KafkaProducer.PATIENT_TOPIC, 0, offset, new byte[0], new PatientEventView(value));
+    }
+
+    private static PatientEventData event(String tenant, PatientEventType type, String address) {
+        return new PatientEventData(PATIENT, "Wanda Watch", "wanda@example.com", address, LocalDate.of(1988, 8, 8),
+                LocalDate.of(2024, 1, 1), type, Instant.parse("2024-01-01T10:00:00Z"), tenant);
+    }
+
+    // a client that is always ready
+    private static final class TestObserver extends ServerCallStreamObserver<PatientChange> {
+        private final BlockingQueue<PatientChange> changes = new LinkedBlockingQueue<>();
+        private volatile Runnable onCancel;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+
+        PatientChange next() throws InterruptedException {
+            PatientChange change = changes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change, "no change within 5s");
+            return change;
+        }
+
+        void cancel() {
+            cancelled = true;
+            onCancel.run();
+            assertNull(error);
+        }
+
+        @Override
+        public void onNext(PatientChange value) {
+            changes.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+            this.onCancel = onCancelHandler;
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+}
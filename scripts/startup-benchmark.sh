@@ -0,0 +1,91 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark for a Spring Boot service jar: time from launching the JVM to the first HTTP response
+# (any status counts) and the resident set size at that moment, in up to three modes:
+#   jvm      plain java -jar
+#   cds      with a class-data-sharing archive recorded by a training run
+#   aot-cds  CDS plus Spring AOT (only when the jar was built with -Pfast-start)
+#
+# usage: scripts/startup-benchmark.sh <jar> <url> [runs] [application arguments...]
+# e.g.   scripts/startup-benchmark.sh billing-service/target/billing-service-0.0.1-SNAPSHOT.jar \
+#            http://localhost:4001/actuator/health 5
+#
+# Each run is appended to startup-benchmark.csv next to the jar (override with OUTPUT=...), so results can be
+# tracked across builds.
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+  sed -n '3,14p' "$0"
+  exit 1
+fi
+
+jar=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+url=$2
+runs=${3:-3}
+shift $(($# < 3 ? $# : 3))
+app_args=("$@")
+output=${OUTPUT:-$(dirname "$jar")/startup-benchmark.csv}
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+# CDS needs the exploded layout (a plain app jar plus lib/); the archive is only valid for this exact classpath
+java -Djarmode=tools -jar "$jar" extract --destination "$work/app" > /dev/null
+app=$work/app/$(basename "$jar")
+
+modes=(jvm cds)
+if jar tf "$jar" | grep -q '__ApplicationContextInitializer'; then
+  modes+=(aot-cds)
+fi
+
+# training run: refreshes the context without starting the web server, then writes out the loaded classes
+train() {
+  java -XX:ArchiveClassesAtExit="$1" -Dspring.context.exit=onRefresh "${@:2}" -jar "$app" "${app_args[@]}" \
+    > "$work/training.log" 2>&1 || { tail -20 "$work/training.log"; exit 1; }
+}
+
+jvm_options() {
+  case $1 in
+    jvm) ;;
+    cds) echo "-XX:SharedArchiveFile=$work/cds.jsa" ;;
+    aot-cds) echo "-XX:SharedArchiveFile=$work/aot-cds.jsa -Dspring.aot.enabled=true" ;;
+  esac
+}
+
+measure() {
+  local mode=$1 run=$2 start pid elapsed rss
+  start=$(date +%s%N)
+  # shellcheck disable=SC2046
+  java $(jvm_options "$mode") -jar "$app" "${app_args[@]}" > "$work/$mode.log" 2>&1 &
+  pid=$!
+
+  until curl -s -o /dev/null "$url"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "$mode: the application exited before answering $url" >&2
+      tail -20 "$work/$mode.log" >&2
+      exit 1
+    fi
+    sleep 0.02
+  done
+
+  elapsed=$((($(date +%s%N) - start) / 1000000))
+  rss=$(($(ps -o rss= -p "$pid") / 1024))
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+
+  printf '%-8s run %d: %6d ms to first request, %5d MB RSS\n' "$mode" "$run" "$elapsed" "$rss"
+  echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$(basename "$jar"),$mode,$run,$elapsed,$rss" >> "$output"
+}
+
+[ -f "$output" ] || echo "timestamp,jar,mode,run,first_request_ms,rss_mb" > "$output"
+
+train "$work/cds.jsa"
+[[ " ${modes[*]} " == *" aot-cds "* ]] && train "$work/aot-cds.jsa" -Dspring.aot.enabled=true
+
+for mode in "${modes[@]}"; do
+  for run in $(seq 1 "$runs"); do
+    measure "$mode" "$run"
+  done
+done
+
+echo "results appended to $output"